@@ -0,0 +1,281 @@
+package com.todolist;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Пакетный режим: выполняет команды из потока (файла или конвейера) без меню и подсказок.
+ *
+ * Команды читаются группами по GROUP_SIZE строк. Группа выполняется под одним замком хранилища
+ * и одной групповой фиксацией журнала (TaskStore.groupChanges), подряд идущие add добавляются
+ * одним вызовом addTasks и поэтому отменяются одной командой undo. Ответы группы пишутся
+ * в буферизованный вывод без автоматического сброса после того, как группа выполнена.
+ *
+ * Одна команда на строку, поля разделены табуляцией; в полях \t, \n и \\ обозначают табуляцию,
+ * перевод строки и обратную косую черту. Пустые строки и строки, начинающиеся с #, пропускаются.
+ * Срок - гггг-мм-дд, приоритет - HIGH, MEDIUM или LOW; пустое поле или - означают их отсутствие.
+ * <pre>
+ * add &lt;название&gt; [&lt;описание&gt; [&lt;срок&gt; [&lt;приоритет&gt;]]]         ok &lt;id&gt;
+ * edit &lt;id&gt; &lt;название&gt; [&lt;описание&gt; [&lt;срок&gt; [&lt;приоритет&gt;]]]   ok
+ * delete &lt;id&gt;                                               ok
+ * get &lt;id&gt;                                                  found 1 и задача
+ * list [&lt;пропустить&gt; [&lt;количество&gt;]]                        found &lt;n&gt; и n задач
+ * search &lt;запрос&gt; [&lt;пропустить&gt; [&lt;количество&gt;]]              found &lt;n&gt; и n задач (см. TaskQuery.parse)
+ * top &lt;порядок&gt; &lt;количество&gt;                                  found &lt;n&gt; и n задач (см. SortOrder)
+ * sort                                                       ok
+ * undo, redo                                                 ok
+ * count                                                      count &lt;n&gt;
+ * </pre>
+ * Задача выводится строкой "id, название, описание, срок, приоритет" через табуляцию.
+ * Ошибочная команда даёт ответ "error &lt;номер строки&gt; &lt;сообщение&gt;", и выполнение продолжается.
+ */
+final class BatchRunner {
+    private static final int GROUP_SIZE = 1024;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final TaskStore store;
+    private long commands;
+    private long errors;
+
+    BatchRunner(TaskStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Выполняет все команды из input и пишет ответы в output. Вывод сбрасывается только
+     * в конце; отчёт о скорости выводится в report.
+     * @return Количество выполненных команд.
+     */
+    long run(BufferedReader input, Writer output, PrintStream report) throws IOException {
+        long started = System.nanoTime();
+        List<String> group = new ArrayList<>(GROUP_SIZE);
+        long lineNumber = 0;
+        long firstLine = 1;
+        String line;
+        while ((line = input.readLine()) != null) {
+            lineNumber++;
+            if (group.isEmpty()) {
+                firstLine = lineNumber;
+            }
+            group.add(line);
+            if (group.size() == GROUP_SIZE) {
+                output.append(execute(group, firstLine));
+                group.clear();
+            }
+        }
+        if (!group.isEmpty()) {
+            output.append(execute(group, firstLine));
+        }
+        output.flush();
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        report.printf(Locale.ROOT, "Выполнено команд: %d за %.2f с (%.0f команд/с), ошибок: %d%n",
+                commands, seconds, seconds == 0 ? 0 : commands / seconds, errors);
+        return commands;
+    }
+
+    /**
+     * Выполняет группу строк под замком хранилища и возвращает ответы на них.
+     */
+    private CharSequence execute(List<String> lines, long firstLine) {
+        StringBuilder out = new StringBuilder(lines.size() * 16);
+        synchronized (store) {
+            store.groupChanges(() -> {
+                List<Task> added = new ArrayList<>();
+                for (int i = 0; i < lines.size(); i++) {
+                    String line = lines.get(i);
+                    if (line.isEmpty() || line.charAt(0) == '#') {
+                        continue;
+                    }
+                    commands++;
+                    long lineNumber = firstLine + i;
+                    try {
+                        String[] fields = split(line);
+                        if ("add".equals(fields[0])) {
+                            added.add(parseTask(fields, 1));
+                            continue;
+                        }
+                        addAll(added, out);
+                        execute(fields, out);
+                    } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                        addAll(added, out);
+                        error(out, lineNumber, e);
+                    }
+                }
+                addAll(added, out);
+            });
+        }
+        return out;
+    }
+
+    /**
+     * Добавляет накопленные подряд идущие задачи одним вызовом и отвечает на каждую.
+     */
+    private void addAll(List<Task> added, StringBuilder out) {
+        if (added.isEmpty()) {
+            return;
+        }
+        for (Task task : store.addTasks(added)) {
+            out.append("ok\t").append(task.getId()).append('\n');
+        }
+        added.clear();
+    }
+
+    private void execute(String[] fields, StringBuilder out) {
+        switch (fields[0]) {
+            case "edit": {
+                Task task = parseTask(fields, 2);
+                long id = parseId(fields[1]);
+                if (!store.editTaskById(id, task.getTitle(), task.getDescription(), task.getDueDate(), task.getPriority())) {
+                    throw new IllegalArgumentException("Задача " + id + " не найдена");
+                }
+                out.append("ok\n");
+                break;
+            }
+            case "delete": {
+                long id = parseId(fields[1]);
+                if (!store.deleteTaskById(id)) {
+                    throw new IllegalArgumentException("Задача " + id + " не найдена");
+                }
+                out.append("ok\n");
+                break;
+            }
+            case "get": {
+                long id = parseId(fields[1]);
+                Task task = store.getTaskById(id);
+                if (task == null) {
+                    throw new IllegalArgumentException("Задача " + id + " не найдена");
+                }
+                found(List.of(task), out);
+                break;
+            }
+            case "list":
+                found(store.getTasks(intField(fields, 1, 0), intField(fields, 2, DEFAULT_PAGE_SIZE)), out);
+                break;
+            case "search":
+                found(store.query(TaskQuery.parse(fields[1]), intField(fields, 2, 0), intField(fields, 3, DEFAULT_PAGE_SIZE)), out);
+                break;
+            case "top":
+                found(store.getTopTasks(SortOrder.valueOf(fields[1].toUpperCase(Locale.ROOT)), Integer.parseInt(fields[2])), out);
+                break;
+            case "sort":
+                store.sortByDueDate();
+                out.append("ok\n");
+                break;
+            case "undo":
+                if (!store.undo()) {
+                    throw new IllegalArgumentException("Нечего отменять");
+                }
+                out.append("ok\n");
+                break;
+            case "redo":
+                if (!store.redo()) {
+                    throw new IllegalArgumentException("Нечего повторять");
+                }
+                out.append("ok\n");
+                break;
+            case "count":
+                out.append("count\t").append(store.size()).append('\n');
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестная команда: " + fields[0]);
+        }
+    }
+
+    private void error(StringBuilder out, long lineNumber, RuntimeException e) {
+        errors++;
+        String message = e instanceof IndexOutOfBoundsException ? "Не хватает полей команды" : e.getMessage();
+        out.append("error\t").append(lineNumber).append('\t');
+        escape(String.valueOf(message), out);
+        out.append('\n');
+    }
+
+    private static void found(List<Task> tasks, StringBuilder out) {
+        out.append("found\t").append(tasks.size()).append('\n');
+        for (Task task : tasks) {
+            out.append(task.getId()).append('\t');
+            escape(task.getTitle(), out);
+            out.append('\t');
+            escape(task.getDescription(), out);
+            out.append('\t').append(task.getDueDate() == null ? "-" : task.getDueDate().toString())
+                    .append('\t').append(task.getPriority() == null ? "-" : task.getPriority().name())
+                    .append('\n');
+        }
+    }
+
+    /**
+     * Собирает задачу из полей "название, описание, срок, приоритет", начиная с from.
+     */
+    private static Task parseTask(String[] fields, int from) {
+        String title = fields[from];
+        if (title.isBlank()) {
+            throw new IllegalArgumentException("Название задачи не может быть пустым");
+        }
+        String description = fields.length > from + 1 ? fields[from + 1] : "";
+        String dueDate = fields.length > from + 2 ? fields[from + 2] : "";
+        String priority = fields.length > from + 3 ? fields[from + 3] : "";
+        return new Task(title, description,
+                isEmpty(dueDate) ? null : LocalDate.parse(dueDate),
+                isEmpty(priority) ? null : Priority.valueOf(priority.toUpperCase(Locale.ROOT)));
+    }
+
+    private static boolean isEmpty(String field) {
+        return field.isEmpty() || "-".equals(field);
+    }
+
+    private static long parseId(String field) {
+        return Long.parseLong(field);
+    }
+
+    private static int intField(String[] fields, int index, int defaultValue) {
+        return fields.length > index ? Integer.parseInt(fields[index]) : defaultValue;
+    }
+
+    /**
+     * Делит строку команды на поля по табуляции и раскрывает в них \t, \n и \\.
+     */
+    static String[] split(String line) {
+        List<String> fields = new ArrayList<>(6);
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+}
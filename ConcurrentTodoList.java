@@ -0,0 +1,556 @@
+package com.todolist;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Потокобезопасный список задач для использования из нескольких потоков.
+ * Задачи распределены по сегментам (stripes), у каждого сегмента свой замок
+ * и неизменяемый массив, который заменяется целиком при каждом изменении (copy-on-write).
+ * Запись блокирует только свой сегмент, а чтение не берёт замков: оно собирает массивы
+ * всех сегментов дважды и считает снимок согласованным, если они не изменились
+ * (двойной сбор). Порядок списка задаётся глобальным порядковым ключом задачи.
+ * Сортировка заменяет массивы всех сегментов по одному, поэтому она нечётным номером поколения
+ * (sortGeneration) помечает время замены: снимок, во время сбора которого номер менялся
+ * или был нечётным, отбрасывается, и читатель видит сортировку целиком или не видит вовсе.
+ * Задачи неизменяемы, поэтому читатели получают сами хранимые задачи без копирования,
+ * а редактирование заменяет задачу её новой версией.
+ */
+public class ConcurrentTodoList implements TaskStore {
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 8;
+
+    private final Stripe[] stripes;
+    private final AtomicLong nextKey = new AtomicLong();
+    private final AtomicLong nextId = new AtomicLong(1);
+    // Увеличивается на единицу до и после замены массивов сортировкой: нечётное - сортировка идёт
+    private volatile long sortGeneration;
+    private final ConcurrentHashMap<Long, Long> keyById = new ConcurrentHashMap<>(); // Идентификатор -> ключ порядка
+    private final List<TaskChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    public ConcurrentTodoList() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param concurrencyLevel Желаемое число сегментов (округляется вверх до степени двойки).
+     */
+    public ConcurrentTodoList(int concurrencyLevel) {
+        int count = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1)) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Задача вместе с её позицией в глобальном порядке списка.
+     */
+    private static final class Node {
+        final long key;
+        final Task task;
+
+        Node(long key, Task task) {
+            this.key = key;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Сегмент списка: замок для писателей и массив узлов, упорядоченный по ключу.
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile Node[] nodes = new Node[0];
+    }
+
+    /**
+     * Добавляет задачу; задача без идентификатора сохраняется копией с назначенным идентификатором.
+     * @return Сохранённая задача.
+     * @throws IllegalArgumentException если задача с таким идентификатором уже есть в списке.
+     */
+    @Override
+    public Task addTask(Task task) {
+        if (task.getId() == 0) {
+            task = task.withId(nextId.getAndIncrement());
+        } else {
+            nextId.accumulateAndGet(task.getId() + 1, Math::max);
+        }
+        long generation = sortGeneration;
+        long key = nextKey.getAndIncrement();
+        if (keyById.putIfAbsent(task.getId(), key) != null) {
+            throw new IllegalArgumentException("Задача с идентификатором " + task.getId() + " уже есть в списке");
+        }
+        while (true) {
+            Stripe stripe = stripeFor(key);
+            stripe.lock.lock();
+            try {
+                if (sortGeneration == generation) {
+                    Node node = new Node(key, task);
+                    Node[] nodes = stripe.nodes;
+                    int position = insertionPoint(nodes, key);
+                    Node[] updated = new Node[nodes.length + 1];
+                    System.arraycopy(nodes, 0, updated, 0, position);
+                    updated[position] = node;
+                    System.arraycopy(nodes, position, updated, position + 1, nodes.length - position);
+                    stripe.nodes = updated;
+                    for (TaskChangeListener listener : changeListeners) {
+                        listener.taskAdded(node.task);
+                    }
+                    return task;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+            // Между выдачей ключа и вставкой прошла сортировка: задача со старым ключом
+            // оказалась бы перед отсортированными, поэтому она получает ключ после них
+            generation = sortGeneration;
+            key = nextKey.getAndIncrement();
+            keyById.put(task.getId(), key);
+        }
+    }
+
+    @Override
+    public Task getTaskById(long id) {
+        while (true) {
+            long generation = sortGeneration;
+            Long key = keyById.get(id);
+            if (key == null) {
+                return null;
+            }
+            Stripe stripe = stripeFor(key);
+            Node[] nodes = stripe.nodes;
+            int position = indexOf(nodes, key);
+            if (position >= 0) {
+                return nodes[position].task;
+            }
+            if ((generation & 1) != 0) {
+                // Сортировка ещё не заменила массив сегмента: дожидаемся её под замком сегмента
+                stripe.lock.lock();
+                stripe.lock.unlock();
+            } else if (key.equals(keyById.get(id)) && sortGeneration == generation) {
+                return null; // Задача ещё не опубликована добавляющим потоком
+            }
+            // Ключ изменился из-за сортировки - повторяем поиск
+        }
+    }
+
+    /**
+     * Редактирует задачу по индексу в снимке списка на момент вызова.
+     * Если задачу успели удалить другим потоком, возвращает false.
+     */
+    @Override
+    public boolean editTask(int index, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        Node target = nodeAt(index);
+        return target != null && editTaskById(target.task.getId(), newTitle, newDescription, newDueDate, newPriority);
+    }
+
+    @Override
+    public boolean editTaskById(long id, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        return replaceById(id, task -> task.edited(newTitle, newDescription, newDueDate, newPriority));
+    }
+
+    /**
+     * Удаляет задачу по индексу в снимке списка на момент вызова.
+     * Если задачу успели удалить другим потоком, возвращает false.
+     */
+    @Override
+    public boolean deleteTask(int index) {
+        Node target = nodeAt(index);
+        return target != null && deleteTaskById(target.task.getId());
+    }
+
+    @Override
+    public boolean deleteTaskById(long id) {
+        return replaceById(id, null);
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        List<Task> result = new ArrayList<>();
+        for (Node node : snapshot()) {
+            result.add(node.task);
+        }
+        return result;
+    }
+
+    /**
+     * Количество задач в согласованном снимке: складываются длины массивов сегментов без слияния.
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Node[] nodes : stableArrays()) {
+            size += nodes.length;
+        }
+        return size;
+    }
+
+    /**
+     * Задача по индексу в согласованном снимке: массивы сегментов сливаются только до этого индекса.
+     */
+    @Override
+    public Task getTaskAt(int index) {
+        Node node = nodeAt(index);
+        return node == null ? null : node.task;
+    }
+
+    /**
+     * Индекс задачи в согласованном снимке: число задач с меньшим ключом порядка, которое
+     * считается двоичным поиском в массиве каждого сегмента, без слияния массивов.
+     */
+    @Override
+    public int indexOf(long id) {
+        while (true) {
+            long generation = sortGeneration;
+            Long key = keyById.get(id);
+            if (key == null) {
+                return -1;
+            }
+            Node[][] arrays = stableArrays();
+            if (sortGeneration == generation) {
+                if (indexOf(arrays[stripeIndex(key)], key) < 0) {
+                    return -1; // Задача ещё не опубликована добавляющим потоком
+                }
+                int index = 0;
+                for (Node[] nodes : arrays) {
+                    index += countBefore(nodes, key);
+                }
+                return index;
+            }
+            // Сортировка переназначила ключи после чтения ключа - повторяем поиск
+        }
+    }
+
+    /**
+     * Подписывает слушателя на изменения. События приходят под замком сегмента задачи,
+     * поэтому события об одной задаче приходят по порядку.
+     */
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Сортирует задачи по сроку выполнения.
+     * Единственная операция, которая блокирует все сегменты: она переназначает ключи всем задачам.
+     * Читатели без замков видят результат только после замены массивов всех сегментов.
+     */
+    @Override
+    public void sortByDueDate() {
+        lockAll();
+        try {
+            sortGeneration++; // Под замками всех сегментов: писатели не меняют номер одновременно
+            Node[] all = merge(collect(), Long.MAX_VALUE);
+            Arrays.sort(all, (a, b) -> SortOrder.compareDueDates(a.task, b.task)); // Задачи без срока идут в конце
+            List<List<Node>> redistributed = new ArrayList<>();
+            for (int i = 0; i < stripes.length; i++) {
+                redistributed.add(new ArrayList<>());
+            }
+            for (Node node : all) {
+                long key = nextKey.getAndIncrement();
+                redistributed.get(stripeIndex(key)).add(new Node(key, node.task));
+                keyById.put(node.task.getId(), key);
+            }
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i].nodes = redistributed.get(i).toArray(new Node[0]);
+            }
+            sortGeneration++;
+            for (TaskChangeListener listener : changeListeners) {
+                listener.tasksReordered();
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public List<Task> searchByKeyword(String keyword) {
+        String lowerCaseKeyword = keyword.toLowerCase();
+        return filter(task -> task.getTitle().toLowerCase().contains(lowerCaseKeyword) ||
+                task.getDescription().toLowerCase().contains(lowerCaseKeyword));
+    }
+
+    @Override
+    public List<Task> searchByPriority(Priority priority) {
+        return filter(task -> task.getPriority() == priority);
+    }
+
+    /**
+     * Возвращает задачи снимка, удовлетворяющие условию, в порядке списка.
+     * Большой снимок проверяется параллельно по кускам массива (см. ParallelScan).
+     */
+    private List<Task> filter(Predicate<Task> predicate) {
+        Node[] nodes = snapshot();
+        return ParallelScan.DEFAULT.collect(nodes.length, (from, to, result) -> {
+            for (int i = from; i < to; i++) {
+                if (predicate.test(nodes[i].task)) {
+                    result.add(nodes[i].task);
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<Task> searchByDueDateRange(LocalDate from, LocalDate to) {
+        return searchByDueDateRange(null, from, to);
+    }
+
+    @Override
+    public List<Task> searchByPriorityAndDueDateRange(Priority priority, LocalDate from, LocalDate to) {
+        if (priority == null) {
+            return new ArrayList<>();
+        }
+        return searchByDueDateRange(priority, from, to);
+    }
+
+    private List<Task> searchByDueDateRange(Priority priority, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже его конца: " + from + " > " + to);
+        }
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        // Сравниваются номера дней: у задачи без срока ключ Long.MAX_VALUE, и она не попадает в диапазон
+        List<Task> found = filter(task -> (priority == null || task.getPriority() == priority)
+                && task.dueDateKey() >= fromDay && task.dueDateKey() <= toDay);
+        found.sort(SortOrder::compareDueDates); // Устойчивая сортировка сохраняет порядок списка
+        return found;
+    }
+
+    /**
+     * Заменяет или удаляет задачу с указанным идентификатором под замком её сегмента.
+     * @param edit Строит новую версию задачи из текущей; null для удаления.
+     * @return true, если задача найдена.
+     */
+    private boolean replaceById(long id, UnaryOperator<Task> edit) {
+        while (true) {
+            Long key = keyById.get(id);
+            if (key == null) {
+                return false;
+            }
+            Stripe stripe = stripeFor(key);
+            stripe.lock.lock();
+            try {
+                Node[] nodes = stripe.nodes;
+                int position = indexOf(nodes, key);
+                if (position >= 0) {
+                    Node[] updated;
+                    Task replacement = edit == null ? null : edit.apply(nodes[position].task);
+                    if (replacement != null) {
+                        updated = nodes.clone();
+                        updated[position] = new Node(key, replacement);
+                    } else {
+                        updated = new Node[nodes.length - 1];
+                        System.arraycopy(nodes, 0, updated, 0, position);
+                        System.arraycopy(nodes, position + 1, updated, position, nodes.length - position - 1);
+                        keyById.remove(id);
+                    }
+                    stripe.nodes = updated;
+                    // Под замком сегмента, чтобы события об одной задаче приходили по порядку
+                    for (TaskChangeListener listener : changeListeners) {
+                        if (replacement != null) {
+                            listener.taskUpdated(nodes[position].task, replacement);
+                        } else {
+                            listener.taskRemoved(nodes[position].task);
+                        }
+                    }
+                    return true;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+            if (key.equals(keyById.get(id))) {
+                return false; // Задача ещё не опубликована добавляющим потоком
+            }
+            // Ключ изменился из-за сортировки - повторяем поиск
+        }
+    }
+
+    /**
+     * Возвращает согласованный снимок всех задач в порядке списка без блокировок.
+     * Снимок принимается, если два сбора подряд совпали и за это время не шла сортировка.
+     * Если писатели слишком часто мешают двойному сбору, снимок берётся под замками всех сегментов.
+     */
+    private Node[] snapshot() {
+        return merge(stableArrays(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Согласованные массивы всех сегментов (см. snapshot) без слияния.
+     */
+    private Node[][] stableArrays() {
+        long generation = sortGeneration;
+        Node[][] previous = collect();
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            Node[][] current = collect();
+            long currentGeneration = sortGeneration;
+            if (sameArrays(previous, current) && currentGeneration == generation && (generation & 1) == 0) {
+                return current;
+            }
+            generation = currentGeneration;
+            previous = current;
+        }
+        lockAll();
+        try {
+            return collect();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private Node nodeAt(int index) {
+        if (index < 0) {
+            return null;
+        }
+        Node[] first = merge(stableArrays(), (long) index + 1);
+        return index < first.length ? first[index] : null;
+    }
+
+    private Node[][] collect() {
+        Node[][] arrays = new Node[stripes.length][];
+        for (int i = 0; i < stripes.length; i++) {
+            arrays[i] = stripes[i].nodes;
+        }
+        return arrays;
+    }
+
+    private static boolean sameArrays(Node[][] first, Node[][] second) {
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] != second[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Слияние упорядоченных массивов сегментов в один массив, упорядоченный по ключу.
+     * Использует двоичную кучу номеров сегментов: O(n log s).
+     * @param limit Сколько первых узлов нужно; слияние останавливается на них.
+     */
+    private static Node[] merge(Node[][] arrays, long limit) {
+        int total = 0;
+        for (Node[] nodes : arrays) {
+            total += nodes.length;
+        }
+        total = (int) Math.min(total, limit);
+        Node[] merged = new Node[total];
+        int[] positions = new int[arrays.length];
+        int[] heap = new int[arrays.length];
+        int heapSize = 0;
+        for (int s = 0; s < arrays.length; s++) {
+            if (arrays[s].length > 0) {
+                heap[heapSize++] = s;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, arrays, positions);
+        }
+        for (int i = 0; i < total; i++) {
+            int s = heap[0];
+            merged[i] = arrays[s][positions[s]++];
+            if (positions[s] == arrays[s].length) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, 0, arrays, positions);
+        }
+        return merged;
+    }
+
+    private static void siftDown(int[] heap, int size, int index, Node[][] arrays, int[] positions) {
+        while (true) {
+            int smallest = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (headKey(heap[child], arrays, positions) < headKey(heap[smallest], arrays, positions)) {
+                    smallest = child;
+                }
+            }
+            if (smallest == index) {
+                return;
+            }
+            int swap = heap[index];
+            heap[index] = heap[smallest];
+            heap[smallest] = swap;
+            index = smallest;
+        }
+    }
+
+    private static long headKey(int stripe, Node[][] arrays, int[] positions) {
+        return arrays[stripe][positions[stripe]].key;
+    }
+
+    private void lockAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[stripeIndex(key)];
+    }
+
+    private int stripeIndex(long key) {
+        return (int) (key & (stripes.length - 1));
+    }
+
+    private static int insertionPoint(Node[] nodes, long key) {
+        int position = nodes.length;
+        while (position > 0 && nodes[position - 1].key > key) {
+            position--; // Обычно ключ самый большой, и цикл не выполняется
+        }
+        return position;
+    }
+
+    /**
+     * Количество узлов массива с ключом меньше указанного.
+     */
+    private static int countBefore(Node[] nodes, long key) {
+        int low = 0;
+        int high = nodes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (nodes[middle].key < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int indexOf(Node[] nodes, long key) {
+        int low = 0;
+        int high = nodes.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = nodes[middle].key;
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+}
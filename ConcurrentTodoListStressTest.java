@@ -0,0 +1,213 @@
+package com.todolist;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочная проверка согласованности ConcurrentTodoList. Пока один поток непрерывно сортирует
+ * список, а другие меняют сроки задач, добавляют и удаляют задачи, читатели без замков
+ * проверяют каждый полученный снимок:
+ * - в нём ровно столько задач со сроком, сколько было добавлено вначале (их не добавляют и не удаляют),
+ *   и нет повторяющихся задач;
+ * - задачи без срока (их добавляет и удаляет отдельный поток) идут после всех задач со сроком:
+ *   сортировка ставит их в конец, а добавление - после уже отсортированных задач;
+ * - поиск по идентификатору всегда находит задачу со сроком.
+ * Кроме того, каждый пишущий поток сверяет результаты своих операций с последовательной моделью:
+ * задачи со сроком меняет только один поток, а задачи без срока добавляет и удаляет другой,
+ * поэтому каждый из них должен видеть свои изменения так, как если бы работал со списком один.
+ * После остановки потоков список целиком сравнивается с моделью, собранной из их записей,
+ * а size, getTaskAt и indexOf - с полным снимком.
+ * Большое число сегментов растягивает замену массивов сортировкой, поэтому несогласованный
+ * снимок, если он возможен, быстро попадается читателю.
+ *
+ * Запуск: java com.todolist.ConcurrentTodoListStressTest [--tasks 20000] [--stripes 65536]
+ *         [--readers 2] [--seconds 10]
+ * Программа завершается с кодом 1, если найдено хотя бы одно нарушение.
+ */
+public final class ConcurrentTodoListStressTest {
+    private static final int MAX_UNDATED = 64; // Сколько задач без срока держит добавляющий поток
+    private static final int FINAL_POSITIONS = 1000; // Сколько позиций итогового списка проверяет checkFinal
+
+    private ConcurrentTodoListStressTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tasks = 20_000;
+        int stripes = 65_536;
+        int readers = 2;
+        int seconds = 10;
+        for (int i = 0; i < args.length; i++) {
+            if ("--tasks".equals(args[i]) && i + 1 < args.length) {
+                tasks = Integer.parseInt(args[++i]);
+            } else if ("--stripes".equals(args[i]) && i + 1 < args.length) {
+                stripes = Integer.parseInt(args[++i]);
+            } else if ("--readers".equals(args[i]) && i + 1 < args.length) {
+                readers = Integer.parseInt(args[++i]);
+            } else if ("--seconds".equals(args[i]) && i + 1 < args.length) {
+                seconds = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Использование: ConcurrentTodoListStressTest [--tasks 20000] [--stripes 65536] [--readers 2] [--seconds 10]");
+                return;
+            }
+        }
+
+        ConcurrentTodoList list = new ConcurrentTodoList(stripes);
+        long[] datedIds = new long[tasks];
+        LocalDate[] dueDates = new LocalDate[tasks]; // Модель потока правки: последний срок каждой задачи
+        for (int i = 0; i < tasks; i++) {
+            dueDates[i] = randomDate();
+            datedIds[i] = list.addTask(new Task("Задача " + i, "", dueDates[i], Priority.MEDIUM)).getId();
+        }
+        List<Long> undated = new ArrayList<>(); // Модель добавляющего потока: его задачи в списке
+        int datedCount = tasks;
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong sorts = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong lookups = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> {
+            while (System.nanoTime() < deadline) {
+                list.sortByDueDate();
+                sorts.incrementAndGet();
+            }
+        }, "stress-sort"));
+        threads.add(new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline) {
+                int i = random.nextInt(datedIds.length);
+                long id = datedIds[i];
+                LocalDate date = randomDate();
+                if (!list.editTaskById(id, "Задача", "", date, Priority.MEDIUM)) {
+                    report(violations, "задача " + id + " не найдена для правки");
+                }
+                dueDates[i] = date;
+                Task task = list.getTaskById(id);
+                if (task == null) {
+                    report(violations, "задача " + id + " не найдена по идентификатору");
+                } else if (!date.equals(task.getDueDate())) {
+                    report(violations, "у задачи " + id + " срок " + task.getDueDate() + " вместо " + date);
+                }
+                lookups.incrementAndGet();
+            }
+        }, "stress-edit"));
+        threads.add(new Thread(() -> {
+            while (System.nanoTime() < deadline) {
+                long id = list.addTask(new Task("Без срока", "", null, Priority.LOW)).getId();
+                if (undated.contains(id) || list.getTaskById(id) == null) {
+                    report(violations, "добавленная задача " + id + " повторяет идентификатор или не найдена");
+                }
+                undated.add(id);
+                if (undated.size() > MAX_UNDATED) {
+                    long removed = undated.remove(0);
+                    if (!list.deleteTaskById(removed) || list.getTaskById(removed) != null) {
+                        report(violations, "задача " + removed + " не удалена");
+                    }
+                }
+            }
+        }, "stress-add"));
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    check(list.getAllTasks(), datedCount, violations);
+                    reads.incrementAndGet();
+                }
+            }, "stress-read-" + r));
+        }
+
+        System.out.println("Проверка: " + tasks + " задач, " + stripes + " сегментов, "
+                + readers + " читателей, " + seconds + " с");
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        checkFinal(list, datedIds, dueDates, undated, violations);
+        System.out.println("Сортировок: " + sorts.get() + ", снимков: " + reads.get()
+                + ", поисков по идентификатору: " + lookups.get() + ", нарушений: " + violations.get());
+        if (violations.get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Проверяет один снимок списка.
+     */
+    private static void check(List<Task> snapshot, int datedCount, AtomicLong violations) {
+        Set<Long> ids = new HashSet<>();
+        int dated = 0;
+        boolean undatedSeen = false;
+        for (Task task : snapshot) {
+            if (!ids.add(task.getId())) {
+                report(violations, "задача " + task.getId() + " встречается в снимке дважды");
+                return;
+            }
+            if (task.getDueDate() == null) {
+                undatedSeen = true;
+            } else {
+                dated++;
+                if (undatedSeen) {
+                    report(violations, "задача со сроком " + task.getId() + " идёт после задачи без срока");
+                    return;
+                }
+            }
+        }
+        if (dated != datedCount) {
+            report(violations, "в снимке " + dated + " задач со сроком вместо " + datedCount);
+        }
+    }
+
+    /**
+     * Сравнивает список после остановки потоков с моделью, собранной из записей пишущих потоков,
+     * а size, getTaskAt и indexOf - с полным снимком.
+     */
+    private static void checkFinal(ConcurrentTodoList list, long[] datedIds, LocalDate[] dueDates,
+                                   List<Long> undated, AtomicLong violations) {
+        Map<Long, LocalDate> expected = new HashMap<>();
+        for (int i = 0; i < datedIds.length; i++) {
+            expected.put(datedIds[i], dueDates[i]);
+        }
+        for (long id : undated) {
+            expected.put(id, null);
+        }
+        List<Task> all = list.getAllTasks();
+        Map<Long, LocalDate> actual = new HashMap<>();
+        for (Task task : all) {
+            actual.put(task.getId(), task.getDueDate());
+        }
+        if (!actual.equals(expected)) {
+            report(violations, "итоговый список расходится с моделью пишущих потоков");
+        }
+        if (list.size() != all.size()) {
+            report(violations, "size " + list.size() + " вместо " + all.size());
+        }
+        // Каждый вызов проходит все сегменты, поэтому проверяется около FINAL_POSITIONS позиций
+        int step = Math.max(1, all.size() / FINAL_POSITIONS);
+        for (int i = 0; i < all.size(); i += step) {
+            Task task = all.get(i);
+            if (list.getTaskAt(i) != task || list.indexOf(task.getId()) != i) {
+                report(violations, "getTaskAt или indexOf расходятся со снимком на позиции " + i);
+                return;
+            }
+        }
+    }
+
+    private static void report(AtomicLong violations, String message) {
+        if (violations.incrementAndGet() <= 10) {
+            System.out.println("Нарушение: " + message);
+        }
+    }
+
+    private static LocalDate randomDate() {
+        return LocalDate.of(2025, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(365));
+    }
+}
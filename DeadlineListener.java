@@ -0,0 +1,32 @@
+package com.todolist;
+
+/**
+ * Получатель напоминаний о сроках выполнения задач от DeadlineScheduler.
+ * Методы вызываются в потоке планировщика.
+ */
+public interface DeadlineListener {
+
+    /**
+     * Наступил день срока выполнения задачи.
+     */
+    void taskDue(Task task);
+
+    /**
+     * Срок выполнения задачи прошёл, а задача всё ещё в списке.
+     */
+    void taskOverdue(Task task);
+
+    /**
+     * Наступил день повторения повторяющейся задачи. По умолчанию передаётся в taskDue.
+     */
+    default void occurrenceDue(Occurrence occurrence) {
+        taskDue(occurrence.getTask());
+    }
+
+    /**
+     * День повторения прошёл, а повторение не отмечено выполненным. По умолчанию передаётся в taskOverdue.
+     */
+    default void occurrenceOverdue(Occurrence occurrence) {
+        taskOverdue(occurrence.getTask());
+    }
+}
@@ -0,0 +1,161 @@
+package com.todolist;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Индексированная двоичная куча ближайших напоминаний о сроках.
+ * Каждая запись помнит свою позицию в куче, а по идентификатору задачи
+ * запись находится через хэш-таблицу, поэтому добавление, перенос и удаление
+ * напоминания занимают O(log n), а ближайшее напоминание доступно за O(1).
+ */
+class DeadlineQueue {
+    private Entry[] heap = new Entry[16];
+    private int size;
+    private final Map<Long, Entry> byId = new HashMap<>();
+
+    /**
+     * Напоминание о задаче: день, когда оно должно сработать, и его вид.
+     */
+    static final class Entry {
+        final long id;
+        Task task;
+        long dueDay; // Срок выполнения задачи (номер дня)
+        boolean overdue; // false - напоминание о наступлении срока, true - о просрочке
+        int position;
+
+        Entry(long id) {
+            this.id = id;
+        }
+
+        /**
+         * День, в начале которого срабатывает напоминание.
+         */
+        long day() {
+            return overdue ? dueDay + 1 : dueDay;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Возвращает запись задачи или null, если напоминаний о ней нет.
+     */
+    Entry get(long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Добавляет напоминание о задаче или переносит уже имеющееся.
+     * @param task Задача.
+     * @param dueDay Срок выполнения (номер дня).
+     * @param overdue Вид напоминания: о просрочке или о наступлении срока.
+     */
+    void put(Task task, long dueDay, boolean overdue) {
+        Entry entry = byId.get(task.getId());
+        if (entry == null) {
+            entry = new Entry(task.getId());
+            byId.put(entry.id, entry);
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            entry.position = size;
+            heap[size++] = entry;
+        }
+        entry.task = task;
+        entry.dueDay = dueDay;
+        entry.overdue = overdue;
+        siftUp(entry.position);
+        siftDown(entry.position);
+    }
+
+    /**
+     * Удаляет напоминание о задаче.
+     * @return true, если напоминание было.
+     */
+    boolean remove(long id) {
+        Entry entry = byId.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        int position = entry.position;
+        Entry last = heap[--size];
+        heap[size] = null;
+        if (position < size) {
+            heap[position] = last;
+            last.position = position;
+            siftUp(position);
+            siftDown(last.position);
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает ближайшее напоминание, не удаляя его.
+     */
+    Entry peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Удаляет и возвращает ближайшее напоминание.
+     */
+    Entry poll() {
+        Entry first = peek();
+        if (first != null) {
+            remove(first.id);
+        }
+        return first;
+    }
+
+    private void siftUp(int position) {
+        Entry entry = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!less(entry, heap[parent])) {
+                break;
+            }
+            move(heap[parent], position);
+            position = parent;
+        }
+        move(entry, position);
+    }
+
+    private void siftDown(int position) {
+        Entry entry = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], entry)) {
+                break;
+            }
+            move(heap[child], position);
+            position = child;
+        }
+        move(entry, position);
+    }
+
+    private void move(Entry entry, int position) {
+        heap[position] = entry;
+        entry.position = position;
+    }
+
+    /**
+     * Сначала раньше срабатывающие напоминания, при равенстве - задача с меньшим идентификатором.
+     */
+    private static boolean less(Entry a, Entry b) {
+        long dayA = a.day();
+        long dayB = b.day();
+        return dayA != dayB ? dayA < dayB : a.id < b.id;
+    }
+}
@@ -0,0 +1,276 @@
+package com.todolist;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Планировщик напоминаний о сроках выполнения задач.
+ * Держит ближайшие напоминания в индексированной куче (DeadlineQueue), которая обновляется
+ * по событиям хранилища за O(log n) на изменение. Один фоновый поток просыпается ровно
+ * в начале дня ближайшего напоминания - без периодического просмотра всего списка.
+ *
+ * Для каждой задачи со сроком сначала срабатывает напоминание о наступлении срока
+ * (в начале дня срока), затем о просрочке (в начале следующего дня). Задачи, срок которых
+ * уже прошёл при открытии планировщика или при изменении задачи, сразу получают
+ * напоминание о просрочке.
+ *
+ * Повторяющаяся задача занимает в куче одну запись - её ближайшее повторение не раньше
+ * сегодняшнего дня, поэтому серия, начатая в прошлом, не считается просроченной.
+ * О повторении напоминают в его день и, если оно не отмечено выполненным, на следующий день;
+ * после этого (или когда повторение отмечают выполненным) запись переходит к следующему
+ * повторению. Отметки проверяются в момент напоминания под замком хранилища.
+ */
+public final class DeadlineScheduler implements TaskChangeListener, Closeable {
+    private final TaskStore store;
+    private final Clock clock;
+    private final DeadlineQueue queue = new DeadlineQueue();
+    // Задачи, о просрочке которых уже напомнили: идентификатор -> срок на момент напоминания
+    private final Map<Long, Long> remindedOverdue = new HashMap<>();
+    private final List<DeadlineListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private ScheduledFuture<?> wakeup; // Ближайшее пробуждение потока или null
+    private long wakeupDay; // День, на начало которого назначено пробуждение
+
+    /**
+     * Создаёт планировщик для задач хранилища по системным часам и часовому поясу.
+     */
+    public DeadlineScheduler(TaskStore store) {
+        this(store, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Создаёт планировщик для задач хранилища и подписывается на его изменения.
+     * @param store Хранилище задач.
+     * @param clock Часы; дни отсчитываются в их часовом поясе.
+     */
+    public DeadlineScheduler(TaskStore store, Clock clock) {
+        this.store = store;
+        this.clock = clock;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "todolist-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true); // Перенесённые пробуждения не копятся в очереди потока
+        synchronized (store) {
+            store.addChangeListener(this);
+            synchronized (this) {
+                long today = today();
+                for (Task task : store.getAllTasks()) {
+                    schedule(task, today);
+                }
+            }
+        }
+    }
+
+    /**
+     * Регистрирует получателя напоминаний. Напоминания, которые уже должны были сработать
+     * (например, о просроченных задачах), приходят после регистрации первого получателя.
+     */
+    public void addListener(DeadlineListener listener) {
+        listeners.add(listener);
+        synchronized (this) {
+            scheduleWakeup();
+        }
+    }
+
+    public void removeListener(DeadlineListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Количество задач, о которых ещё будут напоминания.
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized void taskAdded(Task task) {
+        schedule(task, today());
+    }
+
+    /**
+     * Переносит напоминания задачи, только если изменился её срок или правило повторения.
+     */
+    @Override
+    public synchronized void taskUpdated(Task task) {
+        Long dueDay = task.getDueDate() == null ? null : task.getDueDate().toEpochDay();
+        DeadlineQueue.Entry entry = queue.get(task.getId());
+        if (entry != null && dueDay != null && task.getDueDate().equals(entry.task.getDueDate())
+                && Objects.equals(task.getRecurrence(), entry.task.getRecurrence())) {
+            entry.task = task;
+            return;
+        }
+        if (dueDay != null && dueDay.equals(remindedOverdue.get(task.getId()))) {
+            return; // О просрочке уже напомнили, а срок не изменился
+        }
+        remindedOverdue.remove(task.getId());
+        schedule(task, today());
+    }
+
+    @Override
+    public synchronized void taskRemoved(Task task) {
+        queue.remove(task.getId());
+        remindedOverdue.remove(task.getId());
+    }
+
+    /**
+     * Выполненное ближайшее повторение больше не напоминает о себе: запись переходит к следующему.
+     * Снятая отметка с сегодняшнего или будущего повторения раньше ближайшего возвращает напоминание о нём.
+     */
+    @Override
+    public synchronized void occurrenceCompleted(Occurrence occurrence, boolean completed) {
+        Task task = occurrence.getTask();
+        long day = occurrence.getDate().toEpochDay();
+        DeadlineQueue.Entry entry = queue.get(task.getId());
+        long today = today();
+        if (completed) {
+            if (entry != null && entry.dueDay == day) {
+                scheduleNext(task, day + 1, today);
+                scheduleWakeup();
+            }
+        } else if (day >= today && (entry == null || day < entry.dueDay)) {
+            queue.put(task, day, false);
+            scheduleWakeup();
+        }
+    }
+
+    /**
+     * Отписывается от хранилища и останавливает фоновый поток.
+     */
+    @Override
+    public void close() {
+        synchronized (store) {
+            store.removeChangeListener(this);
+        }
+        timer.shutdownNow();
+    }
+
+    private void schedule(Task task, long today) {
+        LocalDate dueDate = task.getDueDate();
+        if (dueDate == null) {
+            queue.remove(task.getId());
+            return;
+        }
+        if (task.isRecurring()) {
+            scheduleNext(task, today, today);
+        } else {
+            long dueDay = dueDate.toEpochDay();
+            queue.put(task, dueDay, dueDay < today);
+        }
+        scheduleWakeup();
+    }
+
+    /**
+     * Ставит напоминание о первом повторении серии не раньше дня fromDay и не раньше сегодняшнего;
+     * если серия закончилась, убирает её из кучи.
+     */
+    private void scheduleNext(Task task, long fromDay, long today) {
+        LocalDate next = task.getRecurrence().next(task.getDueDate(), LocalDate.ofEpochDay(Math.max(fromDay, today)));
+        if (next == null) {
+            queue.remove(task.getId());
+        } else {
+            queue.put(task, next.toEpochDay(), false);
+        }
+    }
+
+    /**
+     * Назначает пробуждение на начало дня ближайшего напоминания,
+     * если уже назначенное пробуждение не наступит раньше.
+     */
+    private void scheduleWakeup() {
+        if (queue.isEmpty() || listeners.isEmpty() || timer.isShutdown()) {
+            return;
+        }
+        long day = queue.peek().day();
+        if (wakeup != null && wakeupDay <= day) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+        long delay = Math.max(0, Duration.between(clock.instant(),
+                LocalDate.ofEpochDay(day).atStartOfDay(clock.getZone()).toInstant()).toMillis());
+        wakeupDay = day;
+        wakeup = timer.schedule(this::fireDue, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Срабатывает в фоновом потоке: снимает с кучи наступившие напоминания
+     * и сообщает о них получателям уже без замков хранилища и планировщика.
+     * Замок хранилища берётся первым, как и в его слушателях, чтобы прочитать отметки повторений.
+     */
+    private void fireDue() {
+        List<DeadlineQueue.Entry> due = new ArrayList<>();
+        synchronized (store) {
+            synchronized (this) {
+                wakeup = null;
+                long today = today();
+                while (!queue.isEmpty() && queue.peek().day() <= today) {
+                    DeadlineQueue.Entry entry = queue.poll();
+                    if (entry.task.isRecurring()) {
+                        fireOccurrence(entry, today, due);
+                    } else if (entry.overdue) {
+                        due.add(entry);
+                        remindedOverdue.put(entry.id, entry.dueDay);
+                    } else {
+                        due.add(entry);
+                        queue.put(entry.task, entry.dueDay, true);
+                    }
+                }
+                scheduleWakeup();
+            }
+        }
+        for (DeadlineQueue.Entry entry : due) {
+            Occurrence occurrence = entry.task.isRecurring() ? new Occurrence(entry.task, LocalDate.ofEpochDay(entry.dueDay)) : null;
+            for (DeadlineListener listener : listeners) {
+                if (occurrence != null) {
+                    if (entry.overdue) {
+                        listener.occurrenceOverdue(occurrence);
+                    } else {
+                        listener.occurrenceDue(occurrence);
+                    }
+                } else if (entry.overdue) {
+                    listener.taskOverdue(entry.task);
+                } else {
+                    listener.taskDue(entry.task);
+                }
+            }
+        }
+    }
+
+    /**
+     * Обрабатывает наступившее напоминание о повторении: выполненное повторение пропускается,
+     * после дня повторения напоминание переходит к просрочке, после просрочки - к следующему повторению.
+     */
+    private void fireOccurrence(DeadlineQueue.Entry entry, long today, List<DeadlineQueue.Entry> due) {
+        if (!entry.overdue && entry.dueDay < today) {
+            entry.overdue = true; // Пробуждение опоздало: день повторения уже прошёл
+        }
+        boolean completed = store.isOccurrenceCompleted(entry.id, LocalDate.ofEpochDay(entry.dueDay));
+        if (!completed) {
+            due.add(entry);
+        }
+        if (entry.overdue || completed) {
+            scheduleNext(entry.task, entry.dueDay + 1, today);
+        } else {
+            queue.put(entry.task, entry.dueDay, true);
+        }
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+}
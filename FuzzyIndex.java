@@ -0,0 +1,459 @@
+package com.todolist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Индекс для нечёткого поиска задач с опечатками. Тексты названий и описаний делятся на слова
+ * (буквы и цифры в нижнем регистре); для каждого различного слова хранятся содержащие его задачи,
+ * а сами слова проиндексированы по триграммам. Словарь слов намного меньше списка задач,
+ * поэтому похожие на запрос слова находятся быстро и при миллионе задач.
+ *
+ * Слово запроса совпадает со словом задачи, если между ними не больше допустимого числа опечаток
+ * (замена, вставка, удаление буквы или перестановка соседних букв): до трёх букв - ни одной,
+ * от четырёх до шести - одна, от семи - две. Слово запроса от трёх букв совпадает и с началом
+ * более длинного слова, как при вводе слова не до конца, но ниже полного совпадения.
+ * Задача найдена, если совпало каждое слово запроса; задачи упорядочены по средней похожести
+ * слов (1 - точное совпадение). Для слова запроса берутся не больше MAX_WORDS_PER_TERM самых похожих
+ * слов словаря, а перебор останавливается, как только лучшие limit задач известны, поэтому
+ * из задач с равной похожестью возвращаются те, что найдены первыми.
+ *
+ * Индекс обновляется инкрементально при добавлении, изменении и удалении задач.
+ */
+class FuzzyIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final int CHAR_BITS = Character.SIZE;
+    private static final char BOUNDARY = '\u0001'; // Отмечает начало и конец слова в триграммах
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final double PREFIX_WEIGHT = 0.8; // Совпадение с началом слова ниже совпадения со словом
+    private static final int MAX_WORDS_PER_TERM = 32; // Самые похожие слова словаря для одного слова запроса
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Word> words = new HashMap<>();
+    private final Map<Long, Set<Word>> postings = new HashMap<>(); // Триграмма -> слова словаря
+
+    /**
+     * Слово словаря и задачи, в тексте которых оно встречается.
+     */
+    private static final class Word {
+        final String text;
+        final Set<Task> tasks = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Word(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * Слово словаря, похожее на слово запроса.
+     */
+    private static final class Match {
+        final Word word;
+        final double similarity;
+
+        Match(Word word, double similarity) {
+            this.word = word;
+            this.similarity = similarity;
+        }
+    }
+
+    /**
+     * Найденная задача и её похожесть на запрос.
+     */
+    private static final class Scored {
+        final Task task;
+        final double score;
+        final long found; // Номер в порядке нахождения
+
+        Scored(Task task, double score, long found) {
+            this.task = task;
+            this.score = score;
+            this.found = found;
+        }
+    }
+
+    // Лучшие результаты идут первыми: по убыванию похожести, затем в порядке нахождения
+    private static final Comparator<Scored> BEST_FIRST = Comparator.<Scored>comparingDouble(s -> -s.score)
+            .thenComparingLong(s -> s.found);
+
+    void add(Task task) {
+        for (String text : words(task)) {
+            Word word = words.get(text);
+            if (word == null) {
+                word = new Word(text);
+                words.put(text, word);
+                for (long gram : grams(text)) {
+                    postings.computeIfAbsent(gram, g -> new HashSet<>()).add(word);
+                }
+            }
+            word.tasks.add(task);
+        }
+    }
+
+    void update(Task oldTask, Task newTask) {
+        remove(oldTask);
+        add(newTask);
+    }
+
+    void remove(Task task) {
+        for (String text : words(task)) {
+            Word word = words.get(text);
+            if (word == null || !word.tasks.remove(task) || !word.tasks.isEmpty()) {
+                continue;
+            }
+            words.remove(text);
+            for (long gram : grams(text)) {
+                Set<Word> posting = postings.get(gram);
+                posting.remove(word);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Находит задачи, похожие на запрос.
+     * @param text Слова запроса; текст без слов ничего не находит.
+     * @param limit Наибольшее число результатов.
+     * @return Не больше limit задач, лучшие первыми.
+     */
+    List<Task> search(String text, int limit) {
+        List<String> terms = split(text);
+        if (terms.isEmpty() || limit == 0) {
+            return new ArrayList<>();
+        }
+        List<List<Match>> matches = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            List<Match> termMatches = similarWords(term);
+            if (termMatches.isEmpty()) {
+                return new ArrayList<>();
+            }
+            matches.add(termMatches);
+        }
+
+        // Кандидатов перебирает слово запроса с наименьшим числом задач, остальные лишь проверяются
+        int driver = 0;
+        long fewest = Long.MAX_VALUE;
+        double bestOthers = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            long candidates = candidates(matches.get(i));
+            if (candidates < fewest) {
+                fewest = candidates;
+                driver = i;
+            }
+            bestOthers += matches.get(i).get(0).similarity;
+        }
+        List<Match> driverMatches = matches.get(driver);
+        bestOthers -= driverMatches.get(0).similarity;
+        List<ToDoubleFunction<Task>> others = new ArrayList<>(matches.size() - 1);
+        for (int i = 0; i < matches.size(); i++) {
+            if (i != driver) {
+                others.add(new TermLookup(matches.get(i)));
+            }
+        }
+
+        PriorityQueue<Scored> top = new PriorityQueue<>(Math.min(limit, INITIAL_CAPACITY), BEST_FIRST.reversed());
+        long found = 0;
+        search:
+        for (int m = 0; m < driverMatches.size(); m++) {
+            Match match = driverMatches.get(m);
+            // Совпадения упорядочены по похожести: дальше оценка может только уменьшаться,
+            // и задача с той же оценкой не вытеснит найденную раньше
+            double bound = (match.similarity + bestOthers) / terms.size();
+            for (Task task : match.word.tasks) {
+                if (top.size() == limit && bound <= top.peek().score) {
+                    break search;
+                }
+                if (inEarlierMatch(task, driverMatches, m)) {
+                    continue; // Задача уже учтена с более похожим словом
+                }
+                double total = match.similarity;
+                for (int i = 0; i < others.size() && total > 0; i++) {
+                    double similarity = others.get(i).applyAsDouble(task);
+                    total = similarity == 0 ? 0 : total + similarity;
+                }
+                if (total > 0) {
+                    offer(top, new Scored(task, total / terms.size(), found++), limit);
+                }
+            }
+        }
+        return ranked(top);
+    }
+
+    /**
+     * Нечёткий поиск простым перебором задач - для хранилищ без индекса. Слова сравниваются
+     * так же, как в search, но без ограничения числа похожих слов словаря.
+     */
+    static List<Task> searchAll(Iterable<Task> tasks, String text, int limit) {
+        List<String> terms = split(text);
+        if (terms.isEmpty() || limit == 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Scored> top = new PriorityQueue<>(Math.min(limit, INITIAL_CAPACITY), BEST_FIRST.reversed());
+        long found = 0;
+        for (Task task : tasks) {
+            double score = score(terms, task);
+            if (score > 0) {
+                offer(top, new Scored(task, score, found++), limit);
+            }
+        }
+        return ranked(top);
+    }
+
+    /**
+     * Похожесть задачи на слова запроса: средняя похожесть лучших совпадений
+     * или 0, если какое-то слово запроса не совпало.
+     */
+    static double score(List<String> terms, Task task) {
+        List<String> taskWords = words(task);
+        double total = 0;
+        for (String term : terms) {
+            double best = 0;
+            for (String word : taskWords) {
+                best = Math.max(best, similarity(term, word));
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total / terms.size();
+    }
+
+    private static void offer(PriorityQueue<Scored> top, Scored scored, int limit) {
+        if (top.size() < limit) {
+            top.add(scored);
+        } else if (BEST_FIRST.compare(scored, top.peek()) < 0) {
+            top.poll();
+            top.add(scored);
+        }
+    }
+
+    private static List<Task> ranked(PriorityQueue<Scored> top) {
+        List<Scored> best = new ArrayList<>(top);
+        best.sort(BEST_FIRST);
+        List<Task> result = new ArrayList<>(best.size());
+        for (Scored scored : best) {
+            result.add(scored.task);
+        }
+        return result;
+    }
+
+    private static boolean inEarlierMatch(Task task, List<Match> matches, int index) {
+        for (int i = 0; i < index; i++) {
+            if (matches.get(i).word.tasks.contains(task)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long candidates(List<Match> matches) {
+        long candidates = 0;
+        for (Match match : matches) {
+            candidates += match.word.tasks.size();
+        }
+        return candidates;
+    }
+
+    /**
+     * Похожесть задачи на одно слово запроса по его совпадениям. Сначала проверяется множество
+     * задач каждого совпадения; когда такие проверки обошлись дороже, чем один раз собрать задачи
+     * всех совпадений в таблицу, таблица строится, и дальше задача ищется в ней одним обращением.
+     * Так перебор, который быстро остановился, не платит за таблицу, а долгий - не больше чем вдвое.
+     */
+    private static final class TermLookup implements ToDoubleFunction<Task> {
+        private final List<Match> matches;
+        private final long tableCost;
+        private long checks;
+        private Map<Task, Double> table;
+
+        TermLookup(List<Match> matches) {
+            this.matches = matches;
+            this.tableCost = candidates(matches);
+        }
+
+        @Override
+        public double applyAsDouble(Task task) {
+            if (table == null && matches.size() > 1 && (checks += matches.size()) > tableCost) {
+                table = new IdentityHashMap<>((int) tableCost);
+                for (Match match : matches) {
+                    for (Task candidate : match.word.tasks) {
+                        table.putIfAbsent(candidate, match.similarity); // Совпадения идут от более похожих
+                    }
+                }
+            }
+            if (table != null) {
+                return table.getOrDefault(task, 0.0);
+            }
+            for (Match match : matches) {
+                if (match.word.tasks.contains(task)) {
+                    return match.similarity;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Слова словаря, похожие на слово запроса, по убыванию похожести. Кандидаты - слова
+     * с общими триграммами; каждая опечатка портит не больше четырёх триграмм слова,
+     * поэтому слова с меньшим числом общих триграмм не проверяются.
+     */
+    private List<Match> similarWords(String term) {
+        Map<Word, Integer> shared = new HashMap<>();
+        for (long gram : grams(term)) {
+            Set<Word> posting = postings.get(gram);
+            if (posting != null) {
+                for (Word word : posting) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+        int required = Math.max(1, term.length() - 4 * maxDistance(term.length()) - 1);
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<Word, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() >= required) {
+                double similarity = similarity(term, entry.getKey().text);
+                if (similarity > 0) {
+                    matches.add(new Match(entry.getKey(), similarity));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingDouble((Match match) -> -match.similarity).thenComparing(match -> match.word.text));
+        return matches.size() > MAX_WORDS_PER_TERM ? new ArrayList<>(matches.subList(0, MAX_WORDS_PER_TERM)) : matches;
+    }
+
+    /**
+     * Похожесть слова текста на слово запроса от 0 (не совпадает) до 1 (совпадает точно).
+     */
+    static double similarity(String term, String word) {
+        int maxDistance = maxDistance(term.length());
+        int m = term.length();
+        int n = word.length();
+        if (n < m - maxDistance) {
+            return 0;
+        }
+        // Расстояние Дамерау-Левенштейна (с перестановкой соседних букв) между словом запроса
+        // и каждым началом слова: последняя строка даёт и расстояние до слова целиком
+        int columns = Math.min(n, m + maxDistance);
+        int[] previous2 = new int[columns + 1];
+        int[] previous = new int[columns + 1];
+        int[] current = new int[columns + 1];
+        for (int j = 0; j <= columns; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            char a = term.charAt(i - 1);
+            for (int j = 1; j <= columns; j++) {
+                char b = word.charAt(j - 1);
+                int cost = a == b ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a == word.charAt(j - 2) && term.charAt(i - 2) == b) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+            if (rowMinimum > maxDistance) {
+                return 0;
+            }
+            int[] oldest = previous2;
+            previous2 = previous;
+            previous = current;
+            current = oldest;
+        }
+
+        double best = 0;
+        if (columns == n && previous[n] <= maxDistance) {
+            best = 1 - (double) previous[n] / (Math.max(m, n) + 1);
+        }
+        if (m >= MIN_PREFIX_LENGTH && n > m) {
+            int prefixDistance = Integer.MAX_VALUE;
+            for (int j = Math.max(1, m - maxDistance); j <= columns; j++) {
+                prefixDistance = Math.min(prefixDistance, previous[j]);
+            }
+            if (prefixDistance <= maxDistance) {
+                best = Math.max(best, PREFIX_WEIGHT * (1 - (double) prefixDistance / (m + 1)));
+            }
+        }
+        return best;
+    }
+
+    private static int maxDistance(int length) {
+        return length <= 3 ? 0 : length <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Различные слова названия и описания задачи.
+     */
+    private static List<String> words(Task task) {
+        List<String> result = new ArrayList<>();
+        split(task.getTitle(), result);
+        if (task.getDescription() != null) {
+            split(task.getDescription(), result);
+        }
+        if (result.size() > 1) {
+            Collections.sort(result);
+            int unique = 1;
+            for (int i = 1; i < result.size(); i++) {
+                if (!result.get(i).equals(result.get(unique - 1))) {
+                    result.set(unique++, result.get(i));
+                }
+            }
+            result.subList(unique, result.size()).clear();
+        }
+        return result;
+    }
+
+    /**
+     * Делит текст на слова из букв и цифр в нижнем регистре.
+     */
+    static List<String> split(String text) {
+        List<String> result = new ArrayList<>();
+        split(text, result);
+        return result;
+    }
+
+    private static void split(String text, List<String> result) {
+        String lowerCase = text.toLowerCase();
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean letter = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                result.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Триграммы слова, дополненного отметками начала и конца: у слова из n букв их n.
+     */
+    private static long[] grams(String word) {
+        String padded = BOUNDARY + word + BOUNDARY;
+        long[] grams = new long[padded.length() - GRAM_LENGTH + 1];
+        for (int start = 0; start < grams.length; start++) {
+            long key = 0;
+            for (int i = start; i < start + GRAM_LENGTH; i++) {
+                key = (key << CHAR_BITS) | padded.charAt(i);
+            }
+            grams[start] = key;
+        }
+        return grams;
+    }
+}
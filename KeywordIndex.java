@@ -0,0 +1,370 @@
+package com.todolist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Инвертированный индекс по триграммам для поиска задач по ключевому слову.
+ * Для каждой триграммы хранится отсортированный массив идентификаторов задач: он занимает
+ * несколько байт на задачу вместо узла хеш-таблицы, а пересечение списков начинается с самого
+ * короткого и ищет его идентификаторы в остальных двоичным поиском. Идентификаторы, в отличие
+ * от ключей порядка, не меняются при сортировке списка, поэтому она не перестраивает списки.
+ * Хранит для каждой задачи название и описание в нижнем регистре,
+ * чтобы поиск не создавал новые строки для каждой задачи.
+ * Индекс обновляется инкрементально при добавлении, изменении и удалении задач.
+ */
+class KeywordIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final int CHAR_BITS = Character.SIZE;
+    // Символ-заполнитель в конце текста: благодаря ему каждая позиция текста
+    // начинает полную триграмму, и короткие запросы ищутся по префиксу триграммы
+    private static final char PAD = '\u0000';
+    private static final int INITIAL_POSTING_CAPACITY = 2; // Большинство триграмм встречается редко
+
+    // Триграмма упаковывается в long: по 16 бит на символ
+    private final Map<Long, Posting> postings = new HashMap<>();
+    private final NavigableSet<Long> gramKeys = new TreeSet<>(); // для поиска по префиксу
+    private final Map<Long, Entry> entries = new HashMap<>(); // Идентификатор задачи -> запись
+
+    /**
+     * Проиндексированная задача: тексты в нижнем регистре и позиция в порядке списка.
+     */
+    private static final class Entry {
+        final Task task;
+        final String title;
+        final String description;
+        long order;
+
+        Entry(Task task, long order) {
+            this.task = task;
+            this.title = lowerCase(task.getTitle());
+            this.description = lowerCase(task.getDescription());
+            this.order = order;
+        }
+    }
+
+    /**
+     * Отсортированный по возрастанию список идентификаторов задач с одной триграммой.
+     * Новые задачи получают наибольшие идентификаторы, поэтому обычно дописываются в конец.
+     */
+    private static final class Posting {
+        long[] ids = new long[INITIAL_POSTING_CAPACITY];
+        int size;
+
+        void add(long id) {
+            int position = size;
+            if (size > 0 && ids[size - 1] >= id) {
+                position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return; // Уже в списке
+                }
+                position = -position - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Добавляет задачу в индекс.
+     * @param task Задача для индексации.
+     * @param order Позиция задачи в порядке списка.
+     */
+    void add(Task task, long order) {
+        Entry entry = new Entry(task, order);
+        entries.put(task.getId(), entry);
+        for (long gram : grams(entry)) {
+            addToPosting(gram, task.getId());
+        }
+    }
+
+    /**
+     * Заменяет задачу её новой версией после редактирования, сохраняя позицию.
+     * Меняются только списки триграмм, которые появились в тексте или исчезли из него.
+     * @param oldTask Прежняя версия задачи.
+     * @param newTask Новая версия задачи.
+     */
+    void update(Task oldTask, Task newTask) {
+        Entry old = entries.get(oldTask.getId());
+        Entry entry = new Entry(newTask, old.order);
+        entries.put(newTask.getId(), entry);
+        long[] oldGrams = grams(old);
+        long[] newGrams = grams(entry);
+        int i = 0;
+        int j = 0;
+        while (i < oldGrams.length || j < newGrams.length) {
+            if (j == newGrams.length || (i < oldGrams.length && oldGrams[i] < newGrams[j])) {
+                removeFromPosting(oldGrams[i++], oldTask.getId());
+            } else if (i == oldGrams.length || newGrams[j] < oldGrams[i]) {
+                addToPosting(newGrams[j++], newTask.getId());
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Удаляет задачу из индекса.
+     * @param task Задача для удаления.
+     */
+    void remove(Task task) {
+        Entry entry = entries.remove(task.getId());
+        if (entry != null) {
+            for (long gram : grams(entry)) {
+                removeFromPosting(gram, task.getId());
+            }
+        }
+    }
+
+    /**
+     * Перенумеровывает задачи в соответствии с новым порядком списка (например, после сортировки).
+     * @param version Версия списка; позицией задачи становится её ключ порядка.
+     */
+    void reorder(TaskVersion version) {
+        TaskVersion.Cursor cursor = version.cursor(0);
+        while (cursor.next()) {
+            entries.get(cursor.task.getId()).order = cursor.key;
+        }
+    }
+
+    /**
+     * Ищет задачи, в названии или описании которых встречается ключевое слово без учёта регистра.
+     * Результат совпадает с линейным поиском и упорядочен так же, как список.
+     * @param keyword Ключевое слово (непустое).
+     * @return Список найденных задач.
+     */
+    List<Task> search(String keyword) {
+        String lowerCaseKeyword = keyword.toLowerCase();
+        long[] candidates = lowerCaseKeyword.length() >= GRAM_LENGTH
+                ? candidatesBySubstring(lowerCaseKeyword)
+                : candidatesByPrefix(lowerCaseKeyword);
+
+        List<Entry> matches = new ArrayList<>();
+        for (long id : candidates) {
+            Entry entry = entries.get(id);
+            if (entry.title.contains(lowerCaseKeyword) || entry.description.contains(lowerCaseKeyword)) {
+                matches.add(entry);
+            }
+        }
+        matches.sort(Comparator.comparingLong(entry -> entry.order));
+
+        List<Task> result = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            result.add(entry.task);
+        }
+        return result;
+    }
+
+    /**
+     * Проверка, встречается ли ключевое слово в названии или описании проиндексированной задачи.
+     * Даёт тот же ответ, что TaskQuery.matches, но сравнивает с хранимыми текстами в нижнем
+     * регистре, а не переводит тексты задачи в нижний регистр при каждой проверке: так просмотр
+     * списка вместо индекса для частого слова обходится в поиск по таблице и два contains на задачу.
+     * @param lowerCaseKeyword Ключевое слово в нижнем регистре (непустое).
+     */
+    Predicate<Task> matcher(String lowerCaseKeyword) {
+        return task -> {
+            Entry entry = entries.get(task.getId());
+            return entry.title.contains(lowerCaseKeyword) || entry.description.contains(lowerCaseKeyword);
+        };
+    }
+
+    /**
+     * Оценивает сверху количество задач, содержащих ключевое слово, не перебирая кандидатов:
+     * размер самого короткого списка триграмм или сумма списков для короткого запроса.
+     * @param lowerCaseKeyword Ключевое слово в нижнем регистре (непустое).
+     */
+    long estimate(String lowerCaseKeyword) {
+        if (lowerCaseKeyword.length() < GRAM_LENGTH) {
+            long total = 0;
+            for (Long gram : prefixRange(lowerCaseKeyword)) {
+                total += postings.get(gram).size;
+            }
+            return total;
+        }
+        long smallest = Long.MAX_VALUE;
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseKeyword.length(); i++) {
+            Posting posting = postings.get(gram(lowerCaseKeyword, i));
+            smallest = Math.min(smallest, posting == null ? 0 : posting.size);
+        }
+        return smallest;
+    }
+
+    /**
+     * Кандидаты для запроса длиной от трёх символов: пересечение списков всех его триграмм.
+     * Начинается с самого короткого списка, и каждый следующий только отсеивает кандидатов.
+     * @return Отсортированные идентификаторы кандидатов.
+     */
+    private long[] candidatesBySubstring(String keyword) {
+        List<Posting> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= keyword.length(); i++) {
+            Posting posting = postings.get(gram(keyword, i));
+            if (posting == null) {
+                return new long[0];
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(posting -> posting.size));
+
+        Posting smallest = lists.get(0);
+        long[] result = Arrays.copyOf(smallest.ids, smallest.size);
+        int count = result.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = retain(result, count, lists.get(i));
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Оставляет в начале массива ids те из первых count идентификаторов, что есть в списке.
+     * Оба отсортированы, поэтому поиск каждого следующего идентификатора начинается
+     * с места, где остановился предыдущий.
+     * @return Количество оставшихся идентификаторов.
+     */
+    private static int retain(long[] ids, int count, Posting posting) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < posting.size; i++) {
+            int position = Arrays.binarySearch(posting.ids, from, posting.size, ids[i]);
+            if (position >= 0) {
+                ids[kept++] = ids[i];
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Кандидаты для короткого запроса: объединение списков триграмм, начинающихся с запроса.
+     * Триграммы с общим префиксом образуют непрерывный диапазон ключей.
+     * @return Отсортированные идентификаторы кандидатов без повторов.
+     */
+    private long[] candidatesByPrefix(String keyword) {
+        NavigableSet<Long> grams = prefixRange(keyword);
+        long total = 0;
+        for (Long gram : grams) {
+            total += postings.get(gram).size;
+        }
+        long[] result = new long[(int) total];
+        int count = 0;
+        for (Long gram : grams) {
+            Posting posting = postings.get(gram);
+            System.arraycopy(posting.ids, 0, result, count, posting.size);
+            count += posting.size;
+        }
+        Arrays.sort(result, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || result[unique - 1] != result[i]) {
+                result[unique++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, unique);
+    }
+
+    /**
+     * Триграммы, начинающиеся с короткого запроса.
+     */
+    private NavigableSet<Long> prefixRange(String keyword) {
+        int freeBits = CHAR_BITS * (GRAM_LENGTH - keyword.length());
+        long from = 0;
+        for (int i = 0; i < keyword.length(); i++) {
+            from = (from << CHAR_BITS) | keyword.charAt(i);
+        }
+        from <<= freeBits;
+        long to = from | ((1L << freeBits) - 1);
+        return gramKeys.subSet(from, true, to, true);
+    }
+
+    private void addToPosting(long gram, long id) {
+        Posting posting = postings.get(gram);
+        if (posting == null) {
+            posting = new Posting();
+            postings.put(gram, posting);
+            gramKeys.add(gram);
+        }
+        posting.add(id);
+    }
+
+    private void removeFromPosting(long gram, long id) {
+        Posting posting = postings.get(gram);
+        posting.remove(id);
+        if (posting.size == 0) {
+            postings.remove(gram);
+            gramKeys.remove(gram);
+        }
+    }
+
+    /**
+     * Различные триграммы названия и описания задачи в виде отсортированного массива ключей.
+     */
+    private static long[] grams(Entry entry) {
+        String title = entry.title;
+        String description = entry.description;
+        long[] grams = new long[title.length() + description.length()];
+        int count = 0;
+        for (int i = 0; i < title.length(); i++) {
+            grams[count++] = gram(title, i);
+        }
+        for (int i = 0; i < description.length(); i++) {
+            grams[count++] = gram(description, i);
+        }
+        Arrays.sort(grams);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || grams[unique - 1] != grams[i]) {
+                grams[unique++] = grams[i];
+            }
+        }
+        return unique == grams.length ? grams : Arrays.copyOf(grams, unique);
+    }
+
+    /**
+     * Упаковывает триграмму, начинающуюся с позиции start, в ключ типа long
+     * без создания подстроки. За концом текста подставляется заполнитель.
+     */
+    private static long gram(String text, int start) {
+        long key = 0;
+        for (int i = start; i < start + GRAM_LENGTH; i++) {
+            char c = i < text.length() ? text.charAt(i) : PAD;
+            key = (key << CHAR_BITS) | c;
+        }
+        return key;
+    }
+
+    /**
+     * Текст в нижнем регистре. Строка без заглавных букв возвращается как есть,
+     * а новая строка проходит через словарь, чтобы одинаковые тексты разных задач
+     * не копировались в индексе.
+     */
+    private static String lowerCase(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase();
+        return lower == text ? text : StringPool.intern(lower);
+    }
+}
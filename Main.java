@@ -1,24 +1,100 @@
 package com.todolist;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 public class Main {
-    private static final TodoList todoList = new TodoList();
+    // Планировщик напоминаний работает в своём потоке, поэтому хранилище читается и меняется
+    // только под его монитором; ввод пользователя ждётся вне блокировки
+    private static final TaskStore todoList = openTodoList();
     private static final Scanner scanner = new Scanner(System.in);
+    private static final int PAGE_SIZE = 20;
+    private static final int DEFAULT_SERVER_PORT = 8080;
+    private static final int URGENT_TASKS = 10;
+    private static final int UPCOMING_DAYS = 7;
+    // Напоминания планировщика копятся здесь и выводятся перед меню, чтобы не прерывать ввод
+    private static final Queue<String> reminders = new ConcurrentLinkedQueue<>();
 
-    public static void main(String[] args) {
+    /**
+     * Загружает страницу задач: не больше limit задач, пропустив первые offset.
+     */
+    private interface PageLoader {
+        List<Task> load(int offset, int limit);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && "--server".equals(args[0])) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVER_PORT);
+            return;
+        }
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            runBatch(args.length > 1 ? args[1] : "-");
+            return;
+        }
         run();
     }
 
     /**
-     *   .
+     * Выполняет команды из файла или, если вместо файла указан "-", из стандартного ввода
+     * (см. BatchRunner) и выводит отчёт о скорости в стандартный поток ошибок.
+     */
+    private static void runBatch(String source) throws IOException {
+        Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+        try (BufferedReader input = "-".equals(source)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            new BatchRunner(todoList).run(input, output, System.err);
+        }
+    }
+
+    /**
+     * Запускает HTTP-сервер с JSON API для списка задач вместо консольного меню.
+     * Сервер работает, пока процесс не будет остановлен.
+     */
+    private static void runServer(int port) throws IOException {
+        TaskServer server = new TaskServer(todoList, new InetSocketAddress(port));
+        server.start();
+        System.out.println("Сервер задач запущен: http://localhost:" + server.getPort() + "/tasks");
+    }
+
+    /**
+     * Открывает сохранённый на диске список задач.
+     * Если хранилище недоступно, работает со списком только в памяти.
+     */
+    private static TaskStore openTodoList() {
+        try {
+            return TaskStore.openDefault();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Не удалось открыть хранилище задач: " + e.getMessage());
+            System.out.println("Задачи не будут сохранены после выхода.");
+            return new TodoList();
+        }
+    }
+
+    /**
+     * Главный цикл приложения.
      */
     public static void run() {
+        startReminders();
         while (true) {
             printMenu();
             int choice = getUserChoice();
@@ -37,179 +113,444 @@ public class Main {
                     viewAllTasks();
                     break;
                 case 5:
-                    sortTasksByDate();
+                    viewSortedTasks();
                     break;
                 case 6:
                     searchTasks();
                     break;
+                case 7:
+                    transferTasks();
+                    break;
+                case 8:
+                    viewUrgentTasks();
+                    break;
+                case 9:
+                    undoChange();
+                    break;
+                case 10:
+                    redoChange();
+                    break;
+                case 11:
+                    viewUpcomingTasks();
+                    break;
+                case 12:
+                    completeOccurrence();
+                    break;
                 case 0:
-                    System.out.println("  .  !");
+                    System.out.println("Выход из приложения. До свидания!");
                     return;
                 default:
-                    System.out.println(" . ,   .");
+                    System.out.println("Неверный выбор. Пожалуйста, попробуйте еще раз.");
             }
         }
     }
 
+    /**
+     * Запускает планировщик напоминаний о сроках выполнения задач.
+     */
+    private static void startReminders() {
+        DeadlineScheduler scheduler = new DeadlineScheduler(todoList);
+        scheduler.addListener(new DeadlineListener() {
+            @Override
+            public void taskDue(Task task) {
+                reminders.add("Сегодня срок задачи #" + task.getId() + ": " + task.getTitle());
+            }
+
+            @Override
+            public void taskOverdue(Task task) {
+                reminders.add("Просрочена задача #" + task.getId() + ": " + task.getTitle() + " (срок " + task.getDueDate() + ")");
+            }
+
+            @Override
+            public void occurrenceDue(Occurrence occurrence) {
+                Task task = occurrence.getTask();
+                reminders.add("Сегодня повторение задачи #" + task.getId() + ": " + task.getTitle());
+            }
+
+            @Override
+            public void occurrenceOverdue(Occurrence occurrence) {
+                Task task = occurrence.getTask();
+                reminders.add("Не выполнено повторение задачи #" + task.getId() + ": " + task.getTitle()
+                        + " (" + occurrence.getDate() + ")");
+            }
+        });
+    }
+
     private static void printMenu() {
-        System.out.println("\n---  To-Do List ---");
-        System.out.println("1.  ");
-        System.out.println("2.  ");
-        System.out.println("3.  ");
-        System.out.println("4.   ");
-        System.out.println("5.    ");
-        System.out.println("6.  ");
-        System.out.println("0. ");
-        System.out.print("  : ");
+        String reminder;
+        while ((reminder = reminders.poll()) != null) {
+            System.out.println("! " + reminder);
+        }
+        System.out.println("\n--- Меню To-Do List ---");
+        System.out.println("1. Создать задачу");
+        System.out.println("2. Редактировать задачу");
+        System.out.println("3. Удалить задачу");
+        System.out.println("4. Показать все задачи");
+        System.out.println("5. Показать задачи в отсортированном виде");
+        System.out.println("6. Найти задачи");
+        System.out.println("7. Импорт/экспорт задач");
+        System.out.println("8. Показать самые срочные задачи");
+        System.out.println("9. Отменить последнее изменение");
+        System.out.println("10. Повторить отменённое изменение");
+        System.out.println("11. Показать сроки на ближайшие дни");
+        System.out.println("12. Отметить повторение задачи выполненным");
+        System.out.println("0. Выход");
+        System.out.print("Введите ваш выбор: ");
     }
 
     private static int getUserChoice() {
         try {
             return scanner.nextInt();
         } catch (InputMismatchException e) {
-            scanner.next(); //   
-            return -1;     //   
+            scanner.next(); // Очистка неверного ввода
+            return -1;     // Возврат неверного значения
         } finally {
-            scanner.nextLine(); //     
+            scanner.nextLine(); // Потребление оставшегося символа новой строки
         }
     }
 
     private static void createTask() {
-        System.out.println("\n---    ---");
-        System.out.print(" : ");
+        System.out.println("\n--- Создание новой задачи ---");
+        System.out.print("Введите название: ");
         String title = scanner.nextLine();
 
-        System.out.print(" : ");
+        System.out.print("Введите описание: ");
         String description = scanner.nextLine();
 
         LocalDate dueDate = getDateInput(false);
         Priority priority = getPriorityInput(false);
+        // Хранилище в отображаемом файле не хранит правила повторения: не спрашиваем о нём
+        Recurrence recurrence = todoList.supportsRecurrence() ? getRecurrenceInput() : null;
 
-        Task newTask = new Task(title, description, dueDate, priority);
-        todoList.addTask(newTask);
-        System.out.println("  !");
+        Task newTask = new Task(title, description, dueDate, priority, recurrence);
+        synchronized (todoList) {
+            todoList.addTask(newTask);
+        }
+        System.out.println("Задача успешно создана!");
     }
 
     private static void editTask() {
         viewAllTasks();
-        List<Task> tasks = todoList.getAllTasks();
-        if (tasks.isEmpty()) return;
+        if (isEmpty()) return;
 
-        System.out.print("    : ");
+        System.out.print("Введите номер задачи для редактирования: ");
         try {
-            int taskNumber = scanner.nextInt() - 1;
-            scanner.nextLine(); //   
-
-            if (taskNumber >= 0 && taskNumber < tasks.size()) {
-                System.out.println("   (  ,    ):");
+            long taskId = scanner.nextLong();
+            scanner.nextLine(); // Потребление новой строки
 
-                Task oldTask = tasks.get(taskNumber);
+            Task oldTask;
+            synchronized (todoList) {
+                oldTask = todoList.getTaskById(taskId);
+            }
+            if (oldTask != null) {
+                System.out.println("Введите новые данные (оставьте поле пустым, чтобы сохранить текущее значение):");
 
-                System.out.print("  : ");
+                System.out.print("Введите новое название: ");
                 String newTitle = scanner.nextLine();
                 if (newTitle.isEmpty()) newTitle = oldTask.getTitle();
 
-                System.out.print("  : ");
+                System.out.print("Введите новое описание: ");
                 String newDescription = scanner.nextLine();
                 if (newDescription.isEmpty()) newDescription = oldTask.getDescription();
 
-                LocalDate newDueDate = getDateInput(true); //   
+                LocalDate newDueDate = getDateInput(true); // Разрешить пустой ввод
                 if (newDueDate == null) newDueDate = oldTask.getDueDate();
 
-                Priority newPriority = getPriorityInput(true); //   
+                Priority newPriority = getPriorityInput(true); // Разрешить пустой ввод
                 if (newPriority == null) newPriority = oldTask.getPriority();
 
-                todoList.editTask(taskNumber, newTitle, newDescription, newDueDate, newPriority);
-                System.out.println("  !");
+                boolean edited;
+                synchronized (todoList) {
+                    edited = todoList.editTaskById(taskId, newTitle, newDescription, newDueDate, newPriority);
+                }
+                System.out.println(edited ? "Задача успешно отредактирована!" : "Задача уже удалена.");
             } else {
-                System.out.println("  .");
+                System.out.println("Неверный номер задачи.");
             }
         } catch (InputMismatchException e) {
-            System.out.println(" . ,  .");
-            scanner.next(); //  
+            System.out.println("Неверный ввод. Пожалуйста, введите число.");
+            scanner.next(); // Очистка буфера
         }
     }
 
     private static void deleteTask() {
         viewAllTasks();
-        List<Task> tasks = todoList.getAllTasks();
-        if (tasks.isEmpty()) return;
+        if (isEmpty()) return;
 
-        System.out.print("    : ");
+        System.out.print("Введите номер задачи для удаления: ");
         try {
-            int taskNumber = scanner.nextInt() - 1;
-            scanner.nextLine(); //   
+            long taskId = scanner.nextLong();
+            scanner.nextLine(); // Потребление новой строки
 
-            if (todoList.deleteTask(taskNumber)) {
-                System.out.println("  !");
+            boolean deleted;
+            synchronized (todoList) {
+                deleted = todoList.deleteTaskById(taskId);
+            }
+            if (deleted) {
+                System.out.println("Задача успешно удалена!");
             } else {
-                System.out.println("  .");
+                System.out.println("Неверный номер задачи.");
             }
         } catch (InputMismatchException e) {
-            System.out.println(" . ,  .");
-            scanner.next(); //  
+            System.out.println("Неверный ввод. Пожалуйста, введите число.");
+            scanner.next(); // Очистка буфера
         }
     }
 
+    /**
+     * Показывает все задачи страницами. Если хранилище хранит версии, все страницы берутся
+     * из одной версии: изменения, сделанные во время просмотра, не сдвигают страницы.
+     */
     private static void viewAllTasks() {
-        System.out.println("\n---   ---");
-        List<Task> tasks = todoList.getAllTasks();
-        if (tasks.isEmpty()) {
-            System.out.println("   .");
-        } else {
-            for (int i = 0; i < tasks.size(); i++) {
-                System.out.println(" #" + (i + 1));
-                System.out.println(tasks.get(i));
+        System.out.println("\n--- Все задачи ---");
+        TaskVersion version;
+        synchronized (todoList) {
+            version = todoList.getVersion();
+        }
+        printPages(version != null ? version::getTasks : todoList::getTasks, "Нет задач для отображения.");
+    }
+
+    /**
+     * Показывает сроки на ближайшие дни: повторяющиеся задачи разворачиваются только для этих дней.
+     */
+    private static void viewUpcomingTasks() {
+        System.out.print("На сколько дней вперёд показать сроки (Enter - " + UPCOMING_DAYS + "): ");
+        String input = scanner.nextLine().trim();
+        int days;
+        try {
+            days = input.isEmpty() ? UPCOMING_DAYS : Integer.parseInt(input);
+        } catch (NumberFormatException e) {
+            System.out.println("Неверный ввод. Пожалуйста, введите число.");
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        List<Occurrence> occurrences;
+        synchronized (todoList) {
+            occurrences = todoList.getOccurrences(today, today.plusDays(Math.max(0, days - 1)));
+        }
+        System.out.println("\n--- Сроки на ближайшие дни ---");
+        if (occurrences.isEmpty()) {
+            System.out.println("Нет задач со сроком в эти дни.");
+            return;
+        }
+        for (Occurrence occurrence : occurrences) {
+            System.out.println(occurrence.getDate() + "  Задача #" + occurrence.getTask().getId() + ": " + occurrence.getTask().getTitle()
+                    + (occurrence.getTask().isRecurring() ? " (повторение " + occurrence.getTask().getRecurrence() + ")" : ""));
+        }
+    }
+
+    private static void completeOccurrence() {
+        System.out.print("Введите номер повторяющейся задачи: ");
+        try {
+            long taskId = scanner.nextLong();
+            scanner.nextLine(); // Потребление новой строки
+            LocalDate date = getDateInput(false);
+            boolean completed;
+            synchronized (todoList) {
+                completed = todoList.completeOccurrence(taskId, date);
             }
+            if (completed) {
+                System.out.println("Повторение " + date + " отмечено выполненным.");
+            } else {
+                System.out.println("У задачи нет невыполненного повторения в этот день.");
+            }
+        } catch (InputMismatchException e) {
+            System.out.println("Неверный ввод. Пожалуйста, введите число.");
+            scanner.next(); // Очистка буфера
         }
     }
 
-    private static void sortTasksByDate() {
-        todoList.sortByDueDate();
-        System.out.println("    .");
-        viewAllTasks();
+    private static void undoChange() {
+        boolean undone;
+        synchronized (todoList) {
+            undone = todoList.undo();
+        }
+        if (undone) {
+            System.out.println("Последнее изменение отменено.");
+        } else {
+            System.out.println("Нет изменений для отмены.");
+        }
+    }
+
+    private static void redoChange() {
+        boolean redone;
+        synchronized (todoList) {
+            redone = todoList.redo();
+        }
+        if (redone) {
+            System.out.println("Отменённое изменение повторено.");
+        } else {
+            System.out.println("Нет отменённых изменений для повтора.");
+        }
+    }
+
+    /**
+     * Показывает задачи с ближайшим сроком выполнения, не сортируя весь список.
+     */
+    private static void viewUrgentTasks() {
+        System.out.println("\n--- Самые срочные задачи ---");
+        printPages((offset, limit) -> todoList.getTopTasks(SortOrder.DUE_DATE, URGENT_TASKS), "Нет задач для отображения.");
+    }
+
+    /**
+     * Показывает задачи в выбранном порядке, не меняя порядок самого списка.
+     */
+    private static void viewSortedTasks() {
+        System.out.println("\n--- Сортировка задач ---");
+        SortOrder[] orders = SortOrder.values();
+        for (int i = 0; i < orders.length; i++) {
+            System.out.println((i + 1) + ". Сортировать " + orders[i].getDescription());
+        }
+        System.out.print("Введите ваш выбор: ");
+        int choice = getUserChoice();
+        if (choice < 1 || choice > orders.length) {
+            System.out.println("Неверный выбор сортировки.");
+            return;
+        }
+
+        SortOrder order = orders[choice - 1];
+        System.out.println("\n--- Задачи " + order.getDescription() + " ---");
+        List<Task> tasks;
+        synchronized (todoList) {
+            tasks = todoList.getTasksSortedBy(order);
+        }
+        printPages((offset, limit) -> tasks.subList(Math.min(offset, tasks.size()), Math.min(offset + limit, tasks.size())),
+                "Нет задач для отображения.");
     }
 
     private static void searchTasks() {
-        System.out.println("\n---   ---");
-        System.out.println("1.    ");
-        System.out.println("2.   ");
-        System.out.print("  : ");
+        System.out.println("\n--- Поиск задач ---");
+        System.out.println("1. Поиск по ключевому слову");
+        System.out.println("2. Поиск по приоритету");
+        System.out.println("3. Поиск по диапазону дат");
+        System.out.println("4. Поиск по запросу (например: priority:high due:..today отчёт OR -встреча)");
+        System.out.println("5. Поиск с опечатками (похожие слова, лучшие совпадения первыми)");
+        System.out.print("Введите ваш выбор: ");
         int choice = getUserChoice();
 
         switch (choice) {
             case 1:
-                System.out.print("      /: ");
-                String keyword = scanner.nextLine();
-                List<Task> foundByKeyword = todoList.searchByKeyword(keyword);
-                displaySearchResults(foundByKeyword);
+                System.out.print("Введите ключевое слово для поиска в названии/описании: ");
+                displayQueryResults(TaskQuery.keyword(scanner.nextLine()));
                 break;
             case 2:
-                Priority priority = getPriorityInput(false);
-                List<Task> foundByPriority = todoList.searchByPriority(priority);
-                displaySearchResults(foundByPriority);
+                displayQueryResults(TaskQuery.priority(getPriorityInput(false)));
+                break;
+            case 3:
+                System.out.println("Начало диапазона.");
+                LocalDate from = getDateInput(false);
+                System.out.println("Конец диапазона.");
+                LocalDate to = getDateInput(false);
+                if (from.isAfter(to)) {
+                    System.out.println("Начало диапазона не может быть позже его конца.");
+                    break;
+                }
+                displayQueryResults(TaskQuery.dueBetween(from, to).orderBy(SortOrder.DUE_DATE));
+                break;
+            case 4:
+                System.out.println("Условия через пробел должны выполняться все, OR - любое из них, минус - условие не выполняется.");
+                System.out.println("Поля: priority:high|medium|low|none, due:ГГГГ-ММ-ДД..ГГГГ-ММ-ДД, sort:due_date|priority_then_due_date|title.");
+                System.out.print("Введите запрос: ");
+                try {
+                    displayQueryResults(TaskQuery.parse(scanner.nextLine()));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Ошибка в запросе: " + e.getMessage());
+                }
+                break;
+            case 5:
+                System.out.print("Введите слова для поиска: ");
+                String text = scanner.nextLine();
+                System.out.println("--- Результаты поиска с опечатками: " + text + " ---");
+                printPages((offset, limit) -> todoList.fuzzySearch(text, offset, limit), "Не найдено похожих задач.");
                 break;
             default:
-                System.out.println("  .");
+                System.out.println("Неверный выбор поиска.");
         }
     }
 
-    private static void displaySearchResults(List<Task> results) {
-        if (results.isEmpty()) {
-            System.out.println("  ,   .");
-        } else {
-            System.out.println("---   ---");
-            for (Task task : results) {
+    /**
+     * Импортирует задачи из файла или экспортирует их в файл.
+     * Формат (CSV или JSON Lines) определяется по расширению файла.
+     */
+    private static void transferTasks() {
+        System.out.println("\n--- Импорт/экспорт задач ---");
+        System.out.println("1. Импортировать задачи из файла");
+        System.out.println("2. Экспортировать задачи в файл");
+        System.out.print("Введите ваш выбор: ");
+        int choice = getUserChoice();
+        if (choice != 1 && choice != 2) {
+            System.out.println("Неверный выбор.");
+            return;
+        }
+
+        System.out.print("Введите путь к файлу (.csv или .jsonl): ");
+        String fileName = scanner.nextLine().trim();
+        try {
+            Path file = Paths.get(fileName);
+            TaskTransfer.Format format = TaskTransfer.Format.forPath(file);
+            if (choice == 1) {
+                TaskTransfer.TransferResult result = TaskTransfer.importTasks(file, format, todoList);
+                System.out.println("Импортировано: " + result);
+                for (String error : result.getErrors()) {
+                    System.out.println("  " + error);
+                }
+            } else {
+                System.out.println("Экспортировано: " + TaskTransfer.exportTasks(todoList, file, format));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ошибка: " + e.getMessage());
+        }
+    }
+
+    private static void displayQueryResults(TaskQuery query) {
+        System.out.println("--- Результаты поиска: " + query + " ---");
+        printPages((offset, limit) -> todoList.query(query, offset, limit), "Не найдено задач, соответствующих вашим критериям.");
+    }
+
+    /**
+     * Выводит задачи страницами по PAGE_SIZE и загружает следующую страницу,
+     * только если пользователь хочет её увидеть.
+     * @param loader Загрузчик страниц.
+     * @param emptyMessage Сообщение, если задач нет.
+     */
+    private static void printPages(PageLoader loader, String emptyMessage) {
+        int offset = 0;
+        while (true) {
+            // Лишняя задача показывает, есть ли следующая страница
+            List<Task> page;
+            synchronized (todoList) {
+                page = loader.load(offset, PAGE_SIZE + 1);
+            }
+            if (offset == 0 && page.isEmpty()) {
+                System.out.println(emptyMessage);
+                return;
+            }
+            for (Task task : page.subList(0, Math.min(PAGE_SIZE, page.size()))) {
+                System.out.println("Задача #" + task.getId());
                 System.out.println(task);
             }
+            if (page.size() <= PAGE_SIZE) {
+                return;
+            }
+            offset += PAGE_SIZE;
+            System.out.print("Показать следующие задачи? (Enter - да, любой другой ввод - нет): ");
+            if (!scanner.nextLine().trim().isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isEmpty() {
+        synchronized (todoList) {
+            return todoList.size() == 0;
         }
     }
 
-    // ---     ---
+    // --- Вспомогательные методы для ввода ---
 
     private static LocalDate getDateInput(boolean allowEmpty) {
         while (true) {
-            System.out.print("   (--): ");
+            System.out.print("Введите срок выполнения (гггг-мм-дд): ");
             String dateString = scanner.nextLine();
             if (allowEmpty && dateString.isEmpty()) {
                 return null;
@@ -217,14 +558,32 @@ public class Main {
             try {
                 return LocalDate.parse(dateString);
             } catch (DateTimeParseException e) {
-                System.out.println("  . ,  --.");
+                System.out.println("Неверный формат даты. Пожалуйста, используйте гггг-мм-дд.");
+            }
+        }
+    }
+
+    /**
+     * Запрашивает правило повторения; пустой ввод - задача не повторяется.
+     */
+    private static Recurrence getRecurrenceInput() {
+        while (true) {
+            System.out.print("Введите повторение (daily, weekly, monthly, yearly, например weekly:2; Enter - не повторять): ");
+            String spec = scanner.nextLine().trim();
+            if (spec.isEmpty()) {
+                return null;
+            }
+            try {
+                return Recurrence.parse(spec);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
             }
         }
     }
 
     private static Priority getPriorityInput(boolean allowEmpty) {
         while (true) {
-            System.out.print("  (HIGH, MEDIUM, LOW): ");
+            System.out.print("Введите приоритет (HIGH, MEDIUM, LOW): ");
             String priorityString = scanner.nextLine().toUpperCase();
             if (allowEmpty && priorityString.isEmpty()) {
                 return null;
@@ -232,7 +591,7 @@ public class Main {
             try {
                 return Priority.valueOf(priorityString);
             } catch (IllegalArgumentException e) {
-                System.out.println(" . ,  HIGH, MEDIUM  LOW.");
+                System.out.println("Неверный приоритет. Пожалуйста, введите HIGH, MEDIUM или LOW.");
             }
         }
     }
@@ -0,0 +1,537 @@
+package com.todolist;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Хранилище задач в двоичном файле, отображённом в память.
+ * Каждая задача занимает запись фиксированного размера: срок как номер дня (int),
+ * приоритет как байт, идентификатор и ссылки на строки, которые лежат в отдельном файле-арене.
+ * Объекты Task создаются только тогда, когда вызывающий код действительно к ним обращается,
+ * а фильтры по приоритету и сроку читают поля записей прямо из файла.
+ * Старые версии строк после редактирования остаются в арене неиспользуемыми.
+ */
+public class MappedTaskStore implements TaskStore, Closeable {
+    static final String RECORDS_FILE = "tasks.dat";
+    static final String STRINGS_FILE = "tasks.strings";
+
+    private static final int MAGIC = 0x54444d31; // "TDM1"
+
+    // Заголовок файла записей: сигнатура, количество задач, конец занятой части арены,
+    // следующий идентификатор (0 в файлах, записанных до его появления)
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_COUNT = 4;
+    private static final int HEADER_STRINGS_END = 8;
+    private static final int HEADER_NEXT_ID = 16;
+
+    // Смещения полей внутри записи
+    private static final int RECORD_SIZE = 40;
+    private static final int EPOCH_DAY = 0;
+    private static final int PRIORITY = 4;
+    private static final int TITLE_OFFSET = 8;
+    private static final int TITLE_LENGTH = 16;
+    private static final int DESCRIPTION_LENGTH = 20;
+    private static final int DESCRIPTION_OFFSET = 24;
+    private static final int ID = 32;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_STRINGS_SIZE = 1 << 16;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final FileChannel recordsChannel;
+    private final FileChannel stringsChannel;
+    private MappedByteBuffer records;
+    private MappedByteBuffer strings;
+    private int count;
+    private long stringsEnd;
+    private final Map<Long, Integer> indexById = new HashMap<>(); // строится при открытии
+    private long nextId = 1;
+    private final List<TaskChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Открывает хранилище в указанном каталоге, создавая файлы при необходимости.
+     * @param directory Каталог для файлов записей и строк.
+     */
+    public MappedTaskStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.recordsChannel = FileChannel.open(directory.resolve(RECORDS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.stringsChannel = FileChannel.open(directory.resolve(STRINGS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        boolean created = recordsChannel.size() == 0;
+        long recordsSize = created ? HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE : recordsChannel.size();
+        this.records = recordsChannel.map(FileChannel.MapMode.READ_WRITE, 0, recordsSize);
+        this.strings = stringsChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(INITIAL_STRINGS_SIZE, stringsChannel.size()));
+
+        if (created) {
+            records.putInt(0, MAGIC);
+            writeHeader();
+        } else {
+            if (records.getInt(0) != MAGIC) {
+                throw new IOException("Неверный формат файла задач: " + directory.resolve(RECORDS_FILE));
+            }
+            this.count = records.getInt(HEADER_COUNT);
+            this.stringsEnd = records.getLong(HEADER_STRINGS_END);
+            // Идентификаторы удалённых задач не выдаются повторно, даже если это были последние задачи
+            this.nextId = Math.max(1, records.getLong(HEADER_NEXT_ID));
+            reindexIds(0);
+        }
+    }
+
+    /**
+     * Открывает хранилище в каталоге из системного свойства todolist.dir (по умолчанию todolist-data).
+     * Хранилище закрывается автоматически при завершении JVM.
+     */
+    public static MappedTaskStore openDefault() throws IOException {
+        MappedTaskStore store = new MappedTaskStore(Paths.get(System.getProperty("todolist.dir", "todolist-data")));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "todolist-close"));
+        return store;
+    }
+
+    /**
+     * В записях фиксированного размера нет места для правила повторения.
+     */
+    @Override
+    public boolean supportsRecurrence() {
+        return false;
+    }
+
+    /**
+     * Добавляет задачу; задача без идентификатора сохраняется с назначенным идентификатором.
+     * @return Сохранённая задача.
+     * @throws IllegalArgumentException если задача с таким идентификатором уже есть в хранилище
+     * или задача повторяется (в записях фиксированного размера нет места для правила повторения).
+     */
+    @Override
+    public synchronized Task addTask(Task task) {
+        if (task.isRecurring()) {
+            throw new IllegalArgumentException("Хранилище в отображаемом файле не поддерживает повторяющиеся задачи");
+        }
+        if (task.getId() == 0) {
+            task = task.withId(nextId++);
+        } else if (indexById.containsKey(task.getId())) {
+            throw new IllegalArgumentException("Задача с идентификатором " + task.getId() + " уже есть в хранилище");
+        } else {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+        ensureRecordCapacity(count + 1);
+        records.putLong(base(count) + ID, task.getId());
+        writeRecord(count, task.getTitle(), task.getDescription(), task.getDueDate(), task.getPriority());
+        indexById.put(task.getId(), count);
+        count++;
+        writeHeader();
+        if (!changeListeners.isEmpty()) {
+            Task added = materialize(count - 1);
+            for (TaskChangeListener listener : changeListeners) {
+                listener.taskAdded(added);
+            }
+        }
+        return task;
+    }
+
+    @Override
+    public synchronized Task getTaskById(long id) {
+        Integer index = indexById.get(id);
+        return index == null ? null : materialize(index);
+    }
+
+    @Override
+    public synchronized int size() {
+        return count;
+    }
+
+    @Override
+    public synchronized Task getTaskAt(int index) {
+        return isValidIndex(index) ? materialize(index) : null;
+    }
+
+    @Override
+    public synchronized int indexOf(long id) {
+        Integer index = indexById.get(id);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public synchronized boolean editTask(int index, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        if (isValidIndex(index)) {
+            Task previous = changeListeners.isEmpty() ? null : materialize(index);
+            writeRecord(index, newTitle, newDescription, newDueDate, newPriority);
+            writeHeader();
+            if (previous != null) {
+                Task updated = materialize(index);
+                for (TaskChangeListener listener : changeListeners) {
+                    listener.taskUpdated(previous, updated);
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean editTaskById(long id, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        Integer index = indexById.get(id);
+        return index != null && editTask(index, newTitle, newDescription, newDueDate, newPriority);
+    }
+
+    @Override
+    public synchronized boolean deleteTask(int index) {
+        if (isValidIndex(index)) {
+            Task removed = changeListeners.isEmpty() ? null : materialize(index);
+            indexById.remove(records.getLong(base(index) + ID));
+            // Сдвигаем последующие записи на одну позицию назад
+            byte[] tail = new byte[(count - index - 1) * RECORD_SIZE];
+            readRecords(index + 1, tail);
+            writeRecords(index, tail);
+            count--;
+            writeHeader();
+            reindexIds(index);
+            if (removed != null) {
+                for (TaskChangeListener listener : changeListeners) {
+                    listener.taskRemoved(removed);
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Удаляет задачу по идентификатору. Записи хранятся в порядке списка,
+     * поэтому последующие записи сдвигаются, как и при удалении по индексу.
+     */
+    @Override
+    public synchronized boolean deleteTaskById(long id) {
+        Integer index = indexById.get(id);
+        return index != null && deleteTask(index);
+    }
+
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Возвращает ленивое представление всех задач: объект Task создаётся
+     * только при обращении к соответствующему элементу.
+     * @return Список задач.
+     */
+    @Override
+    public synchronized List<Task> getAllTasks() {
+        return new TaskView(count);
+    }
+
+    /**
+     * Сортирует записи по сроку выполнения (задачи без срока идут в конце).
+     * Сортируются только упакованные ключи "срок + позиция", без создания объектов Task.
+     */
+    @Override
+    public synchronized void sortByDueDate() {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int epochDay = epochDay(i);
+            keys[i] = sortKey(epochDay == NO_DATE ? Integer.MAX_VALUE : epochDay, i);
+        }
+        Arrays.sort(keys); // Позиция в младших битах делает сортировку устойчивой
+
+        byte[] sorted = new byte[count * RECORD_SIZE];
+        byte[] record = new byte[RECORD_SIZE];
+        for (int i = 0; i < count; i++) {
+            readRecords((int) keys[i], record);
+            System.arraycopy(record, 0, sorted, i * RECORD_SIZE, RECORD_SIZE);
+        }
+        writeRecords(0, sorted);
+        reindexIds(0);
+        for (TaskChangeListener listener : changeListeners) {
+            listener.tasksReordered();
+        }
+    }
+
+    /**
+     * Большое хранилище просматривается параллельно по кускам записей (см. ParallelScan):
+     * чтение по абсолютным позициям не меняет состояния буферов, а замок хранилища
+     * не даёт изменить записи, пока просмотр не закончен.
+     */
+    @Override
+    public synchronized List<Task> searchByKeyword(String keyword) {
+        String lowerCaseKeyword = keyword.toLowerCase();
+        return ParallelScan.DEFAULT.collect(count, (from, to, result) -> {
+            for (int i = from; i < to; i++) {
+                String title = title(i);
+                String description = description(i);
+                if ((title != null && title.toLowerCase().contains(lowerCaseKeyword))
+                        || (description != null && description.toLowerCase().contains(lowerCaseKeyword))) {
+                    result.add(new Task(id(i), title, description, dueDate(i), priority(i)));
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized List<Task> searchByPriority(Priority priority) {
+        if (priority == null) {
+            return new ArrayList<>();
+        }
+        return ParallelScan.DEFAULT.collect(count, (from, to, result) -> {
+            for (int i = from; i < to; i++) {
+                if (records.get(base(i) + PRIORITY) == priority.ordinal()) {
+                    result.add(materialize(i));
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized List<Task> searchByDueDateRange(LocalDate from, LocalDate to) {
+        return searchByDueDateRange(null, from, to);
+    }
+
+    @Override
+    public synchronized List<Task> searchByPriorityAndDueDateRange(Priority priority, LocalDate from, LocalDate to) {
+        if (priority == null) {
+            return new ArrayList<>();
+        }
+        return searchByDueDateRange(priority, from, to);
+    }
+
+    /**
+     * Сбрасывает изменения на диск.
+     */
+    public synchronized void flush() {
+        records.force();
+        strings.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (recordsChannel.isOpen()) {
+            flush();
+            recordsChannel.close();
+            stringsChannel.close();
+        }
+    }
+
+    private List<Task> searchByDueDateRange(Priority priority, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже его конца: " + from + " > " + to);
+        }
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        long[] keys = new long[16];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int day = epochDay(i);
+            if (day == NO_DATE || day < fromDay || day > toDay) {
+                continue;
+            }
+            if (priority != null && records.get(base(i) + PRIORITY) != priority.ordinal()) {
+                continue;
+            }
+            if (found == keys.length) {
+                keys = Arrays.copyOf(keys, found * 2);
+            }
+            keys[found++] = sortKey(day, i);
+        }
+        Arrays.sort(keys, 0, found);
+
+        List<Task> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(materialize((int) keys[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Лениво создаваемый список задач фиксированного размера.
+     */
+    private final class TaskView extends AbstractList<Task> implements RandomAccess {
+        private final int size;
+
+        TaskView(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Task get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Индекс: " + index + ", размер: " + size);
+            }
+            synchronized (MappedTaskStore.this) {
+                return materialize(index);
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private Task materialize(int index) {
+        return new Task(id(index), title(index), description(index), dueDate(index), priority(index));
+    }
+
+    private long id(int index) {
+        return records.getLong(base(index) + ID);
+    }
+
+    /**
+     * Обновляет соответствие идентификаторов позициям для записей начиная с fromIndex.
+     */
+    private void reindexIds(int fromIndex) {
+        for (int i = fromIndex; i < count; i++) {
+            long id = id(i);
+            indexById.put(id, i);
+            nextId = Math.max(nextId, id + 1);
+        }
+    }
+
+    private String title(int index) {
+        int base = base(index);
+        return readString(records.getLong(base + TITLE_OFFSET), records.getInt(base + TITLE_LENGTH));
+    }
+
+    private String description(int index) {
+        int base = base(index);
+        return readString(records.getLong(base + DESCRIPTION_OFFSET), records.getInt(base + DESCRIPTION_LENGTH));
+    }
+
+    private int epochDay(int index) {
+        return records.getInt(base(index) + EPOCH_DAY);
+    }
+
+    private LocalDate dueDate(int index) {
+        int day = epochDay(index);
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    private Priority priority(int index) {
+        byte ordinal = records.get(base(index) + PRIORITY);
+        return ordinal < 0 ? null : PRIORITIES[ordinal];
+    }
+
+    private void writeRecord(int index, String title, String description, LocalDate dueDate, Priority priority) {
+        byte[] titleBytes = title == null ? null : title.getBytes(StandardCharsets.UTF_8);
+        byte[] descriptionBytes = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+        long titleOffset = appendString(titleBytes);
+        long descriptionOffset = appendString(descriptionBytes);
+
+        int base = base(index);
+        records.putInt(base + EPOCH_DAY, dueDate == null ? NO_DATE : Math.toIntExact(dueDate.toEpochDay()));
+        records.put(base + PRIORITY, (byte) (priority == null ? -1 : priority.ordinal()));
+        records.putLong(base + TITLE_OFFSET, titleOffset);
+        records.putInt(base + TITLE_LENGTH, titleBytes == null ? -1 : titleBytes.length);
+        records.putInt(base + DESCRIPTION_LENGTH, descriptionBytes == null ? -1 : descriptionBytes.length);
+        records.putLong(base + DESCRIPTION_OFFSET, descriptionOffset);
+    }
+
+    private long appendString(byte[] bytes) {
+        if (bytes == null) {
+            return -1;
+        }
+        ensureStringCapacity(stringsEnd + bytes.length);
+        ByteBuffer target = strings.duplicate();
+        target.position((int) stringsEnd);
+        target.put(bytes);
+        long offset = stringsEnd;
+        stringsEnd += bytes.length;
+        return offset;
+    }
+
+    private String readString(long offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer source = strings.duplicate();
+        source.position((int) offset);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void readRecords(int fromIndex, byte[] target) {
+        ByteBuffer source = records.duplicate();
+        source.position(base(fromIndex));
+        source.get(target);
+    }
+
+    private void writeRecords(int fromIndex, byte[] source) {
+        ByteBuffer target = records.duplicate();
+        target.position(base(fromIndex));
+        target.put(source);
+    }
+
+    private void writeHeader() {
+        records.putInt(HEADER_COUNT, count);
+        records.putLong(HEADER_STRINGS_END, stringsEnd);
+        records.putLong(HEADER_NEXT_ID, nextId);
+    }
+
+    private void ensureRecordCapacity(int capacity) {
+        long needed = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        if (needed > records.capacity()) {
+            records = remap(recordsChannel, needed, Math.max(needed, 2L * records.capacity()));
+        }
+    }
+
+    private void ensureStringCapacity(long needed) {
+        if (needed > strings.capacity()) {
+            strings = remap(stringsChannel, needed, Math.max(needed, 2L * strings.capacity()));
+        }
+    }
+
+    private static MappedByteBuffer remap(FileChannel channel, long needed, long preferred) {
+        if (needed > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Файл хранилища превысил предельный размер 2 ГБ");
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(preferred, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int base(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private static long sortKey(int epochDay, int index) {
+        return ((long) epochDay << 32) | index;
+    }
+
+    private boolean isValidIndex(int index) {
+        return index >= 0 && index < count;
+    }
+}
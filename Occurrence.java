@@ -0,0 +1,41 @@
+package com.todolist;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * Срок выполнения задачи в запрошенном окне дат: повторение серии или срок обычной задачи.
+ * Повторения не хранятся в списке - они создаются по правилу задачи при запросе окна.
+ */
+public final class Occurrence {
+    /**
+     * Порядок повторений: по дате, затем по приоритету (сначала высокий), затем по идентификатору задачи.
+     */
+    static final Comparator<Occurrence> ORDER = Comparator.comparing(Occurrence::getDate)
+            .thenComparingInt(occurrence -> occurrence.task.priorityKey())
+            .thenComparingLong(occurrence -> occurrence.task.getId());
+
+    private final Task task;
+    private final LocalDate date;
+
+    Occurrence(Task task, LocalDate date) {
+        this.task = task;
+        this.date = date;
+    }
+
+    /**
+     * Задача, к которой относится повторение (для серии - её единственная запись).
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    @Override
+    public String toString() {
+        return date + " " + task.getTitle() + (task.isRecurring() ? " (" + task.getRecurrence() + ")" : "");
+    }
+}
@@ -0,0 +1,135 @@
+package com.todolist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Адаптивный просмотр задач без индекса. Набор меньше порога проверяется последовательно
+ * в вызывающем потоке. Больший набор делится на непрерывные куски позиций (соседние записи
+ * лежат в памяти рядом), куски проверяются параллельно в пуле ForkJoinPool, а их результаты
+ * склеиваются в исходном порядке.
+ *
+ * Настройки по умолчанию задаются системными свойствами:
+ * todolist.scan.threshold - порог в задачах (по умолчанию 16384);
+ * todolist.scan.threads - число потоков отдельного пула (по умолчанию общий пул, 1 - без параллельности).
+ * Порог, при котором параллельный просмотр начинает выигрывать, показывает TodoListBenchmark --scan.
+ */
+final class ParallelScan {
+    static final int DEFAULT_THRESHOLD = 1 << 14;
+    private static final int CHUNKS_PER_THREAD = 4; // Запас кусков, чтобы освободившиеся потоки не простаивали
+    private static final int MIN_CHUNK = 1 << 12;
+
+    /**
+     * Просмотр с настройками из системных свойств.
+     */
+    static final ParallelScan DEFAULT = fromProperties();
+
+    /**
+     * Собирает подходящие элементы из позиций от from (включительно) до to в порядке позиций.
+     */
+    interface RangeCollector<T> {
+        void collect(int from, int to, List<T> result);
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * @param pool Пул для параллельного просмотра.
+     * @param threshold Размер набора, начиная с которого просмотр параллелен.
+     */
+    ParallelScan(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    private static ParallelScan fromProperties() {
+        int threshold = Integer.getInteger("todolist.scan.threshold", DEFAULT_THRESHOLD);
+        Integer threads = Integer.getInteger("todolist.scan.threads");
+        return new ParallelScan(threads == null ? ForkJoinPool.commonPool() : new ForkJoinPool(threads), threshold);
+    }
+
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    /**
+     * Стоит ли просматривать набор такого размера параллельно.
+     */
+    boolean isParallel(int size) {
+        return size >= threshold && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Размер куска, на который делится набор: несколько кусков на поток, но не меньше MIN_CHUNK.
+     */
+    int chunkSize(int size) {
+        return Math.max(MIN_CHUNK, size / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+    }
+
+    /**
+     * Собирает подходящие элементы из позиций от 0 до size в порядке позиций. Сборщик вызывается
+     * из нескольких потоков для непересекающихся диапазонов и должен только читать общие данные.
+     */
+    <T> List<T> collect(int size, RangeCollector<T> collector) {
+        if (!isParallel(size)) {
+            List<T> result = new ArrayList<>();
+            collector.collect(0, size, result);
+            return result;
+        }
+        int chunk = chunkSize(size);
+        int chunks = (size + chunk - 1) / chunk;
+        List<List<T>> parts = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            parts.add(new ArrayList<>());
+        }
+        pool.invoke(new ChunkTask<>(collector, parts, 0, chunks, chunk, size));
+
+        int total = 0;
+        for (List<T> part : parts) {
+            total += part.size();
+        }
+        List<T> result = new ArrayList<>(total);
+        for (List<T> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    /**
+     * Просматривает куски с номерами от first до last, деля их пополам между задачами пула.
+     */
+    private static final class ChunkTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient RangeCollector<T> collector;
+        private final transient List<List<T>> parts;
+        private final int first;
+        private final int last;
+        private final int chunk;
+        private final int size;
+
+        ChunkTask(RangeCollector<T> collector, List<List<T>> parts, int first, int last, int chunk, int size) {
+            this.collector = collector;
+            this.parts = parts;
+            this.first = first;
+            this.last = last;
+            this.chunk = chunk;
+            this.size = size;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                int from = first * chunk;
+                collector.collect(from, Math.min(size, from + chunk), parts.get(first));
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new ChunkTask<>(collector, parts, first, middle, chunk, size),
+                    new ChunkTask<>(collector, parts, middle, last, chunk, size));
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.todolist;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Список задач, сохраняющий каждое изменение в журнал на диске.
+ * При создании восстанавливает задачи из снимка и журнала,
+ * а при накоплении заданного числа записей журнала делает новый снимок.
+ */
+public class PersistentTodoList extends TodoList implements Closeable {
+    private static final long DEFAULT_SNAPSHOT_THRESHOLD = 100_000;
+
+    private final long snapshotThreshold;
+    private TaskJournal journal; // null, пока идёт восстановление из журнала
+
+    /**
+     * Открывает хранилище в указанном каталоге и восстанавливает сохранённые задачи.
+     * @param directory Каталог для файлов снимка и журнала.
+     * @param syncPolicy Политика сброса журнала на диск.
+     * @param snapshotThreshold Количество записей журнала, после которого делается снимок.
+     */
+    public PersistentTodoList(Path directory, SyncPolicy syncPolicy, long snapshotThreshold) throws IOException {
+        this.snapshotThreshold = snapshotThreshold;
+        TaskJournal opened = new TaskJournal(directory, syncPolicy);
+        opened.open(this);
+        clearHistory(); // Восстановление из журнала не отменяется
+        this.journal = opened;
+    }
+
+    /**
+     * Открывает хранилище с настройками из системных свойств:
+     * todolist.dir (каталог, по умолчанию todolist-data),
+     * todolist.sync (every, batch:N или interval:MS, по умолчанию every),
+     * todolist.snapshotEvery (порог снимка, по умолчанию 100000).
+     * Хранилище закрывается автоматически при завершении JVM, а его показатели
+     * регистрируются в JMX под именем com.todolist:type=TodoList,name="каталог".
+     */
+    public static PersistentTodoList openDefault() throws IOException {
+        Path directory = Paths.get(System.getProperty("todolist.dir", "todolist-data"));
+        SyncPolicy syncPolicy = SyncPolicy.parse(System.getProperty("todolist.sync", "every"));
+        long threshold = Long.getLong("todolist.snapshotEvery", DEFAULT_SNAPSHOT_THRESHOLD);
+
+        PersistentTodoList list = new PersistentTodoList(directory, syncPolicy, threshold);
+        list.getMetrics().register(directory.toAbsolutePath().toString());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                list.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "todolist-close"));
+        return list;
+    }
+
+    /**
+     * Запись изменения в журнал.
+     */
+    private interface JournalRecord {
+        void write() throws IOException;
+    }
+
+    /**
+     * Выполняет изменение списка и записывает его в журнал. Если запись не удалась, изменение
+     * откатывается (см. TodoList.savepoint), поэтому список в памяти не уходит вперёд журнала
+     * и следующие записи не ложатся поверх пропущенной.
+     * @param change Изменение списка; false - изменение не выполнено, и записывать нечего.
+     * @param record Запись выполненного изменения в журнал.
+     * @return Результат change.
+     */
+    private boolean journaled(BooleanSupplier change, JournalRecord record) {
+        if (journal == null) {
+            return change.getAsBoolean();
+        }
+        Savepoint savepoint = savepoint();
+        try {
+            if (!change.getAsBoolean()) {
+                return false;
+            }
+            record.write();
+        } catch (IOException e) {
+            rollbackTo(savepoint);
+            throw new UncheckedIOException(e);
+        } finally {
+            releaseSavepoint(savepoint);
+        }
+        snapshotIfNeeded();
+        return true;
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        Task[] added = new Task[1];
+        journaled(() -> {
+            added[0] = super.addTask(task);
+            return true;
+        }, () -> journal.appendAdd(added[0]));
+        return added[0];
+    }
+
+    @Override
+    public List<Task> addTasks(List<Task> tasks) {
+        List<Task> added = new ArrayList<>(tasks.size());
+        journaled(() -> {
+            added.addAll(super.addTasks(tasks));
+            return true;
+        }, () -> journal.appendAdds(added));
+        return added;
+    }
+
+    @Override
+    public boolean editTask(int index, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        return journaled(() -> super.editTask(index, newTitle, newDescription, newDueDate, newPriority),
+                () -> journal.appendEdit(index, new Task(newTitle, newDescription, newDueDate, newPriority)));
+    }
+
+    @Override
+    public boolean editTaskById(long id, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        return journaled(() -> super.editTaskById(id, newTitle, newDescription, newDueDate, newPriority),
+                () -> journal.appendEditById(new Task(id, newTitle, newDescription, newDueDate, newPriority)));
+    }
+
+    @Override
+    public boolean deleteTask(int index) {
+        return journaled(() -> super.deleteTask(index), () -> journal.appendDelete(index));
+    }
+
+    @Override
+    public boolean deleteTaskById(long id) {
+        return journaled(() -> super.deleteTaskById(id), () -> journal.appendDeleteById(id));
+    }
+
+    @Override
+    public void sortByDueDate() {
+        journaled(() -> {
+            super.sortByDueDate();
+            return true;
+        }, () -> journal.appendSort());
+    }
+
+    @Override
+    public boolean completeOccurrence(long id, LocalDate date) {
+        return journaled(() -> super.completeOccurrence(id, date), () -> journal.appendCompletion(id, date, true));
+    }
+
+    @Override
+    public boolean reopenOccurrence(long id, LocalDate date) {
+        return journaled(() -> super.reopenOccurrence(id, date), () -> journal.appendCompletion(id, date, false));
+    }
+
+    /**
+     * Отменяет последнее изменение и записывает в журнал обратное ему изменение.
+     * Отмена сортировки записывается снимком всего списка.
+     */
+    @Override
+    public boolean undo() {
+        Change[] undone = new Change[1];
+        return journaled(() -> (undone[0] = undoChange()) != null, () -> {
+            Change change = undone[0];
+            switch (change.kind) {
+                case ADD:
+                    journal.appendDeletesById(change.added);
+                    break;
+                case EDIT:
+                    journal.appendReplace(change.oldTask); // Вместе с правилом, которое правка могла снять
+                    break;
+                case REMOVE:
+                    Task following = change.before.getTaskAt(change.before.rank(change.key) + 1);
+                    journal.appendRestore(change.oldTask, following == null ? 0 : following.getId(),
+                            getCompletedOccurrences(change.oldTask.getId()));
+                    break;
+                case COMPLETE:
+                case REOPEN:
+                    journal.appendCompletion(change.oldTask.getId(), LocalDate.ofEpochDay(change.key),
+                            change.kind == Change.Kind.REOPEN);
+                    break;
+                default:
+                    snapshot();
+            }
+        });
+    }
+
+    /**
+     * Повторяет отменённое изменение и записывает его в журнал так же, как исходное.
+     */
+    @Override
+    public boolean redo() {
+        Change[] redone = new Change[1];
+        return journaled(() -> (redone[0] = redoChange()) != null, () -> {
+            Change change = redone[0];
+            switch (change.kind) {
+                case ADD:
+                    journal.appendAdds(change.added);
+                    break;
+                case EDIT:
+                    journal.appendReplace(change.newTask);
+                    break;
+                case REMOVE:
+                    journal.appendDeleteById(change.oldTask.getId());
+                    break;
+                case COMPLETE:
+                case REOPEN:
+                    journal.appendCompletion(change.oldTask.getId(), LocalDate.ofEpochDay(change.key),
+                            change.kind == Change.Kind.COMPLETE);
+                    break;
+                default:
+                    journal.appendSort();
+            }
+        });
+    }
+
+    /**
+     * Выполняет изменения с групповой фиксацией: их записи журнала попадают на диск вместе,
+     * с одной синхронизацией, когда изменения закончены (или прерваны исключением).
+     * Если записать группу не удалось, все её изменения откатываются.
+     */
+    @Override
+    public void groupChanges(Runnable changes) {
+        if (journal == null) {
+            changes.run();
+            return;
+        }
+        Savepoint savepoint = savepoint();
+        journal.beginGroup();
+        try {
+            changes.run();
+        } finally {
+            try {
+                journal.endGroup();
+            } catch (IOException e) {
+                rollbackTo(savepoint);
+                throw new UncheckedIOException(e);
+            } finally {
+                releaseSavepoint(savepoint);
+            }
+        }
+    }
+
+    /**
+     * Принудительно записывает снимок всех задач и обрезает журнал.
+     */
+    public void snapshot() throws IOException {
+        journal.snapshot(getAllTasks(), getCompletedOccurrences(), getNextId());
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeChanges();
+        journal.close();
+    }
+
+    private void snapshotIfNeeded() {
+        if (journal.getRecordsSinceSnapshot() >= snapshotThreshold) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
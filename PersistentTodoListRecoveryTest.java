@@ -0,0 +1,129 @@
+package com.todolist;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Проверка восстановления PersistentTodoList: после повторного открытия хранилища - из журнала
+ * или из снимка - задачи и отметки о выполненных повторениях должны совпадать с теми, что были
+ * в памяти перед закрытием. Каждый сценарий проверяется дважды: с восстановлением только
+ * из журнала и со снимком перед закрытием.
+ *
+ * Сценарии:
+ * - отметка о выполнении повторения, после которой правка сдвинула срок серии так,
+ *   что отмеченный день больше не приходится на повторение;
+ * - то же, а затем удаление серии и отмена удаления (отметки возвращаются записью RESTORE);
+ * - снятие отметки, сделанной до такой правки.
+ *
+ * Запуск: java com.todolist.PersistentTodoListRecoveryTest
+ * Программа завершается с кодом 1, если хотя бы один сценарий не прошёл.
+ */
+public final class PersistentTodoListRecoveryTest {
+
+    /**
+     * Сценарий: изменения хранилища перед его закрытием.
+     */
+    private interface Scenario {
+        void run(PersistentTodoList list, long seriesId);
+    }
+
+    private PersistentTodoListRecoveryTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, Scenario> scenarios = new TreeMap<>();
+        scenarios.put("правка срока после отметки", (list, id) -> {
+            list.completeOccurrence(id, LocalDate.of(2025, 1, 3));
+            list.editTaskById(id, "Серия", "", LocalDate.of(2025, 1, 2), Priority.MEDIUM);
+        });
+        scenarios.put("удаление и отмена после правки", (list, id) -> {
+            list.completeOccurrence(id, LocalDate.of(2025, 1, 3));
+            list.completeOccurrence(id, LocalDate.of(2025, 1, 5));
+            list.editTaskById(id, "Серия", "", LocalDate.of(2025, 1, 2), Priority.MEDIUM);
+            list.deleteTaskById(id);
+            list.undo();
+        });
+        scenarios.put("снятие отметки после правки", (list, id) -> {
+            list.completeOccurrence(id, LocalDate.of(2025, 1, 3));
+            list.completeOccurrence(id, LocalDate.of(2025, 1, 5));
+            list.editTaskById(id, "Серия", "", LocalDate.of(2025, 1, 2), Priority.MEDIUM);
+            list.reopenOccurrence(id, LocalDate.of(2025, 1, 5));
+        });
+
+        int failures = 0;
+        for (Map.Entry<String, Scenario> scenario : scenarios.entrySet()) {
+            for (boolean snapshot : new boolean[] {false, true}) {
+                String name = scenario.getKey() + (snapshot ? ", снимок" : ", журнал");
+                String problem = check(scenario.getValue(), snapshot);
+                System.out.println((problem == null ? "OK      " : "ОШИБКА  ") + name + (problem == null ? "" : ": " + problem));
+                if (problem != null) {
+                    failures++;
+                }
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Выполняет сценарий, закрывает и снова открывает хранилище.
+     * @return Описание расхождения или null, если восстановленное хранилище совпадает с исходным.
+     */
+    private static String check(Scenario scenario, boolean snapshot) throws IOException {
+        Path directory = Files.createTempDirectory("todolist-recovery");
+        try {
+            String expectedTasks;
+            String expectedMarks;
+            try (PersistentTodoList list = new PersistentTodoList(directory, SyncPolicy.everyWrite(), Long.MAX_VALUE)) {
+                list.addTask(new Task("Другая", "", LocalDate.of(2025, 1, 4), Priority.LOW));
+                Task series = list.addTask(new Task("Серия", "", LocalDate.of(2025, 1, 1), Priority.MEDIUM, Recurrence.parse("daily:2")));
+                list.addTask(new Task("Последняя", "", null, null));
+                scenario.run(list, series.getId());
+                if (snapshot) {
+                    list.snapshot();
+                }
+                expectedTasks = describe(list.getAllTasks());
+                expectedMarks = new TreeMap<>(list.getCompletedOccurrences()).toString();
+            }
+            try (PersistentTodoList reopened = new PersistentTodoList(directory, SyncPolicy.everyWrite(), Long.MAX_VALUE)) {
+                String tasks = describe(reopened.getAllTasks());
+                String marks = new TreeMap<>(reopened.getCompletedOccurrences()).toString();
+                if (!tasks.equals(expectedTasks)) {
+                    return "задачи " + tasks + " вместо " + expectedTasks;
+                }
+                if (!marks.equals(expectedMarks)) {
+                    return "отметки " + marks + " вместо " + expectedMarks;
+                }
+                return null;
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static String describe(List<Task> tasks) {
+        List<String> described = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            described.add(task.getId() + " " + task.getTitle() + " " + task.getDueDate() + " " + task.getRecurrence());
+        }
+        return described.toString();
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
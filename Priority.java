@@ -1,7 +1,7 @@
-package com.todolist;
-
-public enum Priority {
-    HIGH,
-    MEDIUM,
-    LOW
+package com.todolist;
+
+public enum Priority {
+    HIGH,
+    MEDIUM,
+    LOW
 }
\ No newline at end of file
@@ -0,0 +1,302 @@
+package com.todolist;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Вторичные индексы задач по приоритету и сроку выполнения.
+ * Для каждого приоритета хранится корзина задач в порядке списка
+ * и дерево сроков, поэтому запросы по приоритету и диапазону дат
+ * выполняются за O(log n + k) вместо полного просмотра.
+ * Задачи без приоритета или срока в соответствующие индексы не попадают; задачи без приоритета,
+ * но со сроком хранятся в отдельном дереве сроков для планировщика запросов.
+ */
+class PriorityDateIndex {
+    private final Map<Task, Entry> entries = new IdentityHashMap<>();
+    private final EnumMap<Priority, NavigableMap<Long, Task>> byPriority = new EnumMap<>(Priority.class);
+    private final EnumMap<Priority, NavigableMap<LocalDate, NavigableMap<Long, Task>>> byDueDate = new EnumMap<>(Priority.class);
+    private final NavigableMap<LocalDate, NavigableMap<Long, Task>> unprioritizedByDueDate = new TreeMap<>();
+
+    PriorityDateIndex() {
+        for (Priority priority : Priority.values()) {
+            byPriority.put(priority, new TreeMap<>());
+            byDueDate.put(priority, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Проиндексированная задача и её позиция в порядке списка.
+     */
+    private static final class Entry {
+        final Task task;
+        final long order;
+
+        Entry(Task task, long order) {
+            this.task = task;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Добавляет задачу в индекс.
+     * @param task Задача для индексации.
+     * @param order Позиция задачи в порядке списка.
+     */
+    void add(Task task, long order) {
+        index(new Entry(task, order));
+    }
+
+    /**
+     * Заменяет задачу её новой версией после редактирования, сохраняя позицию.
+     * @param oldTask Прежняя версия задачи.
+     * @param newTask Новая версия задачи.
+     */
+    void update(Task oldTask, Task newTask) {
+        Entry old = unindex(oldTask);
+        index(new Entry(newTask, old.order));
+    }
+
+    /**
+     * Удаляет задачу из индекса.
+     * @param task Задача для удаления.
+     */
+    void remove(Task task) {
+        unindex(task);
+    }
+
+    /**
+     * Перестраивает индекс в соответствии с новым порядком списка (например, после сортировки).
+     * @param version Версия списка; позицией задачи становится её ключ порядка.
+     */
+    void reorder(TaskVersion version) {
+        clear();
+        TaskVersion.Cursor cursor = version.cursor(0);
+        while (cursor.next()) {
+            index(new Entry(cursor.task, cursor.key));
+        }
+    }
+
+    /**
+     * Возвращает задачи с указанным приоритетом в порядке списка.
+     */
+    List<Task> byPriority(Priority priority) {
+        if (priority == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(byPriority.get(priority).values());
+    }
+
+    /**
+     * Возвращает страницу задач с указанным приоритетом в порядке списка за O(log n + offset + limit).
+     */
+    List<Task> byPriority(Priority priority, int offset, int limit) {
+        List<Task> result = new ArrayList<>();
+        if (priority == null) {
+            return result;
+        }
+        int skipped = 0;
+        for (Task task : byPriority.get(priority).values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает задачи со сроком в диапазоне [from, to], упорядоченные по сроку, затем по порядку списка.
+     * @param priority Приоритет или null для задач любого приоритета, в том числе без приоритета.
+     */
+    List<Task> byDueDateRange(Priority priority, LocalDate from, LocalDate to) {
+        return byDueDateRange(priority, from, to, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает страницу задач со сроком в диапазоне [from, to] в том же порядке.
+     * Слияние останавливается, как только страница заполнена: O(log n + offset + limit).
+     * @param priority Приоритет или null для задач любого приоритета, в том числе без приоритета.
+     */
+    List<Task> byDueDateRange(Priority priority, LocalDate from, LocalDate to, int offset, int limit) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже его конца: " + from + " > " + to);
+        }
+        List<Task> result = new ArrayList<>();
+        int skipped = 0;
+        if (priority != null) {
+            for (NavigableMap<Long, Task> sameDay : range(priority, from, to)) {
+                for (Task task : sameDay.values()) {
+                    if (result.size() == limit) {
+                        return result;
+                    }
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        result.add(task);
+                    }
+                }
+            }
+            return result;
+        }
+
+        // Слияние уже отсортированных диапазонов всех приоритетов и задач без приоритета
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Comparator
+                .comparingLong((Cursor cursor) -> cursor.current.task.dueDateKey())
+                .thenComparingLong(cursor -> cursor.current.order));
+        for (NavigableMap<LocalDate, NavigableMap<Long, Task>> dates : dueDateTrees(null)) {
+            Iterator<NavigableMap<Long, Task>> days = openRange(dates, from, to).iterator();
+            Cursor cursor = new Cursor(days);
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        while (!queue.isEmpty() && result.size() < limit) {
+            Cursor cursor = queue.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(cursor.current.task);
+            }
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private Collection<NavigableMap<Long, Task>> range(Priority priority, LocalDate from, LocalDate to) {
+        return byDueDate.get(priority).subMap(from, true, to, true).values();
+    }
+
+    /**
+     * Количество задач с указанным приоритетом за O(1).
+     */
+    int count(Priority priority) {
+        return byPriority.get(priority).size();
+    }
+
+    /**
+     * Количество задач со сроком в диапазоне за O(log n + d), где d - число различных сроков в диапазоне.
+     * @param priority Приоритет или null для задач любого приоритета, в том числе без приоритета.
+     * @param from Начало диапазона или null.
+     * @param to Конец диапазона или null.
+     */
+    long countByDueDate(Priority priority, LocalDate from, LocalDate to) {
+        long count = 0;
+        for (NavigableMap<LocalDate, NavigableMap<Long, Task>> dates : dueDateTrees(priority)) {
+            for (NavigableMap<Long, Task> sameDay : openRange(dates, from, to)) {
+                count += sameDay.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Передаёт задачи со сроком в диапазоне без общего упорядочивания.
+     * @param priority Приоритет или null для задач любого приоритета, в том числе без приоритета.
+     * @param from Начало диапазона или null.
+     * @param to Конец диапазона или null.
+     */
+    void collectByDueDate(Priority priority, LocalDate from, LocalDate to, Consumer<Task> consumer) {
+        for (NavigableMap<LocalDate, NavigableMap<Long, Task>> dates : dueDateTrees(priority)) {
+            for (NavigableMap<Long, Task> sameDay : openRange(dates, from, to)) {
+                sameDay.values().forEach(consumer);
+            }
+        }
+    }
+
+    private List<NavigableMap<LocalDate, NavigableMap<Long, Task>>> dueDateTrees(Priority priority) {
+        if (priority != null) {
+            return Collections.singletonList(byDueDate.get(priority));
+        }
+        List<NavigableMap<LocalDate, NavigableMap<Long, Task>>> trees = new ArrayList<>(byDueDate.values());
+        trees.add(unprioritizedByDueDate);
+        return trees;
+    }
+
+    private static Collection<NavigableMap<Long, Task>> openRange(NavigableMap<LocalDate, NavigableMap<Long, Task>> dates,
+                                                                  LocalDate from, LocalDate to) {
+        return dates.subMap(from == null ? LocalDate.MIN : from, true, to == null ? LocalDate.MAX : to, true).values();
+    }
+
+    /**
+     * Позиция в диапазоне одного дерева сроков при слиянии.
+     */
+    private final class Cursor {
+        private final Iterator<NavigableMap<Long, Task>> days;
+        private Iterator<Task> sameDay;
+        Entry current;
+
+        Cursor(Iterator<NavigableMap<Long, Task>> days) {
+            this.days = days;
+        }
+
+        boolean advance() {
+            while (sameDay == null || !sameDay.hasNext()) {
+                if (!days.hasNext()) {
+                    return false;
+                }
+                sameDay = days.next().values().iterator();
+            }
+            current = entries.get(sameDay.next());
+            return true;
+        }
+    }
+
+    private void index(Entry entry) {
+        entries.put(entry.task, entry);
+        Priority priority = entry.task.getPriority();
+        if (priority != null) {
+            byPriority.get(priority).put(entry.order, entry.task);
+        }
+        LocalDate dueDate = entry.task.getDueDate();
+        if (dueDate != null) {
+            (priority == null ? unprioritizedByDueDate : byDueDate.get(priority))
+                    .computeIfAbsent(dueDate, date -> new TreeMap<>())
+                    .put(entry.order, entry.task);
+        }
+    }
+
+    private Entry unindex(Task task) {
+        Entry entry = entries.remove(task);
+        Priority priority = task.getPriority();
+        if (priority != null) {
+            byPriority.get(priority).remove(entry.order);
+        }
+        LocalDate dueDate = task.getDueDate();
+        if (dueDate != null) {
+            NavigableMap<LocalDate, NavigableMap<Long, Task>> dates = priority == null ? unprioritizedByDueDate : byDueDate.get(priority);
+            NavigableMap<Long, Task> sameDay = dates.get(dueDate);
+            sameDay.remove(entry.order);
+            if (sameDay.isEmpty()) {
+                dates.remove(dueDate);
+            }
+        }
+        return entry;
+    }
+
+    private void clear() {
+        entries.clear();
+        unprioritizedByDueDate.clear();
+        for (Priority priority : Priority.values()) {
+            byPriority.get(priority).clear();
+            byDueDate.get(priority).clear();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.todolist;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Планировщик запросов TodoList. Для запроса подбирает путь доступа с наименьшей ожидаемой работой:
+ * триграммный индекс ключевых слов, индекс приоритетов, индекс сроков (вместе с приоритетом,
+ * если запрос ограничивает оба), объединение путей для ИЛИ или просмотр списка по порядку.
+ * Просмотр останавливается, как только страница заполнена, поэтому частому условию с небольшой
+ * страницей он обходится дешевле индекса; запрос без подходящего индекса и без страницы
+ * проверяется параллельно по поддеревьям версии (см. TaskVersion.filter).
+ *
+ * Планировщик создаётся на один запрос и читает индексы без замков: вызывающий код
+ * должен удерживать замок списка, как при любом другом чтении TodoList.
+ */
+class QueryPlanner {
+    // Примерная цена одного кандидата относительно проверки одной задачи при просмотре:
+    // индекс ключевых слов пересекает списки триграмм и упорядочивает найденное (на 100 тыс. задач
+    // около 0,5 мкс на кандидата против 0,2 мкс на задачу при просмотре), кандидатов по сроку
+    // приходится упорядочивать по ключам порядка
+    private static final int KEYWORD_COST = 3;
+    private static final int DUE_DATE_COST = 8;
+    private static final int PRIORITY_COST = 2;
+
+    private final TaskVersion version;
+    private final KeywordIndex keywordIndex;
+    private final PriorityDateIndex priorityDateIndex;
+    private final Map<Long, Long> keyById;
+    private final SortedViews sortedViews; // null, если отсортированные представления не построены
+
+    QueryPlanner(TaskVersion version, KeywordIndex keywordIndex, PriorityDateIndex priorityDateIndex,
+                 Map<Long, Long> keyById, SortedViews sortedViews) {
+        this.version = version;
+        this.keywordIndex = keywordIndex;
+        this.priorityDateIndex = priorityDateIndex;
+        this.keyById = keyById;
+        this.sortedViews = sortedViews;
+    }
+
+    /**
+     * Путь доступа по индексу: оценка сверху числа кандидатов и способ их получить.
+     */
+    private abstract static class Access {
+        final long estimate;
+        final long cost; // Ожидаемая работа в проверках задач
+        final boolean inListOrder; // Кандидаты приходят в порядке списка
+
+        Access(long estimate, long cost, boolean inListOrder) {
+            this.estimate = estimate;
+            this.cost = cost;
+            this.inListOrder = inListOrder;
+        }
+
+        abstract void collect(Consumer<Task> consumer);
+    }
+
+    /**
+     * Выполняет запрос и возвращает страницу результатов.
+     */
+    List<Task> execute(TaskQuery query, int offset, int limit) {
+        Predicate<Task> predicate = matcher(query);
+        SortOrder order = query.getOrder();
+        long end = (long) offset + limit;
+        int size = version.size();
+        Access access = access(query);
+
+        // Просмотр по порядку (списка или представления) заканчивается после end совпадений
+        // и проверяет около end * n / m задач, где m - ожидаемое число совпадений
+        long matches = access == null ? size : access.estimate;
+        long untilPageIsFull = matches == 0 ? size : Math.min(size, end * size / matches);
+        NavigableSet<Task> view = order == null || sortedViews == null ? null : sortedViews.view(order);
+        long scanCost = order == null || view != null ? untilPageIsFull : size;
+
+        if (access != null && access.cost <= scanCost) {
+            return byIndex(access, predicate, order, offset, limit);
+        }
+        if (order == null) {
+            if (untilPageIsFull < size) {
+                return scan(version, predicate, offset, limit);
+            }
+            return page(version.filter(predicate), offset, limit);
+        }
+        if (view != null) {
+            return scan(view, predicate, offset, limit);
+        }
+        List<Task> found = version.filter(predicate);
+        return page(order.first(found, (int) Math.min(end, found.size())), offset, limit);
+    }
+
+    private List<Task> byIndex(Access access, Predicate<Task> predicate, SortOrder order, int offset, int limit) {
+        long end = (long) offset + limit;
+        boolean stopEarly = order == null && access.inListOrder;
+        List<Task> found = new ArrayList<>();
+        access.collect(task -> {
+            if ((!stopEarly || found.size() < end) && predicate.test(task)) {
+                found.add(task);
+            }
+        });
+        if (order != null) {
+            return page(order.first(found, (int) Math.min(end, found.size())), offset, limit);
+        }
+        if (!access.inListOrder) {
+            found.sort(Comparator.comparingLong(task -> keyById.get(task.getId())));
+        }
+        return page(found, offset, limit);
+    }
+
+    private static List<Task> scan(Iterable<Task> tasks, Predicate<Task> predicate, int offset, int limit) {
+        List<Task> result = new ArrayList<>();
+        int skipped = 0;
+        for (Task task : tasks) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (predicate.test(task)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    result.add(task);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Task> page(List<Task> tasks, int offset, int limit) {
+        if (offset >= tasks.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(tasks.subList(offset, (int) Math.min(tasks.size(), (long) offset + limit)));
+    }
+
+    /**
+     * Проверка задач на соответствие запросу при просмотре и для кандидатов из индекса.
+     * Условия на ключевые слова проверяются по текстам в нижнем регистре из индекса ключевых слов.
+     */
+    private Predicate<Task> matcher(TaskQuery query) {
+        switch (query.kind()) {
+            case KEYWORD:
+                return keywordIndex.matcher(query.keyword());
+            case AND:
+            case OR:
+                List<Predicate<Task>> operands = new ArrayList<>();
+                for (TaskQuery operand : query.operands()) {
+                    operands.add(matcher(operand));
+                }
+                boolean and = query.kind() == TaskQuery.Kind.AND;
+                return task -> {
+                    for (Predicate<Task> operand : operands) {
+                        if (operand.test(task) != and) {
+                            return !and;
+                        }
+                    }
+                    return and;
+                };
+            case NOT:
+                return matcher(query.operands().get(0)).negate();
+            default:
+                return query::matches;
+        }
+    }
+
+    /**
+     * Подбирает самый избирательный путь доступа по индексу или возвращает null,
+     * если запрос можно выполнить только просмотром (НЕ, все задачи, задачи без приоритета).
+     */
+    private Access access(TaskQuery query) {
+        switch (query.kind()) {
+            case KEYWORD:
+                return keywordAccess(query.keyword());
+            case PRIORITY:
+                return query.priority() == null ? null : priorityAccess(query.priority());
+            case DUE:
+                return dueDateAccess(null, query.from(), query.to());
+            case AND:
+                return cheapestOf(query.operands());
+            case OR:
+                return unionOf(query.operands());
+            default:
+                return null;
+        }
+    }
+
+    private Access keywordAccess(String keyword) {
+        long estimate = keywordIndex.estimate(keyword);
+        return new Access(estimate, estimate * KEYWORD_COST, true) {
+            @Override
+            void collect(Consumer<Task> consumer) {
+                keywordIndex.search(keyword).forEach(consumer);
+            }
+        };
+    }
+
+    private Access priorityAccess(Priority priority) {
+        int estimate = priorityDateIndex.count(priority);
+        return new Access(estimate, (long) estimate * PRIORITY_COST, true) {
+            @Override
+            void collect(Consumer<Task> consumer) {
+                priorityDateIndex.byPriority(priority).forEach(consumer);
+            }
+        };
+    }
+
+    private Access dueDateAccess(Priority priority, LocalDate from, LocalDate to) {
+        long estimate = priorityDateIndex.countByDueDate(priority, from, to);
+        return new Access(estimate, estimate * DUE_DATE_COST, false) {
+            @Override
+            void collect(Consumer<Task> consumer) {
+                priorityDateIndex.collectByDueDate(priority, from, to, consumer);
+            }
+        };
+    }
+
+    /**
+     * Для И достаточно пути одного условия - остальные проверяются на кандидатах.
+     * Приоритет вместе со сроком читается из дерева сроков этого приоритета.
+     */
+    private Access cheapestOf(List<TaskQuery> operands) {
+        Access best = null;
+        for (TaskQuery operand : operands) {
+            Access access = access(operand);
+            if (access != null && (best == null || access.cost < best.cost)) {
+                best = access;
+            }
+        }
+        for (TaskQuery withPriority : operands) {
+            if (withPriority.kind() != TaskQuery.Kind.PRIORITY || withPriority.priority() == null) {
+                continue;
+            }
+            for (TaskQuery withDueDate : operands) {
+                if (withDueDate.kind() == TaskQuery.Kind.DUE) {
+                    Access access = dueDateAccess(withPriority.priority(), withDueDate.from(), withDueDate.to());
+                    if (best == null || access.cost < best.cost) {
+                        best = access;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Для ИЛИ путь есть, только если он есть у каждого условия; кандидаты объединяются без повторов.
+     */
+    private Access unionOf(List<TaskQuery> operands) {
+        List<Access> parts = new ArrayList<>(operands.size());
+        long estimate = 0;
+        long cost = 0;
+        for (TaskQuery operand : operands) {
+            Access access = access(operand);
+            if (access == null) {
+                return null;
+            }
+            parts.add(access);
+            estimate += access.estimate;
+            cost += access.cost;
+        }
+        return new Access(estimate, cost, false) {
+            @Override
+            void collect(Consumer<Task> consumer) {
+                Set<Task> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Access part : parts) {
+                    part.collect(task -> {
+                        if (seen.add(task)) {
+                            consumer.accept(task);
+                        }
+                    });
+                }
+            }
+        };
+    }
+}
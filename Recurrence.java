@@ -0,0 +1,189 @@
+package com.todolist;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Правило повторения задачи: каждые interval дней, недель, месяцев или лет начиная со срока
+ * задачи и, если задано, не позже until. Повторения не хранятся: даты повторений, попавшие
+ * в окно, вычисляются по правилу при каждом запросе, а номер первого повторения окна - за O(1),
+ * без перебора предыдущих. Месячные и годовые повторения отсчитываются от начала серии, поэтому
+ * серия с 31 января приходится на 28 (29) февраля и снова на 31 марта.
+ *
+ * Строковый вид: "daily", "weekly:2" (каждые две недели), "monthly:1:2026-12-31" (до даты включительно).
+ */
+public final class Recurrence {
+
+    /**
+     * Единица шага повторения.
+     */
+    public enum Frequency { DAILY, WEEKLY, MONTHLY, YEARLY }
+
+    private final Frequency frequency;
+    private final int interval;
+    private final LocalDate until; // Последний возможный день повторения или null
+
+    /**
+     * @param frequency Единица шага.
+     * @param interval Количество единиц между повторениями.
+     * @param until Последний возможный день повторения или null, если серия бесконечна.
+     * @throws IllegalArgumentException если interval меньше 1.
+     */
+    public Recurrence(Frequency frequency, int interval, LocalDate until) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Интервал повторения должен быть положительным: " + interval);
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.until = until;
+    }
+
+    /**
+     * Разбирает правило из строки вида "weekly", "weekly:2" или "weekly:2:2026-12-31".
+     * @throws IllegalArgumentException если строка не описывает правило.
+     */
+    public static Recurrence parse(String spec) {
+        String[] parts = spec.trim().split(":", 3);
+        try {
+            Frequency frequency = Frequency.valueOf(parts[0].toUpperCase(Locale.ROOT));
+            int interval = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            LocalDate until = parts.length > 2 ? LocalDate.parse(parts[2]) : null;
+            return new Recurrence(frequency, interval, until);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Неверное правило повторения: " + spec, e);
+        }
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public LocalDate getUntil() {
+        return until;
+    }
+
+    /**
+     * Возвращает даты повторений серии, начатой в start, попавшие в диапазон (включительно), по возрастанию.
+     * Работает за O(1 + число повторений в диапазоне).
+     * @throws IllegalArgumentException если from позже to.
+     */
+    public List<LocalDate> occurrences(LocalDate start, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже конца: " + from + " > " + to);
+        }
+        LocalDate end = until != null && until.isBefore(to) ? until : to;
+        List<LocalDate> dates = new ArrayList<>();
+        try {
+            for (long n = firstOnOrAfter(start, from); ; n++) {
+                LocalDate date = occurrence(start, n);
+                if (date.isAfter(end)) {
+                    break;
+                }
+                dates.add(date);
+            }
+        } catch (ArithmeticException | DateTimeException e) {
+            // Следующее повторение вышло за пределы LocalDate: повторений больше нет
+        }
+        return dates;
+    }
+
+    /**
+     * Возвращает первое повторение серии не раньше from или null, если серия к этому дню закончилась.
+     */
+    public LocalDate next(LocalDate start, LocalDate from) {
+        try {
+            LocalDate date = occurrence(start, firstOnOrAfter(start, from));
+            return until != null && date.isAfter(until) ? null : date;
+        } catch (ArithmeticException | DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Проверяет, приходится ли на день повторение серии, начатой в start.
+     */
+    public boolean occursOn(LocalDate start, LocalDate date) {
+        return date.equals(next(start, date));
+    }
+
+    /**
+     * Номер первого повторения не раньше from (0 - само начало серии).
+     */
+    private long firstOnOrAfter(LocalDate start, LocalDate from) {
+        if (!from.isAfter(start)) {
+            return 0;
+        }
+        switch (frequency) {
+            case DAILY:
+            case WEEKLY: {
+                long step = frequency == Frequency.WEEKLY ? 7L * interval : interval;
+                long days = ChronoUnit.DAYS.between(start, from);
+                return (days + step - 1) / step;
+            }
+            default: {
+                long step = frequency == Frequency.YEARLY ? 12L * interval : interval;
+                long n = ChronoUnit.MONTHS.between(start, from) / step;
+                // Из-за коротких месяцев повторение с номером n может прийтись раньше from
+                while (occurrence(start, n).isBefore(from)) {
+                    n++;
+                }
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Дата повторения с номером n: шаг откладывается от начала серии, а не от предыдущего повторения.
+     */
+    private LocalDate occurrence(LocalDate start, long n) {
+        switch (frequency) {
+            case DAILY:
+                return start.plusDays(Math.multiplyExact(n, interval));
+            case WEEKLY:
+                return start.plusWeeks(Math.multiplyExact(n, interval));
+            case MONTHLY:
+                return start.plusMonths(Math.multiplyExact(n, interval));
+            default:
+                return start.plusYears(Math.multiplyExact(n, interval));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Recurrence)) {
+            return false;
+        }
+        Recurrence other = (Recurrence) o;
+        return frequency == other.frequency && interval == other.interval
+                && (until == null ? other.until == null : until.equals(other.until));
+    }
+
+    @Override
+    public int hashCode() {
+        return (frequency.hashCode() * 31 + interval) * 31 + (until == null ? 0 : until.hashCode());
+    }
+
+    /**
+     * Строковый вид правила, который понимает parse.
+     */
+    @Override
+    public String toString() {
+        String spec = frequency.name().toLowerCase(Locale.ROOT);
+        if (interval != 1 || until != null) {
+            spec += ":" + interval;
+        }
+        return until != null ? spec + ":" + until : spec;
+    }
+}
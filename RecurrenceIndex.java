@@ -0,0 +1,109 @@
+package com.todolist;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Повторяющиеся задачи списка и отметки о выполненных повторениях.
+ *
+ * Серия хранится одной задачей, поэтому окно дат разворачивается за O(серий + повторений в окне)
+ * независимо от длины серий. Выполнение повторения - отдельная отметка "задача, день": оно не
+ * меняет саму задачу и не затрагивает остальные повторения. Отметки удалённой задачи хранятся,
+ * пока её удаление можно отменить, а в снимок попадают только отметки существующих серий.
+ */
+class RecurrenceIndex {
+    private final Map<Long, Task> series = new HashMap<>();
+    private final Map<Long, NavigableSet<LocalDate>> completed = new HashMap<>();
+
+    void add(Task task) {
+        if (task.isRecurring()) {
+            series.put(task.getId(), task);
+        }
+    }
+
+    void remove(Task task) {
+        if (task.isRecurring()) {
+            series.remove(task.getId());
+        }
+    }
+
+    void update(Task oldTask, Task newTask) {
+        remove(oldTask);
+        add(newTask);
+    }
+
+    /**
+     * Повторяющаяся задача с указанным идентификатором или null.
+     */
+    Task get(long id) {
+        return series.get(id);
+    }
+
+    /**
+     * Отмечает повторение выполненным.
+     * @return true, если отметки ещё не было.
+     */
+    boolean complete(long id, LocalDate date) {
+        return completed.computeIfAbsent(id, key -> new TreeSet<>()).add(date);
+    }
+
+    /**
+     * Снимает отметку о выполнении повторения.
+     * @return true, если отметка была.
+     */
+    boolean reopen(long id, LocalDate date) {
+        NavigableSet<LocalDate> dates = completed.get(id);
+        if (dates == null || !dates.remove(date)) {
+            return false;
+        }
+        if (dates.isEmpty()) {
+            completed.remove(id);
+        }
+        return true;
+    }
+
+    /**
+     * Добавляет в result невыполненные повторения всех серий в диапазоне (включительно).
+     */
+    void collect(LocalDate from, LocalDate to, List<Occurrence> result) {
+        for (Task task : series.values()) {
+            NavigableSet<LocalDate> done = completed.get(task.getId());
+            for (LocalDate date : task.getOccurrences(from, to)) {
+                if (done == null || !done.contains(date)) {
+                    result.add(new Occurrence(task, date));
+                }
+            }
+        }
+    }
+
+    boolean isCompleted(long id, LocalDate date) {
+        NavigableSet<LocalDate> dates = completed.get(id);
+        return dates != null && dates.contains(date);
+    }
+
+    /**
+     * Выполненные дни задачи, в том числе удалённой, пока её удаление можно отменить.
+     */
+    NavigableSet<LocalDate> getCompleted(long id) {
+        NavigableSet<LocalDate> dates = completed.get(id);
+        return dates == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(dates);
+    }
+
+    /**
+     * Отметки о выполнении существующих серий: идентификатор задачи -> выполненные дни.
+     */
+    Map<Long, NavigableSet<LocalDate>> getCompleted() {
+        Map<Long, NavigableSet<LocalDate>> result = new HashMap<>();
+        for (Map.Entry<Long, NavigableSet<LocalDate>> entry : completed.entrySet()) {
+            if (series.containsKey(entry.getKey())) {
+                result.put(entry.getKey(), Collections.unmodifiableNavigableSet(entry.getValue()));
+            }
+        }
+        return result;
+    }
+}
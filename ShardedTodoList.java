@@ -0,0 +1,435 @@
+package com.todolist;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Набор отдельных списков задач (частей), разделённых по ключу - проекту, команде или владельцу.
+ * Каждая часть - свой PersistentTodoList в подкаталоге общего каталога со своим журналом,
+ * индексами и замком: операции с одной частью синхронизируются только по ней (как и с любым
+ * TaskStore) и не мешают работе с другими частями, а поиск и сортировка не затрагивают чужие задачи.
+ *
+ * Части загружаются при первом обращении и выгружаются независимо друг от друга (unload,
+ * unloadIdle), так что память занимают только используемые. К части обращаются через withShard:
+ * на время операции часть закреплена (счётчик закреплений), и выгрузка дожидается её окончания
+ * или, в unloadIdle, пропускает часть. Часть закрывается раньше, чем удаляется из набора,
+ * поэтому два списка никогда не открывают каталог одной части одновременно. Запросы по нескольким частям
+ * выполняются параллельно, по части в потоке, а их упорядоченные результаты сливаются
+ * k-путевым слиянием. Идентификаторы задач уникальны только внутри части, поэтому результаты
+ * таких запросов - пары "часть, задача" (ShardTask).
+ */
+public class ShardedTodoList implements Closeable {
+    private final Path directory;
+    private final SyncPolicy syncPolicy;
+    private final long snapshotThreshold;
+    private final ConcurrentHashMap<String, Shard> shards = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    /**
+     * Загруженная часть, число операций, которые её удерживают, и время последнего обращения.
+     * Поля pins и closed защищены замком самого объекта Shard.
+     */
+    private static final class Shard {
+        final PersistentTodoList list;
+        volatile long lastUsed = System.nanoTime();
+        int pins;
+        boolean closed;
+
+        Shard(PersistentTodoList list) {
+            this.list = list;
+        }
+    }
+
+    /**
+     * Операция с одной частью; выполняется под её замком, пока часть закреплена.
+     */
+    @FunctionalInterface
+    public interface ShardFunction<T> {
+        T apply(TodoList shard) throws IOException;
+    }
+
+    /**
+     * Задача из результата запроса по нескольким частям вместе с ключом своей части.
+     */
+    public static final class ShardTask {
+        private final String shard;
+        private final Task task;
+
+        ShardTask(String shard, Task task) {
+            this.shard = shard;
+            this.task = task;
+        }
+
+        public String getShard() {
+            return shard;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + shard + "] " + task;
+        }
+    }
+
+    /**
+     * @param directory Каталог, в подкаталогах которого хранятся части.
+     * @param syncPolicy Политика сброса журналов частей на диск.
+     * @param snapshotThreshold Количество записей журнала части, после которого делается её снимок.
+     */
+    public ShardedTodoList(Path directory, SyncPolicy syncPolicy, long snapshotThreshold) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.syncPolicy = syncPolicy;
+        this.snapshotThreshold = snapshotThreshold;
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ShardThreadFactory());
+    }
+
+    /**
+     * Выполняет операцию с частью, загружая или создавая её при необходимости. Операция
+     * выполняется под замком части, а сама часть на это время закреплена и не выгружается.
+     * Список части нельзя сохранять и использовать после возврата из операции.
+     * @return Результат операции.
+     * @throws IllegalArgumentException если ключ пустой.
+     */
+    public <T> T withShard(String key, ShardFunction<T> action) throws IOException {
+        Shard shard = pin(key);
+        try {
+            synchronized (shard.list) {
+                return action.apply(shard.list);
+            }
+        } finally {
+            unpin(shard);
+        }
+    }
+
+    /**
+     * Закрепляет часть с указанным ключом, загружая её при необходимости.
+     * Если часть в это время выгружается, дожидается выгрузки и загружает её заново.
+     */
+    private Shard pin(String key) throws IOException {
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Ключ части не может быть пустым");
+        }
+        while (true) {
+            Shard shard = shards.get(key);
+            if (shard == null) {
+                try {
+                    // Загрузка блокирует только обращения к той же части
+                    shard = shards.computeIfAbsent(key, this::load);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            synchronized (shard) {
+                if (!shard.closed) {
+                    shard.pins++;
+                    shard.lastUsed = System.nanoTime();
+                    return shard;
+                }
+            }
+            // Часть закрыта и уже удалена из набора выгружавшим её потоком
+        }
+    }
+
+    private void unpin(Shard shard) {
+        synchronized (shard) {
+            shard.lastUsed = System.nanoTime();
+            if (--shard.pins == 0) {
+                shard.notifyAll();
+            }
+        }
+    }
+
+    private Shard load(String key) {
+        try {
+            return new Shard(new PersistentTodoList(pathOf(key), syncPolicy, snapshotThreshold));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ключи всех частей: сохранённых на диске и загруженных, по алфавиту.
+     */
+    public Set<String> keys() throws IOException {
+        Set<String> keys = new TreeSet<>(shards.keySet());
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path child : children) {
+                keys.add(URLDecoder.decode(child.getFileName().toString(), StandardCharsets.UTF_8));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Ключи загруженных частей по алфавиту.
+     */
+    public Set<String> loadedKeys() {
+        return new TreeSet<>(shards.keySet());
+    }
+
+    public boolean isLoaded(String key) {
+        return shards.containsKey(key);
+    }
+
+    /**
+     * Выгружает часть: дожидается операций, которые её удерживают, и закрывает её журнал.
+     * Задачи части остаются на диске и загрузятся при следующем обращении.
+     * @return true, если часть была загружена.
+     */
+    public boolean unload(String key) throws IOException {
+        Shard shard = shards.get(key);
+        return shard != null && unload(key, shard, -1);
+    }
+
+    /**
+     * Выгружает части, к которым не обращались дольше указанного времени.
+     * Части, с которыми сейчас выполняются операции, не выгружаются.
+     * @return Количество выгруженных частей.
+     */
+    public int unloadIdle(Duration idle) throws IOException {
+        int unloaded = 0;
+        for (String key : loadedKeys()) {
+            Shard shard = shards.get(key);
+            if (shard != null && unload(key, shard, idle.toNanos())) {
+                unloaded++;
+            }
+        }
+        return unloaded;
+    }
+
+    /**
+     * Закрывает часть и только затем удаляет её из набора: пока журнал не закрыт, новые
+     * обращения к части ждут на её замке, а не открывают второй список в том же каталоге.
+     * @param idleNanos Минимальное время без обращений; отрицательное - выгрузить в любом случае,
+     *                  дождавшись закреплений, иначе закреплённая часть пропускается.
+     * @return true, если часть выгружена этим вызовом.
+     */
+    private boolean unload(String key, Shard shard, long idleNanos) throws IOException {
+        synchronized (shard) {
+            if (shard.closed) {
+                return false;
+            }
+            if (idleNanos >= 0 && (shard.pins > 0 || System.nanoTime() - shard.lastUsed <= idleNanos)) {
+                return false;
+            }
+            while (shard.pins > 0) {
+                try {
+                    shard.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Выгрузка части прервана: " + key, e);
+                }
+            }
+            shard.closed = true;
+            try {
+                synchronized (shard.list) {
+                    shard.list.close();
+                }
+            } finally {
+                shards.remove(key, shard);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Выполняет запрос во всех частях (см. keys).
+     * @see #query(Collection, TaskQuery, int, int)
+     */
+    public List<ShardTask> query(TaskQuery query, int offset, int limit) throws IOException {
+        return query(keys(), query, offset, limit);
+    }
+
+    /**
+     * Выполняет запрос в указанных частях параллельно и сливает их результаты. С порядком
+     * в запросе результаты идут в этом порядке (при равенстве - по порядку ключей частей),
+     * без порядка - по частям в порядке ключей, внутри части в порядке её списка.
+     * @param keys Ключи частей; выгруженные части загружаются.
+     * @return Не больше limit задач, пропустив первые offset.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    public List<ShardTask> query(Collection<String> keys, TaskQuery query, int offset, int limit) throws IOException {
+        TaskStore.checkPage(offset, limit);
+        int end = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        SortOrder order = query.getOrder();
+        return merge(fanOut(keys, shard -> shard.query(query, 0, end)),
+                order == null ? (a, b) -> 0 : order.comparator(), offset, limit);
+    }
+
+    /**
+     * Возвращает первые limit задач всех частей в указанном порядке.
+     */
+    public List<ShardTask> getTopTasks(SortOrder order, int limit) throws IOException {
+        return getTopTasks(keys(), order, limit);
+    }
+
+    /**
+     * Возвращает первые limit задач указанных частей в указанном порядке: каждая часть
+     * отбирает свои первые limit задач параллельно с остальными, затем они сливаются.
+     * @throws IllegalArgumentException если limit отрицателен.
+     */
+    public List<ShardTask> getTopTasks(Collection<String> keys, SortOrder order, int limit) throws IOException {
+        TaskStore.checkPage(0, limit);
+        return merge(fanOut(keys, shard -> shard.getTopTasks(order, limit)), order.comparator(), 0, limit);
+    }
+
+    /**
+     * Результат одной части для слияния.
+     */
+    private static final class ShardResult {
+        final String key;
+        final int rank; // Номер части в порядке ключей: при равенстве задач раньше идёт часть с меньшим номером
+        final List<Task> tasks;
+        int position;
+
+        ShardResult(String key, int rank, List<Task> tasks) {
+            this.key = key;
+            this.rank = rank;
+            this.tasks = tasks;
+        }
+
+        Task current() {
+            return tasks.get(position);
+        }
+    }
+
+    /**
+     * Выполняет запрос в каждой части в своём потоке пула. Первая ошибка загрузки
+     * или запроса прерывает остальные и передаётся вызывающему коду.
+     */
+    private List<ShardResult> fanOut(Collection<String> keys, ShardFunction<List<Task>> query) throws IOException {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(keys));
+        List<Future<List<Task>>> futures = new ArrayList<>(sorted.size());
+        for (String key : sorted) {
+            Callable<List<Task>> task = () -> withShard(key, query);
+            futures.add(executor.submit(task));
+        }
+        List<ShardResult> results = new ArrayList<>(sorted.size());
+        try {
+            for (int i = 0; i < sorted.size(); i++) {
+                results.add(new ShardResult(sorted.get(i), i, futures.get(i).get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Запрос по частям прерван", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            for (Future<List<Task>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * k-путевое слияние упорядоченных результатов частей: куча из текущих задач частей
+     * отдаёт следующую задачу за O(log k), поэтому страница собирается за O((offset + limit) log k).
+     */
+    private static List<ShardTask> merge(List<ShardResult> results, Comparator<Task> order, int offset, int limit) {
+        PriorityQueue<ShardResult> heads = new PriorityQueue<>(Math.max(1, results.size()),
+                Comparator.<ShardResult, Task>comparing(ShardResult::current, order).thenComparingInt(result -> result.rank));
+        for (ShardResult result : results) {
+            if (!result.tasks.isEmpty()) {
+                heads.add(result);
+            }
+        }
+        List<ShardTask> page = new ArrayList<>(Math.min(limit, 1024));
+        int skipped = 0;
+        while (!heads.isEmpty() && page.size() < limit) {
+            ShardResult head = heads.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(new ShardTask(head.key, head.current()));
+            }
+            if (++head.position < head.tasks.size()) {
+                heads.add(head);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Выгружает все части и останавливает потоки запросов.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        IOException failure = null;
+        for (String key : loadedKeys()) {
+            try {
+                unload(key);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Каталог части: ключ кодируется, чтобы любой ключ был допустимым именем файла внутри
+     * directory. URLEncoder не кодирует точку, поэтому в ключах "." и ".." (сам каталог
+     * и родительский) точки кодируются отдельно; keys() декодирует их обратно.
+     */
+    private Path pathOf(String key) {
+        String name = URLEncoder.encode(key, StandardCharsets.UTF_8);
+        if (name.equals(".") || name.equals("..")) {
+            name = name.replace(".", "%2E");
+        }
+        return directory.resolve(name);
+    }
+
+    /**
+     * Создаёт фоновые потоки запросов, которые не мешают завершению программы.
+     */
+    private static final class ShardThreadFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "todolist-shard-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
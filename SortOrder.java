@@ -0,0 +1,103 @@
+package com.todolist;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Порядок, в котором можно просматривать задачи, не меняя порядок самого списка.
+ * Задачи без срока, приоритета или названия идут в конце; при равенстве ключей
+ * раньше идёт задача с меньшим идентификатором, то есть добавленная раньше.
+ */
+public enum SortOrder {
+    DUE_DATE("по сроку выполнения"),
+    PRIORITY_THEN_DUE_DATE("по приоритету и сроку"),
+    TITLE("по названию");
+
+    private final String description;
+    private final Comparator<Task> comparator = this::compare;
+
+    SortOrder(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Comparator<Task> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Сравнивает задачи в этом порядке. Задачи с разными идентификаторами никогда не равны.
+     */
+    public int compare(Task a, Task b) {
+        int result;
+        switch (this) {
+            case DUE_DATE:
+                result = compareDueDates(a, b);
+                break;
+            case PRIORITY_THEN_DUE_DATE:
+                result = Integer.compare(a.priorityKey(), b.priorityKey());
+                if (result == 0) {
+                    result = compareDueDates(a, b);
+                }
+                break;
+            default:
+                result = compareTitles(a.getTitle(), b.getTitle());
+                break;
+        }
+        return result != 0 ? result : Long.compare(a.getId(), b.getId());
+    }
+
+    /**
+     * Выбирает первые limit задач в этом порядке с помощью кучи ограниченного размера:
+     * O(n log limit) времени и O(limit) дополнительной памяти вместо сортировки всех задач.
+     * @param tasks Задачи в любом порядке; элементы null пропускаются.
+     * @param limit Наибольшее количество задач.
+     * @return Новый список задач в этом порядке.
+     * @throws IllegalArgumentException если limit отрицателен.
+     */
+    public List<Task> first(Iterable<Task> tasks, int limit) {
+        TaskStore.checkPage(0, limit);
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+        // В вершине кучи - худшая из отобранных задач, её вытесняет любая лучшая
+        PriorityQueue<Task> best = new PriorityQueue<>(Math.min(limit, 1024), comparator.reversed());
+        for (Task task : tasks) {
+            if (task == null) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(task);
+            } else if (compare(task, best.peek()) < 0) {
+                best.poll();
+                best.add(task);
+            }
+        }
+        List<Task> result = new ArrayList<>(best);
+        result.sort(comparator);
+        return result;
+    }
+
+    /**
+     * Сравнивает сроки выполнения; задачи без срока считаются самыми поздними.
+     */
+    static int compareDueDates(Task a, Task b) {
+        return Long.compare(a.dueDateKey(), b.dueDateKey());
+    }
+
+    /**
+     * Сравнивает названия без учёта регистра, а при совпадении - с учётом регистра.
+     */
+    private static int compareTitles(String first, String second) {
+        if (first == null || second == null) {
+            return first == second ? 0 : first == null ? 1 : -1;
+        }
+        int result = first.compareToIgnoreCase(second);
+        return result != 0 ? result : first.compareTo(second);
+    }
+}
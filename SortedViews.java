@@ -0,0 +1,99 @@
+package com.todolist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Постоянно поддерживаемые отсортированные представления задач, по одному на каждый SortOrder.
+ * Представление строится при первом запросе своего порядка; дальше добавление, изменение
+ * и удаление задачи обновляют его за O(log n), а чтение отсортированного порядка занимает O(n)
+ * без пересортировки и не меняет порядок списка.
+ */
+class SortedViews {
+    // Все задачи - из них строится представление порядка, запрошенного впервые
+    private final Set<Task> tasks = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final EnumMap<SortOrder, NavigableSet<Task>> views = new EnumMap<>(SortOrder.class);
+
+    /**
+     * Добавляет задачу во все представления.
+     * @param task Задача для добавления.
+     */
+    void add(Task task) {
+        tasks.add(task);
+        for (NavigableSet<Task> view : views.values()) {
+            view.add(task);
+        }
+    }
+
+    /**
+     * Заменяет задачу её новой версией после редактирования.
+     * Задачи неизменяемы, поэтому старая версия находится в дереве по своим прежним ключам.
+     * @param oldTask Прежняя версия задачи.
+     * @param newTask Новая версия задачи.
+     */
+    void update(Task oldTask, Task newTask) {
+        remove(oldTask);
+        add(newTask);
+    }
+
+    /**
+     * Удаляет задачу из всех представлений.
+     * @param task Задача для удаления.
+     */
+    void remove(Task task) {
+        if (tasks.remove(task)) {
+            for (NavigableSet<Task> view : views.values()) {
+                view.remove(task);
+            }
+        }
+    }
+
+    /**
+     * Возвращает задачи в указанном порядке.
+     * @param order Порядок сортировки.
+     * @return Новый список задач.
+     */
+    List<Task> sorted(SortOrder order) {
+        NavigableSet<Task> view = views.get(order);
+        if (view == null) {
+            view = new TreeSet<>(order.comparator());
+            view.addAll(tasks);
+            views.put(order, view);
+        }
+        return new ArrayList<>(view);
+    }
+
+    /**
+     * Возвращает представление указанного порядка, если оно уже построено, иначе null.
+     * Представление нельзя менять и нельзя хранить после изменения списка.
+     */
+    NavigableSet<Task> view(SortOrder order) {
+        return views.get(order);
+    }
+
+    /**
+     * Возвращает первые limit задач в указанном порядке за O(limit),
+     * если представление этого порядка уже построено.
+     * @return Новый список задач или null, если представление ещё не построено.
+     */
+    List<Task> first(SortOrder order, int limit) {
+        NavigableSet<Task> view = views.get(order);
+        if (view == null) {
+            return null;
+        }
+        List<Task> result = new ArrayList<>(Math.min(limit, view.size()));
+        for (Task task : view) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(task);
+        }
+        return result;
+    }
+}
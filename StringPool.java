@@ -0,0 +1,43 @@
+package com.todolist;
+
+/**
+ * Ограниченный словарь строк для дедупликации текстов задач. Одинаковые названия
+ * и описания (например, задачи, созданные по шаблону) хранятся в памяти один раз.
+ *
+ * В отличие от String.intern, словарь не растёт: это массив фиксированного размера
+ * с прямым отображением по хешу, и новая строка вытесняет ту, что занимала её ячейку.
+ * Часто повторяющиеся строки почти всегда находятся в словаре, а уникальные
+ * удерживаются не дольше, чем до вытеснения. Длинные строки не запоминаются,
+ * чтобы словарь не удерживал много памяти.
+ *
+ * Словарь работает без замков: запись ссылки в массив атомарна, а строки неизменяемы
+ * и безопасно публикуются. При гонке две равные строки могут сохраниться по отдельности -
+ * это лишь упущенная экономия, а не ошибка.
+ */
+final class StringPool {
+    private static final int SLOTS = 1 << 15;
+    private static final int MAX_LENGTH = 512;
+
+    private static final String[] pool = new String[SLOTS];
+
+    private StringPool() {
+    }
+
+    /**
+     * Возвращает строку из словаря, равную данной, или запоминает и возвращает саму строку.
+     * @param text Строка или null.
+     */
+    static String intern(String text) {
+        if (text == null || text.length() > MAX_LENGTH) {
+            return text;
+        }
+        int hash = text.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+        String pooled = pool[slot];
+        if (pooled != null && (pooled == text || pooled.equals(text))) {
+            return pooled;
+        }
+        pool[slot] = text;
+        return text;
+    }
+}
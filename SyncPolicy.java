@@ -0,0 +1,102 @@
+package com.todolist;
+
+/**
+ * Политика сброса журнала задач на диск (fsync).
+ * Позволяет выбрать компромисс между надёжностью и скоростью записи:
+ * сброс после каждой записи, после пачки записей или по таймеру.
+ */
+public final class SyncPolicy {
+
+    enum Mode {
+        EVERY_WRITE,
+        BATCH,
+        INTERVAL
+    }
+
+    private final Mode mode;
+    private final int batchSize;
+    private final long intervalMillis;
+
+    private SyncPolicy(Mode mode, int batchSize, long intervalMillis) {
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Сброс на диск после каждой записи: ни одно подтверждённое изменение не теряется.
+     */
+    public static SyncPolicy everyWrite() {
+        return new SyncPolicy(Mode.EVERY_WRITE, 1, 0);
+    }
+
+    /**
+     * Сброс на диск после каждых batchSize записей.
+     * @param batchSize Количество записей в пачке.
+     */
+    public static SyncPolicy batched(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным: " + batchSize);
+        }
+        return new SyncPolicy(Mode.BATCH, batchSize, 0);
+    }
+
+    /**
+     * Сброс на диск по таймеру раз в intervalMillis миллисекунд.
+     * @param intervalMillis Интервал между сбросами.
+     */
+    public static SyncPolicy interval(long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Интервал должен быть положительным: " + intervalMillis);
+        }
+        return new SyncPolicy(Mode.INTERVAL, 0, intervalMillis);
+    }
+
+    /**
+     * Разбирает политику из строки вида "every", "batch:100" или "interval:1000".
+     * @param spec Строковое описание политики.
+     * @return Политика сброса.
+     */
+    public static SyncPolicy parse(String spec) {
+        String[] parts = spec.trim().toLowerCase().split(":", 2);
+        try {
+            switch (parts[0]) {
+                case "every":
+                    return everyWrite();
+                case "batch":
+                    return batched(Integer.parseInt(parts[1]));
+                case "interval":
+                    return interval(Long.parseLong(parts[1]));
+                default:
+                    break;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            // Ниже сообщаем об ошибке в общем виде
+        }
+        throw new IllegalArgumentException("Неверная политика сброса: " + spec);
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case BATCH:
+                return "batch:" + batchSize;
+            case INTERVAL:
+                return "interval:" + intervalMillis;
+            default:
+                return "every";
+        }
+    }
+}
@@ -1,68 +1,177 @@
-package com.todolist;
-
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-
-/**
- *      .
- *      ,
- *   , ,    .
- */
-public class Task {
-    private String title;
-    private String description;
-    private LocalDate dueDate;
-    private Priority priority;
-
-    //     
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-    public Task(String title, String description, LocalDate dueDate, Priority priority) {
-        this.title = title;
-        this.description = description;
-        this.dueDate = dueDate;
-        this.priority = priority;
-    }
-
-    // 
-    public String getTitle() {
-        return title;
-    }
-
-    public String getDescription() {
-        return description;
-    }
-
-    public LocalDate getDueDate() {
-        return dueDate;
-    }
-
-    public Priority getPriority() {
-        return priority;
-    }
-
-    // 
-    public void setTitle(String title) {
-        this.title = title;
-    }
-
-    public void setDescription(String description) {
-        this.description = description;
-    }
-
-    public void setDueDate(LocalDate dueDate) {
-        this.dueDate = dueDate;
-    }
-
-    public void setPriority(Priority priority) {
-        this.priority = priority;
-    }
-
-    @Override
-    public String toString() {
-        return ": " + title + "\n" +
-                "  : " + description + "\n" +
-                "   : " + dueDate.format(DATE_FORMATTER) + "\n" +
-                "  : " + priority + "\n";
-    }
+package com.todolist;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Представляет одну задачу в списке дел.
+ * Этот класс инкапсулирует все свойства задачи,
+ * такие как название, описание, срок выполнения и приоритет.
+ *
+ * Задача неизменяема: редактирование в хранилище создаёт новую версию задачи
+ * с тем же идентификатором. Чтобы занимать меньше памяти, срок хранится как номер дня,
+ * приоритет - как номер значения перечисления, а одинаковые названия и описания
+ * разделяются через ограниченный словарь строк (StringPool).
+ *
+ * Повторяющаяся задача - одна запись с правилом повторения (Recurrence): её срок - первое
+ * повторение серии, а остальные повторения вычисляются по правилу только для запрошенного окна дат.
+ */
+public final class Task {
+    private static final int NO_DUE_DATE = Integer.MIN_VALUE;
+    private static final byte NO_PRIORITY = -1;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final long id; // 0 - задача ещё не добавлена в хранилище
+    private final String title;
+    private final String description;
+    private final int dueDay; // Номер дня от 1970-01-01 или NO_DUE_DATE
+    private final byte priority; // Номер приоритета или NO_PRIORITY
+    private final Recurrence recurrence; // null - задача не повторяется
+
+    // Форматтер для единообразного отображения даты
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /**
+     * @throws IllegalArgumentException если номер дня срока выполнения не помещается в int (дальше 5 млн лет от 1970 года).
+     */
+    public Task(String title, String description, LocalDate dueDate, Priority priority) {
+        this(0, title, description, dueDate, priority);
+    }
+
+    /**
+     * Создаёт повторяющуюся задачу: срок выполнения - первое повторение серии.
+     * @param recurrence Правило повторения или null, если задача не повторяется.
+     * @throws IllegalArgumentException если у повторяющейся задачи нет срока выполнения.
+     */
+    public Task(String title, String description, LocalDate dueDate, Priority priority, Recurrence recurrence) {
+        this(0, title, description, dueDate, priority, recurrence);
+    }
+
+    Task(long id, String title, String description, LocalDate dueDate, Priority priority) {
+        this(id, title, description, dueDate, priority, null);
+    }
+
+    Task(long id, String title, String description, LocalDate dueDate, Priority priority, Recurrence recurrence) {
+        if (recurrence != null && dueDate == null) {
+            throw new IllegalArgumentException("У повторяющейся задачи должен быть срок первого повторения");
+        }
+        this.id = id;
+        this.title = StringPool.intern(title);
+        this.description = StringPool.intern(description);
+        this.dueDay = dueDate == null ? NO_DUE_DATE : toDueDay(dueDate);
+        this.priority = priority == null ? NO_PRIORITY : (byte) priority.ordinal();
+        this.recurrence = recurrence;
+    }
+
+    private Task(long id, Task source) {
+        this.id = id;
+        this.title = source.title;
+        this.description = source.description;
+        this.dueDay = source.dueDay;
+        this.priority = source.priority;
+        this.recurrence = source.recurrence;
+    }
+
+    /**
+     * Новая версия задачи с тем же идентификатором и правилом повторения и с новыми полями.
+     * Если у новой версии нет срока, она перестаёт повторяться.
+     */
+    Task edited(String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        return new Task(id, newTitle, newDescription, newDueDate, newPriority, newDueDate == null ? null : recurrence);
+    }
+
+    private static int toDueDay(LocalDate dueDate) {
+        long day = dueDate.toEpochDay();
+        if (day <= NO_DUE_DATE || day > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Срок выполнения вне допустимого диапазона: " + dueDate);
+        }
+        return (int) day;
+    }
+
+    // Геттеры
+
+    /**
+     * Возвращает постоянный идентификатор задачи, назначенный хранилищем при добавлении.
+     * @return Идентификатор или 0, если задача ещё не добавлена.
+     */
+    public long getId() {
+        return id;
+    }
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDay == NO_DUE_DATE ? null : LocalDate.ofEpochDay(dueDay);
+    }
+
+    public Priority getPriority() {
+        return priority == NO_PRIORITY ? null : PRIORITIES[priority];
+    }
+
+    /**
+     * Правило повторения или null, если задача не повторяется.
+     */
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    public boolean isRecurring() {
+        return recurrence != null;
+    }
+
+    /**
+     * Возвращает дни срока выполнения задачи в диапазоне (включительно): повторения серии
+     * или срок обычной задачи, если он попал в диапазон.
+     * @throws IllegalArgumentException если from позже to.
+     */
+    public List<LocalDate> getOccurrences(LocalDate from, LocalDate to) {
+        LocalDate dueDate = getDueDate();
+        if (recurrence != null) {
+            return recurrence.occurrences(dueDate, from, to);
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже конца: " + from + " > " + to);
+        }
+        return dueDate != null && !dueDate.isBefore(from) && !dueDate.isAfter(to)
+                ? Collections.singletonList(dueDate) : Collections.emptyList();
+    }
+
+    /**
+     * Номер дня срока выполнения без создания LocalDate (для сравнений при сортировке).
+     * @return Номер дня или Long.MAX_VALUE, если срока нет: такие задачи считаются самыми поздними.
+     */
+    long dueDateKey() {
+        return dueDay == NO_DUE_DATE ? Long.MAX_VALUE : dueDay;
+    }
+
+    /**
+     * Номер приоритета (сначала высокий) или Integer.MAX_VALUE, если приоритета нет.
+     */
+    int priorityKey() {
+        return priority == NO_PRIORITY ? Integer.MAX_VALUE : priority;
+    }
+
+    /**
+     * Копия задачи с идентификатором, который ей назначило хранилище. Переданная в addTask
+     * задача не меняется: хранилище сохраняет такую копию.
+     */
+    Task withId(long newId) {
+        return new Task(newId, this);
+    }
+
+    @Override
+    public String toString() {
+        return "Название: " + title + "\n" +
+                "  Описание: " + description + "\n" +
+                "  Срок выполнения: " + (dueDay == NO_DUE_DATE ? "не указан" : getDueDate().format(DATE_FORMATTER)) + "\n" +
+                (recurrence != null ? "  Повторение: " + recurrence + "\n" : "") +
+                "  Приоритет: " + getPriority() + "\n";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.todolist;
+
+/**
+ * Изменение одной задачи хранилища (или всего порядка списка), которое TaskChangePublisher
+ * доставляет подписчикам в пачках. Задачи неизменяемы, поэтому событие хранит ссылки на
+ * версии задачи до и после изменения.
+ */
+public final class TaskChangeEvent {
+
+    /**
+     * Вид изменения.
+     */
+    public enum Kind {
+        /** Задача добавлена: before равна null. */
+        ADDED,
+        /** Поля задачи изменены: before и after - прежняя и новая версии. */
+        EDITED,
+        /** Задача удалена: after равна null. */
+        DELETED,
+        /** Порядок списка изменился целиком: идентификатор равен 0, задач нет. */
+        REORDERED
+    }
+
+    static final TaskChangeEvent REORDERED = new TaskChangeEvent(Kind.REORDERED, null, null);
+
+    private final Kind kind;
+    private final Task before;
+    private final Task after;
+
+    TaskChangeEvent(Kind kind, Task before, Task after) {
+        this.kind = kind;
+        this.before = before;
+        this.after = after;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Идентификатор изменённой задачи; 0 для REORDERED.
+     */
+    public long getId() {
+        return after != null ? after.getId() : before != null ? before.getId() : 0;
+    }
+
+    /**
+     * Версия задачи до изменения; null для ADDED и REORDERED.
+     */
+    public Task getBefore() {
+        return before;
+    }
+
+    /**
+     * Версия задачи после изменения; null для DELETED и REORDERED.
+     */
+    public Task getAfter() {
+        return after;
+    }
+
+    /**
+     * Объединяет это событие с более поздним событием о той же задаче в одно, дающее тот же итог:
+     * добавление и правка - добавление итоговой версии, правка и удаление - удаление исходной,
+     * удаление и повторное добавление (отмена удаления) - правка.
+     * @return Объединённое событие или null, если изменения взаимно погасились (добавление и удаление).
+     */
+    TaskChangeEvent then(TaskChangeEvent next) {
+        Task first = before;
+        Task last = next.after;
+        if (first == null && last == null) {
+            return null;
+        }
+        Kind merged = first == null ? Kind.ADDED : last == null ? Kind.DELETED : Kind.EDITED;
+        return new TaskChangeEvent(merged, first, last);
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case ADDED:
+                return "ADDED " + after;
+            case EDITED:
+                return "EDITED " + before + " -> " + after;
+            case DELETED:
+                return "DELETED " + before;
+            default:
+                return "REORDERED";
+        }
+    }
+}
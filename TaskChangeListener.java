@@ -0,0 +1,50 @@
+package com.todolist;
+
+/**
+ * Слушатель изменений задач в хранилище.
+ * Методы вызываются синхронно в потоке, который изменил хранилище, сразу после изменения,
+ * поэтому они должны работать быстро и не обращаться к хранилищу повторно.
+ * Для асинхронной обработки изменений пачками см. TaskChangePublisher.
+ */
+public interface TaskChangeListener {
+
+    /**
+     * Задача добавлена в хранилище.
+     */
+    void taskAdded(Task task);
+
+    /**
+     * Поля задачи изменены.
+     * @param task Задача с новыми значениями.
+     */
+    void taskUpdated(Task task);
+
+    /**
+     * Поля задачи изменены; хранилища, которые знают прежнюю версию задачи, вызывают этот метод.
+     * По умолчанию передаёт изменение в taskUpdated(Task).
+     * @param oldTask Задача с прежними значениями.
+     * @param newTask Задача с новыми значениями.
+     */
+    default void taskUpdated(Task oldTask, Task newTask) {
+        taskUpdated(newTask);
+    }
+
+    /**
+     * Задача удалена из хранилища.
+     */
+    void taskRemoved(Task task);
+
+    /**
+     * Порядок задач в списке изменился целиком (сортировка или её отмена); сами задачи не менялись.
+     */
+    default void tasksReordered() {
+    }
+
+    /**
+     * Повторение повторяющейся задачи отмечено выполненным или отметка снята; сама задача не менялась.
+     * @param occurrence Повторение: текущая версия задачи и день.
+     * @param completed true - повторение отмечено выполненным, false - отметка снята.
+     */
+    default void occurrenceCompleted(Occurrence occurrence, boolean completed) {
+    }
+}
@@ -0,0 +1,348 @@
+package com.todolist;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поток изменений хранилища для подписчиков java.util.concurrent.Flow: добавления, правки
+ * (с версиями задачи до и после), удаления и изменения порядка списка, собранные в пачки.
+ *
+ * Пишущий поток только дописывает событие в общий буфер под коротким замком. Раз в такт
+ * (по умолчанию TICK_MILLIS, свойство todolist.events.tick) накопленная пачка передаётся
+ * подписчикам, а доставка идёт в пуле executor - поэтому медленный подписчик никогда не
+ * задерживает запись. Подписчик получает пачку, только когда запросил её (request); пока он
+ * не готов, его очередь сжимается по задачам: несколько изменений одной задачи объединяются
+ * в одно (см. TaskChangeEvent.then), так что отставший подписчик занимает память не больше,
+ * чем число изменённых задач, и следующей пачкой получает итог всех пропущенных изменений.
+ *
+ * В пачке события идут в порядке первого изменения задачи; REORDERED, если порядок списка
+ * менялся, идёт последним - получив его, подписчик перечитывает порядок из хранилища.
+ */
+public final class TaskChangePublisher implements Flow.Publisher<List<TaskChangeEvent>>, TaskChangeListener, Closeable {
+    static final long TICK_MILLIS = Long.getLong("todolist.events.tick", 50);
+
+    private final TaskStore store;
+    private final Executor executor;
+    private final long tickNanos;
+    private final ScheduledThreadPoolExecutor timer;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+    private List<TaskChangeEvent> pending = new ArrayList<>(); // События текущего такта
+    private boolean flushScheduled;
+    private boolean closed;
+
+    /**
+     * Создаёт поток изменений хранилища с доставкой в общем пуле ForkJoinPool.
+     */
+    public TaskChangePublisher(TaskStore store) {
+        this(store, ForkJoinPool.commonPool(), Duration.ofMillis(TICK_MILLIS));
+    }
+
+    /**
+     * Создаёт поток изменений хранилища и подписывается на его изменения.
+     * @param store Хранилище задач.
+     * @param executor Пул, в котором вызываются методы подписчиков.
+     * @param tick Время, за которое изменения собираются в одну пачку.
+     */
+    public TaskChangePublisher(TaskStore store, Executor executor, Duration tick) {
+        this.store = store;
+        this.executor = executor;
+        this.tickNanos = tick.toNanos();
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "todolist-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        synchronized (store) {
+            store.addChangeListener(this);
+        }
+    }
+
+    /**
+     * Подписка начинает получать изменения только после onSubscribe, поэтому ни onNext,
+     * ни onComplete не приходят раньше него, даже если поток закрывается одновременно.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<TaskChangeEvent>> subscriber) {
+        Objects.requireNonNull(subscriber);
+        Subscription subscription = new Subscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        boolean complete;
+        synchronized (lock) {
+            complete = closed;
+            if (!complete) {
+                subscription.register();
+            }
+        }
+        if (complete) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Количество действующих подписок.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void taskAdded(Task task) {
+        publish(new TaskChangeEvent(TaskChangeEvent.Kind.ADDED, null, task));
+    }
+
+    /**
+     * Хранилище не сообщило прежнюю версию задачи: она считается совпадающей с новой.
+     */
+    @Override
+    public void taskUpdated(Task task) {
+        taskUpdated(task, task);
+    }
+
+    @Override
+    public void taskUpdated(Task oldTask, Task newTask) {
+        publish(new TaskChangeEvent(TaskChangeEvent.Kind.EDITED, oldTask, newTask));
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        publish(new TaskChangeEvent(TaskChangeEvent.Kind.DELETED, task, null));
+    }
+
+    @Override
+    public void tasksReordered() {
+        publish(TaskChangeEvent.REORDERED);
+    }
+
+    /**
+     * Дописывает событие в пачку текущего такта; первое событие такта заводит его окончание.
+     */
+    private void publish(TaskChangeEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            pending.add(event);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                timer.schedule(this::flush, tickNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Завершает такт: передаёт накопленную пачку в очереди подписчиков.
+     */
+    private void flush() {
+        List<TaskChangeEvent> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new ArrayList<>();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.enqueue(batch);
+        }
+    }
+
+    /**
+     * Отписывается от хранилища, передаёт подписчикам накопленные изменения
+     * и после их доставки завершает подписки (onComplete). Уже начатая передача пачки
+     * по таймеру дожидается окончания, чтобы пачки не обогнали друг друга и завершение.
+     */
+    @Override
+    public void close() {
+        synchronized (store) {
+            store.removeChangeListener(this);
+        }
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        timer.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                timer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true; // Передача пачки не блокируется, поэтому ждать её недолго
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        for (Subscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Подписка: сжатая очередь ещё не доставленных изменений и запрошенное количество пачек.
+     * Методы подписчика вызываются по одному, в пуле executor.
+     */
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<TaskChangeEvent>> subscriber;
+        private final Map<Long, TaskChangeEvent> backlog = new LinkedHashMap<>();
+        private boolean reordered;
+        private long demand;
+        private boolean draining; // Доставка уже запущена в пуле
+        private boolean completing;
+        private boolean cancelled;
+        private Throwable failure;
+
+        Subscription(Flow.Subscriber<? super List<TaskChangeEvent>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        synchronized void enqueue(List<TaskChangeEvent> events) {
+            if (cancelled) {
+                return;
+            }
+            for (TaskChangeEvent event : events) {
+                if (event.getKind() == TaskChangeEvent.Kind.REORDERED) {
+                    reordered = true;
+                    continue;
+                }
+                // Замена значения не меняет место задачи в очереди: порядок - по первому изменению
+                TaskChangeEvent previous = backlog.get(event.getId());
+                TaskChangeEvent merged = previous == null ? event : previous.then(event);
+                if (merged != null) {
+                    backlog.put(event.getId(), merged);
+                } else {
+                    backlog.remove(event.getId());
+                }
+            }
+            schedule();
+        }
+
+        /**
+         * Добавляет подписку в список получателей, если подписчик не отменил её в onSubscribe.
+         * Вызывается под замком издателя; отмена удаляет подписку под тем же замком.
+         */
+        synchronized void register() {
+            if (!cancelled) {
+                subscriptions.add(this);
+            }
+        }
+
+        synchronized void complete() {
+            completing = true;
+            schedule();
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Запрошено неположительное количество пачек: " + n);
+            } else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                backlog.clear();
+            }
+            synchronized (lock) {
+                subscriptions.remove(this);
+            }
+        }
+
+        private boolean hasBacklog() {
+            return reordered || !backlog.isEmpty();
+        }
+
+        /**
+         * Запускает доставку в пуле, если подписчику есть что получить, а доставка ещё не идёт.
+         */
+        private void schedule() {
+            if (draining || cancelled) {
+                return;
+            }
+            if (failure != null || (hasBacklog() ? demand > 0 : completing)) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<TaskChangeEvent> batch = null;
+                Throwable error;
+                synchronized (this) {
+                    error = failure;
+                    if (cancelled) {
+                        draining = false;
+                        return;
+                    }
+                    if (error == null) {
+                        if (hasBacklog() && demand > 0) {
+                            batch = take();
+                            demand--;
+                        } else if (hasBacklog() || !completing) {
+                            draining = false;
+                            return;
+                        }
+                    }
+                    if (batch == null) {
+                        cancelled = true; // Ошибка запроса или завершение: подписка больше ничего не получит
+                    }
+                }
+                if (batch == null) {
+                    subscriptions.remove(this);
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                try {
+                    subscriber.onNext(batch);
+                } catch (RuntimeException e) {
+                    cancel(); // Подписчик, бросивший исключение, отписывается
+                    return;
+                }
+            }
+        }
+
+        private List<TaskChangeEvent> take() {
+            List<TaskChangeEvent> batch = new ArrayList<>(backlog.size() + 1);
+            batch.addAll(backlog.values());
+            if (reordered) {
+                batch.add(TaskChangeEvent.REORDERED);
+            }
+            backlog.clear();
+            reordered = false;
+            return Collections.unmodifiableList(batch);
+        }
+    }
+}
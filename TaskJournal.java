@@ -0,0 +1,617 @@
+package com.todolist;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи (write-ahead log) и снимки для списка задач.
+ * Каждое изменение дописывается в конец журнала компактной двоичной записью
+ * с порядковым номером и контрольной суммой. Снимок сохраняет весь список
+ * и номер последней учтённой записи, после чего журнал обрезается.
+ * При открытии состояние восстанавливается из снимка и хвоста журнала;
+ * недописанная при сбое последняя запись отбрасывается.
+ *
+ * Правило повторения задачи дописывается в конец её записи, только если оно есть, поэтому
+ * записи обычных задач не изменились, а старые файлы читаются как прежде. Снимок TDS2 после
+ * задач хранит отметки о выполненных повторениях; снимки TDS1 их не содержат. Снимок TDS3
+ * хранит в заголовке ещё и следующий идентификатор, чтобы идентификаторы удалённых задач
+ * не выдавались повторно после перезапуска.
+ */
+class TaskJournal implements Closeable {
+    static final String SNAPSHOT_FILE = "tasks.snapshot";
+    static final String LOG_FILE = "tasks.log";
+
+    private static final int SNAPSHOT_MAGIC_V1 = 0x54445331; // "TDS1": только задачи
+    private static final int SNAPSHOT_MAGIC_V2 = 0x54445332; // "TDS2": задачи и отметки о выполненных повторениях
+    private static final int SNAPSHOT_MAGIC = 0x54445333; // "TDS3": то же и следующий идентификатор
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int SNAPSHOT_HEADER_SIZE = 24; // сигнатура + номер записи + следующий идентификатор + количество задач
+    private static final int SNAPSHOT_HEADER_SIZE_V2 = 16; // TDS1 и TDS2: без следующего идентификатора
+    private static final int RECORD_HEADER_SIZE = 8; // длина + контрольная сумма
+
+    private static final byte ADD = 1;
+    private static final byte EDIT = 2;
+    private static final byte DELETE = 3;
+    private static final byte SORT = 4;
+    private static final byte EDIT_BY_ID = 5;
+    private static final byte DELETE_BY_ID = 6;
+    private static final byte RESTORE = 7; // Отменённое удаление: задача и идентификатор следующей за ней
+    private static final byte COMPLETE = 8; // Повторение выполнено: идентификатор задачи и номер дня
+    private static final byte REOPEN = 9; // Отметка о выполнении повторения снята
+    private static final byte REPLACE = 10; // Задача заменена целиком, вместе с правилом повторения
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final SyncPolicy syncPolicy;
+
+    // Буфер для кодирования одной записи, переиспользуется между записями
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+    // Закодированные, но ещё не записанные в файл записи (заголовок + тело)
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+
+    private FileChannel log;
+    private ScheduledExecutorService syncTimer;
+    private long lastSequence;
+    private int unsyncedRecords;
+    private long recordsSinceSnapshot;
+    private int groupDepth; // Больше нуля - записи копятся в буфере до endGroup
+    private int groupRecords;
+    private IOException broken; // Сбой, после которого недописанный хвост не удалось отрезать
+
+    TaskJournal(Path directory, SyncPolicy syncPolicy) {
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.logFile = directory.resolve(LOG_FILE);
+        this.syncPolicy = syncPolicy;
+    }
+
+    /**
+     * Восстанавливает список из снимка и журнала, затем открывает журнал для дозаписи.
+     * @param target Пустой список, в который применяются сохранённые изменения.
+     */
+    synchronized void open(TodoList target) throws IOException {
+        Files.createDirectories(logFile.getParent());
+        long snapshotSequence = loadSnapshot(target);
+        long validLength = replayLog(target, snapshotSequence);
+        lastSequence = Math.max(lastSequence, snapshotSequence);
+
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (log.size() > validLength) {
+            log.truncate(validLength); // Отбрасываем недописанный хвост
+            log.force(false);
+        }
+        log.position(validLength);
+
+        if (syncPolicy.getMode() == SyncPolicy.Mode.INTERVAL) {
+            syncTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = syncPolicy.getIntervalMillis();
+            syncTimer.scheduleAtFixedRate(this::syncQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void appendAdd(Task task) throws IOException {
+        append(ADD, -1, task);
+    }
+
+    /**
+     * Дописывает добавление пачки задач одной операцией записи
+     * и не больше чем одной синхронизацией с диском.
+     */
+    synchronized void appendAdds(List<Task> tasks) throws IOException {
+        for (Task task : tasks) {
+            encode(ADD, -1, task);
+        }
+        write(tasks.size());
+    }
+
+    void appendEdit(int index, Task task) throws IOException {
+        append(EDIT, index, task);
+    }
+
+    void appendDelete(int index) throws IOException {
+        append(DELETE, index, null);
+    }
+
+    void appendSort() throws IOException {
+        append(SORT, -1, null);
+    }
+
+    void appendEditById(Task task) throws IOException {
+        append(EDIT_BY_ID, -1, task);
+    }
+
+    /**
+     * Дописывает замену задачи с тем же идентификатором её версией целиком (отмена и повтор правки).
+     */
+    void appendReplace(Task task) throws IOException {
+        append(REPLACE, -1, task);
+    }
+
+    void appendDeleteById(long id) throws IOException {
+        append(DELETE_BY_ID, id, null);
+    }
+
+    /**
+     * Дописывает удаление пачки задач (например, отмену импорта) одной операцией записи.
+     */
+    synchronized void appendDeletesById(List<Task> tasks) throws IOException {
+        for (Task task : tasks) {
+            encode(DELETE_BY_ID, task.getId(), null);
+        }
+        write(tasks.size());
+    }
+
+    /**
+     * Дописывает возврат удалённой задачи на место перед задачей beforeId (0 - в конец списка)
+     * вместе с отметками о выполненных повторениях задачи одной операцией записи: снимок,
+     * сделанный, пока задача была удалена, этих отметок не содержит.
+     */
+    synchronized void appendRestore(Task task, long beforeId, Set<LocalDate> completed) throws IOException {
+        encode(RESTORE, beforeId, task);
+        for (LocalDate date : completed) {
+            encodeCompletion(task.getId(), date, true);
+        }
+        write(1 + completed.size());
+    }
+
+    /**
+     * Дописывает отметку о выполнении повторения задачи id в день date или её снятие.
+     */
+    synchronized void appendCompletion(long id, LocalDate date, boolean completed) throws IOException {
+        encodeCompletion(id, date, completed);
+        write(1);
+    }
+
+    private void encodeCompletion(long id, LocalDate date, boolean completed) throws IOException {
+        beginRecord(completed ? COMPLETE : REOPEN);
+        record.writeLong(id);
+        record.writeLong(date.toEpochDay());
+        endRecord();
+    }
+
+    /**
+     * Начинает группу записей: до парного endGroup записи только кодируются в буфер,
+     * а в файл попадают одной операцией записи с одной синхронизацией по политике
+     * (групповая фиксация). Группы могут быть вложенными.
+     */
+    synchronized void beginGroup() {
+        groupDepth++;
+    }
+
+    /**
+     * Заканчивает группу записей и, если это внешняя группа, записывает накопленные записи.
+     */
+    synchronized void endGroup() throws IOException {
+        if (--groupDepth == 0 && groupRecords > 0) {
+            int records = groupRecords;
+            groupRecords = 0;
+            flush(records);
+        }
+    }
+
+    /**
+     * Количество записей журнала, сделанных после последнего снимка.
+     */
+    synchronized long getRecordsSinceSnapshot() {
+        return recordsSinceSnapshot;
+    }
+
+    /**
+     * Записывает снимок всего списка и обрезает журнал.
+     * Снимок сначала пишется во временный файл и атомарно заменяет старый,
+     * поэтому сбой в любой момент оставляет согласованную пару снимок + журнал.
+     * @param tasks Текущие задачи в порядке списка.
+     * @param completed Отметки о выполненных повторениях: идентификатор задачи -> выполненные дни.
+     * @param nextId Идентификатор, который получит следующая новая задача.
+     */
+    synchronized void snapshot(List<Task> tasks, Map<Long, ? extends Set<LocalDate>> completed, long nextId) throws IOException {
+        Path tempFile = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(lastSequence);
+            out.writeLong(nextId);
+            out.writeInt(tasks.size());
+            for (Task task : tasks) {
+                recordBytes.reset();
+                writeTask(record, task);
+                out.writeInt(recordBytes.size());
+                recordBytes.writeTo(out);
+            }
+            out.writeInt(completed.size());
+            for (Map.Entry<Long, ? extends Set<LocalDate>> entry : completed.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (LocalDate date : entry.getValue()) {
+                    out.writeLong(date.toEpochDay());
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Записи журнала уже учтены снимком по номеру, поэтому обрезка после переименования безопасна
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        pendingBytes.reset(); // Незаписанные записи группы уже учтены снимком
+        groupRecords = 0;
+        unsyncedRecords = 0;
+        recordsSinceSnapshot = 0;
+        broken = null; // Журнал обрезан вместе с недописанным хвостом
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (syncTimer != null) {
+            syncTimer.shutdownNow();
+        }
+        if (log != null && log.isOpen()) {
+            log.force(false);
+            log.close();
+        }
+    }
+
+    private synchronized void append(byte operation, long target, Task task) throws IOException {
+        encode(operation, target, task);
+        write(1);
+    }
+
+    /**
+     * Кодирует запись с заголовком в буфер ожидающих записи.
+     */
+    private void encode(byte operation, long target, Task task) throws IOException {
+        beginRecord(operation);
+        if (operation == EDIT || operation == DELETE) {
+            record.writeInt((int) target);
+        } else if (operation == DELETE_BY_ID || operation == RESTORE) {
+            record.writeLong(target);
+        }
+        if (task != null) {
+            writeTask(record, task);
+        }
+        endRecord();
+    }
+
+    private void beginRecord(byte operation) throws IOException {
+        recordBytes.reset();
+        record.writeByte(operation);
+        record.writeLong(++lastSequence);
+    }
+
+    /**
+     * Дописывает закодированную запись с заголовком (длина, контрольная сумма) в буфер ожидающих записи.
+     */
+    private void endRecord() throws IOException {
+        crc.reset();
+        crc.update(recordBytes.toByteArray(), 0, recordBytes.size());
+        pending.writeInt(recordBytes.size());
+        pending.writeInt((int) crc.getValue());
+        recordBytes.writeTo(pending);
+    }
+
+    /**
+     * Записывает накопленные записи в журнал и синхронизирует его по политике;
+     * внутри группы только учитывает их до endGroup.
+     * @param records Количество записей в буфере.
+     */
+    private void write(int records) throws IOException {
+        recordsSinceSnapshot += records;
+        if (groupDepth > 0) {
+            groupRecords += records;
+            return;
+        }
+        flush(records);
+    }
+
+    /**
+     * Записывает буфер в файл. Если запись или синхронизация не удалась, записи буфера
+     * отбрасываются, а их начало, возможно уже попавшее в файл, отрезается: следующие записи
+     * не должны оказаться за недописанной, на которой восстановление остановится.
+     * Если отрезать не удалось, журнал больше не пишет до следующего снимка.
+     */
+    private void flush(int records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(pendingBytes.toByteArray());
+        pendingBytes.reset();
+        if (broken != null) {
+            recordsSinceSnapshot -= records;
+            throw new IOException("Журнал не записывается после сбоя", broken);
+        }
+        long end = log.position();
+        try {
+            while (buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+            if (syncPolicy.getMode() != SyncPolicy.Mode.INTERVAL && unsyncedRecords + records >= syncPolicy.getBatchSize()) {
+                log.force(false);
+                unsyncedRecords = 0;
+            } else {
+                unsyncedRecords += records;
+            }
+        } catch (IOException e) {
+            recordsSinceSnapshot -= records;
+            try {
+                log.truncate(end);
+                log.position(end);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+                broken = e;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void syncQuietly() {
+        if (unsyncedRecords == 0 || !log.isOpen()) {
+            return;
+        }
+        try {
+            log.force(false);
+            unsyncedRecords = 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private long loadSnapshot(TodoList target) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+        try (RecordReader in = new RecordReader(snapshotFile)) {
+            int magic = in.fill(SNAPSHOT_HEADER_SIZE_V2) ? in.buffer.getInt() : 0;
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V2 && magic != SNAPSHOT_MAGIC_V1) {
+                throw new IOException("Неверный формат файла снимка: " + snapshotFile);
+            }
+            if (magic == SNAPSHOT_MAGIC && !in.fill(SNAPSHOT_HEADER_SIZE - Integer.BYTES)) {
+                throw new IOException("Файл снимка обрезан: " + snapshotFile);
+            }
+            long sequence = in.buffer.getLong();
+            if (magic == SNAPSHOT_MAGIC) {
+                target.reserveIds(in.buffer.getLong());
+            }
+            int count = in.buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int length = in.fill(Integer.BYTES) ? in.buffer.getInt() : -1;
+                if (length < 0 || !in.fill(length)) {
+                    throw new IOException("Файл снимка обрезан: " + snapshotFile);
+                }
+                target.addTask(readTask(in.buffer, in.buffer.position() + length));
+            }
+            if (magic != SNAPSHOT_MAGIC_V1) {
+                loadCompleted(in, target);
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Читает отметки о выполненных повторениях, записанные в снимке после задач.
+     */
+    private void loadCompleted(RecordReader in, TodoList target) throws IOException {
+        if (!in.fill(Integer.BYTES)) {
+            throw new IOException("Файл снимка обрезан: " + snapshotFile);
+        }
+        int series = in.buffer.getInt();
+        for (int i = 0; i < series; i++) {
+            if (!in.fill(Long.BYTES + Integer.BYTES)) {
+                throw new IOException("Файл снимка обрезан: " + snapshotFile);
+            }
+            long id = in.buffer.getLong();
+            int count = in.buffer.getInt();
+            if (count < 0 || !in.fill(count * Long.BYTES)) {
+                throw new IOException("Файл снимка обрезан: " + snapshotFile);
+            }
+            for (int j = 0; j < count; j++) {
+                target.restoreCompletion(id, LocalDate.ofEpochDay(in.buffer.getLong()), true);
+            }
+        }
+    }
+
+    /**
+     * Применяет записи журнала, не учтённые снимком.
+     * @return Длина корректной части журнала в байтах.
+     */
+    private long replayLog(TodoList target, long snapshotSequence) throws IOException {
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        long validLength = 0;
+        try (RecordReader in = new RecordReader(logFile)) {
+            while (in.fill(RECORD_HEADER_SIZE)) {
+                int length = in.buffer.getInt();
+                int checksum = in.buffer.getInt();
+                if (length <= 0 || !in.fill(length)) {
+                    break; // Запись не была дописана до конца
+                }
+                ByteBuffer buffer = in.buffer;
+                int start = buffer.position();
+                crc.reset();
+                crc.update(buffer.array(), buffer.arrayOffset() + start, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(buffer, start + length, target, snapshotSequence);
+                buffer.position(start + length);
+                validLength += RECORD_HEADER_SIZE + length;
+                recordsSinceSnapshot++;
+            }
+        }
+        return validLength;
+    }
+
+    private void apply(ByteBuffer in, int end, TodoList target, long snapshotSequence) throws IOException {
+        byte operation = in.get();
+        long sequence = in.getLong();
+        lastSequence = sequence;
+        if (sequence <= snapshotSequence) {
+            return; // Уже учтено снимком
+        }
+        switch (operation) {
+            case ADD:
+                target.addTask(readTask(in, end));
+                break;
+            case EDIT:
+                int editIndex = in.getInt();
+                Task edited = readTask(in, end);
+                target.editTask(editIndex, edited.getTitle(), edited.getDescription(),
+                        edited.getDueDate(), edited.getPriority());
+                break;
+            case DELETE:
+                target.deleteTask(in.getInt());
+                break;
+            case SORT:
+                target.sortByDueDate();
+                break;
+            case EDIT_BY_ID:
+                Task editedById = readTask(in, end);
+                target.editTaskById(editedById.getId(), editedById.getTitle(), editedById.getDescription(),
+                        editedById.getDueDate(), editedById.getPriority());
+                break;
+            case DELETE_BY_ID:
+                target.deleteTaskById(in.getLong());
+                break;
+            case REPLACE:
+                target.replaceTask(readTask(in, end));
+                break;
+            case RESTORE:
+                long beforeId = in.getLong();
+                target.restoreTask(readTask(in, end), beforeId);
+                break;
+            case COMPLETE:
+            case REOPEN:
+                target.restoreCompletion(in.getLong(), LocalDate.ofEpochDay(in.getLong()), operation == COMPLETE);
+                break;
+            default:
+                throw new IOException("Неизвестная операция в журнале: " + operation);
+        }
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        out.writeLong(task.getId());
+        writeString(out, task.getTitle());
+        writeString(out, task.getDescription());
+        out.writeLong(task.getDueDate() == null ? NO_DATE : task.getDueDate().toEpochDay());
+        out.writeByte(task.getPriority() == null ? -1 : task.getPriority().ordinal());
+        Recurrence recurrence = task.getRecurrence();
+        if (recurrence != null) {
+            out.writeByte(recurrence.getFrequency().ordinal());
+            out.writeInt(recurrence.getInterval());
+            out.writeLong(recurrence.getUntil() == null ? NO_DATE : recurrence.getUntil().toEpochDay());
+        }
+    }
+
+    /**
+     * Читает задачу, запись которой заканчивается в позиции end: правило повторения есть,
+     * только если после приоритета остались байты.
+     */
+    private static Task readTask(ByteBuffer in, int end) {
+        long id = in.getLong();
+        String title = readString(in);
+        String description = readString(in);
+        long epochDay = in.getLong();
+        byte priority = in.get();
+        Recurrence recurrence = null;
+        if (in.position() < end) {
+            Recurrence.Frequency frequency = Recurrence.Frequency.values()[in.get()];
+            int interval = in.getInt();
+            long until = in.getLong();
+            recurrence = new Recurrence(frequency, interval, until == NO_DATE ? null : LocalDate.ofEpochDay(until));
+        }
+        return new Task(id, title, description,
+                epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay),
+                priority < 0 ? null : Priority.values()[priority], recurrence);
+    }
+
+    // writeUTF ограничен 64 КБ, поэтому строки пишутся как длина + байты UTF-8
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Последовательно читает файл большими блоками в общий буфер.
+     * Записи декодируются прямо из буфера, без промежуточных потоков и копий.
+     */
+    private static final class RecordReader implements Closeable {
+        private final FileChannel channel;
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        RecordReader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.limit(0);
+        }
+
+        /**
+         * Дочитывает файл, пока в буфере не окажется хотя бы needed байт.
+         * @return false, если файл закончился раньше.
+         */
+        boolean fill(int needed) throws IOException {
+            while (buffer.remaining() < needed) {
+                if (buffer.capacity() < needed) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2));
+                    larger.put(buffer).flip();
+                    buffer = larger;
+                    continue;
+                }
+                buffer.compact();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
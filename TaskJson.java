@@ -0,0 +1,233 @@
+package com.todolist;
+
+/**
+ * Представление задачи в JSON: запись объекта в строку и разбор плоского объекта.
+ * Используется импортом и экспортом в формате JSON Lines и HTTP-сервером.
+ * Поля объекта: id, title, description, dueDate (гггг-мм-дд или null), priority (или null)
+ * и у повторяющихся задач recurrence (см. Recurrence.parse).
+ */
+final class TaskJson {
+
+    private TaskJson() {
+    }
+
+    /**
+     * Разбирает задачу из плоского объекта JSON со строковыми значениями или null.
+     * Поле id и неизвестные поля пропускаются.
+     * @throws IllegalArgumentException если строка не является таким объектом или задача неверна.
+     */
+    static Task parseTask(String line) {
+        JsonCursor cursor = new JsonCursor(line);
+        String title = null;
+        String description = null;
+        String dueDate = null;
+        String priority = null;
+        String recurrence = null;
+        cursor.expect('{');
+        if (!cursor.tryConsume('}')) {
+            do {
+                String key = cursor.readString();
+                cursor.expect(':');
+                String value = cursor.readValue();
+                switch (key) {
+                    case "title":
+                        title = value;
+                        break;
+                    case "description":
+                        description = value;
+                        break;
+                    case "dueDate":
+                        dueDate = value;
+                        break;
+                    case "priority":
+                        priority = value;
+                        break;
+                    case "recurrence":
+                        recurrence = value;
+                        break;
+                    default:
+                        break; // id и неизвестные поля пропускаем
+                }
+            } while (cursor.tryConsume(','));
+            cursor.expect('}');
+        }
+        cursor.expectEnd();
+        return TaskTransfer.toTask(title, description, dueDate, priority, recurrence);
+    }
+
+    /**
+     * Минимальный разборщик JSON для записей задач.
+     */
+    private static final class JsonCursor {
+        private final String text;
+        private int position;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        void expect(char expected) {
+            if (!tryConsume(expected)) {
+                throw error("ожидался символ '" + expected + "'");
+            }
+        }
+
+        boolean tryConsume(char expected) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position != text.length()) {
+                throw error("лишние символы после объекта");
+            }
+        }
+
+        /**
+         * Читает значение: строку, null (возвращается как null), число или логическое значение
+         * (возвращаются как текст).
+         */
+        String readValue() {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == '"') {
+                return readString();
+            }
+            int start = position;
+            while (position < text.length() && ",}] \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw error("ожидалось значение");
+            }
+            return "null".equals(literal) ? null : literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("незакрытая строка");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw error("незакрытая строка");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("неверная escape-последовательность");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("неверная escape-последовательность");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped); // \" \\ \/
+                        break;
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("неверный JSON (позиция " + (position + 1) + "): " + message);
+        }
+    }
+
+    /**
+     * Дописывает задачу объектом JSON в одну строку, без промежуточных объектов.
+     */
+    static void appendTask(StringBuilder line, Task task) {
+        line.append("{\"id\":").append(task.getId());
+        line.append(",\"title\":");
+        appendString(line, task.getTitle());
+        line.append(",\"description\":");
+        appendString(line, task.getDescription());
+        line.append(",\"dueDate\":");
+        appendString(line, task.getDueDate() == null ? null : task.getDueDate().toString());
+        line.append(",\"priority\":");
+        appendString(line, task.getPriority() == null ? null : task.getPriority().name());
+        if (task.getRecurrence() != null) {
+            line.append(",\"recurrence\":");
+            appendString(line, task.getRecurrence().toString());
+        }
+        line.append('}');
+    }
+
+    /**
+     * Дописывает строку JSON с экранированием или null.
+     */
+    static void appendString(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                    break;
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,36 @@
+package com.todolist;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JFR об одной операции TodoList. Пока запись JFR не включена, событие не создаётся
+ * и ничего не стоит; включить его можно, например, так:
+ * {@code java -XX:StartFlightRecording=filename=todolist.jfr ...}
+ * и посмотреть в JDK Mission Control или командой {@code jfr print --events com.todolist.Operation}.
+ */
+@Name("com.todolist.Operation")
+@Label("TodoList Operation")
+@Category("TodoList")
+@Description("Операция списка задач: вид, длительность, размер результата и размер списка")
+@StackTrace(false)
+final class TaskOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Result Size")
+    @Description("Найдено, добавлено, изменено или удалено задач")
+    int resultSize;
+
+    @Label("Task Count")
+    int taskCount;
+}
@@ -0,0 +1,459 @@
+package com.todolist;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Составной запрос к задачам: условия по ключевому слову, приоритету и сроку выполнения,
+ * соединённые через И, ИЛИ и НЕ, и необязательный порядок результатов.
+ * Запрос неизменяем; хранилище само выбирает, как его выполнить (TodoList - по самому
+ * избирательному индексу, см. QueryPlanner).
+ *
+ * Запрос можно собрать методами класса или разобрать из строки (см. parse), например:
+ * {@code priority:high due:..2025-06-06 deploy}.
+ */
+public final class TaskQuery {
+    enum Kind { ALL, KEYWORD, PRIORITY, DUE, AND, OR, NOT }
+
+    private static final TaskQuery ALL = new TaskQuery(Kind.ALL, null, null, null, null, Collections.emptyList(), null);
+
+    private final Kind kind;
+    private final String keyword; // KEYWORD: в нижнем регистре
+    private final Priority priority; // PRIORITY: null - задачи без приоритета
+    private final LocalDate from; // DUE: начало диапазона или null
+    private final LocalDate to; // DUE: конец диапазона или null
+    private final List<TaskQuery> operands; // AND, OR, NOT
+    private final SortOrder order; // Порядок результатов; null - порядок списка
+
+    private TaskQuery(Kind kind, String keyword, Priority priority, LocalDate from, LocalDate to,
+                      List<TaskQuery> operands, SortOrder order) {
+        this.kind = kind;
+        this.keyword = keyword;
+        this.priority = priority;
+        this.from = from;
+        this.to = to;
+        this.operands = operands;
+        this.order = order;
+    }
+
+    /**
+     * Запрос, которому удовлетворяют все задачи.
+     */
+    public static TaskQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Задачи, в названии или описании которых встречается ключевое слово без учёта регистра.
+     */
+    public static TaskQuery keyword(String keyword) {
+        return keyword.isEmpty() ? ALL : new TaskQuery(Kind.KEYWORD, keyword.toLowerCase(), null, null, null, Collections.emptyList(), null);
+    }
+
+    /**
+     * Задачи с указанным приоритетом.
+     * @param priority Приоритет или null для задач без приоритета.
+     */
+    public static TaskQuery priority(Priority priority) {
+        return new TaskQuery(Kind.PRIORITY, null, priority, null, null, Collections.emptyList(), null);
+    }
+
+    /**
+     * Задачи со сроком выполнения в диапазоне [from, to]; задачи без срока не подходят.
+     * @param from Начало диапазона или null, если оно не ограничено.
+     * @param to Конец диапазона или null, если он не ограничен.
+     * @throws IllegalArgumentException если from позже to.
+     */
+    public static TaskQuery dueBetween(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже его конца: " + from + " > " + to);
+        }
+        return new TaskQuery(Kind.DUE, null, null, from, to, Collections.emptyList(), null);
+    }
+
+    /**
+     * Задачи, удовлетворяющие всем запросам.
+     */
+    public static TaskQuery and(TaskQuery... queries) {
+        return combine(Kind.AND, queries);
+    }
+
+    /**
+     * Задачи, удовлетворяющие хотя бы одному запросу.
+     */
+    public static TaskQuery or(TaskQuery... queries) {
+        return combine(Kind.OR, queries);
+    }
+
+    /**
+     * Задачи, не удовлетворяющие запросу.
+     */
+    public static TaskQuery not(TaskQuery query) {
+        return new TaskQuery(Kind.NOT, null, null, null, null, Collections.singletonList(query.unordered()), null);
+    }
+
+    private static TaskQuery combine(Kind kind, TaskQuery[] queries) {
+        List<TaskQuery> operands = new ArrayList<>(queries.length);
+        for (TaskQuery query : queries) {
+            if (query.kind == kind) {
+                operands.addAll(query.operands); // (a И b) И c - то же, что a И b И c
+            } else if (!(kind == Kind.AND && query.kind == Kind.ALL)) {
+                operands.add(query.unordered());
+            }
+        }
+        if (kind == Kind.AND && operands.isEmpty()) {
+            return ALL;
+        }
+        if (operands.size() == 1) {
+            return operands.get(0);
+        }
+        if (operands.isEmpty()) {
+            throw new IllegalArgumentException("Пустое условие ИЛИ");
+        }
+        return new TaskQuery(kind, null, null, null, null, Collections.unmodifiableList(operands), null);
+    }
+
+    /**
+     * Тот же запрос с результатами в указанном порядке.
+     * @param order Порядок или null для порядка списка.
+     */
+    public TaskQuery orderBy(SortOrder order) {
+        return new TaskQuery(kind, keyword, priority, from, to, operands, order);
+    }
+
+    private TaskQuery unordered() {
+        return order == null ? this : orderBy(null);
+    }
+
+    /**
+     * Порядок результатов или null, если результаты идут в порядке списка.
+     */
+    public SortOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Проверяет, удовлетворяет ли задача запросу.
+     */
+    public boolean matches(Task task) {
+        switch (kind) {
+            case ALL:
+                return true;
+            case KEYWORD:
+                return contains(task.getTitle()) || contains(task.getDescription());
+            case PRIORITY:
+                return task.getPriority() == priority;
+            case DUE:
+                LocalDate dueDate = task.getDueDate();
+                return dueDate != null && (from == null || !dueDate.isBefore(from)) && (to == null || !dueDate.isAfter(to));
+            case AND:
+                for (TaskQuery operand : operands) {
+                    if (!operand.matches(task)) {
+                        return false;
+                    }
+                }
+                return true;
+            case OR:
+                for (TaskQuery operand : operands) {
+                    if (operand.matches(task)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return !operands.get(0).matches(task);
+        }
+    }
+
+    private boolean contains(String text) {
+        return text != null && text.toLowerCase().contains(keyword);
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    String keyword() {
+        return keyword;
+    }
+
+    Priority priority() {
+        return priority;
+    }
+
+    LocalDate from() {
+        return from;
+    }
+
+    LocalDate to() {
+        return to;
+    }
+
+    List<TaskQuery> operands() {
+        return operands;
+    }
+
+    /**
+     * Разбирает запрос из строки. Условия через пробел соединяются через И, между условиями
+     * можно писать OR (или ИЛИ), перед условием - минус или NOT (НЕ); скобки группируют условия.
+     * Условия:
+     * <ul>
+     *   <li>слово или "фраза в кавычках" - ключевое слово в названии или описании;</li>
+     *   <li>priority:high, priority:medium, priority:low, priority:none - приоритет;</li>
+     *   <li>due:2025-06-01..2025-06-30, due:..2025-06-30, due:2025-06-01.., due:2025-06-01 -
+     *       срок в диапазоне или в указанный день (вместо даты можно написать today);</li>
+     *   <li>sort:due_date, sort:priority_then_due_date, sort:title - порядок результатов.</li>
+     * </ul>
+     * @throws IllegalArgumentException если строка не является запросом.
+     */
+    public static TaskQuery parse(String text) {
+        return new Parser(text).parse();
+    }
+
+    /**
+     * Разбор строки запроса методом рекурсивного спуска:
+     * запрос = и {OR и}; и = не {не}; не = [-|NOT] условие; условие = (запрос) | слово.
+     */
+    private static final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private int position;
+        private SortOrder order;
+
+        Parser(String text) {
+            tokenize(text);
+        }
+
+        TaskQuery parse() {
+            if (tokens.isEmpty()) {
+                return ALL;
+            }
+            TaskQuery query = parseOr();
+            if (position < tokens.size()) {
+                throw new IllegalArgumentException("Лишняя закрывающая скобка в запросе");
+            }
+            return order == null ? query : query.orderBy(order);
+        }
+
+        private TaskQuery parseOr() {
+            List<TaskQuery> alternatives = new ArrayList<>();
+            alternatives.add(parseAnd());
+            while (isOr(peek())) {
+                position++;
+                alternatives.add(parseAnd());
+            }
+            return or(alternatives.toArray(new TaskQuery[0]));
+        }
+
+        private TaskQuery parseAnd() {
+            List<TaskQuery> conditions = new ArrayList<>();
+            while (position < tokens.size() && !isOr(peek()) && !")".equals(peek())) {
+                TaskQuery condition = parseNot();
+                if (condition != null) {
+                    conditions.add(condition);
+                }
+            }
+            if (conditions.isEmpty() && order == null) {
+                throw new IllegalArgumentException("Пустое условие в запросе");
+            }
+            return and(conditions.toArray(new TaskQuery[0]));
+        }
+
+        private TaskQuery parseNot() {
+            String token = next();
+            if (token.equalsIgnoreCase("NOT") || token.equalsIgnoreCase("НЕ")) {
+                return not(requireCondition(parseNot()));
+            }
+            if (token.equals("(")) {
+                TaskQuery group = parseOr();
+                if (!")".equals(next())) {
+                    throw new IllegalArgumentException("Не закрыта скобка в запросе");
+                }
+                return group;
+            }
+            if (token.equals(")")) {
+                throw new IllegalArgumentException("Лишняя закрывающая скобка в запросе");
+            }
+            return condition(token);
+        }
+
+        private TaskQuery requireCondition(TaskQuery condition) {
+            if (condition == null) {
+                throw new IllegalArgumentException("Порядок сортировки нельзя отрицать");
+            }
+            return condition;
+        }
+
+        /**
+         * Разбирает одно условие; условие sort: запоминает порядок и возвращает null.
+         */
+        private TaskQuery condition(String token) {
+            if (token.startsWith("\"")) {
+                return keyword(token.substring(1));
+            }
+            int colon = token.indexOf(':');
+            String field = colon < 0 ? "" : token.substring(0, colon).toLowerCase(Locale.ROOT);
+            String value = colon < 0 ? token : token.substring(colon + 1);
+            switch (field) {
+                case "priority":
+                case "приоритет":
+                    return priority(parsePriority(value));
+                case "due":
+                case "срок":
+                    return parseDue(value);
+                case "sort":
+                case "порядок":
+                    try {
+                        order = SortOrder.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Неизвестный порядок сортировки: " + value
+                                + " (допустимо: " + Arrays.toString(SortOrder.values()).toLowerCase(Locale.ROOT) + ")");
+                    }
+                    return null;
+                default:
+                    return keyword(token);
+            }
+        }
+
+        private static Priority parsePriority(String value) {
+            if (value.equalsIgnoreCase("none")) {
+                return null;
+            }
+            try {
+                return Priority.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Неизвестный приоритет: " + value + " (допустимо: high, medium, low, none)");
+            }
+        }
+
+        private static TaskQuery parseDue(String value) {
+            int dots = value.indexOf("..");
+            if (dots < 0) {
+                LocalDate day = parseDate(value);
+                return dueBetween(day, day);
+            }
+            String start = value.substring(0, dots);
+            String end = value.substring(dots + 2);
+            return dueBetween(start.isEmpty() ? null : parseDate(start), end.isEmpty() ? null : parseDate(end));
+        }
+
+        private static LocalDate parseDate(String value) {
+            if (value.equalsIgnoreCase("today")) {
+                return LocalDate.now();
+            }
+            try {
+                return LocalDate.parse(value);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Неверная дата в запросе: " + value + " (ожидается ГГГГ-ММ-ДД)");
+            }
+        }
+
+        private static boolean isOr(String token) {
+            return token != null && (token.equals("OR") || token.equals("ИЛИ") || token.equals("|"));
+        }
+
+        private String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        private String next() {
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("Запрос неожиданно закончился");
+            }
+            return tokens.get(position++);
+        }
+
+        /**
+         * Делит строку на слова, скобки и фразы в кавычках. Фраза хранится с открывающей
+         * кавычкой в начале, чтобы её не спутать с оператором или условием поля.
+         */
+        private void tokenize(String text) {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else if (c == '-' && i + 1 < text.length() && !Character.isWhitespace(text.charAt(i + 1))) {
+                    tokens.add("NOT"); // Минус перед условием, фразой или скобкой
+                    i++;
+                } else if (c == '"') {
+                    int start = i + 1;
+                    int end = text.indexOf('"', start);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Не закрыта кавычка в запросе");
+                    }
+                    tokens.add("\"" + text.substring(start, end));
+                    i = end + 1;
+                } else {
+                    int start = i;
+                    while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+                            && text.charAt(i) != '(' && text.charAt(i) != ')') {
+                        i++;
+                    }
+                    tokens.add(text.substring(start, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Запрос в синтаксисе parse.
+     */
+    @Override
+    public String toString() {
+        String condition;
+        switch (kind) {
+            case ALL:
+                condition = "";
+                break;
+            case KEYWORD:
+                condition = keyword.matches("[^\\s()\":-][^\\s()\":]*") && !keyword.equalsIgnoreCase("or")
+                        && !keyword.equals("или") && !keyword.equalsIgnoreCase("not") && !keyword.equals("не")
+                        ? keyword : "\"" + keyword + "\"";
+                break;
+            case PRIORITY:
+                condition = "priority:" + (priority == null ? "none" : priority.name().toLowerCase(Locale.ROOT));
+                break;
+            case DUE:
+                condition = "due:" + (from != null && from.equals(to) ? from.toString()
+                        : (from == null ? "" : from.toString()) + ".." + (to == null ? "" : to.toString()));
+                break;
+            case NOT:
+                TaskQuery operand = operands.get(0);
+                condition = "-" + (operand.kind == Kind.AND || operand.kind == Kind.OR ? "(" + operand + ")" : operand.operand());
+                break;
+            default:
+                StringBuilder joined = new StringBuilder();
+                for (TaskQuery each : operands) {
+                    if (joined.length() > 0) {
+                        joined.append(kind == Kind.AND ? " " : " OR ");
+                    }
+                    boolean group = kind == Kind.AND && each.kind == Kind.OR;
+                    joined.append(group ? "(" : "").append(each.operand()).append(group ? ")" : "");
+                }
+                condition = joined.toString();
+        }
+        if (order == null) {
+            return condition;
+        }
+        String sort = "sort:" + order.name().toLowerCase(Locale.ROOT);
+        if (condition.isEmpty()) {
+            return sort;
+        }
+        return (kind == Kind.OR ? "(" + condition + ")" : condition) + " " + sort;
+    }
+
+    /**
+     * Запрос внутри составного: условие без ограничений записывается пустой фразой.
+     */
+    private String operand() {
+        return kind == Kind.ALL ? "\"\"" : toString();
+    }
+}
@@ -0,0 +1,480 @@
+package com.todolist;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP-сервер с JSON API для общего хранилища задач на встроенном com.sun.net.httpserver.
+ * Каждый запрос обрабатывается в отдельном виртуальном потоке, если JVM их поддерживает
+ * (Java 21 и новее), иначе - в пуле обычных потоков. Обращения к хранилищу
+ * синхронизируются по самому хранилищу, как и в графическом интерфейсе.
+ *
+ * Конечные точки (все ответы - JSON в UTF-8):
+ * GET    /tasks?offset=0&limit=50 или /tasks?after=ID&limit=50 - страница списка;
+ * GET    /tasks/{id}                         - одна задача;
+ * POST   /tasks                              - создать задачу, тело - объект задачи;
+ * PUT    /tasks/{id}                         - заменить поля задачи;
+ * DELETE /tasks/{id}                         - удалить задачу, в ответе - удалённая задача;
+ * GET    /tasks/search?q=слово | fuzzy=слова | priority=HIGH | from=2024-01-01&to=2024-01-31 (+ offset, limit);
+ *        fuzzy - поиск с опечатками, самые похожие задачи первыми;
+ * GET    /tasks/top?order=DUE_DATE&limit=10  - первые задачи в указанном порядке;
+ * GET    /tasks/due?from=2024-01-01&to=2024-01-07 (+ offset, limit) - сроки в диапазоне
+ *        (по умолчанию ближайшие 7 дней) с невыполненными повторениями повторяющихся задач:
+ *        {"occurrences": [{"date": ..., "task": {...}}, ...]};
+ * POST   /tasks/{id}/complete?date=2024-01-03 - отметить повторение задачи выполненным.
+ * Страница списка возвращается как {"tasks": [...], "next": ID}, где next - значение after
+ * для следующей страницы или null, если страница последняя.
+ *
+ * Запуск: java com.todolist.Main --server [порт]
+ */
+public final class TaskServer {
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    static {
+        // Встроенный сервер отправляет заголовки и тело ответа отдельными пакетами; без TCP_NODELAY
+        // тело ждёт отложенного подтверждения клиента, и каждый запрос длится ~40 мс.
+        // Свойство читается при загрузке классов сервера, поэтому задаётся до HttpServer.create.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final TaskStore store;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Создаёт сервер для хранилища; сервер начинает принимать запросы после start.
+     * @param store Хранилище задач.
+     * @param address Адрес и порт; порт 0 - любой свободный.
+     */
+    public TaskServer(TaskStore store, InetSocketAddress address) throws IOException {
+        this.store = store;
+        this.server = HttpServer.create(address, 0);
+        this.executor = newRequestExecutor();
+        server.createContext("/tasks", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Останавливает сервер, давая текущим запросам до секунды на завершение.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Порт, на котором сервер принимает запросы.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Исполнитель "поток на запрос": виртуальные потоки, если JVM их поддерживает,
+     * иначе пул обычных потоков. Метод ищется через отражение, чтобы код собирался на Java 17.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger number = new AtomicInteger();
+            return Executors.newFixedThreadPool(4 * Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "todolist-http-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // --- Обработка запросов ---
+
+    /**
+     * Ошибка запроса с кодом ответа HTTP.
+     */
+    private static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            StringBuilder json = new StringBuilder(256);
+            int status = route(exchange, json);
+            send(exchange, status, json);
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "Внутренняя ошибка сервера: " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Выполняет запрос и записывает тело ответа.
+     * @return Код ответа HTTP.
+     */
+    private int route(HttpExchange exchange, StringBuilder json) throws IOException, HttpError {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String rest = path.length() > "/tasks".length() ? path.substring("/tasks/".length()) : "";
+        if (rest.endsWith("/")) {
+            rest = rest.substring(0, rest.length() - 1);
+        }
+
+        if (rest.isEmpty()) {
+            if ("GET".equals(method)) {
+                return listTasks(query, json);
+            }
+            if ("POST".equals(method)) {
+                return createTask(readTask(exchange), json);
+            }
+            throw methodNotAllowed(exchange, "GET, POST");
+        }
+        if ("search".equals(rest) || "top".equals(rest) || "due".equals(rest)) {
+            if (!"GET".equals(method)) {
+                throw methodNotAllowed(exchange, "GET");
+            }
+            return "search".equals(rest) ? searchTasks(query, json) : "top".equals(rest) ? topTasks(query, json) : dueTasks(query, json);
+        }
+        if (rest.endsWith("/complete")) {
+            if (!"POST".equals(method)) {
+                throw methodNotAllowed(exchange, "POST");
+            }
+            return completeOccurrence(parseId(rest.substring(0, rest.length() - "/complete".length())), query, json);
+        }
+
+        long id = parseId(rest);
+        switch (method) {
+            case "GET":
+                return getTask(id, json);
+            case "PUT":
+                return updateTask(id, readTask(exchange), json);
+            case "DELETE":
+                return deleteTask(id, json);
+            default:
+                throw methodNotAllowed(exchange, "GET, PUT, DELETE");
+        }
+    }
+
+    private int listTasks(Map<String, String> query, StringBuilder json) throws HttpError {
+        int limit = limit(query);
+        String after = query.get("after");
+        synchronized (store) {
+            List<Task> page;
+            if (after != null) {
+                long afterId = parseLong(after, "after");
+                if (store.indexOf(afterId) < 0) {
+                    throw notFound(afterId);
+                }
+                page = store.getTasksAfter(afterId, limit);
+            } else {
+                page = store.getTasks(offset(query), limit);
+            }
+            appendTasks(json, page);
+            json.append(",\"next\":");
+            if (page.size() == limit && limit > 0 && store.indexOf(page.get(limit - 1).getId()) < store.size() - 1) {
+                json.append(page.get(limit - 1).getId());
+            } else {
+                json.append("null");
+            }
+            json.append('}');
+        }
+        return 200;
+    }
+
+    private int searchTasks(Map<String, String> query, StringBuilder json) throws HttpError {
+        int offset = offset(query);
+        int limit = limit(query);
+        String keyword = query.get("q");
+        String fuzzy = query.get("fuzzy");
+        String priority = query.get("priority");
+        String from = query.get("from");
+        String to = query.get("to");
+        synchronized (store) {
+            List<Task> found;
+            if (keyword != null) {
+                found = store.searchByKeyword(keyword, offset, limit);
+            } else if (fuzzy != null) {
+                found = store.fuzzySearch(fuzzy, offset, limit);
+            } else if (priority != null) {
+                found = store.searchByPriority(parsePriority(priority), offset, limit);
+            } else if (from != null && to != null) {
+                found = store.searchByDueDateRange(parseDate(from), parseDate(to), offset, limit);
+            } else {
+                throw new HttpError(400, "Укажите q, fuzzy, priority или from и to");
+            }
+            appendTasks(json, found);
+            json.append('}');
+        }
+        return 200;
+    }
+
+    private int topTasks(Map<String, String> query, StringBuilder json) throws HttpError {
+        SortOrder order;
+        try {
+            order = SortOrder.valueOf(query.getOrDefault("order", SortOrder.DUE_DATE.name()).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "Неизвестный порядок: " + query.get("order"));
+        }
+        int limit = limit(query);
+        synchronized (store) {
+            appendTasks(json, store.getTopTasks(order, limit));
+            json.append('}');
+        }
+        return 200;
+    }
+
+    private int dueTasks(Map<String, String> query, StringBuilder json) throws HttpError {
+        LocalDate from = query.containsKey("from") ? parseDate(query.get("from")) : LocalDate.now();
+        LocalDate to = query.containsKey("to") ? parseDate(query.get("to")) : from.plusDays(6);
+        int offset = offset(query);
+        int limit = limit(query);
+        synchronized (store) {
+            List<Occurrence> found = store.getOccurrences(from, to);
+            List<Occurrence> page = found.subList(Math.min(offset, found.size()), (int) Math.min(found.size(), (long) offset + limit));
+            json.append("{\"occurrences\":[");
+            for (int i = 0; i < page.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"date\":\"").append(page.get(i).getDate()).append("\",\"task\":");
+                TaskJson.appendTask(json, page.get(i).getTask());
+                json.append('}');
+            }
+            json.append("]}");
+        }
+        return 200;
+    }
+
+    private int completeOccurrence(long id, Map<String, String> query, StringBuilder json) throws HttpError {
+        String date = query.get("date");
+        if (date == null) {
+            throw new HttpError(400, "Укажите date");
+        }
+        synchronized (store) {
+            Task task = store.getTaskById(id);
+            if (task == null) {
+                throw notFound(id);
+            }
+            if (!store.completeOccurrence(id, parseDate(date))) {
+                throw new HttpError(409, "Повторение " + date + " задачи " + id + " не найдено или уже выполнено");
+            }
+            TaskJson.appendTask(json, task);
+        }
+        return 200;
+    }
+
+    private int getTask(long id, StringBuilder json) throws HttpError {
+        synchronized (store) {
+            Task task = store.getTaskById(id);
+            if (task == null) {
+                throw notFound(id);
+            }
+            TaskJson.appendTask(json, task);
+        }
+        return 200;
+    }
+
+    private int createTask(Task task, StringBuilder json) {
+        synchronized (store) {
+            TaskJson.appendTask(json, store.addTask(task));
+        }
+        return 201;
+    }
+
+    private int updateTask(long id, Task values, StringBuilder json) throws HttpError {
+        synchronized (store) {
+            if (!store.editTaskById(id, values.getTitle(), values.getDescription(), values.getDueDate(), values.getPriority())) {
+                throw notFound(id);
+            }
+            TaskJson.appendTask(json, store.getTaskById(id));
+        }
+        return 200;
+    }
+
+    /**
+     * Удаляет задачу и возвращает её. Ответ 200 с телом вместо 204: встроенный сервер
+     * закрывает соединение после ответа без тела, и клиент теряет следующий запрос.
+     */
+    private int deleteTask(long id, StringBuilder json) throws HttpError {
+        synchronized (store) {
+            Task task = store.getTaskById(id);
+            if (task == null || !store.deleteTaskById(id)) {
+                throw notFound(id);
+            }
+            TaskJson.appendTask(json, task);
+        }
+        return 200;
+    }
+
+    /**
+     * Начинает объект ответа со списком задач: {"tasks":[...] (без закрывающей скобки).
+     */
+    private static void appendTasks(StringBuilder json, List<Task> tasks) {
+        json.append("{\"tasks\":[");
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            TaskJson.appendTask(json, tasks.get(i));
+        }
+        json.append(']');
+    }
+
+    private static Task readTask(HttpExchange exchange) throws IOException, HttpError {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            throw new HttpError(413, "Тело запроса больше " + MAX_BODY_BYTES + " байт");
+        }
+        return TaskJson.parseTask(new String(body, StandardCharsets.UTF_8).trim());
+    }
+
+    // --- Параметры ---
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static int offset(Map<String, String> query) throws HttpError {
+        return parseInt(query.get("offset"), 0, "offset");
+    }
+
+    private static int limit(Map<String, String> query) throws HttpError {
+        return Math.min(MAX_LIMIT, parseInt(query.get("limit"), DEFAULT_LIMIT, "limit"));
+    }
+
+    private static int parseInt(String value, int defaultValue, String name) throws HttpError {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int result = Integer.parseInt(value);
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // Ниже сообщаем об ошибке
+        }
+        throw new HttpError(400, "Неверное значение " + name + ": " + value);
+    }
+
+    private static long parseLong(String value, String name) throws HttpError {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Неверное значение " + name + ": " + value);
+        }
+    }
+
+    private static long parseId(String value) throws HttpError {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Неизвестный путь: /tasks/" + value);
+        }
+    }
+
+    private static Priority parsePriority(String value) throws HttpError {
+        try {
+            return Priority.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "Неверный приоритет: " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) throws HttpError {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new HttpError(400, "Неверная дата: " + value);
+        }
+    }
+
+    private static HttpError notFound(long id) {
+        return new HttpError(404, "Нет задачи с идентификатором " + id);
+    }
+
+    private static HttpError methodNotAllowed(HttpExchange exchange, String allowed) {
+        exchange.getResponseHeaders().set("Allow", allowed);
+        return new HttpError(405, "Метод " + exchange.getRequestMethod() + " не поддерживается");
+    }
+
+    // --- Ответы ---
+
+    /**
+     * Отправляет ответ с известной длиной, чтобы соединение оставалось открытым для следующих запросов.
+     */
+    private static void send(HttpExchange exchange, int status, StringBuilder json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        TaskJson.appendString(json, message);
+        json.append('}');
+        send(exchange, status, json);
+    }
+}
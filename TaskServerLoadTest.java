@@ -0,0 +1,339 @@
+package com.todolist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Нагрузочный тест HTTP-сервера задач. Несколько клиентских потоков отправляют запросы
+ * вперемешку (чтение задачи, страница списка, поиск, первые задачи, создание, изменение
+ * и удаление), каждый через своё постоянное соединение, и замеряют время ответа каждого запроса.
+ * Клиент - минимальный блокирующий HTTP/1.1 поверх сокета: java.net.http.HttpClient
+ * тратит на запрос в несколько раз больше процессора, чем сервер, и мерил бы сам себя.
+ * Для каждого вида запросов и для всех вместе выводятся пропускная способность
+ * и задержки p50, p90, p99 и максимальная.
+ *
+ * Запуск: java -Xmx2g com.todolist.TaskServerLoadTest [--threads 16] [--seconds 10]
+ *         [--tasks 100000] [--url http://localhost:8080]
+ * Без --url тест поднимает сервер в том же процессе со списком из --tasks задач.
+ */
+public final class TaskServerLoadTest {
+    private static final int WARMUP_SECONDS = 3;
+    private static final String[] WORDS = {"отчёт", "встреча", "купить", "позвонить", "проект",
+            "письмо", "оплатить", "починить", "записаться", "подготовить"};
+
+    private TaskServerLoadTest() {
+    }
+
+    /**
+     * Вид запроса и его доля в смеси (в процентах).
+     */
+    private enum Request {
+        GET(50), PAGE(20), SEARCH(10), TOP(5), CREATE(5), UPDATE(5), DELETE(5);
+
+        final int percent;
+
+        Request(int percent) {
+            this.percent = percent;
+        }
+
+        static Request pick(int roll) {
+            for (Request request : values()) {
+                roll -= request.percent;
+                if (roll < 0) {
+                    return request;
+                }
+            }
+            return GET;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = 16;
+        int seconds = 10;
+        int tasks = 100_000;
+        String url = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--seconds".equals(args[i]) && i + 1 < args.length) {
+                seconds = Integer.parseInt(args[++i]);
+            } else if ("--tasks".equals(args[i]) && i + 1 < args.length) {
+                tasks = Integer.parseInt(args[++i]);
+            } else if ("--url".equals(args[i]) && i + 1 < args.length) {
+                url = args[++i];
+            } else {
+                System.err.println("Использование: TaskServerLoadTest [--threads 16] [--seconds 10] [--tasks 100000] [--url http://localhost:8080]");
+                return;
+            }
+        }
+
+        TaskServer server = null;
+        long maxId = tasks;
+        if (url == null) {
+            TodoList list = new TodoList();
+            Random random = new Random(42);
+            for (int i = 0; i < tasks; i++) {
+                list.addTask(randomTask(random));
+            }
+            server = new TaskServer(list, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+        try {
+            URI uri = URI.create(url);
+            InetSocketAddress address = new InetSocketAddress(uri.getHost(), uri.getPort() < 0 ? 80 : uri.getPort());
+            System.out.println("Прогрев " + WARMUP_SECONDS + " с...");
+            run(address, threads, WARMUP_SECONDS, maxId);
+            System.out.println("Замер: " + threads + " потоков, " + seconds + " с, " + url);
+            print(run(address, threads, seconds, maxId), seconds);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Задержки запросов одного вида в наносекундах и число ошибок.
+     */
+    private static final class Latencies {
+        long[] nanos = new long[1024];
+        int count;
+        int errors;
+
+        void add(long value) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = value;
+        }
+
+        void addAll(Latencies other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.nanos[i]);
+            }
+            errors += other.errors;
+        }
+
+        double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            return nanos[Math.max(0, Math.min(count - 1, index))] / 1e6;
+        }
+    }
+
+    private static Map<Request, Latencies> run(InetSocketAddress address, int threads, int seconds, long maxId)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Map<Request, Latencies>> perThread = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Map<Request, Latencies> results = new LinkedHashMap<>();
+            for (Request request : Request.values()) {
+                results.put(request, new Latencies());
+            }
+            perThread.add(results);
+            Thread thread = new Thread(() -> {
+                Connection connection = null;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        Request request = Request.pick(ThreadLocalRandom.current().nextInt(100));
+                        Latencies latencies = results.get(request);
+                        long start = System.nanoTime();
+                        try {
+                            if (connection == null || connection.closed) {
+                                closeQuietly(connection);
+                                connection = new Connection(address);
+                            }
+                            int status = send(connection, request, maxId);
+                            long elapsed = System.nanoTime() - start;
+                            // 404 - задачу уже удалил другой поток, сервер ответил правильно
+                            if (status < 300 || status == 404) {
+                                latencies.add(elapsed);
+                            } else {
+                                latencies.errors++;
+                            }
+                        } catch (IOException e) {
+                            latencies.errors++;
+                            closeQuietly(connection);
+                            connection = null;
+                        }
+                    }
+                } finally {
+                    closeQuietly(connection);
+                    done.countDown();
+                }
+            }, "load-" + t);
+            thread.start();
+        }
+        done.await();
+
+        Map<Request, Latencies> total = new LinkedHashMap<>();
+        for (Request request : Request.values()) {
+            Latencies merged = new Latencies();
+            for (Map<Request, Latencies> results : perThread) {
+                merged.addAll(results.get(request));
+            }
+            Arrays.sort(merged.nanos, 0, merged.count);
+            total.put(request, merged);
+        }
+        return total;
+    }
+
+    /**
+     * Отправляет запрос указанного вида и дожидается ответа.
+     * @return Код ответа.
+     */
+    private static int send(Connection connection, Request request, long maxId) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = 1 + random.nextLong(maxId);
+        switch (request) {
+            case GET:
+                return connection.exchange("GET", "/tasks/" + id, null);
+            case PAGE:
+                return connection.exchange("GET", "/tasks?offset=" + random.nextInt(1000) + "&limit=20", null);
+            case SEARCH:
+                return connection.exchange("GET", "/tasks/search?limit=20&q="
+                        + URLEncoder.encode(WORDS[random.nextInt(WORDS.length)], StandardCharsets.UTF_8), null);
+            case TOP:
+                return connection.exchange("GET", "/tasks/top?order=DUE_DATE&limit=10", null);
+            case CREATE:
+                return connection.exchange("POST", "/tasks", json(randomTask(random)));
+            case UPDATE:
+                return connection.exchange("PUT", "/tasks/" + id, json(randomTask(random)));
+            default:
+                return connection.exchange("DELETE", "/tasks/" + id, null);
+        }
+    }
+
+    /**
+     * Постоянное соединение HTTP/1.1: запрос, затем ответ целиком, затем следующий запрос.
+     * Понимает только ответы с Content-Length, которые и отправляет TaskServer.
+     */
+    private static final class Connection {
+        private final Socket socket;
+        private final String host;
+        private final OutputStream out;
+        private final InputStream in;
+        private final StringBuilder line = new StringBuilder();
+        boolean closed; // Сервер закрыл соединение после последнего ответа
+
+        Connection(InetSocketAddress address) throws IOException {
+            socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            host = address.getHostString() + ":" + address.getPort();
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new BufferedInputStream(socket.getInputStream());
+        }
+
+        int exchange(String method, String path, String body) throws IOException {
+            byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            String head = method + " " + path + " HTTP/1.1\r\nHost: " + host
+                    + "\r\nContent-Length: " + content.length
+                    + (body == null ? "" : "\r\nContent-Type: application/json; charset=utf-8")
+                    + "\r\n\r\n";
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            out.write(content);
+            out.flush();
+
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.substring(statusLine.indexOf(' ') + 1, statusLine.indexOf(' ') + 4));
+            int length = 0;
+            boolean close = false;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                int colon = header.indexOf(':');
+                String name = header.substring(0, colon).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    length = Integer.parseInt(header.substring(colon + 1).trim());
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    close = header.substring(colon + 1).trim().equalsIgnoreCase("close");
+                }
+            }
+            in.skipNBytes(length);
+            closed = close;
+            return status;
+        }
+
+        private String readLine() throws IOException {
+            line.setLength(0);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    throw new EOFException("Соединение закрыто сервером");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // Соединение всё равно больше не используется
+            }
+        }
+    }
+
+    private static void print(Map<Request, Latencies> results, int seconds) {
+        System.out.printf("%-8s %10s %10s %9s %9s %9s %9s %8s%n",
+                "запрос", "всего", "запр./с", "p50, мс", "p90, мс", "p99, мс", "макс, мс", "ошибки");
+        Latencies all = new Latencies();
+        for (Map.Entry<Request, Latencies> entry : results.entrySet()) {
+            printRow(entry.getKey().name().toLowerCase(), entry.getValue(), seconds);
+            all.addAll(entry.getValue());
+        }
+        Arrays.sort(all.nanos, 0, all.count);
+        printRow("все", all, seconds);
+    }
+
+    private static void printRow(String name, Latencies latencies, int seconds) {
+        System.out.printf("%-8s %10d %10.0f %9.3f %9.3f %9.3f %9.3f %8d%n",
+                name, latencies.count, (double) latencies.count / seconds,
+                latencies.percentileMillis(50), latencies.percentileMillis(90), latencies.percentileMillis(99),
+                latencies.percentileMillis(100), latencies.errors);
+    }
+
+    private static Task randomTask(Random random) {
+        String title = WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(10_000);
+        String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+        LocalDate dueDate = random.nextInt(5) == 0 ? null : LocalDate.of(2025, 1, 1).plusDays(random.nextInt(730));
+        Priority priority = random.nextInt(5) == 0 ? null : Priority.values()[random.nextInt(Priority.values().length)];
+        return new Task(title, description, dueDate, priority);
+    }
+
+    private static String json(Task task) {
+        StringBuilder json = new StringBuilder(128);
+        TaskJson.appendTask(json, task);
+        return json.toString();
+    }
+}
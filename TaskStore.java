@@ -0,0 +1,400 @@
+package com.todolist;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Общий интерфейс хранилищ задач.
+ * Позволяет консольному и графическому интерфейсам работать
+ * как со списком в памяти, так и с файловым хранилищем.
+ */
+public interface TaskStore {
+
+    /**
+     * Добавляет новую задачу. Задача без идентификатора сохраняется копией
+     * с назначенным постоянным идентификатором, а сама не меняется.
+     * @param task Задача для добавления.
+     * @return Сохранённая задача.
+     */
+    Task addTask(Task task);
+
+    /**
+     * Добавляет пачку задач в указанном порядке.
+     * Хранилища могут добавлять пачку быстрее, чем по одной задаче.
+     * @param tasks Задачи для добавления.
+     * @return Сохранённые задачи в том же порядке.
+     */
+    default List<Task> addTasks(List<Task> tasks) {
+        List<Task> added = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            added.add(addTask(task));
+        }
+        return added;
+    }
+
+    /**
+     * Возвращает задачу по идентификатору.
+     * @return Задача или null, если её нет.
+     */
+    Task getTaskById(long id);
+
+    /**
+     * Редактирует существующую задачу по указанному индексу.
+     * @return true, если редактирование прошло успешно, иначе false.
+     */
+    boolean editTask(int index, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority);
+
+    /**
+     * Редактирует задачу по идентификатору.
+     * @return true, если задача найдена и изменена, иначе false.
+     */
+    boolean editTaskById(long id, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority);
+
+    /**
+     * Удаляет задачу по указанному индексу.
+     * @param index Индекс задачи для удаления.
+     * @return true, если удаление прошло успешно, иначе false.
+     */
+    boolean deleteTask(int index);
+
+    /**
+     * Удаляет задачу по идентификатору.
+     * @return true, если задача найдена и удалена, иначе false.
+     */
+    boolean deleteTaskById(long id);
+
+    /**
+     * Возвращает список всех задач.
+     * @return Список задач.
+     */
+    List<Task> getAllTasks();
+
+    /**
+     * Возвращает количество задач.
+     * Реализация по умолчанию копирует список; хранилища с позиционным доступом её переопределяют.
+     */
+    default int size() {
+        return getAllTasks().size();
+    }
+
+    /**
+     * Возвращает задачу по индексу без копирования всего списка (если хранилище это поддерживает).
+     * @return Задача или null, если индекс недопустим.
+     */
+    default Task getTaskAt(int index) {
+        List<Task> tasks = getAllTasks();
+        return index >= 0 && index < tasks.size() ? tasks.get(index) : null;
+    }
+
+    /**
+     * Возвращает текущий индекс задачи с указанным идентификатором.
+     * @return Индекс или -1, если задачи нет.
+     */
+    default int indexOf(long id) {
+        List<Task> tasks = getAllTasks();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Возвращает страницу списка задач: не больше limit задач начиная с индекса offset.
+     * Реализация по умолчанию берёт страницу из getAllTasks; TodoList выполняет
+     * O(log n + limit) работы, не копируя весь список.
+     * @return Новый список задач страницы (пустой, если offset за концом списка).
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    default List<Task> getTasks(int offset, int limit) {
+        return page(getAllTasks(), offset, limit);
+    }
+
+    /**
+     * Возвращает следующую страницу списка после задачи с идентификатором afterId.
+     * В отличие от смещения, идентификатор последней показанной задачи остаётся верной
+     * закладкой, даже если перед ней задачи добавлялись или удалялись.
+     * @param afterId Идентификатор последней задачи предыдущей страницы или 0 для первой страницы.
+     * @param limit Наибольшее количество задач на странице.
+     * @return Новый список задач страницы.
+     * @throws IllegalArgumentException если задачи с afterId нет или limit отрицателен.
+     */
+    default List<Task> getTasksAfter(long afterId, int limit) {
+        int offset = 0;
+        if (afterId != 0) {
+            int index = indexOf(afterId);
+            if (index < 0) {
+                throw new IllegalArgumentException("Нет задачи с идентификатором " + afterId);
+            }
+            offset = index + 1;
+        }
+        return getTasks(offset, limit);
+    }
+
+    /**
+     * Сортирует задачи по сроку выполнения, меняя порядок хранилища; задачи без срока идут в конце.
+     */
+    void sortByDueDate();
+
+    /**
+     * Возвращает задачи в указанном порядке, не меняя порядок хранилища.
+     * Реализация по умолчанию сортирует копию списка; TodoList поддерживает
+     * отсортированные представления постоянно.
+     * @param order Порядок сортировки.
+     * @return Список задач в указанном порядке.
+     */
+    default List<Task> getTasksSortedBy(SortOrder order) {
+        List<Task> tasks = new ArrayList<>(getAllTasks());
+        tasks.sort(order.comparator());
+        return tasks;
+    }
+
+    /**
+     * Возвращает первые limit задач в указанном порядке, например самые срочные,
+     * не сортируя весь список: O(n log limit) времени и O(limit) памяти.
+     * @param order Порядок сортировки.
+     * @param limit Наибольшее количество задач.
+     * @return Новый список задач в указанном порядке.
+     * @throws IllegalArgumentException если limit отрицателен.
+     */
+    default List<Task> getTopTasks(SortOrder order, int limit) {
+        return order.first(getAllTasks(), limit);
+    }
+
+    /**
+     * Ищет задачи, содержащие ключевое слово в названии или описании.
+     * @param keyword Ключевое слово для поиска.
+     * @return Список найденных задач.
+     */
+    List<Task> searchByKeyword(String keyword);
+
+    /**
+     * Возвращает страницу результатов поиска по ключевому слову в порядке списка.
+     * @return Не больше limit найденных задач, пропустив первые offset.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    default List<Task> searchByKeyword(String keyword, int offset, int limit) {
+        return page(searchByKeyword(keyword), offset, limit);
+    }
+
+    /**
+     * Ищет задачи с определенным приоритетом.
+     * @param priority Приоритет для поиска.
+     * @return Список найденных задач.
+     */
+    List<Task> searchByPriority(Priority priority);
+
+    /**
+     * Возвращает страницу результатов поиска по приоритету в порядке списка.
+     * @return Не больше limit найденных задач, пропустив первые offset.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    default List<Task> searchByPriority(Priority priority, int offset, int limit) {
+        return page(searchByPriority(priority), offset, limit);
+    }
+
+    /**
+     * Ищет задачи со сроком выполнения в указанном диапазоне (включительно).
+     * @return Список найденных задач, упорядоченный по сроку выполнения.
+     * @throws IllegalArgumentException если from позже to.
+     */
+    List<Task> searchByDueDateRange(LocalDate from, LocalDate to);
+
+    /**
+     * Возвращает страницу результатов поиска по диапазону сроков, упорядоченных по сроку.
+     * @return Не больше limit найденных задач, пропустив первые offset.
+     * @throws IllegalArgumentException если from позже to, offset или limit отрицательны.
+     */
+    default List<Task> searchByDueDateRange(LocalDate from, LocalDate to, int offset, int limit) {
+        return page(searchByDueDateRange(from, to), offset, limit);
+    }
+
+    /**
+     * Ищет задачи с указанным приоритетом и сроком выполнения в диапазоне (включительно).
+     * @return Список найденных задач, упорядоченный по сроку выполнения.
+     * @throws IllegalArgumentException если from позже to.
+     */
+    List<Task> searchByPriorityAndDueDateRange(Priority priority, LocalDate from, LocalDate to);
+
+    /**
+     * Возвращает страницу задач, удовлетворяющих запросу, в порядке запроса или, если порядок
+     * не задан, в порядке списка. Реализация по умолчанию просматривает весь список и без порядка
+     * останавливается, как только страница заполнена; TodoList выбирает путь по индексам (см. QueryPlanner).
+     * @return Не больше limit найденных задач, пропустив первые offset.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    default List<Task> query(TaskQuery query, int offset, int limit) {
+        checkPage(offset, limit);
+        long end = (long) offset + limit;
+        List<Task> found = new ArrayList<>();
+        for (Task task : getAllTasks()) {
+            if (query.getOrder() == null && found.size() == end) {
+                break;
+            }
+            if (query.matches(task)) {
+                found.add(task);
+            }
+        }
+        if (query.getOrder() != null) {
+            found = query.getOrder().first(found, (int) Math.min(end, found.size()));
+        }
+        return page(found, offset, limit);
+    }
+
+    /**
+     * Нечёткий поиск: находит задачи, в названии или описании которых есть слова, похожие на слова
+     * запроса с учётом опечаток (см. FuzzyIndex), лучшие совпадения первыми. Реализация
+     * по умолчанию перебирает весь список; TodoList ищет по индексу слов.
+     * @return Не больше limit найденных задач, пропустив первые offset.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    default List<Task> fuzzySearch(String text, int offset, int limit) {
+        checkPage(offset, limit);
+        return page(FuzzyIndex.searchAll(getAllTasks(), text, (int) Math.min(Integer.MAX_VALUE, (long) offset + limit)), offset, limit);
+    }
+
+    /**
+     * Отмечено ли повторение задачи в указанный день выполненным.
+     * @return false, если отметки нет или хранилище не поддерживает отметки.
+     */
+    default boolean isOccurrenceCompleted(long id, LocalDate date) {
+        return false;
+    }
+
+    /**
+     * Может ли хранилище хранить повторяющиеся задачи; если нет, addTask отклоняет их.
+     */
+    default boolean supportsRecurrence() {
+        return true;
+    }
+
+    /**
+     * Возвращает сроки выполнения в диапазоне (включительно): сроки обычных задач и ещё не выполненные
+     * повторения повторяющихся (см. Recurrence), по дате, затем по приоритету. Повторения
+     * разворачиваются только для запрошенного диапазона. Реализация по умолчанию просматривает
+     * весь список и не знает о выполненных повторениях; TodoList берёт обычные задачи из индекса
+     * сроков и разворачивает только серии - за O(серий + сроков в диапазоне).
+     * @throws IllegalArgumentException если from позже to.
+     */
+    default List<Occurrence> getOccurrences(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало диапазона позже конца: " + from + " > " + to);
+        }
+        List<Occurrence> found = new ArrayList<>();
+        for (Task task : getAllTasks()) {
+            for (LocalDate date : task.getOccurrences(from, to)) {
+                found.add(new Occurrence(task, date));
+            }
+        }
+        found.sort(Occurrence.ORDER);
+        return found;
+    }
+
+    /**
+     * Отмечает одно повторение повторяющейся задачи выполненным; сама задача и остальные
+     * её повторения не меняются.
+     * @return true, если повторение отмечено; false, если задачи нет, она не повторяется, на этот
+     * день не приходится её повторение, оно уже выполнено или хранилище не поддерживает отметки.
+     */
+    default boolean completeOccurrence(long id, LocalDate date) {
+        return false;
+    }
+
+    /**
+     * Выполняет несколько изменений как одну группу. Хранилище с журналом записывает их на диск
+     * одной операцией записи и одной синхронизацией (групповая фиксация) после последнего
+     * изменения, а не после каждого. Реализация по умолчанию просто выполняет изменения.
+     * @param changes Изменения хранилища; вызывающий код удерживает замок хранилища, если он нужен.
+     */
+    default void groupChanges(Runnable changes) {
+        changes.run();
+    }
+
+    /**
+     * Возвращает неизменяемую версию списка, которую можно читать без замков, пока хранилище меняется.
+     * TodoList возвращает текущую версию за O(1); хранилища без версий возвращают null,
+     * и читать их нужно как прежде, под замком.
+     */
+    default TaskVersion getVersion() {
+        return null;
+    }
+
+    /**
+     * Отменяет последнее изменение хранилища.
+     * @return true, если изменение отменено; false, если отменять нечего или хранилище не поддерживает отмену.
+     */
+    default boolean undo() {
+        return false;
+    }
+
+    /**
+     * Повторяет последнее отменённое изменение.
+     * @return true, если изменение повторено; false, если повторять нечего или хранилище не поддерживает отмену.
+     */
+    default boolean redo() {
+        return false;
+    }
+
+    /**
+     * Проверяет, есть ли изменение, которое можно отменить.
+     */
+    default boolean canUndo() {
+        return false;
+    }
+
+    /**
+     * Проверяет, есть ли отменённое изменение, которое можно повторить.
+     */
+    default boolean canRedo() {
+        return false;
+    }
+
+    /**
+     * Подписывает слушателя на добавление, изменение и удаление задач.
+     */
+    void addChangeListener(TaskChangeListener listener);
+
+    /**
+     * Отменяет подписку слушателя на изменения задач.
+     */
+    void removeChangeListener(TaskChangeListener listener);
+
+    /**
+     * Открывает хранилище, выбранное системным свойством todolist.backend:
+     * journal (по умолчанию) - список в памяти с журналом на диске,
+     * mapped - двоичный файл, отображённый в память.
+     * Хранилище закрывается автоматически при завершении JVM.
+     */
+    static TaskStore openDefault() throws IOException {
+        String backend = System.getProperty("todolist.backend", "journal");
+        switch (backend) {
+            case "journal":
+                return PersistentTodoList.openDefault();
+            case "mapped":
+                return MappedTaskStore.openDefault();
+            default:
+                throw new IllegalArgumentException("Неизвестное хранилище задач: " + backend);
+        }
+    }
+
+    /**
+     * Проверяет параметры страницы.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Неверная страница: offset=" + offset + ", limit=" + limit);
+        }
+    }
+
+    private static List<Task> page(List<Task> tasks, int offset, int limit) {
+        checkPage(offset, limit);
+        if (offset >= tasks.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(tasks.subList(offset, (int) Math.min(tasks.size(), (long) offset + limit)));
+    }
+}
@@ -0,0 +1,569 @@
+package com.todolist;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Потоковый импорт и экспорт задач в форматах CSV и JSON Lines.
+ *
+ * Импорт читает файл через канал кусками, выровненными по границам записей,
+ * разбирает и проверяет куски параллельно на всех ядрах и добавляет задачи
+ * в хранилище пачками в исходном порядке. Одновременно в работе не больше
+ * нескольких кусков на поток, поэтому расход памяти не зависит от размера файла.
+ * Идентификаторы из файла не переносятся: хранилище назначает задачам новые.
+ *
+ * CSV: первая строка - заголовок с именами столбцов title (обязательный, но название
+ * может быть пустым, как у задач, созданных в приложении),
+ * description, dueDate (гггг-мм-дд), priority (HIGH, MEDIUM, LOW), recurrence (правило
+ * повторения, см. Recurrence.parse; у повторяющейся задачи dueDate обязателен); столбец id
+ * и неизвестные столбцы пропускаются. Поля с запятыми, кавычками и переводами
+ * строк заключаются в двойные кавычки, кавычка внутри поля удваивается.
+ * JSON Lines: по одному объекту на строку с теми же именами полей.
+ */
+public final class TaskTransfer {
+
+    /**
+     * Формат файла с задачами.
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES;
+
+        /**
+         * Определяет формат по расширению файла: .csv или .jsonl (.ndjson, .json).
+         * @throws IllegalArgumentException если расширение не распознано.
+         */
+        public static Format forPath(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+                return JSON_LINES;
+            }
+            throw new IllegalArgumentException("Неизвестный формат файла (ожидается .csv или .jsonl): " + file);
+        }
+    }
+
+    private static final int CHUNK_SIZE = 1 << 20; // Кусок файла для одной задачи разбора, он же пачка вставки
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final String[] CSV_COLUMNS = {"id", "title", "description", "dueDate", "priority", "recurrence"};
+
+    private TaskTransfer() {
+    }
+
+    /**
+     * Импортирует задачи из файла, разбирая его на всех доступных ядрах.
+     * @see #importTasks(Path, Format, TaskStore, int)
+     */
+    public static TransferResult importTasks(Path file, Format format, TaskStore store) throws IOException {
+        return importTasks(file, format, store, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Импортирует задачи из файла и добавляет их в хранилище пачками.
+     * Записи с ошибками (неверная дата или приоритет) пропускаются
+     * и попадают в отчёт. Вставка каждой пачки синхронизируется по хранилищу,
+     * как и остальные обращения к нему из графического интерфейса.
+     * @param file Файл для импорта.
+     * @param format Формат файла.
+     * @param store Хранилище, в которое добавляются задачи.
+     * @param threads Количество потоков разбора.
+     * @return Отчёт об импорте.
+     * @throws IOException если файл не читается или у CSV нет столбца title.
+     */
+    public static TransferResult importTasks(Path file, Format format, TaskStore store, int threads) throws IOException {
+        long start = System.nanoTime();
+        TransferResult result = new TransferResult();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, new ParserThreadFactory());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ChunkReader reader = new ChunkReader(channel, format == Format.CSV);
+            Chunk chunk = reader.next();
+            int[] columns = null;
+            if (format == Format.CSV && chunk != null) {
+                int headerLength = firstRecordLength(chunk);
+                columns = parseCsvHeader(chunk, headerLength);
+                chunk = new Chunk(chunk.bytes, headerLength, chunk.length, chunk.firstRecord + 1);
+            }
+
+            int[] csvColumns = columns;
+            ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+            for (; chunk != null; chunk = reader.next()) {
+                Chunk parsed = chunk;
+                inFlight.add(parsers.submit(() -> parse(parsed, format, csvColumns)));
+                if (inFlight.size() >= threads * CHUNKS_IN_FLIGHT_PER_THREAD) {
+                    insert(inFlight.remove(), store, result);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                insert(inFlight.remove(), store, result);
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Экспортирует все задачи хранилища в файл, перезаписывая его.
+     * Вместе с задачами записываются их идентификаторы (при импорте они пропускаются).
+     * @param store Хранилище с задачами.
+     * @param file Файл для экспорта.
+     * @param format Формат файла.
+     * @return Отчёт об экспорте.
+     */
+    public static TransferResult exportTasks(TaskStore store, Path file, Format format) throws IOException {
+        long start = System.nanoTime();
+        // Версия списка читается без замка: изменения во время экспорта в файл не попадают
+        Iterable<Task> tasks = store.getVersion();
+        if (tasks == null) {
+            synchronized (store) {
+                tasks = store.getAllTasks();
+            }
+        }
+        TransferResult result = new TransferResult();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     Channels.newOutputStream(channel), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            StringBuilder line = new StringBuilder(256);
+            if (format == Format.CSV) {
+                out.write(String.join(",", CSV_COLUMNS));
+                out.write('\n');
+            }
+            for (Task task : tasks) {
+                line.setLength(0);
+                if (format == Format.CSV) {
+                    appendCsv(line, task);
+                } else {
+                    TaskJson.appendTask(line, task);
+                }
+                line.append('\n');
+                out.append(line);
+                result.tasks++;
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Итог импорта или экспорта: количество задач, отклонённые записи и скорость.
+     */
+    public static final class TransferResult {
+        private long tasks;
+        private long rejected;
+        private long nanos;
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Количество импортированных или экспортированных задач.
+         */
+        public long getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Количество записей, пропущенных из-за ошибок.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Описания первых ошибок (не больше ста).
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public double getSeconds() {
+            return nanos / 1e9;
+        }
+
+        public double getTasksPerSecond() {
+            return nanos == 0 ? 0 : tasks / getSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d задач за %.2f с (%.0f задач/с), отклонено записей: %d",
+                    tasks, getSeconds(), getTasksPerSecond(), rejected);
+        }
+    }
+
+    // --- Импорт ---
+
+    /**
+     * Кусок файла из целых записей (байты с offset до length) и номер его первой записи.
+     * Записи нумеруются с единицы, заголовок CSV имеет номер 0.
+     */
+    private static final class Chunk {
+        final byte[] bytes;
+        final int offset;
+        final int length;
+        final long firstRecord;
+
+        Chunk(byte[] bytes, int offset, int length, long firstRecord) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            this.firstRecord = firstRecord;
+        }
+    }
+
+    /**
+     * Результат разбора куска: задачи в порядке файла и ошибки.
+     */
+    private static final class ParsedChunk {
+        final List<Task> tasks = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+    }
+
+    /**
+     * Читает файл кусками, которые заканчиваются на границе записи.
+     * Для CSV граница - перевод строки вне кавычек, для JSON Lines - любой перевод строки
+     * (внутри строк JSON он экранирован). Запись длиннее куска увеличивает буфер.
+     */
+    private static final class ChunkReader {
+        private final FileChannel channel;
+        private final boolean quoted;
+        private ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        private long nextRecord;
+        private boolean endOfFile;
+
+        ChunkReader(FileChannel channel, boolean quoted) {
+            this.channel = channel;
+            this.quoted = quoted;
+            this.nextRecord = quoted ? 0 : 1;
+        }
+
+        /**
+         * Возвращает следующий кусок из целых записей или null в конце файла.
+         */
+        Chunk next() throws IOException {
+            while (true) {
+                if (!endOfFile && buffer.hasRemaining()) {
+                    endOfFile = channel.read(buffer) < 0;
+                }
+                byte[] data = buffer.array();
+                int filled = buffer.position();
+
+                int end = 0;
+                long records = 0;
+                boolean inQuotes = false;
+                for (int i = 0; i < filled; i++) {
+                    byte b = data[i];
+                    if (b == '"' && quoted) {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n' && !inQuotes) {
+                        end = i + 1;
+                        records++;
+                    }
+                }
+                if (endOfFile && end < filled) {
+                    end = filled; // Последняя запись без перевода строки
+                    records++;
+                }
+                if (end > 0) {
+                    return take(end, records);
+                }
+                if (endOfFile) {
+                    return null;
+                }
+                if (!buffer.hasRemaining()) {
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+                }
+            }
+        }
+
+        private Chunk take(int end, long records) {
+            byte[] bytes = Arrays.copyOf(buffer.array(), end);
+            buffer.flip().position(end);
+            buffer.compact();
+            Chunk chunk = new Chunk(bytes, 0, end, nextRecord);
+            nextRecord += records;
+            return chunk;
+        }
+    }
+
+    /**
+     * Разбирает заголовок CSV - первую запись первого куска.
+     * @return Номера столбцов title, description, dueDate, priority и recurrence (-1, если столбца нет).
+     */
+    private static int[] parseCsvHeader(Chunk chunk, int headerLength) throws IOException {
+        List<String> names = new ArrayList<>();
+        parseCsvRecord(new String(chunk.bytes, chunk.offset, headerLength, StandardCharsets.UTF_8), 0, names);
+        int[] columns = {-1, -1, -1, -1, -1};
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim();
+            for (int column = 0; column < columns.length; column++) {
+                if (name.equalsIgnoreCase(CSV_COLUMNS[column + 1])) {
+                    columns[column] = i;
+                }
+            }
+        }
+        if (columns[0] < 0) {
+            throw new IOException("В заголовке CSV нет столбца title");
+        }
+        return columns;
+    }
+
+    /**
+     * Длина первой записи CSV в куске вместе с переводом строки.
+     */
+    private static int firstRecordLength(Chunk chunk) {
+        boolean inQuotes = false;
+        for (int i = chunk.offset; i < chunk.length; i++) {
+            byte b = chunk.bytes[i];
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                return i + 1 - chunk.offset;
+            }
+        }
+        return chunk.length - chunk.offset;
+    }
+
+    private static ParsedChunk parse(Chunk chunk, Format format, int[] columns) {
+        String text = new String(chunk.bytes, chunk.offset, chunk.length - chunk.offset, StandardCharsets.UTF_8);
+        ParsedChunk parsed = new ParsedChunk();
+        long record = chunk.firstRecord;
+        List<String> fields = new ArrayList<>();
+        int position = 0;
+        while (position < text.length()) {
+            int next;
+            String error = null;
+            Task task = null;
+            if (format == Format.CSV) {
+                next = parseCsvRecord(text, position, fields);
+                if (next < 0) {
+                    next = text.length();
+                    error = "незакрытая кавычка";
+                } else if (!(fields.size() == 1 && fields.get(0).isEmpty())) { // Пустые строки пропускаем
+                    try {
+                        task = toTask(field(fields, columns[0]), field(fields, columns[1]),
+                                field(fields, columns[2]), field(fields, columns[3]), field(fields, columns[4]));
+                    } catch (IllegalArgumentException e) {
+                        error = e.getMessage();
+                    }
+                }
+            } else {
+                next = text.indexOf('\n', position);
+                next = next < 0 ? text.length() : next + 1;
+                String line = text.substring(position, next).trim();
+                if (!line.isEmpty()) {
+                    try {
+                        task = TaskJson.parseTask(line);
+                    } catch (IllegalArgumentException e) {
+                        error = e.getMessage();
+                    }
+                }
+            }
+            if (error != null) {
+                parsed.errors.add("запись " + record + ": " + error);
+            } else if (task != null) {
+                parsed.tasks.add(task);
+            }
+            record++;
+            position = next;
+        }
+        return parsed;
+    }
+
+    private static void insert(Future<ParsedChunk> future, TaskStore store, TransferResult result) throws IOException {
+        ParsedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Импорт прерван", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка разбора файла", e.getCause());
+        }
+        if (!chunk.tasks.isEmpty()) {
+            synchronized (store) {
+                store.addTasks(chunk.tasks);
+            }
+        }
+        result.tasks += chunk.tasks.size();
+        result.rejected += chunk.errors.size();
+        for (String error : chunk.errors) {
+            if (result.errors.size() < MAX_REPORTED_ERRORS) {
+                result.errors.add(error);
+            }
+        }
+    }
+
+    /**
+     * Проверяет поля записи и создаёт задачу.
+     * Пустое или отсутствующее название допустимо: приложение создаёт такие задачи,
+     * и экспорт с последующим импортом не должен их терять.
+     * @throws IllegalArgumentException если дата, приоритет или правило повторения
+     * записаны неверно или у повторяющейся задачи нет срока.
+     */
+    static Task toTask(String title, String description, String dueDate, String priority, String recurrence) {
+        LocalDate date = null;
+        if (dueDate != null && !dueDate.trim().isEmpty()) {
+            try {
+                date = LocalDate.parse(dueDate.trim());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("неверная дата: " + dueDate);
+            }
+        }
+        Priority parsedPriority = null;
+        if (priority != null && !priority.trim().isEmpty()) {
+            try {
+                parsedPriority = Priority.valueOf(priority.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("неверный приоритет: " + priority);
+            }
+        }
+        Recurrence parsedRecurrence = null;
+        if (recurrence != null && !recurrence.trim().isEmpty()) {
+            try {
+                parsedRecurrence = Recurrence.parse(recurrence);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("неверное правило повторения: " + recurrence);
+            }
+            if (date == null) {
+                throw new IllegalArgumentException("нет срока у повторяющейся задачи");
+            }
+        }
+        return new Task(title == null ? "" : title, description == null ? "" : description, date, parsedPriority, parsedRecurrence);
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    /**
+     * Разбирает одну запись CSV, начиная с позиции start.
+     * @param fields Список, в который складываются поля (очищается).
+     * @return Позиция начала следующей записи или -1, если кавычка не закрыта.
+     */
+    private static int parseCsvRecord(String text, int start, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        int i = start;
+        while (true) {
+            if (i < text.length() && text.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= text.length()) {
+                        return -1;
+                    }
+                    char c = text.charAt(i++);
+                    if (c == '"') {
+                        if (i < text.length() && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+            }
+            while (i < text.length() && text.charAt(i) != ',' && text.charAt(i) != '\n') {
+                field.append(text.charAt(i++));
+            }
+            int length = field.length();
+            if (length > 0 && field.charAt(length - 1) == '\r' && (i >= text.length() || text.charAt(i) == '\n')) {
+                field.setLength(length - 1); // Перевод строки Windows
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i >= text.length()) {
+                return i;
+            }
+            if (text.charAt(i++) == '\n') {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Фабрика фоновых потоков разбора: они не мешают завершению приложения.
+     */
+    private static final class ParserThreadFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "todolist-import-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    // --- Экспорт ---
+
+    private static void appendCsv(StringBuilder line, Task task) {
+        line.append(task.getId()).append(',');
+        appendCsvField(line, task.getTitle());
+        line.append(',');
+        appendCsvField(line, task.getDescription());
+        line.append(',');
+        if (task.getDueDate() != null) {
+            line.append(task.getDueDate());
+        }
+        line.append(',');
+        if (task.getPriority() != null) {
+            line.append(task.getPriority().name());
+        }
+        line.append(',');
+        if (task.getRecurrence() != null) {
+            line.append(task.getRecurrence());
+        }
+    }
+
+    private static void appendCsvField(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
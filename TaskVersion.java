@@ -0,0 +1,670 @@
+package com.todolist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Неизменяемая версия списка задач: персистентное B-дерево, узлы которого общие у соседних версий.
+ * Задачи упорядочены по ключу порядка; каждое изменение создаёт новую версию, копируя только
+ * путь от корня до изменённого листа (O(log n) узлов), а остальные узлы не копируются.
+ * Поэтому получить версию у TodoList - O(1) (это одна ссылка), а читатели (отрисовка, экспорт,
+ * постраничный просмотр) обходят её без замков и видят согласованный список, пока писатели
+ * создают следующие версии. Каждый узел хранит размеры поддеревьев, так что доступ
+ * по индексу и поиск позиции по ключу занимают O(log n).
+ */
+public final class TaskVersion implements Iterable<Task> {
+    private static final int LEAF_CAPACITY = 32;
+    private static final int BRANCH_CAPACITY = 32;
+    // Узел меньше четверти ёмкости сливается с соседом, чтобы удаления не оставляли полупустых узлов
+    private static final int LEAF_MINIMUM = LEAF_CAPACITY / 4;
+    private static final int BRANCH_MINIMUM = BRANCH_CAPACITY / 4;
+
+    static final TaskVersion EMPTY = new TaskVersion(new Leaf(new long[0], new Task[0]));
+
+    private final Node root;
+
+    private TaskVersion(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Узел дерева: лист с задачами или ветвь с дочерними узлами.
+     */
+    private abstract static class Node {
+        abstract int size();
+
+        abstract long lastKey();
+    }
+
+    private static final class Leaf extends Node {
+        final long[] keys;
+        final Task[] tasks;
+
+        Leaf(long[] keys, Task[] tasks) {
+            this.keys = keys;
+            this.tasks = tasks;
+        }
+
+        @Override
+        int size() {
+            return keys.length;
+        }
+
+        @Override
+        long lastKey() {
+            return keys[keys.length - 1];
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node[] children;
+        final long[] lastKeys; // Наибольший ключ каждого дочернего узла
+        final int[] sizes; // Количество задач в каждом дочернем узле
+        final int size;
+
+        Branch(Node[] children) {
+            this.children = children;
+            this.lastKeys = new long[children.length];
+            this.sizes = new int[children.length];
+            int total = 0;
+            for (int i = 0; i < children.length; i++) {
+                lastKeys[i] = children[i].lastKey();
+                sizes[i] = children[i].size();
+                total += sizes[i];
+            }
+            this.size = total;
+        }
+
+        private Branch(Node[] children, long[] lastKeys, int[] sizes, int size) {
+            this.children = children;
+            this.lastKeys = lastKeys;
+            this.sizes = sizes;
+            this.size = size;
+        }
+
+        /**
+         * Копия ветви с заменённым дочерним узлом. Если ключи и размер потомка
+         * не изменились (задача заменена новой версией), массивы ключей и размеров остаются общими.
+         */
+        Branch with(int child, Node node) {
+            Node[] copy = children.clone();
+            copy[child] = node;
+            int delta = node.size() - sizes[child];
+            long lastKey = node.lastKey();
+            if (delta == 0 && lastKey == lastKeys[child]) {
+                return new Branch(copy, lastKeys, sizes, size);
+            }
+            long[] keys = lastKeys.clone();
+            keys[child] = lastKey;
+            int[] counts = sizes.clone();
+            counts[child] += delta;
+            return new Branch(copy, keys, counts, size + delta);
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long lastKey() {
+            return lastKeys[lastKeys.length - 1];
+        }
+
+        /**
+         * Номер дочернего узла, в котором находится или должен находиться ключ.
+         */
+        int childFor(long key) {
+            int low = 0;
+            int high = lastKeys.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (lastKeys[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    // --- Чтение ---
+
+    /**
+     * Количество задач в версии.
+     */
+    public int size() {
+        return root.size();
+    }
+
+    public boolean isEmpty() {
+        return root.size() == 0;
+    }
+
+    /**
+     * Возвращает задачу по индексу за O(log n).
+     * @return Задача или null, если индекс недопустим.
+     */
+    public Task getTaskAt(int index) {
+        if (index < 0 || index >= size()) {
+            return null;
+        }
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = 0;
+            while (index >= branch.sizes[child]) {
+                index -= branch.sizes[child++];
+            }
+            node = branch.children[child];
+        }
+        return ((Leaf) node).tasks[index];
+    }
+
+    /**
+     * Возвращает страницу версии за O(log n + limit).
+     * @return Не больше limit задач начиная с индекса offset.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    public List<Task> getTasks(int offset, int limit) {
+        TaskStore.checkPage(offset, limit);
+        int count = Math.max(0, Math.min(limit, size() - offset));
+        Task[] page = new Task[count];
+        if (count > 0) {
+            copy(root, offset, offset + count, page, 0);
+        }
+        return new ArrayList<>(Arrays.asList(page));
+    }
+
+    /**
+     * Копирует задачи поддерева с индексами [from, to) в массив, целыми кусками листьев.
+     */
+    private static void copy(Node node, int from, int to, Task[] target, int position) {
+        if (node instanceof Leaf) {
+            System.arraycopy(((Leaf) node).tasks, from, target, position, to - from);
+            return;
+        }
+        Branch branch = (Branch) node;
+        int start = 0;
+        for (int child = 0; child < branch.children.length && start < to; child++) {
+            int end = start + branch.sizes[child];
+            if (end > from) {
+                int low = Math.max(from, start);
+                int high = Math.min(to, end);
+                copy(branch.children[child], low - start, high - start, target, position);
+                position += high - low;
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Возвращает все задачи версии в новом списке.
+     */
+    public List<Task> getAllTasks() {
+        return getTasks(0, size());
+    }
+
+    /**
+     * Обходит задачи в порядке списка.
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        Cursor cursor = cursor(0);
+        return new Iterator<Task>() {
+            private boolean ready;
+            private boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready) {
+                    hasNext = cursor.next();
+                    ready = true;
+                }
+                return hasNext;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return cursor.task;
+            }
+        };
+    }
+
+    /**
+     * Возвращает задачи, удовлетворяющие условию, в порядке списка. Большая версия делится
+     * по поддеревьям и проверяется параллельно (см. ParallelScan); так как версия
+     * неизменяема, потокам не нужны замки. Условие должно быть безопасно для вызова из нескольких потоков.
+     */
+    public List<Task> filter(Predicate<Task> predicate) {
+        return filter(predicate, ParallelScan.DEFAULT);
+    }
+
+    List<Task> filter(Predicate<Task> predicate, ParallelScan scan) {
+        if (!scan.isParallel(root.size())) {
+            List<Task> result = new ArrayList<>();
+            collect(root, predicate, result);
+            return result;
+        }
+        return scan.pool().invoke(new FilterTask(root, predicate, scan.chunkSize(root.size())));
+    }
+
+    private static void collect(Node node, Predicate<Task> predicate, List<Task> result) {
+        if (node instanceof Leaf) {
+            for (Task task : ((Leaf) node).tasks) {
+                if (predicate.test(task)) {
+                    result.add(task);
+                }
+            }
+        } else {
+            for (Node child : ((Branch) node).children) {
+                collect(child, predicate, result);
+            }
+        }
+    }
+
+    /**
+     * Параллельная фильтрация поддерева: дочерние узлы проверяются отдельными задачами,
+     * их результаты склеиваются в порядке узлов.
+     */
+    private static final class FilterTask extends RecursiveTask<List<Task>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Node node;
+        private final transient Predicate<Task> predicate;
+        private final int chunk; // Поддеревья не больше этого размера проверяются в одном потоке
+
+        FilterTask(Node node, Predicate<Task> predicate, int chunk) {
+            this.node = node;
+            this.predicate = predicate;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            List<Task> result = new ArrayList<>();
+            if (node.size() <= chunk || node instanceof Leaf) {
+                collect(node, predicate, result);
+                return result;
+            }
+            Node[] children = ((Branch) node).children;
+            List<FilterTask> parts = new ArrayList<>(children.length);
+            for (Node child : children) {
+                parts.add(new FilterTask(child, predicate, chunk));
+            }
+            invokeAll(parts);
+            for (FilterTask part : parts) {
+                result.addAll(part.join());
+            }
+            return result;
+        }
+    }
+
+    // --- Операции по ключу порядка (для TodoList) ---
+
+    /**
+     * Возвращает задачу с указанным ключом порядка или null.
+     */
+    Task find(long key) {
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childFor(key);
+            if (branch.lastKeys[child] < key) {
+                return null;
+            }
+            node = branch.children[child];
+        }
+        Leaf leaf = (Leaf) node;
+        int position = Arrays.binarySearch(leaf.keys, key);
+        return position >= 0 ? leaf.tasks[position] : null;
+    }
+
+    /**
+     * Возвращает индекс задачи с указанным ключом за O(log n) или -1, если ключа нет.
+     */
+    int rank(long key) {
+        Node node = root;
+        int rank = 0;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childFor(key);
+            if (branch.lastKeys[child] < key) {
+                return -1;
+            }
+            for (int i = 0; i < child; i++) {
+                rank += branch.sizes[i];
+            }
+            node = branch.children[child];
+        }
+        int position = Arrays.binarySearch(((Leaf) node).keys, key);
+        return position >= 0 ? rank + position : -1;
+    }
+
+    /**
+     * Возвращает ключ порядка задачи с указанным индексом.
+     * @throws IndexOutOfBoundsException если индекс недопустим.
+     */
+    long keyAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + size());
+        }
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = 0;
+            while (index >= branch.sizes[child]) {
+                index -= branch.sizes[child++];
+            }
+            node = branch.children[child];
+        }
+        return ((Leaf) node).keys[index];
+    }
+
+    /**
+     * Наибольший ключ порядка в версии (ключ последней задачи).
+     * @throws IndexOutOfBoundsException если версия пуста.
+     */
+    long lastKey() {
+        return keyAt(size() - 1);
+    }
+
+    /**
+     * Возвращает версию, в которой по ключу лежит указанная задача (добавленная или заменённая).
+     */
+    TaskVersion put(long key, Task task) {
+        Node[] result = put(root, key, task);
+        return new TaskVersion(result.length == 1 ? result[0] : new Branch(result));
+    }
+
+    /**
+     * Возвращает версию без задачи с указанным ключом (или эту же версию, если ключа нет).
+     */
+    TaskVersion remove(long key) {
+        Node updated = remove(root, key);
+        if (updated == root) {
+            return this;
+        }
+        while (updated instanceof Branch && ((Branch) updated).children.length == 1) {
+            updated = ((Branch) updated).children[0]; // Корень с одним потомком не нужен
+        }
+        return new TaskVersion(updated);
+    }
+
+    /**
+     * Строит версию из задач в указанном порядке с ключами firstKey, firstKey + step, ...
+     * Узлы заполняются целиком: O(n).
+     */
+    static TaskVersion build(List<Task> tasks, long firstKey, long step) {
+        if (tasks.isEmpty()) {
+            return EMPTY;
+        }
+        List<Node> level = new ArrayList<>(tasks.size() / LEAF_CAPACITY + 1);
+        long key = firstKey;
+        for (int start = 0; start < tasks.size(); start += LEAF_CAPACITY) {
+            int count = Math.min(LEAF_CAPACITY, tasks.size() - start);
+            long[] keys = new long[count];
+            Task[] leafTasks = new Task[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = key;
+                leafTasks[i] = tasks.get(start + i);
+                key += step;
+            }
+            level.add(new Leaf(keys, leafTasks));
+        }
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>(level.size() / BRANCH_CAPACITY + 1);
+            for (int start = 0; start < level.size(); start += BRANCH_CAPACITY) {
+                int count = Math.min(BRANCH_CAPACITY, level.size() - start);
+                parents.add(new Branch(level.subList(start, start + count).toArray(new Node[0])));
+            }
+            level = parents;
+        }
+        return new TaskVersion(level.get(0));
+    }
+
+    /**
+     * Позиция обхода версии: после успешного next в полях task и key - очередная задача и её ключ.
+     */
+    final class Cursor {
+        private final Branch[] path = new Branch[depth()];
+        private final int[] children = new int[path.length];
+        private Leaf leaf;
+        private int position;
+        Task task;
+        long key;
+
+        Cursor(int index) {
+            Node node = root;
+            int level = 0;
+            while (node instanceof Branch) {
+                Branch branch = (Branch) node;
+                int child = 0;
+                while (child < branch.sizes.length - 1 && index >= branch.sizes[child]) {
+                    index -= branch.sizes[child++];
+                }
+                path[level] = branch;
+                children[level++] = child;
+                node = branch.children[child];
+            }
+            leaf = (Leaf) node;
+            position = index;
+        }
+
+        boolean next() {
+            while (position >= leaf.keys.length) {
+                if (!nextLeaf()) {
+                    return false;
+                }
+            }
+            task = leaf.tasks[position];
+            key = leaf.keys[position++];
+            return true;
+        }
+
+        private boolean nextLeaf() {
+            int level = path.length - 1;
+            while (level >= 0 && children[level] == path[level].children.length - 1) {
+                level--;
+            }
+            if (level < 0) {
+                return false;
+            }
+            children[level]++;
+            Node node = path[level].children[children[level]];
+            for (level++; level < path.length; level++) {
+                path[level] = (Branch) node;
+                children[level] = 0;
+                node = path[level].children[0];
+            }
+            leaf = (Leaf) node;
+            position = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Возвращает позицию обхода перед задачей с указанным индексом.
+     */
+    Cursor cursor(int index) {
+        return new Cursor(index);
+    }
+
+    private int depth() {
+        int depth = 0;
+        for (Node node = root; node instanceof Branch; node = ((Branch) node).children[0]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    // --- Изменение с копированием пути ---
+
+    /**
+     * Вставляет или заменяет задачу в поддереве.
+     * @return Новый узел или два узла, если узел пришлось разделить.
+     */
+    private static Node[] put(Node node, long key, Task task) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int position = Arrays.binarySearch(leaf.keys, key);
+            if (position >= 0) {
+                Task[] tasks = leaf.tasks.clone();
+                tasks[position] = task;
+                return new Node[] {new Leaf(leaf.keys, tasks)}; // Ключи не изменились и остаются общими
+            }
+            position = -position - 1;
+            long[] keys = new long[leaf.keys.length + 1];
+            Task[] tasks = new Task[keys.length];
+            System.arraycopy(leaf.keys, 0, keys, 0, position);
+            System.arraycopy(leaf.tasks, 0, tasks, 0, position);
+            keys[position] = key;
+            tasks[position] = task;
+            System.arraycopy(leaf.keys, position, keys, position + 1, leaf.keys.length - position);
+            System.arraycopy(leaf.tasks, position, tasks, position + 1, leaf.keys.length - position);
+            if (keys.length <= LEAF_CAPACITY) {
+                return new Node[] {new Leaf(keys, tasks)};
+            }
+            int split = splitPoint(position, keys.length);
+            return new Node[] {
+                    new Leaf(Arrays.copyOfRange(keys, 0, split), Arrays.copyOfRange(tasks, 0, split)),
+                    new Leaf(Arrays.copyOfRange(keys, split, keys.length), Arrays.copyOfRange(tasks, split, keys.length))
+            };
+        }
+
+        Branch branch = (Branch) node;
+        int child = branch.childFor(key);
+        Node[] replaced = put(branch.children[child], key, task);
+        if (replaced.length == 1) {
+            return new Node[] {branch.with(child, replaced[0])};
+        }
+        Node[] children = new Node[branch.children.length + replaced.length - 1];
+        System.arraycopy(branch.children, 0, children, 0, child);
+        System.arraycopy(replaced, 0, children, child, replaced.length);
+        System.arraycopy(branch.children, child + 1, children, child + replaced.length, branch.children.length - child - 1);
+        if (children.length <= BRANCH_CAPACITY) {
+            return new Node[] {new Branch(children)};
+        }
+        int split = splitPoint(child + 1, children.length);
+        return new Node[] {
+                new Branch(Arrays.copyOfRange(children, 0, split)),
+                new Branch(Arrays.copyOfRange(children, split, children.length))
+        };
+    }
+
+    /**
+     * Где разделить переполненный узел. При добавлении в конец левый узел остаётся полным,
+     * чтобы список, растущий добавлениями в конец, не состоял из полупустых узлов.
+     */
+    private static int splitPoint(int insertedAt, int length) {
+        return insertedAt == length - 1 ? length - 1 : length / 2;
+    }
+
+    /**
+     * Удаляет ключ из поддерева.
+     * @return Новый узел (возможно, пустой) или тот же узел, если ключа нет.
+     */
+    private static Node remove(Node node, long key) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int position = Arrays.binarySearch(leaf.keys, key);
+            if (position < 0) {
+                return node;
+            }
+            long[] keys = new long[leaf.keys.length - 1];
+            Task[] tasks = new Task[keys.length];
+            System.arraycopy(leaf.keys, 0, keys, 0, position);
+            System.arraycopy(leaf.tasks, 0, tasks, 0, position);
+            System.arraycopy(leaf.keys, position + 1, keys, position, keys.length - position);
+            System.arraycopy(leaf.tasks, position + 1, tasks, position, keys.length - position);
+            return new Leaf(keys, tasks);
+        }
+
+        Branch branch = (Branch) node;
+        int child = branch.childFor(key);
+        if (branch.lastKeys[child] < key) {
+            return node;
+        }
+        Node updated = remove(branch.children[child], key);
+        if (updated == branch.children[child]) {
+            return node;
+        }
+        if (updated.size() == 0) {
+            if (branch.children.length == 1) {
+                return updated; // Последняя задача поддерева удалена
+            }
+            Node[] children = new Node[branch.children.length - 1];
+            System.arraycopy(branch.children, 0, children, 0, child);
+            System.arraycopy(branch.children, child + 1, children, child, children.length - child);
+            return new Branch(children);
+        }
+        if (branch.children.length == 1 || !isUnderfull(updated)) {
+            return branch.with(child, updated);
+        }
+        int left = child > 0 ? child - 1 : child;
+        Node[] merged = merge(left == child ? updated : branch.children[left], left == child ? branch.children[left + 1] : updated);
+        Node[] children = new Node[branch.children.length - 2 + merged.length];
+        System.arraycopy(branch.children, 0, children, 0, left);
+        System.arraycopy(merged, 0, children, left, merged.length);
+        System.arraycopy(branch.children, left + 2, children, left + merged.length, branch.children.length - left - 2);
+        return new Branch(children);
+    }
+
+    private static boolean isUnderfull(Node node) {
+        return node instanceof Leaf
+                ? ((Leaf) node).keys.length < LEAF_MINIMUM
+                : ((Branch) node).children.length < BRANCH_MINIMUM;
+    }
+
+    /**
+     * Сливает два соседних узла одного уровня; если вместе они не помещаются в один узел,
+     * делит содержимое поровну.
+     */
+    private static Node[] merge(Node first, Node second) {
+        if (first instanceof Leaf) {
+            Leaf a = (Leaf) first;
+            Leaf b = (Leaf) second;
+            long[] keys = concat(a.keys, b.keys);
+            Task[] tasks = concat(a.tasks, b.tasks);
+            if (keys.length <= LEAF_CAPACITY) {
+                return new Node[] {new Leaf(keys, tasks)};
+            }
+            int split = keys.length / 2;
+            return new Node[] {
+                    new Leaf(Arrays.copyOfRange(keys, 0, split), Arrays.copyOfRange(tasks, 0, split)),
+                    new Leaf(Arrays.copyOfRange(keys, split, keys.length), Arrays.copyOfRange(tasks, split, keys.length))
+            };
+        }
+        Node[] children = concat(((Branch) first).children, ((Branch) second).children);
+        if (children.length <= BRANCH_CAPACITY) {
+            return new Node[] {new Branch(children)};
+        }
+        int split = children.length / 2;
+        return new Node[] {
+                new Branch(Arrays.copyOfRange(children, 0, split)),
+                new Branch(Arrays.copyOfRange(children, split, children.length))
+        };
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static <T> T[] concat(T[] first, T[] second) {
+        T[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -1,342 +1,1053 @@
-package com.todolist; //  org.example,     
-
-import javax.swing.*;
-import javax.swing.border.EmptyBorder;
-import java.awt.*;
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
-import java.util.List;
-
-/**
- * ,     (GUI)
- *   To-Do List    Swing.
- */
-public class TodoAppGUI extends JFrame {
-
-    private final TodoList todoList;
-    private final DefaultListModel<Task> listModel;
-    private final JList<Task> taskList;
-
-    public TodoAppGUI() {
-        // --- 1.   Look and Feel (Nimbus) ---
-        try {
-            // Nimbus -   
-            UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
-            // :      (Windows, macOS)
-            // UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        // --- 2.      ---
-        this.todoList = new TodoList();
-        this.listModel = new DefaultListModel<>();
-        this.taskList = new JList<>(listModel);
-
-        // --- 3.    (JFrame) ---
-        setTitle("To-Do List Manager");
-        setSize(700, 500); //   
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setLocationRelativeTo(null);
-
-        // --- 4.      ---
-        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
-        mainPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
-        setContentPane(mainPanel);
-
-        // --- 5.     ---
-        JScrollPane scrollPane = new JScrollPane(taskList);
-        scrollPane.setBorder(BorderFactory.createTitledBorder(" ")); //   
-
-        //         
-        taskList.setCellRenderer(new TaskCellRenderer());
-        taskList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-
-        //     (Unicode )
-        JButton createTaskButton = createStyledButton("", "\u2795"); // 
-        JButton editTaskButton = createStyledButton("", "\u270E"); // 
-        JButton deleteTaskButton = createStyledButton("", "\u2716"); // 
-
-        JPanel buttonPanel = new JPanel();
-        //  BoxLayout      
-        buttonPanel.setLayout(new BoxLayout(buttonPanel, BoxLayout.X_AXIS));
-        buttonPanel.add(Box.createHorizontalGlue()); //  
-        buttonPanel.add(createTaskButton);
-        buttonPanel.add(Box.createHorizontalStrut(10)); // 
-        buttonPanel.add(editTaskButton);
-        buttonPanel.add(Box.createHorizontalStrut(10)); // 
-        buttonPanel.add(deleteTaskButton);
-        buttonPanel.add(Box.createHorizontalGlue()); //  
-
-        //  
-        setJMenuBar(createMenuBar());
-
-        // --- 6.      ---
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
-        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
-
-        // --- 7.    ---
-        createTaskButton.addActionListener(e -> createTask());
-        editTaskButton.addActionListener(e -> editTask());
-        deleteTaskButton.addActionListener(e -> deleteTask());
-
-        // ---    ---
-        updateTaskList();
-    }
-
-    private JMenuBar createMenuBar() {
-        JMenuBar menuBar = new JMenuBar();
-        JMenu fileMenu = new JMenu("");
-
-        JMenuItem sortByDateItem = new JMenuItem("  ");
-        sortByDateItem.addActionListener(e -> {
-            todoList.sortByDueDate();
-            updateTaskList();
-        });
-
-        JMenuItem searchItem = new JMenuItem(" ...");
-        searchItem.addActionListener(e -> searchTask());
-
-        fileMenu.add(sortByDateItem);
-        fileMenu.add(searchItem);
-        menuBar.add(fileMenu);
-
-        return menuBar;
-    }
-
-    private JButton createStyledButton(String text, String unicodeIcon) {
-        JButton button = new JButton(text);
-        button.setFont(new Font("Segoe UI", Font.BOLD, 14));
-        button.setText(unicodeIcon + " " + text);
-        button.setFocusPainted(false); //    
-        button.setCursor(new Cursor(Cursor.HAND_CURSOR)); // -  
-        return button;
-    }
-
-    /**
-     *  JList,      todoList.
-     */
-    private void updateTaskList() {
-        listModel.clear();
-        for (Task task : todoList.getAllTasks()) {
-            listModel.addElement(task);
-        }
-    }
-
-    /**
-     *     .
-     */
-    private void createTask() {
-        TaskDialog dialog = new TaskDialog(this, " ", null);
-        dialog.setVisible(true);
-
-        if (dialog.isSucceeded()) {
-            todoList.addTask(dialog.getTask());
-            updateTaskList();
-        }
-    }
-
-    /**
-     *     .
-     */
-    private void editTask() {
-        int selectedIndex = taskList.getSelectedIndex();
-        if (selectedIndex == -1) {
-            JOptionPane.showMessageDialog(this, ",    .", "", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        Task selectedTask = listModel.getElementAt(selectedIndex);
-        TaskDialog dialog = new TaskDialog(this, " ", selectedTask);
-        dialog.setVisible(true);
-
-        if (dialog.isSucceeded()) {
-            Task updatedTask = dialog.getTask();
-            todoList.editTask(selectedIndex, updatedTask.getTitle(), updatedTask.getDescription(), updatedTask.getDueDate(), updatedTask.getPriority());
-            updateTaskList();
-        }
-    }
-
-    /**
-     *     .
-     */
-    private void deleteTask() {
-        int selectedIndex = taskList.getSelectedIndex();
-        if (selectedIndex == -1) {
-            JOptionPane.showMessageDialog(this, ",    .", "", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        int confirm = JOptionPane.showConfirmDialog(this, " ,     ?", "", JOptionPane.YES_NO_OPTION);
-        if (confirm == JOptionPane.YES_OPTION) {
-            todoList.deleteTask(selectedIndex);
-            updateTaskList();
-        }
-    }
-
-    /**
-     *    .
-     */
-    private void searchTask() {
-        String keyword = JOptionPane.showInputDialog(this, "    :");
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            List<Task> searchResults = todoList.searchByKeyword(keyword);
-            listModel.clear();
-            for (Task task : searchResults) {
-                listModel.addElement(task);
-            }
-        } else if (keyword != null) {
-            //    "",    ,    
-            updateTaskList();
-        }
-    }
-
-    /**
-     *     GUI-.
-     */
-    public static void main(String[] args) {
-        // Swing-      (Event Dispatch Thread)
-        SwingUtilities.invokeLater(() -> {
-            TodoAppGUI app = new TodoAppGUI();
-            app.setVisible(true);
-        });
-    }
-}
-
-/**
- *        JList.
- */
-class TaskCellRenderer extends JPanel implements ListCellRenderer<Task> {
-
-    private JLabel titleLabel;
-    private JLabel detailsLabel;
-    private JPanel priorityPanel;
-
-    public TaskCellRenderer() {
-        setLayout(new BorderLayout(5, 5));
-        setBorder(new EmptyBorder(5, 5, 5, 5));
-
-        titleLabel = new JLabel();
-        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
-
-        detailsLabel = new JLabel();
-        detailsLabel.setFont(new Font("Segoe UI", Font.ITALIC, 12));
-        detailsLabel.setForeground(Color.GRAY);
-
-        priorityPanel = new JPanel();
-        priorityPanel.setPreferredSize(new Dimension(10, 10));
-
-        add(titleLabel, BorderLayout.CENTER);
-        add(detailsLabel, BorderLayout.SOUTH);
-        add(priorityPanel, BorderLayout.WEST);
-    }
-
-    @Override
-    public Component getListCellRendererComponent(JList<? extends Task> list, Task task, int index, boolean isSelected, boolean cellHasFocus) {
-
-        titleLabel.setText(task.getTitle());
-        detailsLabel.setText(": " + task.getDueDate() + " | " + task.getDescription());
-
-        //   
-        switch (task.getPriority()) {
-            case HIGH:
-                priorityPanel.setBackground(new Color(255, 102, 102)); // 
-                break;
-            case MEDIUM:
-                priorityPanel.setBackground(new Color(255, 204, 102)); // 
-                break;
-            case LOW:
-                priorityPanel.setBackground(new Color(102, 204, 102)); // 
-                break;
-        }
-
-        //    
-        if (isSelected) {
-            setBackground(list.getSelectionBackground());
-            setForeground(list.getSelectionForeground());
-        } else {
-            setBackground(list.getBackground());
-            setForeground(list.getForeground());
-        }
-
-        return this;
-    }
-}
-
-/**
- *      / .
- */
-class TaskDialog extends JDialog {
-    private JTextField titleField = new JTextField(20);
-    private JTextField descriptionField = new JTextField(20);
-    private JTextField dueDateField = new JTextField(10);
-    private JComboBox<Priority> priorityComboBox = new JComboBox<>(Priority.values());
-
-    private Task task;
-    private boolean succeeded = false;
-
-    public TaskDialog(Frame owner, String title, Task taskToEdit) {
-        super(owner, title, true);
-        this.task = (taskToEdit == null) ? new Task("", "", LocalDate.now(), Priority.MEDIUM) : taskToEdit;
-
-        setLayout(new BorderLayout(10, 10));
-        JPanel fieldsPanel = new JPanel(new GridLayout(4, 2, 5, 5));
-        fieldsPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-
-        fieldsPanel.add(new JLabel(":"));
-        fieldsPanel.add(titleField);
-        fieldsPanel.add(new JLabel(":"));
-        fieldsPanel.add(descriptionField);
-        fieldsPanel.add(new JLabel(" (--):"));
-        fieldsPanel.add(dueDateField);
-        fieldsPanel.add(new JLabel(":"));
-        fieldsPanel.add(priorityComboBox);
-
-        //  ,  
-        titleField.setText(this.task.getTitle());
-        descriptionField.setText(this.task.getDescription());
-        dueDateField.setText(this.task.getDueDate().toString());
-        priorityComboBox.setSelectedItem(this.task.getPriority());
-
-        JPanel buttonPanel = new JPanel();
-        JButton okButton = new JButton("OK");
-        JButton cancelButton = new JButton("");
-        buttonPanel.add(okButton);
-        buttonPanel.add(cancelButton);
-
-        okButton.addActionListener(e -> onOK());
-        cancelButton.addActionListener(e -> dispose());
-
-        add(fieldsPanel, BorderLayout.CENTER);
-        add(buttonPanel, BorderLayout.SOUTH);
-
-        pack(); //    
-        setLocationRelativeTo(owner);
-    }
-
-    private void onOK() {
-        try {
-            String title = titleField.getText();
-            if (title.trim().isEmpty()) {
-                JOptionPane.showMessageDialog(this, "    .", " ", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            task.setTitle(title);
-            task.setDescription(descriptionField.getText());
-            task.setDueDate(LocalDate.parse(dueDateField.getText()));
-            task.setPriority((Priority) priorityComboBox.getSelectedItem());
-            succeeded = true;
-            dispose();
-        } catch (DateTimeParseException ex) {
-            JOptionPane.showMessageDialog(this, "  .  --.", " ", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
-    public Task getTask() {
-        return task;
-    }
-
-    public boolean isSucceeded() {
-        return succeeded;
-    }
+package com.todolist; // Или org.example, в зависимости от вашей структуры
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Класс, реализующий графический пользовательский интерфейс (GUI)
+ * для приложения To-Do List с использованием библиотеки Swing.
+ */
+public class TodoAppGUI extends JFrame {
+
+    // Пауза после последнего нажатия клавиши, после которой запускается поиск
+    private static final int SEARCH_DELAY_MILLIS = 250;
+    private static final int URGENT_TASKS = 10;
+    private static final int FUZZY_RESULTS = 200; // Нечёткий поиск показывает только лучшие совпадения
+    private static final int SCAN_CHUNK = 16_384; // Через сколько задач фоновый запрос проверяет отмену
+    private static final int MAX_LISTED_REMINDERS = 10;
+
+    private final TaskStore todoList; // Фоновые задачи и EDT синхронизируются по этому объекту
+    private final TaskListModel listModel;
+    private final JList<Task> taskList;
+    private final JTextField searchField = new JTextField();
+    private final JCheckBox fuzzySearchBox = new JCheckBox("С опечатками");
+    private final Timer searchTimer;
+    private QueryWorker queryWorker; // Последний запущенный поиск или сортировка
+    private final DeadlineScheduler deadlineScheduler;
+    private final List<String> pendingReminders = new ArrayList<>(); // Ещё не показанные напоминания
+    private final JMenuItem undoItem = new JMenuItem("Отменить");
+    private final JMenuItem redoItem = new JMenuItem("Повторить");
+
+    public TodoAppGUI() {
+        // --- 1. Установка современного Look and Feel (Nimbus) ---
+        try {
+            // Nimbus - хороший кроссплатформенный вариант
+            UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
+            // Альтернатива: сделать приложение похожим на системное (Windows, macOS)
+            // UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        // --- 2. Инициализация основной логики и данных ---
+        this.todoList = openTodoList();
+        this.listModel = new TaskListModel(todoList);
+        this.taskList = new JList<>(listModel);
+        this.searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> runSearch());
+        searchTimer.setRepeats(false);
+
+        // --- 3. Настройка главного окна (JFrame) ---
+        setTitle("To-Do List Manager");
+        setSize(700, 500); // Немного увеличим размер
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        // --- 4. Создание главной панели с отступами ---
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        setContentPane(mainPanel);
+
+        // --- 5. Создание и настройка компонентов ---
+        JScrollPane scrollPane = new JScrollPane(taskList);
+        scrollPane.setBorder(BorderFactory.createTitledBorder("Ваши задачи")); // Заголовок для списка
+
+        // Улучшаем отображение элементов в списке с помощью нашего рендерера
+        taskList.setCellRenderer(new TaskCellRenderer());
+        // Все строки одной высоты: JList не измеряет каждую задачу при прокрутке и изменениях
+        taskList.setPrototypeCellValue(TaskCellRenderer.prototype());
+        taskList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        // Создание кнопок с иконками (Unicode символы)
+        JButton createTaskButton = createStyledButton("Создать", "\u2795"); // Плюс
+        JButton editTaskButton = createStyledButton("Редактировать", "\u270E"); // Карандаш
+        JButton deleteTaskButton = createStyledButton("Удалить", "\u2716"); // Крестик
+
+        JPanel buttonPanel = new JPanel();
+        // Используем BoxLayout для лучшего контроля над размером кнопок
+        buttonPanel.setLayout(new BoxLayout(buttonPanel, BoxLayout.X_AXIS));
+        buttonPanel.add(Box.createHorizontalGlue()); // Растягиваем пространство
+        buttonPanel.add(createTaskButton);
+        buttonPanel.add(Box.createHorizontalStrut(10)); // Промежуток
+        buttonPanel.add(editTaskButton);
+        buttonPanel.add(Box.createHorizontalStrut(10)); // Промежуток
+        buttonPanel.add(deleteTaskButton);
+        buttonPanel.add(Box.createHorizontalGlue()); // Растягиваем пространство
+
+        // Строка поиска: результаты обновляются по мере ввода
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 5));
+        searchPanel.add(new JLabel("Поиск:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        fuzzySearchBox.setToolTipText("Искать похожие слова: находит задачи, даже если в запросе есть опечатки");
+        searchPanel.add(fuzzySearchBox, BorderLayout.EAST);
+
+        // Создание меню
+        setJMenuBar(createMenuBar());
+        updateHistoryItems();
+
+        // --- 6. Добавление компонентов на главную панель ---
+        mainPanel.add(searchPanel, BorderLayout.NORTH);
+        mainPanel.add(scrollPane, BorderLayout.CENTER);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        // --- 7. Добавление обработчиков событий ---
+        createTaskButton.addActionListener(e -> createTask());
+        editTaskButton.addActionListener(e -> editTask());
+        deleteTaskButton.addActionListener(e -> deleteTask());
+        fuzzySearchBox.addActionListener(e -> runSearch());
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+
+        // --- 8. Напоминания о сроках и просроченных задачах ---
+        this.deadlineScheduler = new DeadlineScheduler(todoList);
+        deadlineScheduler.addListener(new ReminderListener());
+
+        // --- 9. Индекс нечёткого поиска строится в фоне, не занимая хранилище ---
+        if (todoList instanceof TodoList) {
+            TodoList list = (TodoList) todoList;
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() {
+                    list.prepareFuzzyIndex();
+                    return null;
+                }
+            }.execute();
+        }
+    }
+
+    /**
+     * Открывает сохранённый на диске список задач, а при ошибке - список только в памяти.
+     */
+    private TaskStore openTodoList() {
+        try {
+            return TaskStore.openDefault();
+        } catch (IOException | RuntimeException e) {
+            JOptionPane.showMessageDialog(this, "Не удалось открыть хранилище задач: " + e.getMessage()
+                    + "\nЗадачи не будут сохранены после выхода.", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return new TodoList();
+        }
+    }
+
+    private JMenuBar createMenuBar() {
+        JMenuBar menuBar = new JMenuBar();
+        JMenu fileMenu = new JMenu("Опции");
+
+        // Сортировка показывает задачи в выбранном порядке, не меняя порядок хранилища
+        for (SortOrder order : SortOrder.values()) {
+            JMenuItem sortItem = new JMenuItem("Сортировать " + order.getDescription());
+            sortItem.addActionListener(e -> sortTasks(order));
+            fileMenu.add(sortItem);
+        }
+
+        JMenuItem urgentItem = new JMenuItem("Самые срочные задачи");
+        urgentItem.addActionListener(e -> showUrgentTasks());
+        fileMenu.add(urgentItem);
+
+        JMenuItem searchItem = new JMenuItem("Найти задачу...");
+        searchItem.addActionListener(e -> searchTask());
+
+        fileMenu.add(searchItem);
+
+        JMenuItem importItem = new JMenuItem("Импорт задач...");
+        importItem.addActionListener(e -> importTasks());
+        JMenuItem exportItem = new JMenuItem("Экспорт задач...");
+        exportItem.addActionListener(e -> exportTasks());
+        fileMenu.addSeparator();
+        fileMenu.add(importItem);
+        fileMenu.add(exportItem);
+
+        JMenuItem metricsItem = new JMenuItem("Статистика операций");
+        metricsItem.addActionListener(e -> showMetrics());
+        fileMenu.addSeparator();
+        fileMenu.add(metricsItem);
+        menuBar.add(fileMenu);
+
+        // Отмена и повтор доступны, если хранилище хранит историю изменений
+        JMenu editMenu = new JMenu("Правка");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        undoItem.addActionListener(e -> undoChange());
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        redoItem.addActionListener(e -> redoChange());
+        editMenu.add(undoItem);
+        editMenu.add(redoItem);
+        menuBar.add(editMenu);
+
+        return menuBar;
+    }
+
+    private JButton createStyledButton(String text, String unicodeIcon) {
+        JButton button = new JButton(text);
+        button.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        button.setText(unicodeIcon + " " + text);
+        button.setFocusPainted(false); // Убираем рамку при фокусе
+        button.setCursor(new Cursor(Cursor.HAND_CURSOR)); // Курсор-рука при наведении
+        return button;
+    }
+
+    /**
+     * Обработчик для создания новой задачи.
+     */
+    private void createTask() {
+        TaskDialog dialog = new TaskDialog(this, "Создать задачу", null);
+        dialog.setVisible(true);
+
+        if (dialog.isSucceeded()) {
+            clearSearch(); // Новая задача показывается в полном списке
+            listModel.addTask(dialog.getTask());
+            updateHistoryItems();
+        }
+    }
+
+    /**
+     * Обработчик для редактирования выбранной задачи.
+     */
+    private void editTask() {
+        int selectedIndex = taskList.getSelectedIndex();
+        if (selectedIndex == -1) {
+            JOptionPane.showMessageDialog(this, "Пожалуйста, выберите задачу для редактирования.", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        Task selectedTask = listModel.getElementAt(selectedIndex);
+        TaskDialog dialog = new TaskDialog(this, "Редактировать задачу", selectedTask);
+        dialog.setVisible(true);
+
+        if (dialog.isSucceeded()) {
+            listModel.editTask(dialog.getTask());
+            restartPendingQuery();
+            updateHistoryItems();
+        }
+    }
+
+    /**
+     * Обработчик для удаления выбранной задачи.
+     */
+    private void deleteTask() {
+        int selectedIndex = taskList.getSelectedIndex();
+        if (selectedIndex == -1) {
+            JOptionPane.showMessageDialog(this, "Пожалуйста, выберите задачу для удаления.", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        int confirm = JOptionPane.showConfirmDialog(this, "Вы уверены, что хотите удалить эту задачу?", "Подтверждение", JOptionPane.YES_NO_OPTION);
+        if (confirm == JOptionPane.YES_OPTION) {
+            listModel.deleteTask(listModel.getElementAt(selectedIndex).getId());
+            restartPendingQuery();
+            updateHistoryItems();
+        }
+    }
+
+    /**
+     * Отменяет последнее изменение списка (Ctrl+Z).
+     */
+    private void undoChange() {
+        applyHistory(todoList::undo);
+    }
+
+    /**
+     * Повторяет отменённое изменение списка (Ctrl+Y).
+     */
+    private void redoChange() {
+        applyHistory(todoList::redo);
+    }
+
+    /**
+     * Отменяет или повторяет изменение и показывает весь список заново:
+     * отмена импорта или сортировки затрагивает сразу много строк.
+     */
+    private void applyHistory(BooleanSupplier step) {
+        boolean changed;
+        synchronized (todoList) {
+            changed = step.getAsBoolean();
+        }
+        if (!changed) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        clearSearch();
+        listModel.showAll();
+        updateHistoryItems();
+    }
+
+    private void updateHistoryItems() {
+        synchronized (todoList) {
+            undoItem.setEnabled(todoList.canUndo());
+            redoItem.setEnabled(todoList.canRedo());
+        }
+    }
+
+    /**
+     * Обработчик для поиска задач через диалог: запрос попадает в строку поиска
+     * и выполняется сразу, без паузы на ввод. Ошибку в запросе диалог показывает
+     * и предлагает исправить; при поиске с опечатками текст ищется как слова, без разбора запроса.
+     */
+    private void searchTask() {
+        String text = searchField.getText();
+        while (true) {
+            text = JOptionPane.showInputDialog(this,
+                    "Введите ключевые слова или запрос, например: priority:high due:..today отчёт OR -встреча",
+                    text);
+            if (text == null) {
+                return;
+            }
+            if (fuzzySearchBox.isSelected()) {
+                break;
+            }
+            try {
+                TaskQuery.parse(text);
+                break;
+            } catch (IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Ошибка в запросе", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+        // Пустой запрос снова показывает весь список
+        searchField.setText(text.trim());
+        runSearch();
+    }
+
+    /**
+     * Запускает поиск по тексту из строки поиска в фоновом потоке. Текст разбирается
+     * как запрос (см. TaskQuery.parse); недописанный запрос, например с незакрытой
+     * скобкой, ищется как ключевое слово. При поиске с опечатками показываются задачи
+     * с похожими словами, самые похожие первыми.
+     */
+    private void runSearch() {
+        searchTimer.stop();
+        String text = searchField.getText().trim();
+        if (text.isEmpty()) {
+            cancelQuery();
+            listModel.showAll();
+            return;
+        }
+        if (fuzzySearchBox.isSelected()) {
+            // Нечёткий поиск идёт по индексу хранилища, а не просмотром всех задач
+            runQuery(new ListQuery(() -> todoList.fuzzySearch(text, 0, FUZZY_RESULTS)), "Не удалось выполнить поиск");
+            return;
+        }
+        TaskQuery query;
+        try {
+            query = TaskQuery.parse(text);
+        } catch (IllegalArgumentException e) {
+            query = TaskQuery.keyword(text);
+        }
+        TaskQuery parsed = query;
+        runQuery(new ListQuery(() -> todoList.query(parsed, 0, Integer.MAX_VALUE), parsed::matches, found -> {
+            if (parsed.getOrder() != null) {
+                found.sort(parsed.getOrder().comparator());
+            }
+            return found;
+        }), "Не удалось выполнить поиск");
+    }
+
+    /**
+     * Показывает задачи в выбранном порядке. Порядок самого хранилища не меняется,
+     * поэтому строку поиска очищаем: показываются все задачи.
+     */
+    private void sortTasks(SortOrder order) {
+        clearSearch();
+        runQuery(new ListQuery(() -> todoList.getTasksSortedBy(order), task -> true, found -> {
+            found.sort(order.comparator());
+            return found;
+        }), "Не удалось отсортировать задачи");
+    }
+
+    /**
+     * Показывает задачи с ближайшим сроком выполнения, не сортируя всё хранилище.
+     */
+    private void showUrgentTasks() {
+        clearSearch();
+        runQuery(new ListQuery(() -> todoList.getTopTasks(SortOrder.DUE_DATE, URGENT_TASKS), task -> true,
+                found -> SortOrder.DUE_DATE.first(found, URGENT_TASKS)), "Не удалось найти срочные задачи");
+    }
+
+    /**
+     * Выполняет запрос к хранилищу в фоновом потоке и показывает его результат.
+     * Предыдущий запрос отменяется: его результат больше не нужен.
+     */
+    private void runQuery(ListQuery query, String errorMessage) {
+        cancelQuery();
+        queryWorker = new QueryWorker(query, errorMessage);
+        queryWorker.execute();
+    }
+
+    /**
+     * Повторяет незавершённый запрос, чтобы его результат учитывал только что сделанное изменение.
+     */
+    private void restartPendingQuery() {
+        if (queryWorker != null) {
+            runQuery(queryWorker.query, queryWorker.errorMessage);
+        }
+    }
+
+    private void cancelQuery() {
+        if (queryWorker != null) {
+            queryWorker.cancel(true);
+            queryWorker = null;
+        }
+    }
+
+    /**
+     * Очищает строку поиска, не запуская поиск заново.
+     */
+    private void clearSearch() {
+        searchField.setText("");
+        searchTimer.stop();
+        cancelQuery();
+    }
+
+    /**
+     * Импортирует задачи из файла CSV или JSON Lines в фоновом потоке.
+     * Импортированные задачи появляются в списке после завершения импорта.
+     */
+    private void importTasks() {
+        Path file = chooseTransferFile(false);
+        if (file == null) {
+            return;
+        }
+        runTransfer(() -> TaskTransfer.importTasks(file, TaskTransfer.Format.forPath(file), todoList),
+                "Импорт завершён", "Не удалось импортировать задачи");
+    }
+
+    /**
+     * Экспортирует все задачи в файл CSV или JSON Lines в фоновом потоке.
+     */
+    private void exportTasks() {
+        Path file = chooseTransferFile(true);
+        if (file == null) {
+            return;
+        }
+        runTransfer(() -> TaskTransfer.exportTasks(todoList, file, TaskTransfer.Format.forPath(file)),
+                "Экспорт завершён", "Не удалось экспортировать задачи");
+    }
+
+    /**
+     * Показывает количество и задержки операций хранилища. Показатели читаются без замка
+     * хранилища, поэтому окно открывается сразу, даже пока идёт долгий запрос.
+     */
+    private void showMetrics() {
+        if (!(todoList instanceof TodoList)) {
+            JOptionPane.showMessageDialog(this, "Это хранилище не собирает статистику операций.",
+                    "Статистика операций", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        TodoListMetrics metrics = ((TodoList) todoList).getMetrics();
+        StringBuilder message = new StringBuilder("Задач в списке: " + metrics.getTaskCount());
+        if (!metrics.isEnabled()) {
+            message.append("\nЗапись статистики отключена (todolist.metrics=false).");
+        }
+        for (Map.Entry<String, TodoListMetrics.OperationStatistics> entry : metrics.getOperations().entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                message.append('\n').append(entry.getKey()).append(": ").append(entry.getValue());
+            }
+        }
+        JOptionPane.showMessageDialog(this, message.toString(), "Статистика операций", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private Path chooseTransferFile(boolean save) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV и JSON Lines (*.csv, *.jsonl)", "csv", "jsonl", "ndjson", "json"));
+        int result = save ? chooser.showSaveDialog(this) : chooser.showOpenDialog(this);
+        return result == JFileChooser.APPROVE_OPTION ? chooser.getSelectedFile().toPath() : null;
+    }
+
+    private void runTransfer(Callable<TaskTransfer.TransferResult> transfer, String title, String errorMessage) {
+        new SwingWorker<TaskTransfer.TransferResult, Void>() {
+            @Override
+            protected TaskTransfer.TransferResult doInBackground() throws Exception {
+                return transfer.call();
+            }
+
+            @Override
+            protected void done() {
+                listModel.showNewTasks();
+                restartPendingQuery();
+                updateHistoryItems();
+                try {
+                    TaskTransfer.TransferResult result = get();
+                    StringBuilder message = new StringBuilder(result.toString());
+                    for (String error : result.getErrors().subList(0, Math.min(10, result.getErrors().size()))) {
+                        message.append('\n').append(error);
+                    }
+                    JOptionPane.showMessageDialog(TodoAppGUI.this, message, title, JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    showBackgroundError(errorMessage, e);
+                }
+            }
+        }.execute();
+    }
+
+    private void showBackgroundError(String message, Exception e) {
+        Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+        JOptionPane.showMessageDialog(this, message + ": " + cause.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Запрос для показа в списке. Если хранилище хранит версии, запрос просматривает неизменяемую
+     * версию списка вне замка хранилища: filter отбирает задачи, а finish упорядочивает отобранные.
+     * Иначе (или если filter не задан) запрос целиком выполняет хранилище под своим замком.
+     */
+    private static final class ListQuery {
+        final Supplier<List<Task>> storeQuery;
+        final Predicate<Task> filter;
+        final UnaryOperator<List<Task>> finish;
+
+        ListQuery(Supplier<List<Task>> storeQuery) {
+            this(storeQuery, null, null);
+        }
+
+        ListQuery(Supplier<List<Task>> storeQuery, Predicate<Task> filter, UnaryOperator<List<Task>> finish) {
+            this.storeQuery = storeQuery;
+            this.filter = filter;
+            this.finish = finish;
+        }
+    }
+
+    /**
+     * Фоновый запрос к хранилищу. Замок хранилища берётся только на время получения версии,
+     * а сам просмотр идёт без замка: правки в окне не ждут долгого поиска, а отменённый
+     * запрос прекращается через SCAN_CHUNK задач. Результат показывается, только если
+     * после него не был запущен другой запрос.
+     */
+    private final class QueryWorker extends SwingWorker<List<Task>, Void> {
+        private final ListQuery query;
+        private final String errorMessage;
+
+        QueryWorker(ListQuery query, String errorMessage) {
+            this.query = query;
+            this.errorMessage = errorMessage;
+        }
+
+        @Override
+        protected List<Task> doInBackground() {
+            TaskVersion version;
+            synchronized (todoList) {
+                // Пока ждали хранилище, пользователь мог запустить новый запрос
+                if (isCancelled()) {
+                    return null;
+                }
+                version = query.filter == null ? null : todoList.getVersion();
+                if (version == null) {
+                    return query.storeQuery.get();
+                }
+            }
+            List<Task> found = new ArrayList<>();
+            int scanned = 0;
+            for (Task task : version) {
+                if (++scanned % SCAN_CHUNK == 0 && isCancelled()) {
+                    return null;
+                }
+                if (query.filter.test(task)) {
+                    found.add(task);
+                }
+            }
+            return query.finish.apply(found);
+        }
+
+        @Override
+        protected void done() {
+            if (queryWorker != this || isCancelled()) {
+                return;
+            }
+            queryWorker = null;
+            try {
+                listModel.showResults(get());
+            } catch (InterruptedException | ExecutionException e) {
+                showBackgroundError(errorMessage, e);
+            }
+        }
+    }
+
+    /**
+     * Собирает напоминания планировщика и показывает их на EDT одним сообщением:
+     * при открытии списка с десятками просроченных задач не появляются десятки окон.
+     */
+    private final class ReminderListener implements DeadlineListener {
+        @Override
+        public void taskDue(Task task) {
+            remind("Сегодня срок: ", task);
+        }
+
+        @Override
+        public void taskOverdue(Task task) {
+            remind("Просрочена: ", task);
+        }
+
+        @Override
+        public void occurrenceDue(Occurrence occurrence) {
+            remind("Сегодня повторение: ", occurrence.getTask(), occurrence.getDate());
+        }
+
+        @Override
+        public void occurrenceOverdue(Occurrence occurrence) {
+            remind("Не выполнено повторение: ", occurrence.getTask(), occurrence.getDate());
+        }
+
+        private void remind(String prefix, Task task) {
+            remind(prefix, task, task.getDueDate());
+        }
+
+        private void remind(String prefix, Task task, LocalDate date) {
+            String notice;
+            synchronized (todoList) {
+                notice = prefix + task.getTitle() + " (срок " + date + ")";
+            }
+            synchronized (pendingReminders) {
+                pendingReminders.add(notice);
+                if (pendingReminders.size() > 1) {
+                    return; // Показ уже запланирован
+                }
+            }
+            SwingUtilities.invokeLater(this::showReminders);
+        }
+
+        private void showReminders() {
+            List<String> notices;
+            synchronized (pendingReminders) {
+                notices = new ArrayList<>(pendingReminders);
+                pendingReminders.clear();
+            }
+            StringBuilder message = new StringBuilder();
+            for (String notice : notices.subList(0, Math.min(MAX_LISTED_REMINDERS, notices.size()))) {
+                message.append(notice).append('\n');
+            }
+            if (notices.size() > MAX_LISTED_REMINDERS) {
+                message.append("...и ещё ").append(notices.size() - MAX_LISTED_REMINDERS);
+            }
+            JOptionPane.showMessageDialog(TodoAppGUI.this, message.toString().trim(), "Напоминание", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    /**
+     * Точка входа для запуска GUI-приложения.
+     */
+    public static void main(String[] args) {
+        // Swing-приложения должны запускаться в специальном потоке (Event Dispatch Thread)
+        SwingUtilities.invokeLater(() -> {
+            TodoAppGUI app = new TodoAppGUI();
+            app.setVisible(true);
+        });
+    }
+}
+
+/**
+ * Модель JList, которая читает задачи прямо из хранилища без копирования списка.
+ * Каждое изменение сообщает JList только о затронутых строках, а результаты поиска
+ * и сортировки показываются как отдельное представление поверх готового списка.
+ * Хранилище может одновременно использоваться фоновыми задачами, поэтому любое
+ * обращение к нему синхронизируется по самому хранилищу. Если хранилище хранит версии,
+ * строки рисуются из версии, взятой при последнем изменении через модель, без замка:
+ * отрисовка не ждёт фоновый импорт и видит согласованный список. Фоновый импорт добавляет
+ * задачи в конец хранилища, поэтому модель показывает столько задач, сколько уже
+ * сообщила JList, и добавляет новые строки в showNewTasks или при следующем изменении.
+ */
+class TaskListModel extends AbstractListModel<Task> {
+    private static final long serialVersionUID = 1L;
+
+    private final TaskStore store;
+    private List<Task> results; // Результаты поиска или сортировки; null, если показываются все задачи
+    private int allSize; // Количество задач хранилища, о котором уже знает JList
+    private TaskVersion version; // Показываемая версия хранилища; null, если хранилище не хранит версий
+
+    TaskListModel(TaskStore store) {
+        this.store = store;
+        synchronized (store) {
+            this.version = store.getVersion();
+            this.allSize = store.size();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return results != null ? results.size() : allSize;
+    }
+
+    @Override
+    public Task getElementAt(int index) {
+        if (results != null) {
+            return results.get(index);
+        }
+        if (version != null) {
+            return version.getTaskAt(index);
+        }
+        synchronized (store) {
+            return store.getTaskAt(index);
+        }
+    }
+
+    /**
+     * Добавляет задачу. Если показаны результаты поиска или сортировки, возвращается к полному списку,
+     * чтобы новая задача была видна.
+     */
+    void addTask(Task task) {
+        int index;
+        int newSize;
+        synchronized (store) {
+            index = store.indexOf(store.addTask(task).getId());
+            newSize = store.size();
+            version = store.getVersion();
+        }
+        if (results != null) {
+            showAll();
+            return;
+        }
+        if (index <= allSize) {
+            allSize++;
+            fireIntervalAdded(this, index, index);
+        }
+        addNewRows(newSize);
+    }
+
+    /**
+     * Сохраняет изменённые поля задачи и перерисовывает только её строку.
+     */
+    void editTask(Task task) {
+        Task stored;
+        synchronized (store) {
+            store.editTaskById(task.getId(), task.getTitle(), task.getDescription(), task.getDueDate(), task.getPriority());
+            stored = store.getTaskById(task.getId()); // Хранилище может возвращать копии
+            version = store.getVersion();
+        }
+        int index = indexInView(task.getId());
+        if (index < 0) {
+            return;
+        }
+        if (results != null) {
+            results.set(index, stored);
+        }
+        fireContentsChanged(this, index, index);
+    }
+
+    /**
+     * Удаляет задачу и убирает из JList только её строку.
+     */
+    void deleteTask(long id) {
+        int index = indexInView(id);
+        int newSize;
+        synchronized (store) {
+            store.deleteTaskById(id);
+            newSize = store.size();
+            version = store.getVersion();
+        }
+        if (index >= 0) {
+            if (results != null) {
+                results.remove(index);
+            } else {
+                allSize--;
+            }
+            fireIntervalRemoved(this, index, index);
+        }
+        if (results == null) {
+            addNewRows(newSize);
+        }
+    }
+
+    /**
+     * Показывает задачи, добавленные в хранилище в обход модели (например, импортом).
+     */
+    void showNewTasks() {
+        if (results == null) {
+            int newSize;
+            synchronized (store) {
+                newSize = store.size();
+                version = store.getVersion();
+            }
+            addNewRows(newSize);
+        }
+    }
+
+    /**
+     * Показывает результаты поиска или задачи в отсортированном порядке, не копируя список.
+     */
+    void showResults(List<Task> results) {
+        int oldSize = getSize();
+        this.results = results;
+        if (results == null) {
+            synchronized (store) {
+                allSize = store.size();
+                version = store.getVersion();
+            }
+        }
+        fireViewChanged(oldSize);
+    }
+
+    /**
+     * Возвращается к полному списку задач.
+     */
+    void showAll() {
+        showResults(null);
+    }
+
+    /**
+     * Сообщает JList о смене представления не более чем тремя событиями.
+     */
+    private void fireViewChanged(int oldSize) {
+        int newSize = getSize();
+        if (newSize < oldSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        } else if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        }
+        int common = Math.min(oldSize, newSize);
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+    }
+
+    /**
+     * Сообщает JList о задачах, появившихся в конце хранилища.
+     */
+    private void addNewRows(int newSize) {
+        if (newSize > allSize) {
+            int oldSize = allSize;
+            allSize = newSize;
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        }
+    }
+
+    private int indexInView(long id) {
+        if (results == null) {
+            int index;
+            synchronized (store) {
+                index = store.indexOf(id);
+            }
+            return index < allSize ? index : -1;
+        }
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
+
+/**
+ * Вспомогательный класс для красивого отображения задач в JList.
+ */
+class TaskCellRenderer extends JPanel implements ListCellRenderer<Task> {
+
+    private static final Color HIGH_COLOR = new Color(255, 102, 102); // Красный
+    private static final Color MEDIUM_COLOR = new Color(255, 204, 102); // Оранжевый
+    private static final Color LOW_COLOR = new Color(102, 204, 102); // Зеленый
+
+    // Кэш строк с подробностями: прямое отображение по идентификатору задачи.
+    // Размер - степень двойки, заметно больше числа видимых строк.
+    private static final int DETAILS_CACHE_SIZE = 1024;
+
+    private JLabel titleLabel;
+    private JLabel detailsLabel;
+    private JPanel priorityPanel;
+    private final DetailsEntry[] detailsCache = new DetailsEntry[DETAILS_CACHE_SIZE];
+
+    public TaskCellRenderer() {
+        setLayout(new BorderLayout(5, 5));
+        setBorder(new EmptyBorder(5, 5, 5, 5));
+
+        titleLabel = new JLabel();
+        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
+
+        detailsLabel = new JLabel();
+        detailsLabel.setFont(new Font("Segoe UI", Font.ITALIC, 12));
+        detailsLabel.setForeground(Color.GRAY);
+
+        priorityPanel = new JPanel();
+        priorityPanel.setPreferredSize(new Dimension(10, 10));
+
+        add(titleLabel, BorderLayout.CENTER);
+        add(detailsLabel, BorderLayout.SOUTH);
+        add(priorityPanel, BorderLayout.WEST);
+
+        for (int i = 0; i < DETAILS_CACHE_SIZE; i++) {
+            detailsCache[i] = new DetailsEntry();
+        }
+    }
+
+    /**
+     * Задача-образец для JList.setPrototypeCellValue: по ней JList один раз вычисляет
+     * размер ячейки и не измеряет каждую строку списка.
+     */
+    static Task prototype() {
+        return new Task("Название типичной задачи", "Описание типичной задачи средней длины",
+                LocalDate.of(2000, 12, 31), Priority.MEDIUM);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Task> list, Task task, int index, boolean isSelected, boolean cellHasFocus) {
+
+        titleLabel.setText(task.getTitle());
+        detailsLabel.setText(details(task));
+
+        // Цветовое кодирование приоритета
+        priorityPanel.setBackground(priorityColor(task.getPriority(), list));
+
+        // Цвет фона при выделении
+        if (isSelected) {
+            setBackground(list.getSelectionBackground());
+            setForeground(list.getSelectionForeground());
+        } else {
+            setBackground(list.getBackground());
+            setForeground(list.getForeground());
+        }
+
+        return this;
+    }
+
+    private static Color priorityColor(Priority priority, JList<?> list) {
+        if (priority == null) {
+            return list.getBackground();
+        }
+        switch (priority) {
+            case HIGH:
+                return HIGH_COLOR;
+            case MEDIUM:
+                return MEDIUM_COLOR;
+            default:
+                return LOW_COLOR;
+        }
+    }
+
+    /**
+     * Возвращает строку подробностей задачи, собирая её заново только для другой задачи
+     * или другой её версии. Задача неизменяема, поэтому совпадение ссылки означает
+     * совпадение полей, а проверка не читает поля задачи (getDueDate создаёт объект).
+     */
+    private String details(Task task) {
+        DetailsEntry entry = detailsCache[Long.hashCode(task.getId()) & (DETAILS_CACHE_SIZE - 1)];
+        if (entry.task != task) {
+            LocalDate dueDate = task.getDueDate();
+            entry.task = task;
+            entry.text = "Срок: " + (dueDate == null ? "не указан" : dueDate) + " | " + task.getDescription();
+        }
+        return entry.text;
+    }
+
+    private static final class DetailsEntry {
+        Task task;
+        String text;
+    }
+}
+
+/**
+ * Вспомогательный класс для диалогового окна создания/редактирования задачи.
+ */
+class TaskDialog extends JDialog {
+    private JTextField titleField = new JTextField(20);
+    private JTextField descriptionField = new JTextField(20);
+    private JTextField dueDateField = new JTextField(10);
+    private JComboBox<Priority> priorityComboBox = new JComboBox<>(Priority.values());
+
+    private Task task;
+    private boolean succeeded = false;
+
+    public TaskDialog(Frame owner, String title, Task taskToEdit) {
+        super(owner, title, true);
+        this.task = (taskToEdit == null) ? new Task("", "", LocalDate.now(), Priority.MEDIUM) : taskToEdit;
+
+        setLayout(new BorderLayout(10, 10));
+        JPanel fieldsPanel = new JPanel(new GridLayout(4, 2, 5, 5));
+        fieldsPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        fieldsPanel.add(new JLabel("Название:"));
+        fieldsPanel.add(titleField);
+        fieldsPanel.add(new JLabel("Описание:"));
+        fieldsPanel.add(descriptionField);
+        fieldsPanel.add(new JLabel("Срок (гггг-мм-дд):"));
+        fieldsPanel.add(dueDateField);
+        fieldsPanel.add(new JLabel("Приоритет:"));
+        fieldsPanel.add(priorityComboBox);
+
+        // Заполняем поля, если редактируем
+        titleField.setText(this.task.getTitle());
+        descriptionField.setText(this.task.getDescription());
+        dueDateField.setText(this.task.getDueDate() == null ? "" : this.task.getDueDate().toString());
+        priorityComboBox.setSelectedItem(this.task.getPriority());
+
+        JPanel buttonPanel = new JPanel();
+        JButton okButton = new JButton("OK");
+        JButton cancelButton = new JButton("Отмена");
+        buttonPanel.add(okButton);
+        buttonPanel.add(cancelButton);
+
+        okButton.addActionListener(e -> onOK());
+        cancelButton.addActionListener(e -> dispose());
+
+        add(fieldsPanel, BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        pack(); // Автоматически подбирает размер окна
+        setLocationRelativeTo(owner);
+    }
+
+    private void onOK() {
+        try {
+            String title = titleField.getText();
+            if (title.trim().isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Название не может быть пустым.", "Ошибка валидации", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            // Пустое поле срока - задача без срока
+            String dueText = dueDateField.getText().trim();
+            LocalDate dueDate = dueText.isEmpty() ? null : LocalDate.parse(dueText);
+            // Задача неизменяема: диалог возвращает новую версию с тем же идентификатором
+            task = new Task(task.getId(), title, descriptionField.getText(),
+                    dueDate, (Priority) priorityComboBox.getSelectedItem());
+            succeeded = true;
+            dispose();
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Неверный формат даты. Используйте гггг-мм-дд.", "Ошибка валидации", JOptionPane.ERROR_MESSAGE);
+        } catch (IllegalArgumentException ex) {
+            // Дата разобрана, но задача её не принимает (срок вне допустимого диапазона)
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Ошибка валидации", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public boolean isSucceeded() {
+        return succeeded;
+    }
 }
\ No newline at end of file
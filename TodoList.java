@@ -1,102 +1,1056 @@
-package com.todolist;
-
-
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
-
-
-public class TodoList {
-    private final List<Task> tasks;
-
-    public TodoList() {
-        this.tasks = new ArrayList<>();
-    }
-
-    /**
-     *     .
-     * @param task   .
-     */
-    public void addTask(Task task) {
-        this.tasks.add(task);
-    }
-
-    /**
-     *      .
-     * @return true,    ,  false.
-     */
-    public boolean editTask(int index, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
-        if (isValidIndex(index)) {
-            Task taskToEdit = tasks.get(index);
-            taskToEdit.setTitle(newTitle);
-            taskToEdit.setDescription(newDescription);
-            taskToEdit.setDueDate(newDueDate);
-            taskToEdit.setPriority(newPriority);
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     *     .
-     * @param index    .
-     * @return true,    ,  false.
-     */
-    public boolean deleteTask(int index) {
-        if (isValidIndex(index)) {
-            tasks.remove(index);
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     *    .
-     * @return  .
-     */
-    public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks); //      
-    }
-
-    /**
-     *     .
-     */
-    public void sortByDueDate() {
-        tasks.sort(Comparator.comparing(Task::getDueDate));
-    }
-
-    /**
-     *  ,        .
-     * @param keyword    .
-     * @return   .
-     */
-    public List<Task> searchByKeyword(String keyword) {
-        String lowerCaseKeyword = keyword.toLowerCase();
-        return tasks.stream()
-                .filter(task -> task.getTitle().toLowerCase().contains(lowerCaseKeyword) ||
-                        task.getDescription().toLowerCase().contains(lowerCaseKeyword))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     *     .
-     * @param priority   .
-     * @return   .
-     */
-    public List<Task> searchByPriority(Priority priority) {
-        return tasks.stream()
-                .filter(task -> task.getPriority() == priority)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * ,        .
-     * @param index   .
-     * @return true,   ,  false.
-     */
-    private boolean isValidIndex(int index) {
-        return index >= 0 && index < tasks.size();
-    }
+package com.todolist;
+
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+public class TodoList implements TaskStore {
+    // Промежуток между ключами соседних задач: между ними можно вставить задачу без перенумерации
+    private static final long KEY_STEP = 1L << 20;
+    private static final int MAX_UNDO = 100;
+
+    // Текущая версия списка. Каждое изменение заменяет её новой версией с общими узлами,
+    // поэтому читатели берут версию без замков, а история отмены хранит только изменённые узлы
+    private volatile TaskVersion version = TaskVersion.EMPTY;
+    private final Map<Long, Long> keyById; // Идентификатор -> ключ порядка задачи в версии
+    private final KeywordIndex keywordIndex;
+    private final PriorityDateIndex priorityDateIndex;
+    private SortedViews sortedViews; // Строятся при первом запросе отсортированного порядка
+    private FuzzyIndex fuzzyIndex; // Строится заранее (prepareFuzzyIndex) или при первом нечётком поиске
+    private final RecurrenceIndex recurrences = new RecurrenceIndex();
+    private TaskChangePublisher changes; // Создаётся при первом запросе потока изменений
+    private final List<TaskChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final Deque<Change> undoHistory = new ArrayDeque<>();
+    private final Deque<Change> redoHistory = new ArrayDeque<>();
+    // Изменения после открытия первой точки отката в порядке выполнения; null, если точек нет
+    private List<Change> applied;
+    private BitSet appliedUndone; // Какие из изменений applied - отмены
+    private int savepoints;
+    private long nextId = 1;
+    private boolean indexed; // Индексы строятся при первом запросе, чтобы загрузка списка была быстрой
+    private final TodoListMetrics metrics = new TodoListMetrics(this::size);
+
+    public TodoList() {
+        this.keyById = new HashMap<>();
+        this.keywordIndex = new KeywordIndex();
+        this.priorityDateIndex = new PriorityDateIndex();
+    }
+
+    /**
+     * Изменение списка для отмены и повтора: версии до и после него и затронутые задачи.
+     */
+    static final class Change {
+        enum Kind { ADD, EDIT, REMOVE, SORT, COMPLETE, REOPEN }
+
+        final Kind kind;
+        final TaskVersion before;
+        final TaskVersion after;
+        final List<Task> added; // ADD: добавленные задачи с ключами firstKey, firstKey + KEY_STEP, ...
+        final Task oldTask; // EDIT: прежняя версия задачи; REMOVE: удалённая задача; COMPLETE, REOPEN: серия
+        final Task newTask; // EDIT: новая версия задачи
+        final long key; // ADD: ключ первой задачи; EDIT, REMOVE: ключ задачи; COMPLETE, REOPEN: номер дня повторения
+
+        private Change(Kind kind, TaskVersion before, TaskVersion after, List<Task> added, Task oldTask, Task newTask, long key) {
+            this.kind = kind;
+            this.before = before;
+            this.after = after;
+            this.added = added;
+            this.oldTask = oldTask;
+            this.newTask = newTask;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Точка отката: история отмены и повтора на момент её открытия и число изменений,
+     * выполненных после первой открытой точки до неё.
+     */
+    static final class Savepoint {
+        private final Change[] undo;
+        private final Change[] redo;
+        private final int applied;
+
+        private Savepoint(Change[] undo, Change[] redo, int applied) {
+            this.undo = undo;
+            this.redo = redo;
+            this.applied = applied;
+        }
+    }
+
+    /**
+     * Добавляет новую задачу в список. Задача без идентификатора сохраняется копией с назначенным
+     * идентификатором (ненулевой идентификатор сохраняется, например при восстановлении).
+     * @param task Задача для добавления.
+     * @return Сохранённая задача.
+     * @throws IllegalArgumentException если задача с таким идентификатором уже есть в списке.
+     */
+    public Task addTask(Task task) {
+        long start = metrics.start(TodoListMetrics.Operation.ADD);
+        TaskVersion before = version;
+        Task added = add(task);
+        record(new Change(Change.Kind.ADD, before, version, Collections.singletonList(added), null, null, version.lastKey()));
+        metrics.record(TodoListMetrics.Operation.ADD, start, 1);
+        return added;
+    }
+
+    /**
+     * Добавляет пачку задач. Идентификаторы проверяются до изменения списка,
+     * поэтому при ошибке не добавляется ни одна задача из пачки.
+     * @param tasks Задачи для добавления.
+     * @throws IllegalArgumentException если идентификатор задачи уже есть в списке или повторяется в пачке.
+     */
+    @Override
+    public List<Task> addTasks(List<Task> tasks) {
+        Set<Long> batchIds = new HashSet<>();
+        for (Task task : tasks) {
+            long id = task.getId();
+            if (id != 0 && (keyById.containsKey(id) || !batchIds.add(id))) {
+                throw new IllegalArgumentException("Задача с идентификатором " + id + " уже есть в списке");
+            }
+        }
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long start = metrics.start(TodoListMetrics.Operation.ADD);
+        TaskVersion before = version;
+        List<Task> added = new ArrayList<>(tasks.size());
+        added.add(add(tasks.get(0)));
+        long firstKey = version.lastKey();
+        for (Task task : tasks.subList(1, tasks.size())) {
+            added.add(add(task));
+        }
+        // Пачка отменяется целиком, как одно изменение
+        record(new Change(Change.Kind.ADD, before, version, added, null, null, firstKey));
+        metrics.record(TodoListMetrics.Operation.ADD, start, tasks.size());
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * Добавляет задачу в конец списка.
+     * @return Сохранённая задача.
+     */
+    private Task add(Task task) {
+        if (task.getId() == 0) {
+            task = task.withId(nextId++);
+        } else if (keyById.containsKey(task.getId())) {
+            throw new IllegalArgumentException("Задача с идентификатором " + task.getId() + " уже есть в списке");
+        } else {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+        long key = version.isEmpty() ? 0 : version.lastKey() + KEY_STEP;
+        version = version.put(key, task);
+        keyById.put(task.getId(), key);
+        attach(task, key);
+        return task;
+    }
+
+    /**
+     * Возвращает задачу по идентификатору за O(1).
+     * @return Задача или null, если её нет в списке.
+     */
+    public Task getTaskById(long id) {
+        Long key = keyById.get(id);
+        return key == null ? null : version.find(key);
+    }
+
+    /**
+     * Возвращает количество задач в списке.
+     */
+    public int size() {
+        return version.size();
+    }
+
+    /**
+     * Возвращает задачу по индексу за O(log n) без копирования списка.
+     * @return Задача или null, если индекс недопустим.
+     */
+    public Task getTaskAt(int index) {
+        return version.getTaskAt(index);
+    }
+
+    /**
+     * Возвращает текущий индекс задачи с указанным идентификатором за O(log n).
+     * @return Индекс или -1, если задачи нет в списке.
+     */
+    public int indexOf(long id) {
+        Long key = keyById.get(id);
+        return key == null ? -1 : version.rank(key);
+    }
+
+    /**
+     * Редактирует существующую задачу по указанному индексу.
+     * @return true, если редактирование прошло успешно, иначе false.
+     */
+    public boolean editTask(int index, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        long start = metrics.start(TodoListMetrics.Operation.EDIT);
+        boolean valid = isValidIndex(index);
+        if (valid) {
+            update(version.keyAt(index), newTitle, newDescription, newDueDate, newPriority);
+        }
+        metrics.record(TodoListMetrics.Operation.EDIT, start, valid ? 1 : 0);
+        return valid;
+    }
+
+    /**
+     * Редактирует задачу по идентификатору за O(log n) (не считая обновления индексов).
+     * @return true, если задача найдена и изменена, иначе false.
+     */
+    public boolean editTaskById(long id, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        long start = metrics.start(TodoListMetrics.Operation.EDIT);
+        Long key = keyById.get(id);
+        if (key != null) {
+            update(key, newTitle, newDescription, newDueDate, newPriority);
+        }
+        metrics.record(TodoListMetrics.Operation.EDIT, start, key != null ? 1 : 0);
+        return key != null;
+    }
+
+    /**
+     * Удаляет задачу по указанному индексу.
+     * @param index Индекс задачи для удаления.
+     * @return true, если удаление прошло успешно, иначе false.
+     */
+    public boolean deleteTask(int index) {
+        long start = metrics.start(TodoListMetrics.Operation.DELETE);
+        boolean removed = isValidIndex(index) && remove(getTaskAt(index).getId());
+        metrics.record(TodoListMetrics.Operation.DELETE, start, removed ? 1 : 0);
+        return removed;
+    }
+
+    /**
+     * Удаляет задачу по идентификатору за O(log n) (не считая обновления индексов).
+     * @return true, если задача найдена и удалена, иначе false.
+     */
+    public boolean deleteTaskById(long id) {
+        long start = metrics.start(TodoListMetrics.Operation.DELETE);
+        boolean removed = remove(id);
+        metrics.record(TodoListMetrics.Operation.DELETE, start, removed ? 1 : 0);
+        return removed;
+    }
+
+    private boolean remove(long id) {
+        Long key = keyById.remove(id);
+        if (key == null) {
+            return false;
+        }
+        TaskVersion before = version;
+        Task removed = before.find(key);
+        version = before.remove(key);
+        detach(removed);
+        record(new Change(Change.Kind.REMOVE, before, version, null, removed, null, key));
+        return true;
+    }
+
+    /**
+     * Возвращает текущую версию списка за O(1). Версия неизменяема: её можно читать
+     * без замков в любом потоке, пока список продолжает меняться.
+     */
+    @Override
+    public TaskVersion getVersion() {
+        return version;
+    }
+
+    /**
+     * Возвращает поток изменений списка, собранных в пачки, для подписчиков Flow
+     * (см. TaskChangePublisher). Поток создаётся при первом вызове и существует, пока существует список.
+     */
+    public synchronized TaskChangePublisher changes() {
+        if (changes == null) {
+            changes = new TaskChangePublisher(this);
+        }
+        return changes;
+    }
+
+    /**
+     * Доставляет подписчикам потока изменений оставшиеся изменения и завершает их подписки.
+     */
+    synchronized void closeChanges() {
+        if (changes != null) {
+            changes.close();
+            changes = null;
+        }
+    }
+
+    /**
+     * Возвращает показатели операций этого списка (см. TodoListMetrics).
+     */
+    public TodoListMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Отменяет последнее изменение: добавление (пачка задач отменяется целиком),
+     * редактирование, удаление, сортировку или отметку о выполнении повторения. Хранится до MAX_UNDO последних изменений.
+     * @return true, если изменение отменено, иначе false.
+     */
+    @Override
+    public boolean undo() {
+        return undoChange() != null;
+    }
+
+    /**
+     * Повторяет последнее отменённое изменение. Новое изменение списка очищает историю повтора.
+     * @return true, если изменение повторено, иначе false.
+     */
+    @Override
+    public boolean redo() {
+        return redoChange() != null;
+    }
+
+    @Override
+    public boolean canUndo() {
+        return !undoHistory.isEmpty();
+    }
+
+    @Override
+    public boolean canRedo() {
+        return !redoHistory.isEmpty();
+    }
+
+    /**
+     * Отменяет последнее изменение и переносит его в историю повтора.
+     * @return Отменённое изменение или null, если отменять нечего.
+     */
+    Change undoChange() {
+        long start = metrics.start(TodoListMetrics.Operation.UNDO);
+        Change change = undoHistory.pollFirst();
+        if (change == null) {
+            metrics.record(TodoListMetrics.Operation.UNDO, start, 0);
+            return null;
+        }
+        applyUndo(change);
+        redoHistory.addFirst(change);
+        trail(change, true);
+        metrics.record(TodoListMetrics.Operation.UNDO, start, 1);
+        return change;
+    }
+
+    /**
+     * Повторяет последнее отменённое изменение и возвращает его в историю отмены.
+     * @return Повторённое изменение или null, если повторять нечего.
+     */
+    Change redoChange() {
+        long start = metrics.start(TodoListMetrics.Operation.REDO);
+        Change change = redoHistory.pollFirst();
+        if (change == null) {
+            metrics.record(TodoListMetrics.Operation.REDO, start, 0);
+            return null;
+        }
+        applyRedo(change);
+        undoHistory.addFirst(change);
+        trail(change, false);
+        metrics.record(TodoListMetrics.Operation.REDO, start, 1);
+        return change;
+    }
+
+    /**
+     * Возвращает список к версии до изменения и обновляет индексы только для затронутых задач
+     * (после отмены сортировки индексы перенумеровываются целиком).
+     */
+    private void applyUndo(Change change) {
+        version = change.before;
+        switch (change.kind) {
+            case ADD:
+                for (Task task : change.added) {
+                    keyById.remove(task.getId());
+                    detach(task);
+                }
+                break;
+            case EDIT:
+                replace(change.newTask, change.oldTask);
+                break;
+            case REMOVE:
+                keyById.put(change.oldTask.getId(), change.key);
+                attach(change.oldTask, change.key);
+                break;
+            case COMPLETE:
+                recurrences.reopen(change.oldTask.getId(), LocalDate.ofEpochDay(change.key));
+                fireOccurrence(change.oldTask.getId(), change.key, false);
+                break;
+            case REOPEN:
+                recurrences.complete(change.oldTask.getId(), LocalDate.ofEpochDay(change.key));
+                fireOccurrence(change.oldTask.getId(), change.key, true);
+                break;
+            default:
+                renumber();
+                fireReordered();
+        }
+    }
+
+    /**
+     * Возвращает список к версии после изменения.
+     */
+    private void applyRedo(Change change) {
+        version = change.after;
+        switch (change.kind) {
+            case ADD:
+                long key = change.key;
+                for (Task task : change.added) {
+                    keyById.put(task.getId(), key);
+                    attach(task, key);
+                    key += KEY_STEP;
+                }
+                break;
+            case EDIT:
+                replace(change.oldTask, change.newTask);
+                break;
+            case REMOVE:
+                keyById.remove(change.oldTask.getId());
+                detach(change.oldTask);
+                break;
+            case COMPLETE:
+                recurrences.complete(change.oldTask.getId(), LocalDate.ofEpochDay(change.key));
+                fireOccurrence(change.oldTask.getId(), change.key, true);
+                break;
+            case REOPEN:
+                recurrences.reopen(change.oldTask.getId(), LocalDate.ofEpochDay(change.key));
+                fireOccurrence(change.oldTask.getId(), change.key, false);
+                break;
+            default:
+                renumber();
+                fireReordered();
+        }
+    }
+
+    /**
+     * Открывает точку отката. Пока точка открыта, все изменения списка, их отмены и повторы
+     * запоминаются, и rollbackTo возвращает список точно к состоянию на момент открытия,
+     * вместе с историей отмены. Так хранилище с журналом отменяет изменения, которые
+     * не удалось записать на диск. Каждую точку нужно закрыть releaseSavepoint.
+     */
+    Savepoint savepoint() {
+        if (savepoints++ == 0) {
+            applied = new ArrayList<>();
+            appliedUndone = new BitSet();
+        }
+        return new Savepoint(undoHistory.toArray(new Change[0]), redoHistory.toArray(new Change[0]), applied.size());
+    }
+
+    /**
+     * Отменяет в обратном порядке все изменения, отмены и повторы после открытия точки отката
+     * и восстанавливает историю отмены и повтора. Точка остаётся открытой.
+     */
+    void rollbackTo(Savepoint savepoint) {
+        for (int i = applied.size() - 1; i >= savepoint.applied; i--) {
+            Change change = applied.remove(i);
+            if (appliedUndone.get(i)) {
+                applyRedo(change);
+            } else {
+                applyUndo(change);
+            }
+        }
+        appliedUndone.clear(savepoint.applied, appliedUndone.length());
+        undoHistory.clear();
+        undoHistory.addAll(Arrays.asList(savepoint.undo));
+        redoHistory.clear();
+        redoHistory.addAll(Arrays.asList(savepoint.redo));
+    }
+
+    /**
+     * Закрывает точку отката; после закрытия последней точки изменения больше не запоминаются.
+     */
+    void releaseSavepoint(Savepoint savepoint) {
+        if (--savepoints == 0) {
+            applied = null;
+            appliedUndone = null;
+        }
+    }
+
+    /**
+     * Запоминает изменение для отката, если открыта точка отката.
+     * @param undone true - изменение отменено, false - выполнено или повторено.
+     */
+    private void trail(Change change, boolean undone) {
+        if (applied != null) {
+            appliedUndone.set(applied.size(), undone);
+            applied.add(change);
+        }
+    }
+
+    /**
+     * Забывает историю отмены и повтора (например, после восстановления списка из журнала).
+     */
+    void clearHistory() {
+        undoHistory.clear();
+        redoHistory.clear();
+    }
+
+    /**
+     * Заменяет задачу с тем же идентификатором указанной версией целиком, вместе с правилом
+     * повторения. Так журнал восстанавливает отмену и повтор правки: правка по полям
+     * (editTaskById) оставляет задаче её текущее правило и не может вернуть снятое.
+     * @return true, если задача найдена.
+     */
+    boolean replaceTask(Task task) {
+        Long key = keyById.get(task.getId());
+        if (key == null) {
+            return false;
+        }
+        TaskVersion before = version;
+        Task replaced = before.find(key);
+        version = before.put(key, task);
+        replace(replaced, task);
+        record(new Change(Change.Kind.EDIT, before, version, null, replaced, task, key));
+        return true;
+    }
+
+    /**
+     * Возвращает задачу на место перед задачей beforeId или в конец списка, если beforeId
+     * равен 0 или такой задачи нет. Так журнал восстанавливает отменённое удаление.
+     * История отмены при этом забывается: ключи задач могут быть перенумерованы.
+     * @throws IllegalArgumentException если задача с таким идентификатором уже есть в списке.
+     */
+    void restoreTask(Task task, long beforeId) {
+        Long next = beforeId == 0 ? null : keyById.get(beforeId);
+        if (next == null) {
+            add(task);
+            clearHistory();
+            return;
+        }
+        if (keyById.containsKey(task.getId())) {
+            throw new IllegalArgumentException("Задача с идентификатором " + task.getId() + " уже есть в списке");
+        }
+        int rank = version.rank(next);
+        long previous = rank == 0 ? next - KEY_STEP : version.keyAt(rank - 1);
+        if (next - previous < 2) {
+            // Промежуток между соседями исчерпан: ключи всех задач раздаются заново
+            version = TaskVersion.build(version.getAllTasks(), 0, KEY_STEP);
+            renumber();
+            next = keyById.get(beforeId);
+            previous = rank == 0 ? next - KEY_STEP : version.keyAt(rank - 1);
+        }
+        long key = previous + (next - previous) / 2;
+        nextId = Math.max(nextId, task.getId() + 1);
+        version = version.put(key, task);
+        keyById.put(task.getId(), key);
+        attach(task, key);
+        clearHistory();
+    }
+
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Возвращает список всех задач.
+     * @return Список задач.
+     */
+    public List<Task> getAllTasks() {
+        // Возвращаем копию для предотвращения внешних изменений
+        return version.getAllTasks();
+    }
+
+    /**
+     * Возвращает страницу списка за O(log n + limit), не копируя весь список.
+     * @return Не больше limit задач начиная с индекса offset.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    @Override
+    public List<Task> getTasks(int offset, int limit) {
+        return version.getTasks(offset, limit);
+    }
+
+    /**
+     * Сортирует задачи по сроку выполнения, меняя порядок списка; задачи без срока идут в конце.
+     * Сортировка устойчива: задачи с одинаковым сроком сохраняют взаимный порядок.
+     * Чтобы просмотреть задачи в отсортированном виде, не меняя список, используйте getTasksSortedBy.
+     */
+    public void sortByDueDate() {
+        long start = metrics.start(TodoListMetrics.Operation.SORT);
+        TaskVersion before = version;
+        List<Task> sorted = before.getAllTasks();
+        sorted.sort(SortOrder::compareDueDates);
+        version = TaskVersion.build(sorted, 0, KEY_STEP);
+        renumber();
+        fireReordered();
+        record(new Change(Change.Kind.SORT, before, version, null, null, null, 0));
+        metrics.record(TodoListMetrics.Operation.SORT, start, version.size());
+    }
+
+    /**
+     * Возвращает задачи в указанном порядке за O(n), не меняя порядок списка.
+     * Представление для порядка строится при первом запросе этого порядка и дальше
+     * обновляется за O(log n) при каждом добавлении, изменении и удалении.
+     * @param order Порядок сортировки.
+     * @return Список задач в указанном порядке.
+     */
+    public List<Task> getTasksSortedBy(SortOrder order) {
+        long start = metrics.start(TodoListMetrics.Operation.SORT);
+        if (sortedViews == null) {
+            sortedViews = new SortedViews();
+            for (Task task : version) {
+                sortedViews.add(task);
+            }
+        }
+        return measured(TodoListMetrics.Operation.SORT, start, sortedViews.sorted(order));
+    }
+
+    /**
+     * Возвращает первые limit задач в указанном порядке. Если представление этого порядка
+     * уже построено, занимает O(limit), иначе O(n log limit) без сортировки всего списка.
+     * @throws IllegalArgumentException если limit отрицателен.
+     */
+    @Override
+    public List<Task> getTopTasks(SortOrder order, int limit) {
+        long start = metrics.start(TodoListMetrics.Operation.SORT);
+        List<Task> result = sortedViews == null ? null : sortedViews.first(order, limit);
+        return measured(TodoListMetrics.Operation.SORT, start, result != null ? result : order.first(version, limit));
+    }
+
+    /**
+     * Ищет задачи, содержащие определенное ключевое слово в названии или описании.
+     * Использует триграммный индекс, а если слово встречается настолько часто, что проверка
+     * кандидатов дороже просмотра всего списка, просматривает список (выбор делает QueryPlanner).
+     * @param keyword Ключевое слово для поиска.
+     * @return Список найденных задач.
+     */
+    public List<Task> searchByKeyword(String keyword) {
+        if (keyword.isEmpty()) {
+            return getAllTasks(); // Пустая строка содержится в любом тексте
+        }
+        return query(TaskQuery.keyword(keyword), 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает страницу результатов поиска по ключевому слову в порядке списка.
+     * Если слово встречается часто, список просматривается по порядку только до заполнения
+     * страницы; для редких слов найденные по индексу задачи упорядочиваются целиком.
+     * Путь выбирает планировщик запросов по оценке числа совпадений из индекса.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    @Override
+    public List<Task> searchByKeyword(String keyword, int offset, int limit) {
+        return query(TaskQuery.keyword(keyword), offset, limit);
+    }
+
+    /**
+     * Возвращает страницу задач, удовлетворяющих запросу. Планировщик (QueryPlanner) выбирает
+     * самый избирательный индекс или просмотр списка, который останавливается после заполнения страницы.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    @Override
+    public List<Task> query(TaskQuery query, int offset, int limit) {
+        TaskStore.checkPage(offset, limit);
+        long start = metrics.start(TodoListMetrics.Operation.SEARCH);
+        ensureIndexed();
+        List<Task> result = new QueryPlanner(version, keywordIndex, priorityDateIndex, keyById, sortedViews)
+                .execute(query, offset, limit);
+        return measured(TodoListMetrics.Operation.SEARCH, start, result);
+    }
+
+    /**
+     * Возвращает страницу результатов нечёткого поиска с учётом опечаток, лучшие совпадения первыми.
+     * Индекс слов строится при первом вызове, если его ещё не построил prepareFuzzyIndex,
+     * дальше обновляется вместе со списком.
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    @Override
+    public List<Task> fuzzySearch(String text, int offset, int limit) {
+        TaskStore.checkPage(offset, limit);
+        long start = metrics.start(TodoListMetrics.Operation.SEARCH);
+        if (fuzzyIndex == null) {
+            fuzzyIndex = new FuzzyIndex();
+            for (Task task : version) {
+                fuzzyIndex.add(task);
+            }
+        }
+        List<Task> found = fuzzyIndex.search(text, (int) Math.min(Integer.MAX_VALUE, (long) offset + limit));
+        List<Task> result = offset >= found.size() ? new ArrayList<>() : new ArrayList<>(found.subList(offset, found.size()));
+        return measured(TodoListMetrics.Operation.SEARCH, start, result);
+    }
+
+    /**
+     * Строит индекс нечёткого поиска заранее, чтобы первый нечёткий поиск не ждал его построения
+     * (при миллионе задач - секунды). Вызывается из фонового потока без замка хранилища - монитора
+     * этого списка, которым синхронизируются интерфейсы: под замком берётся текущая версия, задачи
+     * индексируются по ней без замка, а изменения, сделанные за это время, запоминает слушатель
+     * изменений, и под замком они применяются к готовому индексу.
+     */
+    public void prepareFuzzyIndex() {
+        List<Task[]> backlog = new ArrayList<>(); // Пары "прежняя версия, новая"; null - задачи нет
+        TaskChangeListener recorder = new TaskChangeListener() {
+            @Override
+            public void taskAdded(Task task) {
+                backlog.add(new Task[] {null, task});
+            }
+
+            @Override
+            public void taskUpdated(Task task) {
+                // Список сообщает и прежнюю версию задачи, см. taskUpdated(Task, Task)
+            }
+
+            @Override
+            public void taskUpdated(Task oldTask, Task newTask) {
+                backlog.add(new Task[] {oldTask, newTask});
+            }
+
+            @Override
+            public void taskRemoved(Task task) {
+                backlog.add(new Task[] {task, null});
+            }
+        };
+        TaskVersion snapshot;
+        synchronized (this) {
+            if (fuzzyIndex != null) {
+                return;
+            }
+            snapshot = version;
+            addChangeListener(recorder);
+        }
+        FuzzyIndex built = new FuzzyIndex();
+        for (Task task : snapshot) {
+            built.add(task);
+        }
+        synchronized (this) {
+            removeChangeListener(recorder);
+            if (fuzzyIndex != null) {
+                return; // Поиск не дождался и построил индекс сам
+            }
+            for (Task[] change : backlog) {
+                if (change[0] == null) {
+                    built.add(change[1]);
+                } else if (change[1] == null) {
+                    built.remove(change[0]);
+                } else {
+                    built.update(change[0], change[1]);
+                }
+            }
+            fuzzyIndex = built;
+        }
+    }
+
+    /**
+     * Ищет задачи с определенным приоритетом.
+     * @param priority Приоритет для поиска.
+     * @return Список найденных задач.
+     */
+    public List<Task> searchByPriority(Priority priority) {
+        long start = metrics.start(TodoListMetrics.Operation.SEARCH);
+        ensureIndexed();
+        return measured(TodoListMetrics.Operation.SEARCH, start, priorityDateIndex.byPriority(priority));
+    }
+
+    /**
+     * Возвращает страницу результатов поиска по приоритету за O(log n + offset + limit).
+     * @throws IllegalArgumentException если offset или limit отрицательны.
+     */
+    @Override
+    public List<Task> searchByPriority(Priority priority, int offset, int limit) {
+        TaskStore.checkPage(offset, limit);
+        long start = metrics.start(TodoListMetrics.Operation.SEARCH);
+        ensureIndexed();
+        return measured(TodoListMetrics.Operation.SEARCH, start, priorityDateIndex.byPriority(priority, offset, limit));
+    }
+
+    /**
+     * Ищет задачи со сроком выполнения в указанном диапазоне (включительно).
+     * @param from Начало диапазона.
+     * @param to Конец диапазона.
+     * @return Список найденных задач, упорядоченный по сроку выполнения.
+     * @throws IllegalArgumentException если from позже to.
+     */
+    public List<Task> searchByDueDateRange(LocalDate from, LocalDate to) {
+        long start = metrics.start(TodoListMetrics.Operation.SEARCH);
+        ensureIndexed();
+        return measured(TodoListMetrics.Operation.SEARCH, start, priorityDateIndex.byDueDateRange(null, from, to));
+    }
+
+    /**
+     * Возвращает страницу результатов поиска по диапазону сроков за O(log n + offset + limit).
+     * @throws IllegalArgumentException если from позже to, offset или limit отрицательны.
+     */
+    @Override
+    public List<Task> searchByDueDateRange(LocalDate from, LocalDate to, int offset, int limit) {
+        TaskStore.checkPage(offset, limit);
+        long start = metrics.start(TodoListMetrics.Operation.SEARCH);
+        ensureIndexed();
+        return measured(TodoListMetrics.Operation.SEARCH, start, priorityDateIndex.byDueDateRange(null, from, to, offset, limit));
+    }
+
+    /**
+     * Возвращает сроки в диапазоне за O(log n + серий + сроков в диапазоне): обычные задачи
+     * берутся из индекса сроков, а повторяющиеся разворачиваются по правилу только для диапазона,
+     * без выполненных повторений.
+     * @throws IllegalArgumentException если from позже to.
+     */
+    @Override
+    public List<Occurrence> getOccurrences(LocalDate from, LocalDate to) {
+        long start = metrics.start(TodoListMetrics.Operation.SEARCH);
+        ensureIndexed();
+        List<Occurrence> found = new ArrayList<>();
+        for (Task task : priorityDateIndex.byDueDateRange(null, from, to)) {
+            if (!task.isRecurring()) {
+                found.add(new Occurrence(task, task.getDueDate()));
+            }
+        }
+        recurrences.collect(from, to, found);
+        found.sort(Occurrence.ORDER);
+        metrics.record(TodoListMetrics.Operation.SEARCH, start, found.size());
+        return found;
+    }
+
+    /**
+     * Отмечает повторение выполненным за O(log k), где k - число отметок серии; задача не меняется.
+     * Отметку можно отменить (undo).
+     */
+    @Override
+    public boolean completeOccurrence(long id, LocalDate date) {
+        Task task = recurrences.get(id);
+        if (task == null || !task.getRecurrence().occursOn(task.getDueDate(), date) || !recurrences.complete(id, date)) {
+            return false;
+        }
+        record(new Change(Change.Kind.COMPLETE, version, version, null, task, null, date.toEpochDay()));
+        fireOccurrence(id, date.toEpochDay(), true);
+        return true;
+    }
+
+    /**
+     * Снимает отметку о выполнении повторения; снятие можно отменить (undo).
+     * @return true, если повторение было отмечено выполненным.
+     */
+    public boolean reopenOccurrence(long id, LocalDate date) {
+        Task task = recurrences.get(id);
+        if (task == null || !recurrences.reopen(id, date)) {
+            return false;
+        }
+        record(new Change(Change.Kind.REOPEN, version, version, null, task, null, date.toEpochDay()));
+        fireOccurrence(id, date.toEpochDay(), false);
+        return true;
+    }
+
+    @Override
+    public boolean isOccurrenceCompleted(long id, LocalDate date) {
+        return recurrences.isCompleted(id, date);
+    }
+
+    /**
+     * Отметки о выполненных повторениях существующих серий: идентификатор задачи -> выполненные дни.
+     */
+    Map<Long, ? extends Set<LocalDate>> getCompletedOccurrences() {
+        return recurrences.getCompleted();
+    }
+
+    /**
+     * Выполненные дни повторений задачи; отметки удалённой задачи хранятся, пока удаление можно отменить.
+     */
+    Set<LocalDate> getCompletedOccurrences(long id) {
+        return recurrences.getCompleted(id);
+    }
+
+    /**
+     * Восстанавливает отметку о выполнении повторения из снимка или журнала как есть: без проверки
+     * дня по правилу серии и без истории отмены. Отметка, сделанная до правки, которая сдвинула
+     * срок серии, в памяти сохраняется - значит, должна сохраниться и после загрузки.
+     * @param completed true - отметка поставлена, false - снята.
+     */
+    void restoreCompletion(long id, LocalDate date, boolean completed) {
+        if (completed) {
+            recurrences.complete(id, date);
+        } else {
+            recurrences.reopen(id, date);
+        }
+    }
+
+    /**
+     * Идентификатор, который получит следующая новая задача.
+     */
+    long getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Не даёт выдать новым задачам идентификаторы меньше указанного
+     * (например, идентификаторы задач, удалённых до сохранения снимка).
+     */
+    void reserveIds(long nextId) {
+        this.nextId = Math.max(this.nextId, nextId);
+    }
+
+    /**
+     * Ищет задачи с указанным приоритетом и сроком выполнения в диапазоне (включительно).
+     * @param priority Приоритет для поиска.
+     * @param from Начало диапазона.
+     * @param to Конец диапазона.
+     * @return Список найденных задач, упорядоченный по сроку выполнения.
+     * @throws IllegalArgumentException если from позже to.
+     */
+    public List<Task> searchByPriorityAndDueDateRange(Priority priority, LocalDate from, LocalDate to) {
+        if (priority == null) {
+            return new ArrayList<>();
+        }
+        long start = metrics.start(TodoListMetrics.Operation.SEARCH);
+        ensureIndexed();
+        return measured(TodoListMetrics.Operation.SEARCH, start, priorityDateIndex.byDueDateRange(priority, from, to));
+    }
+
+    private List<Task> measured(TodoListMetrics.Operation operation, long start, List<Task> result) {
+        metrics.record(operation, start, result.size());
+        return result;
+    }
+
+    /**
+     * Строит индексы по текущему списку, если они ещё не построены.
+     * Дальше индексы поддерживаются инкрементально.
+     */
+    private void ensureIndexed() {
+        if (!indexed) {
+            TaskVersion.Cursor cursor = version.cursor(0);
+            while (cursor.next()) {
+                keywordIndex.add(cursor.task, cursor.key);
+                priorityDateIndex.add(cursor.task, cursor.key);
+            }
+            indexed = true;
+        }
+    }
+
+    /**
+     * Заменяет задачу её новой версией с тем же идентификатором на той же позиции.
+     * Прежняя версия не меняется, поэтому ранее полученные ссылки на неё остаются верными.
+     */
+    private void update(long key, String newTitle, String newDescription, LocalDate newDueDate, Priority newPriority) {
+        TaskVersion before = version;
+        Task taskToEdit = before.find(key);
+        Task edited = taskToEdit.edited(newTitle, newDescription, newDueDate, newPriority);
+        version = before.put(key, edited);
+        replace(taskToEdit, edited);
+        record(new Change(Change.Kind.EDIT, before, version, null, taskToEdit, edited, key));
+    }
+
+    /**
+     * Добавляет задачу, уже лежащую в текущей версии, в индексы и сообщает слушателям.
+     */
+    private void attach(Task task, long key) {
+        if (indexed) {
+            keywordIndex.add(task, key);
+            priorityDateIndex.add(task, key);
+        }
+        if (sortedViews != null) {
+            sortedViews.add(task);
+        }
+        if (fuzzyIndex != null) {
+            fuzzyIndex.add(task);
+        }
+        recurrences.add(task);
+        for (TaskChangeListener listener : changeListeners) {
+            listener.taskAdded(task);
+        }
+    }
+
+    /**
+     * Убирает задачу, которой уже нет в текущей версии, из индексов и сообщает слушателям.
+     */
+    private void detach(Task task) {
+        if (indexed) {
+            keywordIndex.remove(task);
+            priorityDateIndex.remove(task);
+        }
+        if (sortedViews != null) {
+            sortedViews.remove(task);
+        }
+        if (fuzzyIndex != null) {
+            fuzzyIndex.remove(task);
+        }
+        recurrences.remove(task);
+        for (TaskChangeListener listener : changeListeners) {
+            listener.taskRemoved(task);
+        }
+    }
+
+    /**
+     * Сообщает слушателям, что порядок списка изменился целиком.
+     */
+    private void fireReordered() {
+        for (TaskChangeListener listener : changeListeners) {
+            listener.tasksReordered();
+        }
+    }
+
+    /**
+     * Сообщает слушателям об отметке повторения серии, если серия ещё в списке.
+     */
+    private void fireOccurrence(long id, long day, boolean completed) {
+        Task task = recurrences.get(id);
+        if (task == null || changeListeners.isEmpty()) {
+            return;
+        }
+        Occurrence occurrence = new Occurrence(task, LocalDate.ofEpochDay(day));
+        for (TaskChangeListener listener : changeListeners) {
+            listener.occurrenceCompleted(occurrence, completed);
+        }
+    }
+
+    /**
+     * Заменяет в индексах одну версию задачи другой и сообщает слушателям.
+     */
+    private void replace(Task oldTask, Task newTask) {
+        if (indexed) {
+            keywordIndex.update(oldTask, newTask);
+            priorityDateIndex.update(oldTask, newTask);
+        }
+        if (sortedViews != null) {
+            sortedViews.update(oldTask, newTask);
+        }
+        if (fuzzyIndex != null) {
+            fuzzyIndex.update(oldTask, newTask);
+        }
+        recurrences.update(oldTask, newTask);
+        for (TaskChangeListener listener : changeListeners) {
+            listener.taskUpdated(oldTask, newTask);
+        }
+    }
+
+    /**
+     * Переносит ключи порядка из текущей версии в карту идентификаторов и индексы
+     * после того, как порядок списка изменился целиком.
+     */
+    private void renumber() {
+        keyById.clear();
+        TaskVersion.Cursor cursor = version.cursor(0);
+        while (cursor.next()) {
+            keyById.put(cursor.task.getId(), cursor.key);
+        }
+        if (indexed) {
+            keywordIndex.reorder(version);
+            priorityDateIndex.reorder(version);
+        }
+    }
+
+    /**
+     * Запоминает изменение для отмены; история повтора после нового изменения теряет смысл.
+     */
+    private void record(Change change) {
+        undoHistory.addFirst(change);
+        if (undoHistory.size() > MAX_UNDO) {
+            undoHistory.removeLast();
+        }
+        redoHistory.clear();
+        trail(change, false);
+    }
+
+    /**
+     * Проверяет, является ли данный индекс допустимым для списка задач.
+     * @param index Индекс для проверки.
+     * @return true, если индекс действителен, иначе false.
+     */
+    private boolean isValidIndex(int index) {
+        return index >= 0 && index < size();
+    }
 }
\ No newline at end of file
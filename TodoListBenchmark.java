@@ -0,0 +1,736 @@
+package com.todolist;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Набор замеров производительности операций TodoList на 1 тыс., 100 тыс. и 1 млн задач.
+ * Для каждой операции выводятся пропускная способность, среднее время операции,
+ * объём выделенной памяти на операцию и скорость выделения памяти, а также число
+ * и длительность сборок мусора за время замера.
+ *
+ * Запуск: java -Xmx4g com.todolist.TodoListBenchmark [--sizes 1000,100000] [--ops add,search] [--memory]
+ * [--scan [--threads 1,2,4]] [--no-metrics] [--warmup 5] [--iterations 5] [--forks 1]
+ *
+ * С ключом --memory вместо замеров операций выводится объём кучи, который занимает список
+ * (без индексов и с индексами поиска), на задачу.
+ *
+ * С ключом --scan замеряется просмотр списка без индекса (см. ParallelScan) в одном потоке
+ * и в пулах из 2, 4, ... потоков до числа ядер (или из потоков, перечисленных в --threads):
+ * выводится ускорение относительно одного потока и размер списка, начиная с которого
+ * параллельный просмотр выгоднее, - ориентир для свойства todolist.scan.threshold.
+ *
+ * С ключом --no-metrics списки не записывают показатели операций (см. TodoListMetrics):
+ * сравнение с обычным запуском показывает накладные расходы на их запись.
+ *
+ * Основные замеры операций - JMH (каталог jmh, запуск описан в pom.xml); этот класс - быстрый
+ * самостоятельный замер по их образцу, который запускается без сборки, источник данных
+ * для них (Workload, TaskText) и замеры --memory и --scan, которых в JMH нет.
+ * Каждая операция с каждым размером списка выполняется в отдельной JVM (--forks; 0 - в этой
+ * же JVM), чтобы профиль, собранный JIT-компилятором на одной операции, не замедлял другие. Операция прогревается
+ * итерациями --warmup, затем измеряется итерациями --iterations; подготовка данных в замер
+ * не входит. Результат каждой операции передаётся в Blackhole, чтобы компилятор не выбросил
+ * её вычисление. Рядом со средним временем операции выводится его разброс между итерациями
+ * (стандартное отклонение): большой разброс означает, что замеру не хватило прогрева.
+ * Замеры --scan и --memory выполняются в этой же JVM.
+ */
+public final class TodoListBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000, 1_000_000};
+    private static final int[] SCAN_SIZES = {1_000, 4_000, 16_000, 64_000, 250_000, 1_000_000};
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final int FORKS = 1;
+    private static final String ITERATION_PREFIX = "iteration "; // Строка итерации в выводе отдельной JVM
+    private static final long ITERATION_NANOS = 200_000_000L; // Минимальная длительность итерации
+    private static final int MAX_BATCH = 10_000; // Операций за одну подготовку данных
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private TodoListBenchmark() {
+    }
+
+    /**
+     * Замеряемая операция. Перед каждой пачкой вызывается prepare (вне замера),
+     * затем run выполняется для номеров операций от 0 до batchSize - 1;
+     * её результат передаётся в Blackhole.
+     */
+    interface Operation {
+        /**
+         * Готовит данные для пачки операций.
+         * @return Количество операций, которое можно выполнить на подготовленных данных.
+         */
+        int prepare(Workload workload, Random random);
+
+        Object run(int i);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] sizes = null;
+        int[] threads = null;
+        List<String> selected = null;
+        boolean memory = false;
+        boolean scan = false;
+        boolean child = false;
+        int warmup = WARMUP_ITERATIONS;
+        int iterations = MEASURE_ITERATIONS;
+        int forks = FORKS;
+        for (int i = 0; i < args.length; i++) {
+            if ("--sizes".equals(args[i]) && i + 1 < args.length) {
+                sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if ("--ops".equals(args[i]) && i + 1 < args.length) {
+                selected = Arrays.asList(args[++i].split(","));
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if ("--memory".equals(args[i])) {
+                memory = true;
+            } else if ("--scan".equals(args[i])) {
+                scan = true;
+            } else if ("--no-metrics".equals(args[i])) {
+                System.setProperty("todolist.metrics", "false");
+            } else if ("--warmup".equals(args[i]) && i + 1 < args.length) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if ("--iterations".equals(args[i]) && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if ("--forks".equals(args[i]) && i + 1 < args.length) {
+                forks = Integer.parseInt(args[++i]);
+            } else if ("--child".equals(args[i])) {
+                child = true; // Запущен из fork: выводит итерации замера для родительской JVM
+            } else {
+                System.err.println("Использование: TodoListBenchmark [--sizes 1000,100000] [--ops add,search] [--memory]"
+                        + " [--scan [--threads 1,2,4]] [--no-metrics] [--warmup 5] [--iterations 5] [--forks 1]");
+                return;
+            }
+        }
+        if (scan) {
+            measureScans(sizes == null ? SCAN_SIZES : sizes, threads == null ? defaultThreadCounts() : threads,
+                    warmup, iterations);
+            return;
+        }
+        if (sizes == null) {
+            sizes = DEFAULT_SIZES;
+        }
+        if (memory) {
+            measureMemory(sizes);
+            return;
+        }
+
+        Map<String, Operation> operations = operations();
+        if (child) {
+            for (int size : sizes) {
+                Workload workload = new Workload(size, new Random(42));
+                for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+                    if (selected == null || selected.contains(entry.getKey())) {
+                        for (Result iteration : measure(entry.getValue(), workload, warmup, iterations)) {
+                            System.out.println(ITERATION_PREFIX + iteration.operations + " " + iteration.nanos + " "
+                                    + iteration.bytes + " " + iteration.gcCount + " " + iteration.gcMillis);
+                        }
+                    }
+                }
+            }
+            return;
+        }
+        System.out.printf("%-10s %9s %14s %14s %10s %12s %10s %6s %8s%n",
+                "операция", "задач", "опер./с", "мкс/опер.", "±мкс", "байт/опер.", "МБ/с", "GC", "GC, мс");
+        for (int size : sizes) {
+            Workload workload = forks > 0 ? null : new Workload(size, new Random(42));
+            for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+                if (selected == null || selected.contains(entry.getKey())) {
+                    List<Result> measured = new ArrayList<>();
+                    if (forks > 0) {
+                        for (int fork = 0; fork < forks; fork++) {
+                            measured.addAll(fork(entry.getKey(), size, warmup, iterations));
+                        }
+                    } else {
+                        measured.addAll(measure(entry.getValue(), workload, warmup, iterations));
+                    }
+                    Result result = Result.total(measured);
+                    System.out.printf("%-10s %9d %14.1f %14.3f %10.3f %12.1f %10.1f %6d %8d%n",
+                            entry.getKey(), size, result.opsPerSecond(), result.microsPerOp(), result.errorMicros,
+                            result.bytesPerOp(), result.allocationMbPerSecond(), result.gcCount, result.gcMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Замеряет операцию в отдельной JVM с теми же параметрами запуска, что и у этой,
+     * и возвращает итерации замера, которые та вывела.
+     */
+    private static List<Result> fork(String operation, int size, int warmup, int iterations)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!argument.startsWith("-agentlib:jdwp")) { // Второй отладчик не сможет занять тот же порт
+                command.add(argument);
+            }
+        }
+        String metrics = System.getProperty("todolist.metrics");
+        if (metrics != null) {
+            command.add("-Dtodolist.metrics=" + metrics); // Мог быть задан ключом --no-metrics
+        }
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), TodoListBenchmark.class.getName(),
+                "--child", "--ops", operation, "--sizes", Integer.toString(size),
+                "--warmup", Integer.toString(warmup), "--iterations", Integer.toString(iterations)));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        List<Result> measured = new ArrayList<>();
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (!line.startsWith(ITERATION_PREFIX)) {
+                    System.out.println(line);
+                    continue;
+                }
+                String[] fields = line.substring(ITERATION_PREFIX.length()).split(" ");
+                Result iteration = new Result();
+                iteration.operations = Long.parseLong(fields[0]);
+                iteration.nanos = Long.parseLong(fields[1]);
+                iteration.bytes = Long.parseLong(fields[2]);
+                iteration.gcCount = Long.parseLong(fields[3]);
+                iteration.gcMillis = Long.parseLong(fields[4]);
+                measured.add(iteration);
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || measured.isEmpty()) {
+            throw new IllegalStateException("Замер " + operation + " на " + size
+                    + " задачах в отдельной JVM завершился с кодом " + exitCode);
+        }
+        return measured;
+    }
+
+    /**
+     * Операции TodoList в порядке вывода.
+     */
+    static Map<String, Operation> operations() {
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("add", new Operation() {
+            private TodoList list;
+            private Task[] fresh;
+
+            @Override
+            public int prepare(Workload workload, Random random) {
+                list = workload.newList();
+                fresh = workload.freshTasks(Math.min(MAX_BATCH, workload.size), random);
+                return fresh.length;
+            }
+
+            @Override
+            public Object run(int i) {
+                list.addTask(fresh[i]);
+                return list;
+            }
+        });
+        operations.put("edit", new Operation() {
+            private TodoList list;
+            private int[] indexes;
+            private Task[] values;
+
+            @Override
+            public int prepare(Workload workload, Random random) {
+                if (list == null || list.size() != workload.size) {
+                    list = workload.newList();
+                }
+                indexes = random.ints(MAX_BATCH, 0, workload.size).toArray();
+                values = workload.freshTasks(MAX_BATCH, random);
+                return MAX_BATCH;
+            }
+
+            @Override
+            public Object run(int i) {
+                Task value = values[i];
+                return list.editTask(indexes[i], value.getTitle(), value.getDescription(), value.getDueDate(), value.getPriority());
+            }
+        });
+        operations.put("delete", new Operation() {
+            private TodoList list;
+            private int[] indexes;
+
+            @Override
+            public int prepare(Workload workload, Random random) {
+                // Удаляем не больше десятой части, чтобы размер списка почти не менялся
+                int count = Math.max(1, Math.min(MAX_BATCH, workload.size / 10));
+                list = workload.newList();
+                indexes = new int[count];
+                for (int i = 0; i < count; i++) {
+                    indexes[i] = random.nextInt(workload.size - i);
+                }
+                return count;
+            }
+
+            @Override
+            public Object run(int i) {
+                return list.deleteTask(indexes[i]);
+            }
+        });
+        operations.put("getAll", new Operation() {
+            private TodoList list;
+
+            @Override
+            public int prepare(Workload workload, Random random) {
+                list = workload.sharedList();
+                return 10;
+            }
+
+            @Override
+            public Object run(int i) {
+                return list.getAllTasks();
+            }
+        });
+        operations.put("sort", new Operation() {
+            private TodoList list;
+
+            @Override
+            public int prepare(Workload workload, Random random) {
+                list = workload.newList(); // Каждая сортировка начинается с неотсортированного списка
+                return 1;
+            }
+
+            @Override
+            public Object run(int i) {
+                list.sortByDueDate();
+                return list;
+            }
+        });
+        operations.put("search", new Operation() {
+            private TodoList list;
+            private String[] keywords;
+
+            @Override
+            public int prepare(Workload workload, Random random) {
+                list = workload.sharedList();
+                keywords = new String[10]; // Частые слова находят большую часть списка
+                for (int i = 0; i < keywords.length; i++) {
+                    keywords[i] = workload.text.word(random);
+                }
+                return keywords.length;
+            }
+
+            @Override
+            public Object run(int i) {
+                return list.searchByKeyword(keywords[i]);
+            }
+        });
+        operations.put("priority", new Operation() {
+            private TodoList list;
+            private Priority[] priorities;
+
+            @Override
+            public int prepare(Workload workload, Random random) {
+                list = workload.sharedList();
+                priorities = new Priority[10];
+                for (int i = 0; i < priorities.length; i++) {
+                    priorities[i] = TaskText.priority(random);
+                }
+                return priorities.length;
+            }
+
+            @Override
+            public Object run(int i) {
+                return list.searchByPriority(priorities[i]);
+            }
+        });
+        return operations;
+    }
+
+    /**
+     * Замеряет объём кучи, занятый списком из size задач. Тексты задач создаются заново
+     * для каждой задачи, как при чтении из файла или вводе пользователем, а часть описаний
+     * повторяет шаблоны дословно, как у задач, созданных по шаблону.
+     */
+    private static void measureMemory(int[] sizes) {
+        System.out.printf("%-10s %9s %12s %14s %12s %14s%n",
+                "память", "задач", "список, МБ", "байт/задачу", "+индексы, МБ", "байт/задачу");
+        for (int size : sizes) {
+            Random random = new Random(42);
+            TaskText text = new TaskText(random);
+            long before = usedHeap();
+            TodoList list = new TodoList();
+            for (int i = 0; i < size; i++) {
+                list.addTask(text.loadedTask(random));
+            }
+            long listBytes = usedHeap() - before;
+            list.searchByPriority(Priority.HIGH); // Строит индексы поиска
+            long indexedBytes = usedHeap() - before;
+            Reference.reachabilityFence(list);
+            System.out.printf("%-10s %9d %12.1f %14.1f %12.1f %14.1f%n", "todoList", size,
+                    listBytes / (1024.0 * 1024.0), (double) listBytes / size,
+                    indexedBytes / (1024.0 * 1024.0), (double) indexedBytes / size);
+        }
+    }
+
+    /**
+     * Замеряет просмотр списка без индекса (поиск подстроки, как у запроса по ключевому слову,
+     * которому индекс не помогает) с разным числом потоков. Один поток - последовательный
+     * просмотр, остальные - параллельный независимо от порога.
+     */
+    private static void measureScans(int[] sizes, int[] threadCounts, int warmup, int iterations) {
+        System.out.printf("%-10s %9s %8s %14s %10s%n", "просмотр", "задач", "потоков", "мкс/просмотр", "ускорение");
+        int crossover = -1;
+        for (int size : sizes) {
+            Workload workload = new Workload(size, new Random(42));
+            TaskVersion version = workload.sharedList().getVersion();
+            double sequentialMicros = 0;
+            boolean parallelWins = false;
+            for (int threads : threadCounts) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                ParallelScan scan = new ParallelScan(pool, threads == 1 ? Integer.MAX_VALUE : 0);
+                Result result = Result.total(measure(new Operation() {
+                    private TaskQuery[] queries;
+
+                    @Override
+                    public int prepare(Workload workload, Random random) {
+                        queries = new TaskQuery[10];
+                        for (int i = 0; i < queries.length; i++) {
+                            queries[i] = TaskQuery.keyword(workload.text.word(random));
+                        }
+                        return queries.length;
+                    }
+
+                    @Override
+                    public Object run(int i) {
+                        return version.filter(queries[i]::matches, scan);
+                    }
+                }, workload, warmup, iterations));
+                pool.shutdown();
+                if (threads == 1) {
+                    sequentialMicros = result.microsPerOp();
+                } else if (result.microsPerOp() < sequentialMicros) {
+                    parallelWins = true;
+                }
+                System.out.printf("%-10s %9d %8d %14.1f %10.2f%n", "scan", size, threads, result.microsPerOp(),
+                        sequentialMicros == 0 ? 1.0 : sequentialMicros / result.microsPerOp());
+            }
+            if (!parallelWins) {
+                crossover = -1;
+            } else if (crossover < 0) {
+                crossover = size;
+            }
+        }
+        if (crossover < 0) {
+            System.out.println("Параллельный просмотр не быстрее последовательного ни на одном размере из замера");
+        } else {
+            System.out.println("Параллельный просмотр быстрее последовательного начиная с " + crossover + " задач");
+        }
+    }
+
+    /**
+     * 1, 2, 4, ... потоков до числа доступных ядер включительно.
+     */
+    private static int[] defaultThreadCounts() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < processors; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(processors);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Занятая часть кучи после полной сборки мусора.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) { // Сборка может освободить не всё за один раз
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Прогревает операцию и возвращает показатели каждой итерации замера.
+     */
+    private static List<Result> measure(Operation operation, Workload workload, int warmup, int iterations) {
+        Random random = new Random(7);
+        System.gc(); // Мусор предыдущих замеров не должен собираться во время этого
+        for (int i = 0; i < warmup; i++) {
+            iteration(operation, workload, random);
+        }
+        List<Result> measured = new ArrayList<>(iterations);
+        for (int i = 0; i < iterations; i++) {
+            measured.add(iteration(operation, workload, random));
+        }
+        return measured;
+    }
+
+    /**
+     * Выполняет пачки операций, пока суммарное время замера не достигнет ITERATION_NANOS.
+     * Учитываются только время и память внутри run.
+     */
+    private static Result iteration(Operation operation, Workload workload, Random random) {
+        long threadId = Thread.currentThread().getId();
+        Result result = new Result();
+        while (result.nanos < ITERATION_NANOS) {
+            int count = operation.prepare(workload, random);
+            long gcCount = gcCount();
+            long gcMillis = gcMillis();
+            long bytes = THREADS.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Blackhole.consume(operation.run(i));
+            }
+            result.nanos += System.nanoTime() - start;
+            result.bytes += THREADS.getThreadAllocatedBytes(threadId) - bytes;
+            result.gcCount += gcCount() - gcCount;
+            result.gcMillis += gcMillis() - gcMillis;
+            result.operations += count;
+        }
+        return result;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Суммарные показатели одной или нескольких итераций.
+     */
+    static final class Result {
+        long operations;
+        long nanos;
+        long bytes;
+        long gcCount;
+        long gcMillis;
+        double errorMicros; // Стандартное отклонение времени операции между итерациями
+
+        /**
+         * Складывает показатели итераций и вычисляет разброс времени операции между ними.
+         */
+        static Result total(List<Result> iterations) {
+            Result total = new Result();
+            for (Result iteration : iterations) {
+                total.operations += iteration.operations;
+                total.nanos += iteration.nanos;
+                total.bytes += iteration.bytes;
+                total.gcCount += iteration.gcCount;
+                total.gcMillis += iteration.gcMillis;
+            }
+            if (iterations.size() > 1) {
+                double mean = 0;
+                for (Result iteration : iterations) {
+                    mean += iteration.microsPerOp();
+                }
+                mean /= iterations.size();
+                double squares = 0;
+                for (Result iteration : iterations) {
+                    double deviation = iteration.microsPerOp() - mean;
+                    squares += deviation * deviation;
+                }
+                total.errorMicros = Math.sqrt(squares / (iterations.size() - 1));
+            }
+            return total;
+        }
+
+        double opsPerSecond() {
+            return operations * 1e9 / nanos;
+        }
+
+        double microsPerOp() {
+            return nanos / 1e3 / operations;
+        }
+
+        double bytesPerOp() {
+            return (double) bytes / operations;
+        }
+
+        double allocationMbPerSecond() {
+            return bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+        }
+    }
+
+    /**
+     * Исходные данные замера: задачи с реалистичным распределением текста, сроков
+     * и приоритетов. Один и тот же набор задач копируется в каждый новый список.
+     */
+    static final class Workload {
+        final int size;
+        final TaskText text;
+        private final Task[] tasks;
+        private TodoList shared;
+
+        Workload(int size, Random random) {
+            this.size = size;
+            this.text = new TaskText(random);
+            this.tasks = new Task[size];
+            for (int i = 0; i < size; i++) {
+                tasks[i] = text.task(random);
+            }
+        }
+
+        /**
+         * Новый список из копий исходных задач, чтобы изменения одного замера
+         * не влияли на другие.
+         */
+        TodoList newList() {
+            TodoList list = new TodoList();
+            for (Task task : tasks) {
+                list.addTask(new Task(task.getTitle(), task.getDescription(), task.getDueDate(), task.getPriority()));
+            }
+            return list;
+        }
+
+        /**
+         * Список только для чтения, общий для всех замеров поиска. Индексы строятся
+         * заранее, чтобы замер поиска не включал их ленивое построение.
+         */
+        TodoList sharedList() {
+            if (shared == null) {
+                shared = newList();
+                shared.searchByPriority(Priority.HIGH);
+            }
+            return shared;
+        }
+
+        Task[] freshTasks(int count, Random random) {
+            Task[] fresh = new Task[count];
+            for (int i = 0; i < count; i++) {
+                fresh[i] = text.task(random);
+            }
+            return fresh;
+        }
+    }
+
+    /**
+     * Генератор правдоподобного текста задач: слова из словаря выбираются
+     * по закону Ципфа, поэтому частые слова встречаются в большой доле задач,
+     * а редкие - в единицах, как в настоящих списках дел.
+     */
+    static final class TaskText {
+        private static final String[] SYLLABLES = {
+                "ра", "бо", "та", "от", "чёт", "вст", "ре", "ча", "пла", "н", "ку", "пи", "ть", "зво",
+                "нок", "про", "ект", "сда", "до", "клад", "пись", "мо", "ме", "ди", "ци", "на", "ал",
+                "гра", "фик", "сер", "вер", "ба", "за", "дан", "ных", "ко", "ман", "да", "ры",
+                "счёт", "опл", "ата", "кли", "ент", "дог", "овор", "пр", "ав", "ка", "тест", "мы", "ло",
+                "ш", "ла", "вра", "ч", "ма", "га", "зин", "хлеб", "ле", "монт"
+        };
+        private static final int VOCABULARY_SIZE = 5_000;
+        private static final int TEMPLATES = 200;
+        private static final int TEMPLATED_PERCENT = 40;
+        private static final double ZIPF_EXPONENT = 1.1;
+        private static final LocalDate BASE_DATE = LocalDate.of(2025, 1, 1);
+
+        private final String[] words = new String[VOCABULARY_SIZE];
+        private final double[] cumulative = new double[VOCABULARY_SIZE];
+        private String[] templates; // Шаблоны описаний, создаются при первом запросе
+
+        TaskText(Random random) {
+            double sum = 0;
+            for (int i = 0; i < VOCABULARY_SIZE; i++) {
+                StringBuilder word = new StringBuilder();
+                int syllables = 2 + random.nextInt(3);
+                for (int s = 0; s < syllables; s++) {
+                    word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+                }
+                words[i] = word.toString();
+                sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < VOCABULARY_SIZE; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        String word(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return words[Math.min(VOCABULARY_SIZE - 1, index >= 0 ? index : -index - 1)];
+        }
+
+        String sentence(Random random, int minWords, int maxWords) {
+            int count = minWords + random.nextInt(maxWords - minWords + 1);
+            StringBuilder sentence = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    sentence.append(' ');
+                }
+                sentence.append(word(random));
+            }
+            return sentence.toString();
+        }
+
+        Task task(Random random) {
+            // Большинство сроков в пределах года, у некоторых задач срок далеко в будущем
+            int days = random.nextInt(10) < 8 ? random.nextInt(365) : random.nextInt(3650);
+            return new Task(sentence(random, 1, 5), sentence(random, 0, 12), BASE_DATE.plusDays(days), priority(random));
+        }
+
+        /**
+         * Задача, тексты которой - отдельные строки, как после чтения из файла:
+         * часть описаний дословно повторяет один из шаблонов.
+         */
+        Task loadedTask(Random random) {
+            if (templates == null) {
+                templates = new String[TEMPLATES];
+                for (int i = 0; i < TEMPLATES; i++) {
+                    templates[i] = sentence(random, 6, 12);
+                }
+            }
+            Task task = task(random);
+            String description = random.nextInt(100) < TEMPLATED_PERCENT
+                    ? templates[random.nextInt(TEMPLATES)]
+                    : task.getDescription();
+            return new Task(new String(task.getTitle().toCharArray()), new String(description.toCharArray()),
+                    task.getDueDate(), task.getPriority());
+        }
+
+        static Priority priority(Random random) {
+            int roll = random.nextInt(100);
+            return roll < 50 ? Priority.LOW : roll < 85 ? Priority.MEDIUM : Priority.HIGH;
+        }
+    }
+
+    /**
+     * Не даёт JIT-компилятору выбросить вычисления, результат которых не используется.
+     * Как Blackhole в JMH, изредка (всё реже) сохраняет результат в поле: компилятор не может
+     * доказать, что результат не понадобится, и обязан его вычислить, а запись в поле
+     * почти никогда не выполняется и не искажает замер. Вызывается только из потока замера.
+     */
+    static final class Blackhole {
+        private static int seed = 1;
+        private static int mask = 1;
+        private static Object sink;
+
+        static void consume(Object result) {
+            int next = seed * 1103515245 + 12345;
+            seed = next;
+            if ((next & mask) == 0) {
+                sink = result;
+                mask = (mask << 1) + 1;
+            }
+        }
+
+        private Blackhole() {
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.todolist;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Показатели операций TodoList: количество, гистограмма задержек, суммарный размер результатов
+ * и текущий размер списка. Количество и размер результатов считаются точно - двумя атомарными
+ * сложениями без блокировок и выделения памяти. Задержку (два вызова System.nanoTime - дороже
+ * всего остального замера) измеряет только каждая SAMPLE_RATE-я операция каждого вида, что
+ * для перцентилей при тысячах операций почти ничего не меняет. Пока идёт запись JFR, измеряется
+ * каждая операция и публикуется событием com.todolist.Operation. Показатели доступны через JMX (см. register).
+ *
+ * Запись можно отключить системным свойством todolist.metrics=false или атрибутом Enabled в JMX.
+ */
+public final class TodoListMetrics implements TodoListMetricsMXBean {
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+    private static final int SAMPLE_RATE = 16; // Степень двойки
+
+    /**
+     * Вид операции TodoList.
+     */
+    public enum Operation {
+        ADD, EDIT, DELETE, SEARCH, SORT, UNDO, REDO;
+
+        private final String label = name().toLowerCase(Locale.ROOT);
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final IntSupplier taskCount;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final AtomicLongArray counts = new AtomicLongArray(Operation.values().length);
+    private final AtomicLongArray resultSizes = new AtomicLongArray(Operation.values().length);
+    private volatile boolean enabled = Boolean.parseBoolean(System.getProperty("todolist.metrics", "true"));
+
+    /**
+     * @param taskCount Размер списка; вызывается из потоков JMX и JFR без замков.
+     */
+    TodoListMetrics(IntSupplier taskCount) {
+        this.taskCount = taskCount;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Начинает замер операции и считает её.
+     * @return Момент начала для record или NOT_TIMED, если задержка этой операции не измеряется.
+     */
+    long start(Operation operation) {
+        if (!enabled) {
+            return NOT_TIMED;
+        }
+        long sequence = counts.getAndIncrement(operation.ordinal());
+        if ((sequence & (SAMPLE_RATE - 1)) == 0 || isRecording()) {
+            return System.nanoTime();
+        }
+        return NOT_TIMED;
+    }
+
+    /**
+     * Завершает замер операции, начатый start.
+     * @param resultSize Сколько задач найдено, добавлено, изменено или удалено.
+     */
+    void record(Operation operation, long start, int resultSize) {
+        if (!enabled) {
+            return;
+        }
+        resultSizes.getAndAdd(operation.ordinal(), resultSize);
+        if (start == NOT_TIMED) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        latencies[operation.ordinal()].record(nanos);
+
+        if (isRecording()) {
+            TaskOperationEvent event = new TaskOperationEvent();
+            event.operation = operation.label;
+            event.latency = nanos;
+            event.resultSize = resultSize;
+            event.taskCount = taskCount.getAsInt();
+            event.commit();
+        }
+    }
+
+    /**
+     * Идёт ли запись событий операций в JFR. Пока JFR не запущен, класс события не загружается:
+     * его загрузка запускает JFR и задержала бы первую операцию приложения на сотни миллисекунд.
+     */
+    private static boolean isRecording() {
+        return FlightRecorder.isInitialized() && new TaskOperationEvent().isEnabled();
+    }
+
+    /**
+     * Регистрирует показатели в платформенном MBeanServer под именем
+     * com.todolist:type=TodoList,name=&lt;name&gt;. Ранее зарегистрированные под этим
+     * именем показатели заменяются: в JMX виден последний открытый список.
+     * @return Имя, под которым зарегистрированы показатели.
+     * @throws IllegalStateException если JMX отказал в регистрации.
+     */
+    public ObjectName register(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName("com.todolist:type=TodoList,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось зарегистрировать показатели списка в JMX: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getTaskCount() {
+        return taskCount.getAsInt();
+    }
+
+    @Override
+    public long getOperationCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, OperationStatistics> getOperations() {
+        Map<String, OperationStatistics> operations = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            operations.put(operation.label, getStatistics(operation));
+        }
+        return operations;
+    }
+
+    /**
+     * Показатели одного вида операций на текущий момент.
+     */
+    public OperationStatistics getStatistics(Operation operation) {
+        LatencyHistogram histogram = latencies[operation.ordinal()];
+        long[] sampled = histogram.counts();
+        long timed = 0;
+        for (long each : sampled) {
+            timed += each;
+        }
+        long count = counts.get(operation.ordinal());
+        long results = resultSizes.get(operation.ordinal());
+        return new OperationStatistics(count,
+                timed == 0 ? 0 : histogram.totalNanos() / 1000.0 / timed,
+                LatencyHistogram.percentile(sampled, 0.5) / 1000.0,
+                LatencyHistogram.percentile(sampled, 0.9) / 1000.0,
+                LatencyHistogram.percentile(sampled, 0.99) / 1000.0,
+                LatencyHistogram.percentile(sampled, 1.0) / 1000.0,
+                count == 0 ? 0 : (double) results / count);
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].reset();
+            counts.set(i, 0);
+            resultSizes.set(i, 0);
+        }
+    }
+
+    /**
+     * Снимок показателей одного вида операций. Задержки - в микросекундах, по измеренным
+     * операциям; перцентили оцениваются по гистограмме с погрешностью не больше 1/16.
+     */
+    public static final class OperationStatistics {
+        private final long count;
+        private final double meanMicros;
+        private final double medianMicros;
+        private final double p90Micros;
+        private final double p99Micros;
+        private final double maxMicros;
+        private final double meanResultSize;
+
+        @ConstructorProperties({"count", "meanMicros", "medianMicros", "p90Micros", "p99Micros", "maxMicros", "meanResultSize"})
+        public OperationStatistics(long count, double meanMicros, double medianMicros, double p90Micros,
+                                   double p99Micros, double maxMicros, double meanResultSize) {
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.medianMicros = medianMicros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.meanResultSize = meanResultSize;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        public double getMedianMicros() {
+            return medianMicros;
+        }
+
+        public double getP90Micros() {
+            return p90Micros;
+        }
+
+        public double getP99Micros() {
+            return p99Micros;
+        }
+
+        public double getMaxMicros() {
+            return maxMicros;
+        }
+
+        public double getMeanResultSize() {
+            return meanResultSize;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d опер., среднее %.1f мкс, медиана %.1f, p90 %.1f, p99 %.1f, макс. %.1f мкс, %.1f задач",
+                    count, meanMicros, medianMicros, p90Micros, p99Micros, maxMicros, meanResultSize);
+        }
+    }
+}
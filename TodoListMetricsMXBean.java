@@ -0,0 +1,39 @@
+package com.todolist;
+
+import java.util.Map;
+
+/**
+ * Показатели операций TodoList для JMX (jconsole, VisualVM, агенты мониторинга).
+ * Регистрируется как com.todolist:type=TodoList,name=... (см. TodoListMetrics.register).
+ */
+public interface TodoListMetricsMXBean {
+    /**
+     * Записываются ли показатели.
+     */
+    boolean isEnabled();
+
+    /**
+     * Включает или отключает запись показателей; накопленные значения сохраняются.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Текущее количество задач в списке.
+     */
+    int getTaskCount();
+
+    /**
+     * Количество выполненных операций всех видов.
+     */
+    long getOperationCount();
+
+    /**
+     * Показатели по видам операций: add, edit, delete, search, sort, undo, redo.
+     */
+    Map<String, TodoListMetrics.OperationStatistics> getOperations();
+
+    /**
+     * Обнуляет накопленные показатели.
+     */
+    void reset();
+}
@@ -0,0 +1,72 @@
+package com.todolist;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Замеры JMH для операций, которые не меняют список: getAllTasks, searchByKeyword
+ * и searchByPriority на 1 тыс., 100 тыс. и 1 млн задач. Задачи, слова запросов и приоритеты
+ * берутся из тех же распределений, что и в TodoListBenchmark (слова по закону Ципфа,
+ * поэтому среди запросов есть и частые слова, и редкие).
+ *
+ * Индексы строятся при подготовке списка, поэтому их ленивое построение в замер не входит.
+ * Запуск описан в pom.xml; с -prof gc выводится и скорость выделения памяти.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TodoListReadBenchmark {
+    private static final int QUERIES = 64; // Степень двойки: номер запроса берётся по маске
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private TodoList list;
+    private String[] keywords;
+    private Priority[] priorities;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        TodoListBenchmark.Workload workload = new TodoListBenchmark.Workload(size, random);
+        list = workload.sharedList();
+        keywords = new String[QUERIES];
+        priorities = new Priority[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            keywords[i] = workload.text.word(random);
+            priorities[i] = TodoListBenchmark.TaskText.priority(random);
+        }
+    }
+
+    @Benchmark
+    public List<Task> getAllTasks() {
+        return list.getAllTasks();
+    }
+
+    @Benchmark
+    public List<Task> searchByKeyword() {
+        return list.searchByKeyword(keywords[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public List<Task> searchByPriority() {
+        return list.searchByPriority(priorities[next++ & (QUERIES - 1)]);
+    }
+}
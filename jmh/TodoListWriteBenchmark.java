@@ -0,0 +1,124 @@
+package com.todolist;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Замеры JMH для операций, которые меняют список: addTask, editTask, deleteTask
+ * и sortByDueDate на 1 тыс., 100 тыс. и 1 млн задач с текстами из TodoListBenchmark.
+ *
+ * Редактирование не меняет размер списка и замеряется по одной операции. Добавление
+ * и удаление выполняются партиями по BATCH операций, а сортировка - по одной, и после
+ * каждого вызова изменения отменяются через undo (вне замера времени), чтобы каждый вызов
+ * начинался с исходного списка из size задач: иначе за секунду итерации список из 1 тыс.
+ * задач вырос бы в сотни раз или опустел, а сортировка видела бы уже отсортированный список.
+ * Память, выделенная при отмене, попадает в gc.alloc.rate.norm профилировщика -prof gc.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TodoListWriteBenchmark {
+    // Не больше глубины отмены TodoList (MAX_UNDO) и десятой части самого маленького списка
+    static final int BATCH = 100;
+    private static final int POOL = 4096; // Степень двойки: номер значения берётся по маске
+
+    /**
+     * Список из size задач и заранее созданные значения для изменений,
+     * чтобы их создание не входило в замер.
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"1000", "100000", "1000000"})
+        public int size;
+
+        TodoList list;
+        private Task[] values;
+        private int[] positions;
+        private int next;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(42);
+            TodoListBenchmark.Workload workload = new TodoListBenchmark.Workload(size, random);
+            list = workload.newList();
+            values = workload.freshTasks(POOL, random);
+            positions = random.ints(POOL, 0, Integer.MAX_VALUE).toArray();
+        }
+
+        Task nextValue() {
+            return values[next++ & (POOL - 1)];
+        }
+
+        /**
+         * Случайная позиция в списке из bound задач.
+         */
+        int nextIndex(int bound) {
+            return positions[next++ & (POOL - 1)] % bound;
+        }
+    }
+
+    /**
+     * Отменяет изменения, сделанные за вызов замера.
+     */
+    @State(Scope.Benchmark)
+    public static class Rollback {
+        int changes;
+
+        @TearDown(Level.Invocation)
+        public void rollBack(Data data) {
+            for (; changes > 0; changes--) {
+                data.list.undo();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addTask(Data data, Rollback rollback, Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(data.list.addTask(data.nextValue()));
+        }
+        rollback.changes = BATCH;
+    }
+
+    @Benchmark
+    public boolean editTask(Data data) {
+        Task value = data.nextValue();
+        return data.list.editTask(data.nextIndex(data.size),
+                value.getTitle(), value.getDescription(), value.getDueDate(), value.getPriority());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void deleteTask(Data data, Rollback rollback, Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(data.list.deleteTask(data.nextIndex(data.size - i)));
+        }
+        rollback.changes = BATCH;
+    }
+
+    @Benchmark
+    public TodoList sortByDueDate(Data data, Rollback rollback) {
+        data.list.sortByDueDate();
+        rollback.changes = 1;
+        return data.list;
+    }
+}